@@ -0,0 +1,47 @@
+package swap.benchmark;
+
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.MainNetParams;
+import org.openjdk.jmh.annotations.*;
+import swap.helper.HelperAddress;
+import swap.model.Multiaddr;
+
+import java.util.concurrent.TimeUnit;
+
+// Pure Java address handling, the libp2p/Monero validators are native and live in NativeBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressBenchmark {
+    @Param({Fixtures.BTC_P2PKH, Fixtures.BTC_P2SH, Fixtures.BTC_P2WPKH, Fixtures.BTC_INVALID})
+    public String btcAddress;
+
+    private NetworkParameters params;
+    private Multiaddr dnsMultiaddr;
+    private Multiaddr onionMultiaddr;
+
+    @Setup
+    public void setup() {
+        params = MainNetParams.get();
+        dnsMultiaddr = new Multiaddr(Multiaddr.Protocol.DNS4, "discover.unstoppableswap.net", Multiaddr.Protocol.TCP, 8888, Multiaddr.Protocol.P2P, Fixtures.PEER_ID);
+        onionMultiaddr = new Multiaddr(Multiaddr.Protocol.ONION3, "spqfqxirmlrhq7gbiwn4jn35c77gu2kof26i6psoc6bbyduol3zty6qd.onion", Multiaddr.Protocol.TCP, 9841, Multiaddr.Protocol.P2P, Fixtures.PEER_ID);
+    }
+
+    @Benchmark
+    public boolean isBtcAddrValid() {
+        return HelperAddress.isBtcAddrValid(btcAddress, params);
+    }
+
+    @Benchmark
+    public String multiaddrDnsToString() {
+        return dnsMultiaddr.toString();
+    }
+
+    @Benchmark
+    public String multiaddrOnionToString() {
+        return onionMultiaddr.toString();
+    }
+}
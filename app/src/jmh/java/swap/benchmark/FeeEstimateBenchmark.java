@@ -0,0 +1,56 @@
+package swap.benchmark;
+
+import com.samourai.wallet.api.backend.beans.UnspentOutput;
+import com.samourai.wallet.segwit.bech32.Bech32UtilGeneric;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.openjdk.jmh.annotations.*;
+import swap.whirlpool.ServiceWhirlpool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ServiceWhirlpool.estimateFee is called once per selected utxo while building a spend, so it runs O(n^2) script parses
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeeEstimateBenchmark {
+    private static final String HASH160 = "89abcdefabbaabbaabbaabbaabbaabbaabbaabba";
+    private static final String[] SCRIPTS = {
+            "76a914" + HASH160 + "88ac", // p2pkh
+            "a914" + HASH160 + "87", // p2sh-p2wpkh
+            "0014" + HASH160 // p2wpkh
+    };
+
+    @Param({"1", "10", "100"})
+    public int inputs;
+
+    private List<UnspentOutput> utxos;
+    private Address destination;
+
+    @Setup
+    public void setup() throws Exception {
+        NetworkParameters params = MainNetParams.get();
+        destination = new Script(Bech32UtilGeneric.getInstance().computeScriptPubKey(Fixtures.BTC_P2WPKH, params)).getToAddress(params);
+        utxos = new ArrayList<>();
+        for (int i = 0; i < inputs; i++) {
+            UnspentOutput utxo = new UnspentOutput();
+            utxo.tx_hash = String.format("%064x", i);
+            utxo.tx_output_n = 0;
+            utxo.value = 100_000L;
+            utxo.script = SCRIPTS[i % SCRIPTS.length];
+            utxos.add(utxo);
+        }
+    }
+
+    @Benchmark
+    public long estimateFee() {
+        return ServiceWhirlpool.estimateFee(utxos, 2, destination, 12);
+    }
+}
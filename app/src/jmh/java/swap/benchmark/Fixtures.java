@@ -0,0 +1,16 @@
+package swap.benchmark;
+
+// Well-formed sample values shared by the benchmarks
+final class Fixtures {
+    static final String PEER_ID = "12D3KooWA6cnqJpVnreBVnoro8midDL9Lpzmg8oJPoAGi7YYaamE";
+    static final String MULTIADDR_DNS = "/dns4/discover.unstoppableswap.net/tcp/8888/p2p/" + PEER_ID;
+    static final String MULTIADDR_ONION = "/onion3/spqfqxirmlrhq7gbiwn4jn35c77gu2kof26i6psoc6bbyduol3zty6qd:9841/p2p/12D3KooWM9ipr33nEtxyCBF7fdbHsMrRzHaSf1bEVYzV8XSBSMet";
+    static final String BTC_P2PKH = "1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa";
+    static final String BTC_P2SH = "3J98t1WpEZ73CNmQviecrnyiWrnqRhWNLy";
+    static final String BTC_P2WPKH = "bc1qar0srrr7xfkvy5l643lydnw9re59gtzzwf5mdq";
+    static final String BTC_INVALID = "bc1qar0srrr7xfkvy5l643lydnw9re59gtzzwf5mdx";
+    static final String XMR_ADDRESS = "888tNkZrPN6JsEgekjMnABU4TBzc2Dt29EPAvkRxbANsAnjyPbb3iQ1YBRk1UXcdRsiKc9dhwMVgN5S9cQUiyoogDavup3H";
+
+    private Fixtures() {
+    }
+}
@@ -0,0 +1,40 @@
+package swap.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import swap.helper.HelperAddress;
+import swap.helper.HelperLibraryNative;
+import swap.model.Multiaddr;
+
+import java.util.concurrent.TimeUnit;
+
+// Round trips through JNI into libatomicswap. Only run with -PjmhNative, the library must be built first (scripts/prepare).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeBenchmark {
+    @Param({Fixtures.MULTIADDR_DNS, Fixtures.MULTIADDR_ONION})
+    public String multiaddr;
+
+    @Setup
+    public void setup() {
+        HelperLibraryNative.loadLibrary();
+    }
+
+    @Benchmark
+    public boolean isXmrAddrValid() {
+        return HelperAddress.isXmrAddrValid(Fixtures.XMR_ADDRESS);
+    }
+
+    @Benchmark
+    public boolean isLibp2pPeerValid() {
+        return HelperAddress.isLibp2pPeerValid(multiaddr);
+    }
+
+    @Benchmark
+    public Multiaddr parseMultiaddr() {
+        return HelperAddress.parseMultiaddr(multiaddr);
+    }
+}
@@ -0,0 +1,50 @@
+package swap.benchmark;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import swap.helper.HelperRawJsonDb;
+
+import java.util.concurrent.TimeUnit;
+
+// Same read-modify-write HelperSwapsDb does for every lock txid / swaps account update: the whole db is rewritten each time.
+// Runs against -Dswap.dataDir (set by the jmh task) so the real swaps.json is never touched.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RawJsonDbBenchmark {
+    private static final String DB_NAME = "benchmark-swaps";
+
+    @Param({"10", "100", "1000"})
+    public int existingSwaps;
+
+    private HelperRawJsonDb db;
+    private int counter = 0;
+
+    @Setup
+    public void setup() {
+        if (System.getProperty("swap.dataDir") == null)
+            throw new IllegalStateException("swap.dataDir must be set, run through ./gradlew jmh");
+        db = HelperRawJsonDb.getInstance();
+        JSONObject swapDb = new JSONObject();
+        for (int i = 0; i < existingSwaps; i++) {
+            swapDb.put("swap_" + i, new JSONObject()
+                    .put("xmr_lock_txid", String.format("%064x", i))
+                    .put("swaps_account", 2147483643L));
+        }
+        db.updateDb(DB_NAME, swapDb);
+    }
+
+    @Benchmark
+    public JSONObject upsert() {
+        int swap = counter++ % existingSwaps;
+        JSONObject swapDb = db.getDb(DB_NAME);
+        JSONObject swapJson = swapDb.getJSONObject("swap_" + swap);
+        swapJson.put("xmr_lock_txid", String.format("%064x", counter));
+        swapDb.put("swap_" + swap, swapJson);
+        db.updateDb(DB_NAME, swapDb);
+        return swapDb;
+    }
+}
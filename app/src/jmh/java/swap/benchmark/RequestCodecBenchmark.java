@@ -0,0 +1,71 @@
+package swap.benchmark;
+
+import org.bitcoinj.params.MainNetParams;
+import org.openjdk.jmh.annotations.*;
+import swap.codec.CborWriter;
+import swap.model.request.ListSellersRequest;
+import swap.model.request.ResumeRequest;
+import swap.model.request.SwapRequest;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of building the CBOR payload handed to the native library for every request
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestCodecBenchmark {
+    private SwapRequest swapRequest;
+    private ResumeRequest resumeRequest;
+    private ListSellersRequest listSellersRequest;
+
+    @Setup
+    public void setup() {
+        long session = 1L;
+        swapRequest = new SwapRequest(
+                "6f5b2ad6-4f8e-4a8f-9a7e-0a4b1c1c9d10",
+                session,
+                Fixtures.XMR_ADDRESS,
+                "ssl://electrum.example.org:50002",
+                Fixtures.MULTIADDR_DNS,
+                "socks5h://127.0.0.1:9050",
+                "http://127.0.0.1:18083/json_rpc",
+                MainNetParams.get(),
+                9050,
+                Fixtures.BTC_P2WPKH,
+                2147483643L);
+        resumeRequest = new ResumeRequest(
+                session,
+                "6f5b2ad6-4f8e-4a8f-9a7e-0a4b1c1c9d10",
+                "ssl://electrum.example.org:50002",
+                "socks5h://127.0.0.1:9050",
+                MainNetParams.get(),
+                9050,
+                2147483643L);
+        listSellersRequest = new ListSellersRequest(session, Fixtures.MULTIADDR_DNS, 9050, MainNetParams.get());
+    }
+
+    @Benchmark
+    public int swapRequestToCbor() {
+        return encode(swapRequest.toCbor());
+    }
+
+    @Benchmark
+    public int resumeRequestToCbor() {
+        return encode(resumeRequest.toCbor());
+    }
+
+    @Benchmark
+    public int listSellersRequestToCbor() {
+        return encode(listSellersRequest.toCbor());
+    }
+
+    // includes the wipe done after every native call
+    private static int encode(CborWriter writer) {
+        int length = writer.length();
+        writer.wipe();
+        return length;
+    }
+}
@@ -0,0 +1,57 @@
+package swap.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import swap.codec.CborWriter;
+import swap.model.response.GetHistoryResponse;
+import swap.model.response.ListSellersResponse;
+
+import java.util.concurrent.TimeUnit;
+
+// Parsing of the CBOR returned by listSellers/getHistory, sized from a handful of entries up to a very busy ASB
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseCodecBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int entries;
+
+    private byte[] listSellersCbor;
+    private byte[] getHistoryCbor;
+
+    @Setup
+    public void setup() {
+        CborWriter sellers = new CborWriter().map(1).key("sellers").array(entries);
+        for (int i = 0; i < entries; i++) {
+            sellers.map(2)
+                    .key("multiaddr").text("/ip4/10.0." + (i / 256 % 256) + "." + (i % 256) + "/tcp/9939/p2p/" + Fixtures.PEER_ID)
+                    .key("status").map(4)
+                    .key("offline").bool(i % 10 == 0)
+                    .key("minQuantity").text("0.001")
+                    .key("maxQuantity").text("0.05")
+                    .key("price").text(String.valueOf(0.0065 + i * 0.000001));
+        }
+        listSellersCbor = sellers.toByteArray();
+
+        String[] statuses = {"XMR_REDEEMED", "REFUNDED", "BTC_LOCKED", "SAFELY_ABORTED"};
+        CborWriter swaps = new CborWriter().map(1).key("swaps").array(entries);
+        for (int i = 0; i < entries; i++) {
+            swaps.map(2)
+                    .key("swapId").text(String.format("00000000-0000-4000-8000-%012d", i))
+                    .key("status").text(statuses[i % statuses.length]);
+        }
+        getHistoryCbor = swaps.toByteArray();
+    }
+
+    @Benchmark
+    public ListSellersResponse listSellersFromCbor() {
+        return ListSellersResponse.fromCbor(listSellersCbor);
+    }
+
+    @Benchmark
+    public GetHistoryResponse getHistoryFromCbor() {
+        return GetHistoryResponse.fromCbor(getHistoryCbor);
+    }
+}
@@ -0,0 +1,109 @@
+package swap.benchmark;
+
+import org.bitcoinj.core.Coin;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import swap.gui.node.SellerRow;
+import swap.gui.node.SellerTableModel;
+import swap.model.Seller;
+import swap.seller.SellerScorer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cost of a sellers table refresh (rank + rows) and of one render pass over every row, next to what the cell
+// value factories used to do per render (parse Coin from double strings, recompute the spread).
+// Runs headless: only javafx.base properties and observable lists are involved, no cells are laid out.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SellerTableBenchmark {
+    private static final long SPOT_SATOSHIS = 650_000L;
+
+    @Param({"50", "500", "2000"})
+    public int sellers;
+
+    private List<Seller> sellerList;
+    private SellerScorer scorer;
+    private LinkedHashMap<Seller, Double> ranked;
+    private SellerTableModel model;
+    private long tick = 0;
+
+    @Setup
+    public void setup() {
+        if (System.getProperty("swap.dataDir") == null)
+            throw new IllegalStateException("swap.dataDir must be set, run through ./gradlew jmh");
+        File stats = new File(System.getProperty("swap.dataDir"), "benchmark-seller-stats.bin");
+        stats.delete();
+        scorer = new SellerScorer(stats);
+        sellerList = new ArrayList<>(sellers);
+        for (int i = 0; i < sellers; i++) {
+            sellerList.add(new Seller(
+                    "/ip4/10.0." + (i / 256 % 256) + "." + (i % 256) + "/tcp/9939/p2p/" + Fixtures.PEER_ID + i,
+                    100_000L, 5_000_000L + i * 1_000L, 640_000L + i * 7L, 800L + i % 4_000));
+        }
+        ranked = scorer.scores(sellerList);
+        model = new SellerTableModel();
+        model.setSpotSatoshis(SPOT_SATOSHIS);
+        model.setSellers(ranked);
+    }
+
+    // One rendezvous callback: every seller ranked again, rows reused
+    @Benchmark
+    public SellerTableModel refresh() {
+        model.setSellers(scorer.scores(sellerList));
+        return model;
+    }
+
+    // First callback of a refresh: every row built
+    @Benchmark
+    public SellerTableModel refreshNewRows() {
+        SellerTableModel fresh = new SellerTableModel();
+        fresh.setSpotSatoshis(SPOT_SATOSHIS);
+        fresh.setSellers(ranked);
+        return fresh;
+    }
+
+    // A spot price tick
+    @Benchmark
+    public SellerTableModel spotTick() {
+        model.setSpotSatoshis(SPOT_SATOSHIS + (++tick % 100));
+        return model;
+    }
+
+    // What the table reads per row when it lays out or scrolls
+    @Benchmark
+    public void render(Blackhole blackhole) {
+        for (SellerRow row : model.getRows()) {
+            blackhole.consume(row.multiaddrProperty().get());
+            blackhole.consume(row.minProperty().get());
+            blackhole.consume(row.maxProperty().get());
+            blackhole.consume(row.priceProperty().get());
+            blackhole.consume(row.spreadProperty().get());
+            blackhole.consume(row.scoreProperty().get());
+        }
+    }
+
+    // The previous cell value factories, for comparison with render()
+    @Benchmark
+    public void renderFromDoubles(Blackhole blackhole) {
+        Coin spot = Coin.valueOf(SPOT_SATOSHIS);
+        for (Seller seller : sellerList) {
+            double min = seller.minSatoshis() / 100_000_000d;
+            double max = seller.maxSatoshis() / 100_000_000d;
+            double price = seller.priceSatoshis() / 100_000_000d;
+            blackhole.consume(seller.multiaddr());
+            blackhole.consume(Coin.parseCoin(String.valueOf(min)).toPlainString());
+            blackhole.consume(Coin.parseCoin(String.valueOf(max)).toPlainString());
+            blackhole.consume(Coin.parseCoin(String.valueOf(price)).toPlainString());
+            long difference = Coin.parseCoin(price + "").value - spot.value;
+            blackhole.consume("≈ " + Math.round(((double) difference / (double) spot.value) * 100d) + "%");
+        }
+    }
+}
@@ -4,18 +4,22 @@ import com.samourai.whirlpool.client.wallet.beans.SamouraiAccountIndex;
 import org.berndpruenster.netlayer.tor.Tor;
 import org.bitcoinj.core.NetworkParameters;
 import org.json.JSONObject;
+import swap.codec.CborWriter;
 import swap.helper.HelperAddress;
 import swap.helper.HelperRawJsonDb;
 import swap.helper.HelperSwapsDb;
 import swap.lib.App;
 import swap.lib.AppSwap;
 import swap.lib.AppXmrRpc;
+import swap.lib.SellerWarmer;
+import swap.metrics.SwapMetrics;
 import swap.model.request.CancelAndRefundRequest;
 import swap.model.request.ResumeRequest;
 import swap.model.request.SwapRequest;
 import swap.process.ProcessRpcMonero;
 
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -35,7 +39,7 @@ public class ClientSwap implements App {
         startXmrRpcProcess(swapRequest.params(), swapRequest.proxyPort());
         this.swapRequest = new SwapRequest(
                 swapRequest.uuid(),
-                swapRequest.seedBase64(),
+                swapRequest.session(),
                 swapRequest.xmrReceiveAddress(),
                 swapRequest.electrumUrl(),
                 swapRequest.libp2pPeerAddress(),
@@ -53,7 +57,7 @@ public class ClientSwap implements App {
         startXmrRpcProcess(resumeRequest.params(), resumeRequest.proxyPort());
         long swapsAccount = HelperSwapsDb.getInstance().getSwapsAccount(resumeRequest.swapId());
         this.resumeRequest = new ResumeRequest(
-                resumeRequest.seedBase64(),
+                resumeRequest.session(),
                 resumeRequest.swapId(),
                 resumeRequest.electrumUrl(),
                 resumeRequest.proxy(),
@@ -122,7 +126,14 @@ public class ClientSwap implements App {
     private void buyXmr() {
         if (swapRequest == null) return;
         if (HelperAddress.isLibp2pPeerValid(swapRequest.libp2pPeerAddress()) && HelperAddress.isXmrAddrValid(swapRequest.xmrReceiveAddress())) {
-            buyXmr(swapRequest.toJson().toString());
+            SwapMetrics.getInstance().onSwapStarted(swapRequest.uuid(), swapRequest.libp2pPeerAddress());
+            SellerWarmer.getInstance().onSwapStarted(swapRequest.uuid(), swapRequest.libp2pPeerAddress());
+            CborWriter request = swapRequest.toCbor();
+            try {
+                buyXmr(request.buffer(), request.length());
+            } finally {
+                request.wipe();
+            }
         }
     }
 
@@ -130,7 +141,13 @@ public class ClientSwap implements App {
         if (resumeRequest == null) return;
         String swapId = resumeRequest.swapId();
         if (isValidUuid(swapId)) {
-            resume(resumeRequest.toJson().toString());
+            SwapMetrics.getInstance().onSwapStarted(swapId, null);
+            CborWriter request = resumeRequest.toCbor();
+            try {
+                resume(request.buffer(), request.length());
+            } finally {
+                request.wipe();
+            }
         }
     }
 
@@ -138,9 +155,9 @@ public class ClientSwap implements App {
         return cancelAndRefund(cancelAndRefundRequest.toJson().toString());
     }
 
-    private native void buyXmr(String json);
+    private native void buyXmr(ByteBuffer cborRequest, int length);
 
-    private native void resume(String json);
+    private native void resume(ByteBuffer cborRequest, int length);
 
     private native String cancelAndRefund(String json);
 
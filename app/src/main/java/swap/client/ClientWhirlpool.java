@@ -12,8 +12,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -25,6 +28,8 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import swap.gui.GUISwap;
 import swap.helper.HelperProperties;
 import swap.lib.AppSwap;
+import swap.listener.Listeners;
+import swap.model.LogType;
 import swap.whirlpool.ServiceWhirlpool;
 
 import javax.annotation.PreDestroy;
@@ -62,6 +67,7 @@ public class ClientWhirlpool implements ApplicationRunner {
     private static FileLock fileLock;
     private static boolean restart;
     private static Integer exitCode;
+    private static final Logger LOG = LoggerFactory.getLogger(ClientWhirlpool.class);
     private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     @Autowired
     private Environment env;
@@ -100,6 +106,81 @@ public class ClientWhirlpool implements ApplicationRunner {
         }
     }
 
+    public static void startWhirlpool(String walletPassphrase, boolean restart) {
+        if (restart) {
+            Listeners.printSwapLogLn(LogType.INFO, "[WHIRLPOOL] Failed to connect. Retrying...", false);
+        } else {
+            Listeners.printSwapLogLn(LogType.INFO, "[WHIRLPOOL] Starting Whirlpool...", false);
+        }
+
+        String[] args = new String[]{"--authenticate"};
+        ClientWhirlpool.passphrase = walletPassphrase; // passing as arg prints to console (CliService)
+        ClientWhirlpool.setRestart(false);
+
+        GUISwap.executorService.submit(() -> {
+            if (ClientWhirlpool.applicationContext != null) {
+                ClientWhirlpool.applicationContext.close();
+            }
+
+            if (!GUISwap.running.get()) {
+                ClientWhirlpool.handleTempWhirlpoolClientFiles();
+            }
+
+            CliUtils.setLogLevel(false, false);
+
+            try {
+                ClientWhirlpool.applicationContext =
+                        new SpringApplicationBuilder(ClientWhirlpool.class)
+                                .logStartupInfo(false)
+                                .web(WebApplicationType.NONE)
+                                .run(args);
+
+                if (ClientWhirlpool.getRestart()) {
+                    // restart
+                    restartWhirlpool(walletPassphrase);
+                } else {
+                    if (ClientWhirlpool.getExitCode() != null) {
+                        // exit
+                        exitWhirlpool(ClientWhirlpool.getExitCode());
+                    } else {
+                        // success
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("CLI startup complete.");
+                        }
+                    }
+                }
+            } catch (Exception ignored) {
+            }
+        });
+    }
+
+    private static void restartWhirlpool(String walletPassphrase) {
+        long restartDelay = 1000;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Restarting CLI in " + restartDelay + "ms");
+        }
+
+        // wait for restartDelay
+        try {
+            Thread.sleep(restartDelay);
+        } catch (InterruptedException ignored) {
+        }
+
+        // restart application
+        LOG.info("Restarting CLI...");
+
+        startWhirlpool(walletPassphrase, true);
+    }
+
+    public static void exitWhirlpool(int exitCode) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Exit: " + exitCode);
+        }
+        if (ClientWhirlpool.applicationContext != null) {
+            SpringApplication.exit(ClientWhirlpool.applicationContext, () -> exitCode);
+        }
+    }
+
     public static Integer getExitCode() {
         return exitCode;
     }
@@ -0,0 +1,7 @@
+package swap.codec;
+
+public class CborException extends RuntimeException {
+    public CborException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,195 @@
+package swap.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Minimal CBOR (RFC 8949) decoder for the responses returned by the native library (serde_cbor on the Rust side).
+// Structs arrive as maps keyed by camelCase field name, Option::None as null.
+public final class CborReader {
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+    private static final int MAJOR_SIMPLE = 7;
+    private static final int INDEFINITE = 31;
+    private static final int BREAK = 0xff;
+
+    private final ByteBuffer buffer;
+
+    public CborReader(byte[] bytes) {
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    // Returns the number of entries, or -1 for an indefinite length map (read until isBreak())
+    public int readMap() {
+        return (int) readLength(MAJOR_MAP);
+    }
+
+    // Returns the number of items, or -1 for an indefinite length array (read until isBreak())
+    public int readArray() {
+        return (int) readLength(MAJOR_ARRAY);
+    }
+
+    // Loop condition for a container of the given length (from readMap/readArray) at entry index,
+    // works for both definite and indefinite lengths
+    public boolean hasNext(int length, int index) {
+        return length < 0 ? !isBreak() : index < length;
+    }
+
+    // Consumes the break marker that ends an indefinite length container
+    public boolean isBreak() {
+        if (peek() == BREAK) {
+            buffer.get();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isNull() {
+        return peek() == 0xf6;
+    }
+
+    public String readText() {
+        int length = (int) readLength(MAJOR_TEXT);
+        if (length < 0) throw new CborException("Indefinite length text is not supported");
+        require(length);
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    public String readTextOrNull() {
+        if (isNull()) {
+            buffer.get();
+            return null;
+        }
+        return readText();
+    }
+
+    public byte[] readBytes() {
+        int length = (int) readLength(MAJOR_BYTES);
+        if (length < 0) throw new CborException("Indefinite length bytes are not supported");
+        require(length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    public long readLong() {
+        int initial = next();
+        int major = initial >>> 5;
+        long value = readArgument(initial & 0x1f);
+        if (major == MAJOR_UNSIGNED) return value;
+        if (major == MAJOR_NEGATIVE) return -1 - value;
+        throw new CborException("Expected integer, got major type " + major);
+    }
+
+    public boolean readBoolean() {
+        int initial = next();
+        if (initial == 0xf4) return false;
+        if (initial == 0xf5) return true;
+        throw new CborException("Expected boolean, got 0x" + Integer.toHexString(initial));
+    }
+
+    // Skips one complete data item, used for fields this side does not know about
+    public void skip() {
+        int initial = next();
+        int major = initial >>> 5;
+        int additional = initial & 0x1f;
+        switch (major) {
+            case MAJOR_UNSIGNED, MAJOR_NEGATIVE -> readArgument(additional);
+            case MAJOR_BYTES, MAJOR_TEXT -> {
+                if (additional == INDEFINITE) {
+                    while (!isBreak()) skip();
+                } else {
+                    advance(readArgument(additional));
+                }
+            }
+            case MAJOR_ARRAY, MAJOR_MAP -> {
+                int itemsPerEntry = major == MAJOR_MAP ? 2 : 1;
+                if (additional == INDEFINITE) {
+                    while (!isBreak()) {
+                        for (int i = 0; i < itemsPerEntry; i++) skip();
+                    }
+                } else {
+                    long entries = readArgument(additional);
+                    for (long i = 0; i < entries * itemsPerEntry; i++) skip();
+                }
+            }
+            case MAJOR_TAG -> {
+                readArgument(additional);
+                skip();
+            }
+            case MAJOR_SIMPLE -> {
+                // 24: simple value, 25/26/27: half/single/double float
+                switch (additional) {
+                    case 24 -> advance(1);
+                    case 25 -> advance(2);
+                    case 26 -> advance(4);
+                    case 27 -> advance(8);
+                    default -> {
+                    }
+                }
+            }
+            default -> throw new CborException("Unknown major type " + major);
+        }
+    }
+
+    private long readLength(int expectedMajor) {
+        int initial = next();
+        int major = initial >>> 5;
+        if (major != expectedMajor)
+            throw new CborException("Expected major type " + expectedMajor + ", got " + major);
+        int additional = initial & 0x1f;
+        if (additional == INDEFINITE) return -1;
+        return readArgument(additional);
+    }
+
+    private long readArgument(int additional) {
+        if (additional < 24) return additional;
+        return switch (additional) {
+            case 24 -> next() & 0xffL;
+            case 25 -> {
+                require(2);
+                yield buffer.getShort() & 0xffffL;
+            }
+            case 26 -> {
+                require(4);
+                yield buffer.getInt() & 0xffffffffL;
+            }
+            case 27 -> {
+                require(8);
+                yield buffer.getLong();
+            }
+            default -> throw new CborException("Invalid additional information " + additional);
+        };
+    }
+
+    private int next() {
+        require(1);
+        return buffer.get() & 0xff;
+    }
+
+    private int peek() {
+        require(1);
+        return buffer.get(buffer.position()) & 0xff;
+    }
+
+    private void advance(long bytes) {
+        require(bytes);
+        buffer.position(buffer.position() + (int) bytes);
+    }
+
+    // Truncated input is a CborException like any other malformed response, not a buffer exception
+    private void require(long bytes) {
+        if (bytes < 0 || bytes > buffer.remaining())
+            throw new CborException("Truncated CBOR: " + bytes + " bytes needed, " + buffer.remaining() + " left");
+    }
+}
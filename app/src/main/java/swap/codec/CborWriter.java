@@ -0,0 +1,141 @@
+package swap.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Minimal CBOR (RFC 8949) encoder for the request payloads handed to the native library.
+// Writes straight into a direct ByteBuffer so Rust can read it in place (GetDirectBufferAddress) without an intermediate String,
+// call wipe() once the native call returns so secrets (seeds) do not linger in native memory.
+public final class CborWriter {
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final byte FALSE = (byte) 0xf4;
+    private static final byte TRUE = (byte) 0xf5;
+    private static final byte NULL = (byte) 0xf6;
+
+    private ByteBuffer buffer;
+
+    public CborWriter() {
+        this(256);
+    }
+
+    public CborWriter(int initialCapacity) {
+        this.buffer = ByteBuffer.allocateDirect(initialCapacity);
+    }
+
+    public CborWriter map(int size) {
+        header(MAJOR_MAP, size);
+        return this;
+    }
+
+    public CborWriter array(int size) {
+        header(MAJOR_ARRAY, size);
+        return this;
+    }
+
+    public CborWriter key(String key) {
+        return text(key);
+    }
+
+    public CborWriter text(String value) {
+        if (value == null) return nil();
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        header(MAJOR_TEXT, utf8.length);
+        ensure(utf8.length);
+        buffer.put(utf8);
+        return this;
+    }
+
+    public CborWriter bytes(byte[] value) {
+        if (value == null) return nil();
+        header(MAJOR_BYTES, value.length);
+        ensure(value.length);
+        buffer.put(value);
+        return this;
+    }
+
+    public CborWriter number(long value) {
+        if (value >= 0) {
+            header(MAJOR_UNSIGNED, value);
+        } else {
+            header(MAJOR_NEGATIVE, -1 - value);
+        }
+        return this;
+    }
+
+    public CborWriter bool(boolean value) {
+        ensure(1);
+        buffer.put(value ? TRUE : FALSE);
+        return this;
+    }
+
+    public CborWriter nil() {
+        ensure(1);
+        buffer.put(NULL);
+        return this;
+    }
+
+    // Encoded bytes are [0, length())
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return buffer.position();
+    }
+
+    public byte[] toByteArray() {
+        byte[] out = new byte[buffer.position()];
+        buffer.duplicate().flip().get(out);
+        return out;
+    }
+
+    public void wipe() {
+        zero(buffer);
+    }
+
+    private void header(int major, long value) {
+        int initial = major << 5;
+        if (value < 24) {
+            ensure(1);
+            buffer.put((byte) (initial | value));
+        } else if (value <= 0xffL) {
+            ensure(2);
+            buffer.put((byte) (initial | 24));
+            buffer.put((byte) value);
+        } else if (value <= 0xffffL) {
+            ensure(3);
+            buffer.put((byte) (initial | 25));
+            buffer.putShort((short) value);
+        } else if (value <= 0xffffffffL) {
+            ensure(5);
+            buffer.put((byte) (initial | 26));
+            buffer.putInt((int) value);
+        } else {
+            ensure(9);
+            buffer.put((byte) (initial | 27));
+            buffer.putLong(value);
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        zero(buffer);
+        buffer = grown;
+    }
+
+    private static void zero(ByteBuffer buffer) {
+        buffer.clear();
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+}
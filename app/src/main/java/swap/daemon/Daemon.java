@@ -0,0 +1,307 @@
+package swap.daemon;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import swap.client.ClientSwap;
+import swap.client.ClientWhirlpool;
+import swap.gui.GUISwap;
+import swap.helper.HelperAddress;
+import swap.helper.HelperProperties;
+import swap.helper.HelperSwapsDb;
+import swap.helper.HelperWallet;
+import swap.lib.AppSwap;
+import swap.lib.AppXmrRpc;
+import swap.listener.Listeners;
+import swap.listener.RpcDownloadListener;
+import swap.listener.StartupListener;
+import swap.model.LogType;
+import swap.model.Multiaddr;
+import swap.model.Seller;
+import swap.model.request.GetHistoryRequest;
+import swap.model.request.ListSellersRequest;
+import swap.model.request.ResumeRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Headless entry point for long running liquidity providers: runs AppSwap, AppAsb, Whirlpool and Tor without loading JavaFX.
+// Everything the GUI would show goes to the structured log (daemon.log) and the loopback JSON-RPC API (DaemonRpcServer).
+//
+// Usage: Daemon [--passphrase-file <file>] [--pairing-payload-file <file>] [--rpc-port <port>] [--asb] [--no-whirlpool]
+// The passphrase can also be given with the SWAP_PASSPHRASE environment variable.
+public class Daemon implements StartupListener {
+    private static final long TOR_READY_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+    private final String passphrase;
+    private final boolean startAsb;
+    private final boolean startWhirlpool;
+    private final DaemonLog log;
+    private final DaemonRpcServer rpcServer;
+    private final DaemonSwapListener swapListener;
+    private final DaemonAsbListener asbListener;
+    private final DaemonWhirlpoolListener whirlpoolListener;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final long startedAt = System.currentTimeMillis();
+
+    public static void main(String[] args) {
+        String passphraseFile = null;
+        String pairingPayloadFile = null;
+        int rpcPort = DaemonRpcServer.DEFAULT_PORT;
+        boolean startAsb = false;
+        boolean startWhirlpool = true;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--passphrase-file" -> passphraseFile = args[++i];
+                case "--pairing-payload-file" -> pairingPayloadFile = args[++i];
+                case "--rpc-port" -> rpcPort = Integer.parseInt(args[++i]);
+                case "--asb" -> startAsb = true;
+                case "--no-whirlpool" -> startWhirlpool = false;
+                default -> {
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        try {
+            String passphrase = passphraseFile != null ? readFile(passphraseFile) : System.getenv("SWAP_PASSPHRASE");
+            String pairingPayload = pairingPayloadFile != null ? readFile(pairingPayloadFile) : null;
+            if (passphrase == null || passphrase.isEmpty()) {
+                System.err.println("No passphrase given, use --passphrase-file or SWAP_PASSPHRASE");
+                System.exit(2);
+            }
+
+            GUISwap.startServices();
+            HelperProperties.init(pairingPayload);
+            if (!HelperWallet.checkPassphrase(HelperProperties.mnemonicEncrypted, passphrase)) {
+                System.err.println("Invalid passphrase!");
+                GUISwap.shutdown();
+                System.exit(1);
+            }
+
+            Daemon daemon = new Daemon(passphrase, startAsb, startWhirlpool, rpcPort);
+            daemon.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+            Runtime.getRuntime().halt(1);
+        }
+    }
+
+    private static String readFile(String path) throws IOException {
+        return Files.readString(new File(path).toPath()).trim();
+    }
+
+    private Daemon(String passphrase, boolean startAsb, boolean startWhirlpool, int rpcPort) {
+        this.passphrase = passphrase;
+        this.startAsb = startAsb;
+        this.startWhirlpool = startWhirlpool;
+        File swapRootDir = AppSwap.getSwapRootDir();
+        this.log = new DaemonLog(new File(swapRootDir, "daemon.log"));
+        this.rpcServer = new DaemonRpcServer(rpcPort, new File(swapRootDir, "daemon.cookie"));
+        this.swapListener = new DaemonSwapListener(this, log);
+        this.asbListener = new DaemonAsbListener(log);
+        this.whirlpoolListener = new DaemonWhirlpoolListener(log);
+    }
+
+    private void run() throws Exception {
+        Listeners.logListener = log;
+        Listeners.swapListener = swapListener;
+        Listeners.asbListener = asbListener;
+        Listeners.whirlpoolListener = whirlpoolListener;
+        Listeners.rpcDownloadListener = new RpcDownloadListener() {
+            @Override
+            public void onRpcDownloaded() {
+                log.event("rpcDownload", new JSONObject().put("state", "DOWNLOADED"));
+            }
+
+            @Override
+            public void onRpcDownloadError(String error) {
+                log.event("rpcDownload", new JSONObject().put("state", "ERROR").put("errorMessage", error));
+            }
+
+            @Override
+            public void onRpcDownloadProgress(long pct) {
+                if (pct % 10 == 0)
+                    log.event("rpcDownload", new JSONObject().put("state", "PROGRESS").put("percent", pct));
+            }
+        };
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+
+        registerRpcMethods();
+        rpcServer.start();
+        log.event("daemon", new JSONObject().put("state", "STARTING").put("version", GUISwap.VERSION));
+
+        if (HelperProperties.isUseTor()) {
+            waitForTor();
+        }
+
+        ClientWhirlpool.copyWhirlpoolClientFilesToTempLocation();
+        AppSwap appSwap = new AppSwap(passphrase, this);
+        GUISwap.appSwap = appSwap;
+        appSwap.getProxy().ifPresent(proxy -> appSwap.rpcRootDir = AppXmrRpc.maybeDownloadXmrRpc(proxy, Listeners.rpcDownloadListener));
+        appSwap.start();
+
+        stopped.await();
+    }
+
+    private void waitForTor() throws Exception {
+        long deadline = System.currentTimeMillis() + TOR_READY_TIMEOUT_MS;
+        while (!GUISwap.isTorReady()) {
+            if (System.currentTimeMillis() > deadline) throw new TimeoutException("Tor did not start within " + TOR_READY_TIMEOUT_MS + " ms");
+            Thread.sleep(1000L);
+        }
+        GUISwap.publishHiddenService();
+        if (GUISwap.hiddenServiceContainer == null) throw new IllegalStateException("Failed to publish hidden service");
+        log.event("tor", new JSONObject().put("state", "READY").put("onion", GUISwap.hiddenServiceContainer.getHostname()));
+    }
+
+    @Override
+    public void onClientStarted() {
+        log.event("daemon", new JSONObject().put("state", "CLIENT_STARTED"));
+        if (startWhirlpool) ClientWhirlpool.startWhirlpool(passphrase, false);
+        if (startAsb) GUISwap.appAsb.start();
+        GUISwap.executorService.submit(this::maybeAutoResume);
+    }
+
+    private void maybeAutoResume() {
+        AppSwap appSwap = GUISwap.appSwap;
+        if (appSwap == null) return;
+        appSwap.getHistory(GetHistoryRequest.incomplete(appSwap.getParams())).getSwaps().stream()
+                .findFirst()
+                .ifPresent(swapData -> resumeSwap(swapData.swapId()));
+    }
+
+    void resumeSwap(String swapId) {
+        AppSwap appSwap = GUISwap.appSwap;
+        if (appSwap == null) return;
+        ClientSwap clientSwap = appSwap.getSwapClients().get(swapId);
+        if (clientSwap != null && clientSwap.running.get()) return;
+        startResume(appSwap, swapId);
+    }
+
+    // Restartable errors (e.g. the monero-wallet-rpc died): restart the rpc processes and resume regardless of the client state, same as the GUI
+    void restartSwap(String swapId) {
+        AppSwap appSwap = GUISwap.appSwap;
+        if (appSwap == null) return;
+        appSwap.restartXmrRpcProcesses();
+        startResume(appSwap, swapId);
+    }
+
+    private void startResume(AppSwap appSwap, String swapId) {
+        appSwap.getProxy().ifPresent(proxy -> {
+            log.event("swap", new JSONObject().put("swapId", swapId).put("state", "RESUMING"));
+            long swapsAccount = HelperSwapsDb.getInstance().getSwapsAccount(swapId);
+            ResumeRequest resumeRequest = new ResumeRequest(appSwap.getSessionHandle(), swapId, appSwap.getElectrumServer(), proxy, appSwap.getParams(), appSwap.getProxyPort(), swapsAccount);
+            GUISwap.executorService.submit(() -> appSwap.resume(resumeRequest));
+        });
+    }
+
+    private void registerRpcMethods() {
+        rpcServer.register("status", params -> new JSONObject()
+                .put("version", GUISwap.VERSION)
+                .put("uptimeSeconds", (System.currentTimeMillis() - startedAt) / 1000L)
+                .put("clientStarted", GUISwap.appSwap != null && GUISwap.appSwap.getKeyChain() != null)
+                .put("swapRunning", GUISwap.isSwapRunning())
+                .put("asbRunning", GUISwap.isAsbRunning())
+                .put("whirlpoolOpened", ClientWhirlpool.walletOpened.get())
+                .put("onion", GUISwap.hiddenServiceContainer != null ? GUISwap.hiddenServiceContainer.getHostname() : JSONObject.NULL)
+                .put("swaps", swapListener.getSwaps()));
+
+        rpcServer.register("balances", params -> new JSONObject()
+                .put("whirlpool", whirlpoolListener.toJson())
+                .put("asb", asbListener.toJson()));
+
+        // optional offset and limit page both histories, most recently updated swap first
+        rpcServer.register("history", params -> {
+            JSONArray swaps = new JSONArray();
+            JSONArray asbSwaps = new JSONArray();
+            AppSwap appSwap = GUISwap.appSwap;
+            if (appSwap != null) {
+                GetHistoryRequest request = new GetHistoryRequest(appSwap.getParams(), historyParam(params, "offset", 0), historyParam(params, "limit", -1));
+                appSwap.getHistory(request).getSwaps()
+                        .forEach(swapData -> swaps.put(new JSONObject().put("swapId", swapData.swapId()).put("status", swapData.status())));
+                GUISwap.appAsb.getHistory(request).getSwaps()
+                        .forEach(swapData -> asbSwaps.put(new JSONObject().put("swapId", swapData.swapId()).put("status", swapData.status())));
+            }
+            return new JSONObject().put("swaps", swaps).put("asbSwaps", asbSwaps);
+        });
+
+        rpcServer.register("startAsb", params -> {
+            if (GUISwap.appSwap == null) throw new IllegalStateException("Swap client not started");
+            if (GUISwap.appAsb.getRunningAsb()) return false;
+            GUISwap.appAsb.start();
+            return true;
+        });
+
+        rpcServer.register("stopAsb", params -> {
+            if (!GUISwap.appAsb.getRunningAsb()) return false;
+            GUISwap.appAsb.stop();
+            GUISwap.appAsb.setRunningAsb(false);
+            return true;
+        });
+
+        rpcServer.register("listSellers", params -> listSellers());
+
+        rpcServer.register("resume", params -> {
+            String swapId = params.getString("swapId");
+            if (swapId.isEmpty()) throw new IllegalArgumentException("swapId is empty");
+            resumeSwap(swapId);
+            return true;
+        });
+
+        rpcServer.register("logs", params -> log.recent(params.optInt("limit", 100)));
+    }
+
+    // getInt rejects non-numbers with a JSONException, both become an invalid params error
+    private static int historyParam(JSONObject params, String name, int defaultValue) {
+        if (!params.has(name)) return defaultValue;
+        int value = params.getInt(name);
+        if (value < 0) throw new IllegalArgumentException(name + " must not be negative");
+        return value;
+    }
+
+    private JSONArray listSellers() throws InterruptedException {
+        AppSwap appSwap = GUISwap.appSwap;
+        if (appSwap == null) throw new IllegalStateException("Swap client not started");
+        // query every rendezvous point in parallel, the same seller is usually registered at several of them
+        ConcurrentHashMap<String, Seller> sellers = new ConcurrentHashMap<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Multiaddr rendezvousPeer : appSwap.getRendezvousPeers()) {
+            if (!HelperAddress.isLibp2pPeerValid(rendezvousPeer.toString())) continue;
+            tasks.add(() -> {
+                ListSellersRequest listSellersRequest = new ListSellersRequest(appSwap.getSessionHandle(), rendezvousPeer.toString(), appSwap.getProxyPort(), appSwap.getParams());
+                appSwap.listSellers(listSellersRequest).sellers().forEach(seller -> sellers.putIfAbsent(seller.multiaddr(), seller));
+                return null;
+            });
+        }
+        for (Future<Void> future : GUISwap.executorService.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Listeners.printSwapLogLn(LogType.WARN, "Failed to list sellers: " + e.getCause().getMessage(), false);
+            }
+        }
+
+        JSONArray sellersArray = new JSONArray();
+        sellers.values().stream()
+                .sorted(Comparator.comparingLong(Seller::priceSatoshis))
+                .forEach(seller -> sellersArray.put(new JSONObject()
+                        .put("multiaddr", seller.multiaddr())
+                        .put("price", BigDecimal.valueOf(seller.priceSatoshis(), 8))
+                        .put("minQuantity", BigDecimal.valueOf(seller.minSatoshis(), 8))
+                        .put("maxQuantity", BigDecimal.valueOf(seller.maxSatoshis(), 8))));
+        return sellersArray;
+    }
+
+    private void shutdown() {
+        log.event("daemon", new JSONObject().put("state", "STOPPING"));
+        rpcServer.stop();
+        GUISwap.shutdown();
+        log.close();
+        stopped.countDown();
+    }
+}
@@ -0,0 +1,93 @@
+package swap.daemon;
+
+import com.samourai.whirlpool.client.wallet.beans.WhirlpoolAccount;
+import org.json.JSONObject;
+import swap.gui.GUISwap;
+import swap.listener.AsbListener;
+import swap.model.AsbBtcBalanceData;
+import swap.model.AsbInitData;
+import swap.model.AsbXmrBalanceData;
+import swap.model.SwapError;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DaemonAsbListener implements AsbListener {
+    private final DaemonLog log;
+    private volatile AsbInitData initData = null;
+    private volatile AsbXmrBalanceData xmrBalanceData = null;
+    private final ConcurrentHashMap<WhirlpoolAccount, AsbBtcBalanceData> btcBalances = new ConcurrentHashMap<>();
+
+    public DaemonAsbListener(DaemonLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public void onAsbInitialized(AsbInitData data) {
+        GUISwap.appAsb.setPeerId(data.peerId());
+        GUISwap.appAsb.setExternalAddress(data.multiaddr());
+        this.initData = data;
+        this.xmrBalanceData = new AsbXmrBalanceData(data.totalXmrBalance(), data.unlockedXmrBalance(), "");
+        log.event("asb", new JSONObject()
+                .put("state", "INITIALIZED")
+                .put("peerId", data.peerId())
+                .put("multiaddr", data.multiaddr())
+                .put("moneroAddress", data.moneroAddress())
+                .put("xmrTotal", data.totalXmrBalance())
+                .put("xmrUnlocked", data.unlockedXmrBalance())
+                .put("btcBalance", data.bitcoinBalance().toPlainString()));
+    }
+
+    @Override
+    public void onAsbXmrBalanceData(AsbXmrBalanceData data) {
+        if (!data.error().isEmpty()) {
+            log.event("asb", new JSONObject().put("state", "XMR_BALANCE_ERROR").put("errorMessage", data.error()));
+            return;
+        }
+        AsbXmrBalanceData previous = this.xmrBalanceData;
+        this.xmrBalanceData = data;
+        if (previous == null || previous.total() != data.total() || previous.unlocked() != data.unlocked()) {
+            log.event("asb", new JSONObject().put("state", "XMR_BALANCE").put("xmrTotal", data.total()).put("xmrUnlocked", data.unlocked()));
+        }
+    }
+
+    @Override
+    public void onAsbBtcBalanceData(WhirlpoolAccount whirlpoolAccount, AsbBtcBalanceData data) {
+        AsbBtcBalanceData previous = btcBalances.put(whirlpoolAccount, data);
+        if (previous == null || !previous.balance().equals(data.balance())) {
+            log.event("asb", new JSONObject()
+                    .put("state", "BTC_BALANCE")
+                    .put("account", whirlpoolAccount.name())
+                    .put("balance", data.balance().toPlainString()));
+        }
+    }
+
+    @Override
+    public void onAsbError(SwapError swapError) {
+        log.event("asb", new JSONObject()
+                .put("state", "ERROR")
+                .put("swapId", swapError.swapId())
+                .put("errorType", swapError.errorType().name())
+                .put("errorMessage", swapError.errorMessage())
+                .put("fatal", swapError.fatal()));
+    }
+
+    public JSONObject toJson() {
+        JSONObject asbJson = new JSONObject();
+        asbJson.put("running", GUISwap.isAsbRunning());
+        AsbInitData init = this.initData;
+        if (init != null) {
+            asbJson.put("peerId", init.peerId());
+            asbJson.put("multiaddr", init.multiaddr());
+            asbJson.put("moneroAddress", init.moneroAddress());
+        }
+        AsbXmrBalanceData xmr = this.xmrBalanceData;
+        if (xmr != null) {
+            asbJson.put("xmrTotal", xmr.total());
+            asbJson.put("xmrUnlocked", xmr.unlocked());
+        }
+        JSONObject btcJson = new JSONObject();
+        btcBalances.forEach((account, data) -> btcJson.put(account.name(), data.balance().toPlainString()));
+        asbJson.put("btc", btcJson);
+        return asbJson;
+    }
+}
@@ -0,0 +1,75 @@
+package swap.daemon;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import swap.listener.LogListener;
+import swap.model.LogType;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+// Structured (one JSON object per line) log written to stdout and daemon.log, the most recent entries are kept for the RPC "logs" method
+public class DaemonLog implements LogListener {
+    private static final int MAX_RECENT = 500;
+    private final ArrayDeque<JSONObject> recent = new ArrayDeque<>();
+    private BufferedWriter writer = null;
+
+    public DaemonLog(File logFile) {
+        try {
+            writer = new BufferedWriter(new FileWriter(logFile, true));
+        } catch (IOException e) {
+            System.err.println("Failed to open " + logFile + ", logging to stdout only: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void printSwapLogLn(LogType logType, String message, boolean kill) {
+        event("log", new JSONObject().put("level", logType.name()).put("message", message));
+    }
+
+    public void event(String type, JSONObject fields) {
+        fields.put("ts", Instant.now().toString());
+        fields.put("type", type);
+        String line = fields.toString();
+        synchronized (recent) {
+            recent.addLast(fields);
+            if (recent.size() > MAX_RECENT) recent.removeFirst();
+            if (writer != null) {
+                try {
+                    writer.write(line);
+                    writer.newLine();
+                    writer.flush();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        System.out.println(line);
+    }
+
+    public JSONArray recent(int limit) {
+        JSONArray entries = new JSONArray();
+        synchronized (recent) {
+            Iterator<JSONObject> iterator = recent.descendingIterator();
+            while (iterator.hasNext() && entries.length() < limit) {
+                entries.put(iterator.next());
+            }
+        }
+        return entries;
+    }
+
+    public void close() {
+        synchronized (recent) {
+            if (writer == null) return;
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+            writer = null;
+        }
+    }
+}
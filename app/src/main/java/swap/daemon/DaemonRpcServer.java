@@ -0,0 +1,140 @@
+package swap.daemon;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONException;
+import org.json.JSONObject;
+import swap.helper.HelperThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+// JSON-RPC 2.0 over HTTP POST, bound to the loopback interface only.
+// Callers authenticate with "Authorization: Bearer <token>", the token is written to the cookie file on start (same idea as bitcoind's .cookie).
+public class DaemonRpcServer {
+    public static final int DEFAULT_PORT = 9470;
+    private static final int PARSE_ERROR = -32700;
+    private static final int INVALID_REQUEST = -32600;
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INVALID_PARAMS = -32602;
+    private static final int INTERNAL_ERROR = -32603;
+
+    public interface Handler {
+        Object handle(JSONObject params) throws Exception;
+    }
+
+    private final Map<String, Handler> methods = new ConcurrentHashMap<>();
+    private final int port;
+    private final File cookieFile;
+    private String token = null;
+    private HttpServer httpServer = null;
+
+    public DaemonRpcServer(int port, File cookieFile) {
+        this.port = port;
+        this.cookieFile = cookieFile;
+    }
+
+    public void register(String method, Handler handler) {
+        methods.put(method, handler);
+    }
+
+    public synchronized void start() throws IOException {
+        if (httpServer != null) return;
+        byte[] tokenBytes = new byte[32];
+        new SecureRandom().nextBytes(tokenBytes);
+        token = HexFormat.of().formatHex(tokenBytes);
+        Files.writeString(cookieFile.toPath(), token);
+        cookieFile.setReadable(false, false);
+        cookieFile.setReadable(true, true);
+
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext("/", this::onExchange);
+        httpServer.setExecutor(Executors.newFixedThreadPool(4, new HelperThread()));
+        httpServer.start();
+    }
+
+    public synchronized void stop() {
+        if (httpServer == null) return;
+        httpServer.stop(0);
+        httpServer = null;
+        cookieFile.delete();
+    }
+
+    private void onExchange(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.equals("Bearer " + token)) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            String body;
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            byte[] response = dispatch(body).toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(response);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    JSONObject dispatch(String body) {
+        JSONObject request;
+        try {
+            request = new JSONObject(body);
+        } catch (JSONException e) {
+            return error(JSONObject.NULL, PARSE_ERROR, "Parse error");
+        }
+
+        Object id = request.opt("id");
+        if (id == null) id = JSONObject.NULL;
+        String method = request.optString("method", null);
+        if (method == null) {
+            return error(id, INVALID_REQUEST, "Invalid request");
+        }
+        Handler handler = methods.get(method);
+        if (handler == null) {
+            return error(id, METHOD_NOT_FOUND, "Method not found: " + method);
+        }
+
+        try {
+            JSONObject params = request.optJSONObject("params");
+            Object result = handler.handle(params != null ? params : new JSONObject());
+            return new JSONObject()
+                    .put("jsonrpc", "2.0")
+                    .put("id", id)
+                    .put("result", result != null ? result : JSONObject.NULL);
+        } catch (IllegalArgumentException | JSONException e) {
+            return error(id, INVALID_PARAMS, e.getMessage());
+        } catch (Exception e) {
+            return error(id, INTERNAL_ERROR, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private static JSONObject error(Object id, int code, String message) {
+        return new JSONObject()
+                .put("jsonrpc", "2.0")
+                .put("id", id)
+                .put("error", new JSONObject().put("code", code).put("message", message));
+    }
+}
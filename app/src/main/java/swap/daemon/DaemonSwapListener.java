@@ -0,0 +1,161 @@
+package swap.daemon;
+
+import org.bitcoinj.core.Coin;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import swap.helper.HelperSwapsDb;
+import swap.lib.SellerWarmer;
+import swap.listener.SwapListener;
+import swap.metrics.SwapMetrics;
+import swap.model.SwapCoin;
+import swap.model.SwapError;
+import swap.model.response.CompletedSwap;
+import swap.model.response.SwapOrder;
+import swap.seller.SellerScorer;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DaemonSwapListener implements SwapListener {
+    private final Daemon daemon;
+    private final DaemonLog log;
+    // swapId -> last known progress of swaps run by this daemon
+    private final ConcurrentHashMap<String, JSONObject> swaps = new ConcurrentHashMap<>();
+
+    public DaemonSwapListener(Daemon daemon, DaemonLog log) {
+        this.daemon = daemon;
+        this.log = log;
+    }
+
+    public JSONArray getSwaps() {
+        JSONArray swapsArray = new JSONArray();
+        swaps.values().forEach(swapsArray::put);
+        return swapsArray;
+    }
+
+    private void update(String swapId, String state, JSONObject fields) {
+        JSONObject swapJson = swaps.computeIfAbsent(swapId, id -> new JSONObject().put("swapId", id));
+        swapJson.put("state", state);
+        swapJson.put("updated", Instant.now().toString());
+        log.event("swap", fields.put("swapId", swapId).put("state", state));
+    }
+
+    @Override
+    public void onOrderCreated(SwapOrder order) {
+        SwapMetrics.getInstance().onOrderCreated(order.swapId());
+        update(order.swapId(), "ORDER_CREATED", new JSONObject()
+                .put("btcAddress", order.btcAddress())
+                .put("minimumSatoshis", order.minimumSatoshis())
+                .put("maximumSatoshis", order.maximumSatoshis()));
+    }
+
+    @Override
+    public void onBtcReceived(Coin newBalance, Coin maxGiveable, Coin minQuantity) {
+        log.event("swap", new JSONObject()
+                .put("state", "BTC_RECEIVED")
+                .put("balance", newBalance.toPlainString())
+                .put("maxGiveable", maxGiveable.toPlainString())
+                .put("minQuantity", minQuantity.toPlainString()));
+    }
+
+    @Override
+    public void onSwapRunning(String swapId, String multiaddr) {
+        SwapMetrics.getInstance().onSwapRunning(swapId, multiaddr);
+        SellerScorer.getInstance().onSwapRunning(swapId, multiaddr);
+        swaps.computeIfAbsent(swapId, id -> new JSONObject().put("swapId", id)).put("seller", multiaddr);
+        update(swapId, "RUNNING", new JSONObject().put("seller", multiaddr));
+    }
+
+    @Override
+    public void onBtcLocked(String btcLockTxid) {
+        log.event("swap", new JSONObject().put("state", "BTC_LOCKED").put("txid", btcLockTxid));
+    }
+
+    @Override
+    public void onBtcLockConfirm(String btcLockTxid) {
+        log.event("swap", new JSONObject().put("state", "BTC_LOCK_CONFIRMED").put("txid", btcLockTxid));
+    }
+
+    @Override
+    public void onXmrLockProofReceived(String swapId, String xmrLockTxid) {
+        HelperSwapsDb.getInstance().setLockTxid(SwapCoin.XMR, swapId, xmrLockTxid);
+        update(swapId, "XMR_LOCK_PROOF_RECEIVED", new JSONObject().put("txid", xmrLockTxid));
+    }
+
+    @Override
+    public void onXmrLockConfirmation(String txid, long confirmations) {
+        log.event("swap", new JSONObject().put("state", "XMR_LOCK_CONFIRMATION").put("txid", txid).put("confirmations", confirmations));
+    }
+
+    @Override
+    public void onBtcRedeemed(String swapId) {
+        update(swapId, "BTC_REDEEMED", new JSONObject());
+    }
+
+    @Override
+    public void onStartRedeemXmrSync(String swapId) {
+        update(swapId, "XMR_REDEEM_SYNC", new JSONObject());
+    }
+
+    @Override
+    public void onStartXmrSweep(String swapId) {
+        update(swapId, "XMR_SWEEP", new JSONObject());
+    }
+
+    @Override
+    public void onSwapCompleted(CompletedSwap completedSwap) {
+        SwapMetrics.getInstance().onSwapFinished(completedSwap.swapId());
+        SellerScorer.getInstance().onSwapCompleted(completedSwap.swapId());
+        update(completedSwap.swapId(), "XMR_REDEEMED", new JSONObject());
+    }
+
+    @Override
+    public void onSwapCanceled(String swapId, String btcCancelTxid) {
+        update(swapId, "CANCELLED", new JSONObject().put("txid", btcCancelTxid));
+    }
+
+    @Override
+    public void onSwapRefunded(String swapId) {
+        SwapMetrics.getInstance().onSwapFinished(swapId);
+        SellerScorer.getInstance().onSwapRefunded(swapId);
+        update(swapId, "REFUNDED", new JSONObject());
+    }
+
+    @Override
+    public void onSwapSafelyAborted(String swapId) {
+        SwapMetrics.getInstance().onSwapFinished(swapId);
+        SellerScorer.getInstance().onSwapSafelyAborted(swapId);
+        update(swapId, "SAFELY_ABORTED", new JSONObject());
+    }
+
+    @Override
+    public void onSwapError(SwapError swapError) {
+        SwapMetrics.getInstance().onSwapFinished(swapError.swapId());
+        SellerScorer.getInstance().onSwapError(swapError);
+        update(swapError.swapId(), "ERROR", new JSONObject()
+                .put("errorType", swapError.errorType().name())
+                .put("errorMessage", swapError.errorMessage())
+                .put("fatal", swapError.fatal()));
+        if (swapError.fatal() && swapError.errorType().shouldRestart()) {
+            daemon.restartSwap(swapError.swapId());
+        }
+    }
+
+    @Override
+    public void onGenericSellerQuoteError(String swapId, String error) {
+        SellerScorer.getInstance().onSellerQuoteError(swapId);
+        update(swapId, "QUOTE_ERROR", new JSONObject().put("errorMessage", error));
+    }
+
+    @Override
+    public void onSwapStateTiming(String swapId, String state, long elapsedMillis) {
+        SwapMetrics.getInstance().onStateTiming(swapId, state, elapsedMillis);
+        if (SellerWarmer.STATE_SELLER_QUOTE.equals(state)) SellerWarmer.getInstance().onSellerQuote(swapId, elapsedMillis);
+        log.event("swapStateTiming", new JSONObject().put("swapId", swapId).put("state", state).put("elapsedMillis", elapsedMillis));
+    }
+
+    @Override
+    public void printSwapLogLn(String message) {
+        log.event("log", new JSONObject().put("level", "INFO").put("message", message));
+    }
+}
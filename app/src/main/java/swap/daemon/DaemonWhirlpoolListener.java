@@ -0,0 +1,60 @@
+package swap.daemon;
+
+import com.samourai.whirlpool.client.wallet.beans.WhirlpoolAccount;
+import org.bitcoinj.core.Coin;
+import org.json.JSONObject;
+import swap.gui.GUISwap;
+import swap.listener.AsbListener;
+import swap.listener.Listeners;
+import swap.listener.WhirlpoolListener;
+import swap.model.AsbBtcBalanceData;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DaemonWhirlpoolListener implements WhirlpoolListener {
+    private final DaemonLog log;
+    private final ConcurrentHashMap<WhirlpoolAccount, Coin> balances = new ConcurrentHashMap<>();
+    private volatile boolean initialized = false;
+
+    public DaemonWhirlpoolListener(DaemonLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public void onWhirlpoolInitialized() {
+        initialized = true;
+        log.event("whirlpool", new JSONObject().put("state", "INITIALIZED"));
+    }
+
+    @Override
+    public void onWhirlpoolBalance(WhirlpoolAccount whirlpoolAccount, Coin balance) {
+        // balances are polled, only log changes
+        Coin previous = balances.put(whirlpoolAccount, balance);
+        if (previous == null || !previous.equals(balance)) {
+            log.event("whirlpool", new JSONObject()
+                    .put("state", "BALANCE")
+                    .put("account", whirlpoolAccount.name())
+                    .put("balance", balance.toPlainString()));
+        }
+
+        switch (whirlpoolAccount) {
+            case SWAPS_REFUNDS, SWAPS_DEPOSIT -> {
+            }
+            default -> {
+                AsbListener asbListener = Listeners.asbListener;
+                if (asbListener != null && GUISwap.isAsbRunning())
+                    asbListener.onAsbBtcBalanceData(whirlpoolAccount, new AsbBtcBalanceData(balance, ""));
+            }
+        }
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public JSONObject toJson() {
+        JSONObject balancesJson = new JSONObject();
+        balances.forEach((account, balance) -> balancesJson.put(account.name(), balance.toPlainString()));
+        return balancesJson;
+    }
+}
@@ -1,38 +1,37 @@
 package swap.gui;
 
-import atlantafx.base.theme.*;
 import com.samourai.http.client.HttpUsage;
 import com.samourai.whirlpool.cli.services.CliConfigService;
 import com.samourai.whirlpool.client.utils.LogbackUtils;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
-import javafx.scene.image.Image;
-import javafx.scene.paint.Color;
-import javafx.stage.Stage;
 import org.berndpruenster.netlayer.tor.HsContainer;
 import org.berndpruenster.netlayer.tor.NativeTor;
 import org.berndpruenster.netlayer.tor.Tor;
 import org.berndpruenster.netlayer.tor.TorCtlException;
 import org.slf4j.event.Level;
 import swap.client.ClientWhirlpool;
-import swap.gui.controller.MainController;
-import swap.gui.controller.PairingController;
 import swap.helper.*;
 import swap.lib.AppAsb;
 import swap.lib.AppSwap;
+import swap.metrics.AsbMetrics;
+import swap.metrics.MetricsServer;
+import swap.metrics.SwapMetrics;
+import swap.price.PriceService;
+import swap.timeseries.AsbHistory;
+import swap.timeseries.TimeSeriesStore;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.HashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-public class GUISwap extends Application {
+// Process-wide state shared by the JavaFX GUI (SwapApplication) and the headless daemon (swap.daemon.Daemon).
+// Nothing in here may touch JavaFX outside of startGui(), so the daemon can use it without loading the toolkit.
+public class GUISwap {
     public static final String VERSION = "0.0.19-beta";
     public static final String TOR_BROWSER_VERSION = "13.0.6";
     public static AtomicBoolean running = new AtomicBoolean(false);
@@ -41,18 +40,20 @@ public class GUISwap extends Application {
     public static ExecutorService executorService = Executors.newCachedThreadPool(new HelperThread());
     public static ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(32, new HelperThread());
     public static HsContainer hiddenServiceContainer = null;
-    private static GUISwap instance = null;
     private static final ConcurrentHashMap<HttpUsage, NativeTor> whirlpoolTorClients = new ConcurrentHashMap<>();
 
-    public static GUISwap getInstance() {
-        return instance;
-    }
-
-    public ConcurrentHashMap<HttpUsage, NativeTor> getWhirlpoolTorClients() {
+    public static ConcurrentHashMap<HttpUsage, NativeTor> getWhirlpoolTorClients() {
         return whirlpoolTorClients;
     }
 
     public static void startGui(String[] args) {
+        startServices();
+        // JavaFX only, the headless daemon also runs startServices
+        GuiUpdateScheduler.getInstance();
+        Application.launch(SwapApplication.class, args);
+    }
+
+    public static void startServices() {
         running.set(true);
         // skip noisy rpc logs
         LogbackUtils.setLogLevel("com.samourai.http.client.JettyHttpClient", Level.INFO.toString());
@@ -65,6 +66,10 @@ public class GUISwap extends Application {
         HelperXmrNodesProperties.getInstance();
         HelperBtcNodesProperties.getInstance();
         HelperRendezvousPeersProperties.getInstance();
+        SwapMetrics.getInstance();
+        AsbMetrics.getInstance();
+        PriceService.getInstance().addListener(priceInBtc -> AsbHistory.onXmrPrice(priceInBtc.getValue()));
+        MetricsServer.getInstance().start();
 
         File swapRootDir = AppSwap.getSwapRootDir();
         if (!swapRootDir.exists()) swapRootDir.mkdirs();
@@ -90,8 +95,6 @@ public class GUISwap extends Application {
                 }
             });
         }
-
-        launch(args);
     }
 
     private static void maybeUpgradeTorFolder(File swapRootDir) {
@@ -130,6 +133,20 @@ public class GUISwap extends Application {
         return appAsb != null && appAsb.getRunningAsb() && !appAsb.getPeerId().isEmpty() && running.get();
     }
 
+    // Default Tor client and every Whirlpool Tor client are up with a SOCKS port
+    public static boolean isTorReady() throws TorCtlException {
+        boolean anyNotReady = whirlpoolTorClients.values().stream().anyMatch(nativeTor -> {
+            try {
+                return nativeTor.getProxy("127.0.0.1").getPort() == 0 || !nativeTor.control.getRunning$tor();
+            } catch (TorCtlException e) {
+                return true;
+            }
+        });
+        Tor defaultTor = Tor.getDefault();
+        boolean defaultTorIsRunning = defaultTor != null && defaultTor.getProxy("127.0.0.1").getPort() != 0;
+        return !anyNotReady && defaultTorIsRunning && whirlpoolTorClients.size() == HttpUsage.values().length;
+    }
+
     public static void publishHiddenService() {
         // Creates directory named asb-onion in the directory that the above Tor client is located, and publishes hidden service to Tor network.
         // This onion address will be the ASB address for people to connect to.
@@ -143,80 +160,34 @@ public class GUISwap extends Application {
         }
     }
 
-    @Override
-    public void start(Stage stage) throws IOException {
-        instance = this;
-        Application.setUserAgentStylesheet(new PrimerDark().getUserAgentStylesheet());
-        FXMLLoader pairingFxmlLoader = new FXMLLoader(GUISwap.class.getResource("/pairing-screen.fxml"));
-        Scene pairingScene = new Scene(pairingFxmlLoader.load(), 1240, 770);
-//        Scene pairingScene = new Scene(pairingFxmlLoader.load(), Screen.getMainScreen().getWidth()/1.4f, Screen.getMainScreen().getHeight()/1.4f);
-        pairingScene.setFill(Color.web("#16181d"));
-
-        stage.getIcons().add(new Image("/images/swaps-logo.png"));
-        stage.setTitle("Samourai Swaps v" + VERSION);
-        stage.setScene(pairingScene);
-        stage.show();
-
-        ((PairingController) pairingFxmlLoader.getController()).init(stage);
-
-        stage.setOnCloseRequest(e -> {
-            try {
-                stop();
-            } catch (Exception ex) {
-                throw new RuntimeException(ex);
-            }
-            stage.close();
-        });
-
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            try {
-                stop();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }));
-    }
-
-    @Override
-    public void stop() throws Exception {
-        super.stop();
-        new Thread() {
-            @Override
-            public void run() {
-                super.run();
-                GUISwap.running.set(false);
-                shutdownTor();
-
-                GUISwap.scheduledExecutorService.shutdownNow();
-                GUISwap.executorService.shutdownNow();
-
-                AppSwap swapApp = appSwap;
-                if (swapApp != null) swapApp.stop();
+    // Blocking shutdown of everything started by startServices() and the apps, does not exit the JVM
+    public static void shutdown() {
+        GUISwap.running.set(false);
+        shutdownTor();
+        MetricsServer.getInstance().stop();
+        PriceService.getInstance().stop();
+        TimeSeriesStore.getInstance().force();
 
-                AppAsb asbApp = appAsb;
-                if (asbApp != null) asbApp.stop();
+        GUISwap.scheduledExecutorService.shutdownNow();
+        GUISwap.executorService.shutdownNow();
 
-                ClientWhirlpool clientWhirlpool = ClientWhirlpool.getInstance();
-                if (clientWhirlpool != null)
-                    clientWhirlpool.stop();
+        AppSwap swapApp = appSwap;
+        if (swapApp != null) swapApp.stop();
 
-                MainController mainController = MainController.getInstance();
-                if (mainController != null)
-                    mainController.stopTorConnCheckThread();
+        AppAsb asbApp = appAsb;
+        if (asbApp != null) asbApp.stop();
 
-                HelperWallet.deleteAllFilesInFolder(new File(AppSwap.getSwapRootDir(), "tmp"), true);
+        ClientWhirlpool clientWhirlpool = ClientWhirlpool.getInstance();
+        if (clientWhirlpool != null)
+            clientWhirlpool.stop();
 
-                Runtime.getRuntime().halt(0);
-            }
-        }.start();
+        HelperWallet.deleteAllFilesInFolder(new File(AppSwap.getSwapRootDir(), "tmp"), true);
     }
 
-    private void shutdownTor() {
-        // Creates directory named asb-onion in the directory that the above Tor client is located, and publishes hidden service to Tor network.
-        // This onion address will be the ASB address for people to connect to.
+    private static void shutdownTor() {
         Tor tor = Tor.getDefault();
         if (tor != null) {
             tor.shutdown();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package swap.gui;
+
+import javafx.application.Platform;
+import swap.metrics.Histogram;
+import swap.metrics.MetricsServer;
+import swap.metrics.MetricsSource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Coalesces GUI updates: one Platform.runLater per batch instead of one per update, and for keyed updates
+// (e.g. "balance:SWAPS_DEPOSIT", "sellers-table", "progress") only the latest one posted before the batch runs is applied.
+// Updates run in the order they were posted, a replaced keyed update moves to the position of its replacement.
+public class GuiUpdateScheduler implements MetricsSource {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static GuiUpdateScheduler instance = null;
+
+    public static GuiUpdateScheduler getInstance() {
+        if (instance == null) {
+            instance = new GuiUpdateScheduler();
+        }
+
+        return instance;
+    }
+
+    private final LinkedHashMap<Object, Runnable> pending = new LinkedHashMap<>();
+    private boolean scheduled = false;
+    private final AtomicLong posted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Histogram batchSizes = new Histogram();
+    private final Histogram batchMicros = new Histogram();
+
+    private GuiUpdateScheduler() {
+        MetricsServer.getInstance().register(this);
+    }
+
+    // Always applied
+    public void post(Runnable update) {
+        post(new Object(), update);
+    }
+
+    // Replaces an update with the same key that has not been applied yet
+    public void post(String key, Runnable update) {
+        post((Object) key, update);
+    }
+
+    private void post(Object key, Runnable update) {
+        posted.incrementAndGet();
+        boolean schedule;
+        synchronized (pending) {
+            if (pending.remove(key) != null) coalesced.incrementAndGet();
+            pending.put(key, update);
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) Platform.runLater(this::applyPending);
+    }
+
+    // FX thread, updates posted while applying go into the next batch
+    private void applyPending() {
+        List<Runnable> updates;
+        synchronized (pending) {
+            updates = new ArrayList<>(pending.values());
+            pending.clear();
+            scheduled = false;
+        }
+        long started = System.nanoTime();
+        for (Runnable update : updates) {
+            try {
+                update.run();
+            } catch (Exception e) {
+                // one failing update must not drop the rest of the batch
+                failed.incrementAndGet();
+                e.printStackTrace();
+            }
+        }
+        batchMicros.record((System.nanoTime() - started) / 1_000L);
+        batchSizes.record(updates.size());
+    }
+
+    public int getQueueDepth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    @Override
+    public void writePrometheus(StringBuilder out) {
+        out.append("# HELP gui_update_queue_depth GUI updates waiting for the FX thread\n");
+        out.append("# TYPE gui_update_queue_depth gauge\n");
+        out.append("gui_update_queue_depth ").append(getQueueDepth()).append('\n');
+        out.append("# HELP gui_updates_posted_total GUI updates posted\n");
+        out.append("# TYPE gui_updates_posted_total counter\n");
+        out.append("gui_updates_posted_total ").append(posted.get()).append('\n');
+        out.append("# HELP gui_updates_coalesced_total Keyed GUI updates replaced by a newer one before being applied\n");
+        out.append("# TYPE gui_updates_coalesced_total counter\n");
+        out.append("gui_updates_coalesced_total ").append(coalesced.get()).append('\n');
+        out.append("# HELP gui_updates_failed_total GUI updates that threw\n");
+        out.append("# TYPE gui_updates_failed_total counter\n");
+        out.append("gui_updates_failed_total ").append(failed.get()).append('\n');
+        writeSummary(out, "gui_update_batch_size", "GUI updates applied per FX thread batch", batchSizes, 1.0);
+        writeSummary(out, "gui_update_batch_seconds", "FX thread time spent per batch of GUI updates", batchMicros, 1_000_000.0);
+    }
+
+    private static void writeSummary(StringBuilder out, String name, String help, Histogram histogram, double divisor) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getValueAtPercentile(quantile * 100) / divisor).append('\n');
+        }
+        out.append(name).append("_sum ").append(histogram.getSum() / divisor).append('\n');
+        out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+    }
+}
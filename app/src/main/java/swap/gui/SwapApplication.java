@@ -0,0 +1,73 @@
+package swap.gui;
+
+import atlantafx.base.theme.*;
+import javafx.application.Application;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+import swap.gui.controller.MainController;
+import swap.gui.controller.PairingController;
+
+import java.io.IOException;
+
+public class SwapApplication extends Application {
+    private static SwapApplication instance = null;
+
+    public static SwapApplication getInstance() {
+        return instance;
+    }
+
+    @Override
+    public void start(Stage stage) throws IOException {
+        instance = this;
+        Application.setUserAgentStylesheet(new PrimerDark().getUserAgentStylesheet());
+        FXMLLoader pairingFxmlLoader = new FXMLLoader(GUISwap.class.getResource("/pairing-screen.fxml"));
+        Scene pairingScene = new Scene(pairingFxmlLoader.load(), 1240, 770);
+//        Scene pairingScene = new Scene(pairingFxmlLoader.load(), Screen.getMainScreen().getWidth()/1.4f, Screen.getMainScreen().getHeight()/1.4f);
+        pairingScene.setFill(Color.web("#16181d"));
+
+        stage.getIcons().add(new Image("/images/swaps-logo.png"));
+        stage.setTitle("Samourai Swaps v" + GUISwap.VERSION);
+        stage.setScene(pairingScene);
+        stage.show();
+
+        ((PairingController) pairingFxmlLoader.getController()).init(stage);
+
+        stage.setOnCloseRequest(e -> {
+            try {
+                stop();
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            stage.close();
+        });
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                stop();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }));
+    }
+
+    @Override
+    public void stop() throws Exception {
+        super.stop();
+        new Thread() {
+            @Override
+            public void run() {
+                super.run();
+                MainController mainController = MainController.getInstance();
+                if (mainController != null)
+                    mainController.stopTorConnCheckThread();
+
+                GUISwap.shutdown();
+
+                Runtime.getRuntime().halt(0);
+            }
+        }.start();
+    }
+}
@@ -1,11 +1,11 @@
 package swap.gui.controller;
 
-import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
 import javafx.scene.image.ImageView;
 import swap.gui.GUISwap;
+import swap.gui.GuiUpdateScheduler;
 import swap.model.ScreenType;
 import swap.runnable.RunnableStartButtonChecker;
 
@@ -41,7 +41,12 @@ public abstract class BaseController implements Initializable {
     }
 
     public void updateGui(Runnable runnable) {
-        Platform.runLater(runnable);
+        GuiUpdateScheduler.getInstance().post(runnable);
+    }
+
+    // Only the latest update per key is applied, for updates that replace the whole state they touch
+    public void updateGui(String key, Runnable runnable) {
+        GuiUpdateScheduler.getInstance().post(key, runnable);
     }
 
     public abstract Button getStartButton();
@@ -1,6 +1,5 @@
 package swap.gui.controller;
 
-import com.samourai.whirlpool.cli.utils.CliUtils;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIconView;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -15,9 +14,6 @@ import org.fxmisc.flowless.VirtualizedScrollPane;
 import org.fxmisc.richtext.InlineCssTextArea;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.SpringApplication;
-import org.springframework.boot.WebApplicationType;
-import org.springframework.boot.builder.SpringApplicationBuilder;
 import swap.client.ClientWhirlpool;
 import swap.gui.GUISwap;
 import swap.gui.controller.pages.*;
@@ -25,13 +21,15 @@ import swap.gui.controller.popups.PopupInformation;
 import swap.gui.scene.MainScene;
 import swap.helper.HelperProperties;
 import swap.lib.AppSwap;
-import swap.listener.AsbListener;
+import swap.listener.Listeners;
+import swap.listener.LogListener;
 import swap.listener.StartupListener;
-import swap.listener.SwapListener;
 import swap.listener.impl.AsbListenerImpl;
 import swap.listener.impl.SwapListenerImpl;
+import swap.listener.impl.WhirlpoolListenerImpl;
 import swap.model.Changelog;
 import swap.model.LogType;
+import swap.model.SwapData;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -41,11 +39,10 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Optional;
 import java.util.ResourceBundle;
 
-public class MainController extends BaseController implements StartupListener {
-    public static AsbListener asbListener = null;
-    public static SwapListener swapListener = null;
+public class MainController extends BaseController implements StartupListener, LogListener {
     private static MainController instance = null;
     private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -132,12 +129,16 @@ public class MainController extends BaseController implements StartupListener {
 
     @Override
     public void onClientStarted() {
+        updateGui(this::onClientStartedFx);
+    }
+
+    private void onClientStartedFx() {
         this.printSwapLogLn(LogType.INFO, "Swap client has started", false);
-        startWhirlpool(false);
+        ClientWhirlpool.startWhirlpool(passphrase, false);
         startAsb();
         this.historyController.refreshHistoryList();
         this.swapsController.onClientStarted();
-        GUISwap.appSwap.maybeAutoResume(historyController);
+        maybeAutoResume();
 
         boolean hasSeenPopup = HelperProperties.hasSeenUpdatePopup;
         if(!hasSeenPopup) {
@@ -154,8 +155,10 @@ public class MainController extends BaseController implements StartupListener {
 
     @Override
     protected void setupListeners() {
-        asbListener = new AsbListenerImpl(this, swapsController, liquidityController);
-        swapListener = new SwapListenerImpl(this, swapsController, historyController);
+        Listeners.logListener = this;
+        Listeners.asbListener = new AsbListenerImpl(this, swapsController, liquidityController);
+        Listeners.swapListener = new SwapListenerImpl(this, swapsController, historyController);
+        Listeners.whirlpoolListener = new WhirlpoolListenerImpl(this, swapsController);
     }
 
     @Override
@@ -163,6 +166,26 @@ public class MainController extends BaseController implements StartupListener {
         return null;
     }
 
+    private void maybeAutoResume() {
+        GUISwap.executorService.submit(() -> {
+            while (!historyController.initialized) {
+                try {
+                    Thread.sleep(100L);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            Optional<SwapData> firstIncompleteSwap = historyController.getIncompleteSwap();
+
+            updateGui(() -> {
+                firstIncompleteSwap.ifPresent(swapData -> {
+                    historyPage();
+                    historyController.resumeSwap(swapData.swapId());
+                });
+            });
+        });
+    }
+
     private void initializeSwaps() {
         swapsPage();
     }
@@ -309,81 +332,6 @@ public class MainController extends BaseController implements StartupListener {
         }
     }
 
-    private void startWhirlpool(boolean restart) {
-        if (restart) {
-            this.printSwapLogLn(LogType.INFO, "[WHIRLPOOL] Failed to connect. Retrying...", false);
-        } else {
-            this.printSwapLogLn(LogType.INFO, "[WHIRLPOOL] Starting Whirlpool...", false);
-        }
-
-        String[] args = new String[]{"--authenticate"};
-        ClientWhirlpool.passphrase = passphrase; // passing as arg prints to console (CliService)
-        ClientWhirlpool.setRestart(false);
-
-        GUISwap.executorService.submit(() -> {
-            if (ClientWhirlpool.applicationContext != null) {
-                ClientWhirlpool.applicationContext.close();
-            }
-
-            if (!GUISwap.running.get()) {
-                ClientWhirlpool.handleTempWhirlpoolClientFiles();
-            }
-
-            CliUtils.setLogLevel(false, false);
-
-            try {
-                ClientWhirlpool.applicationContext =
-                        new SpringApplicationBuilder(ClientWhirlpool.class)
-                                .logStartupInfo(false)
-                                .web(WebApplicationType.NONE)
-                                .run(args);
-
-                if (ClientWhirlpool.getRestart()) {
-                    // restart
-                    restartWhirlpool();
-                } else {
-                    if (ClientWhirlpool.getExitCode() != null) {
-                        // exit
-                        exitWhirlpool(ClientWhirlpool.getExitCode());
-                    } else {
-                        // success
-                        if (log.isDebugEnabled()) {
-                            log.debug("CLI startup complete.");
-                        }
-                    }
-                }
-            } catch (Exception ignored) {
-            }
-        });
-    }
-
-    private void restartWhirlpool() {
-        long restartDelay = 1000;
-        if (log.isDebugEnabled()) {
-            log.debug("Restarting CLI in " + restartDelay + "ms");
-        }
-
-        // wait for restartDelay
-        try {
-            Thread.sleep(restartDelay);
-        } catch (InterruptedException ignored) {
-        }
-
-        // restart application
-        log.info("Restarting CLI...");
-
-        startWhirlpool(true);
-    }
-
-    public void exitWhirlpool(int exitCode) {
-        if (log.isDebugEnabled()) {
-            log.debug("Exit: " + exitCode);
-        }
-        if (ClientWhirlpool.applicationContext != null) {
-            SpringApplication.exit(ClientWhirlpool.applicationContext, () -> exitCode);
-        }
-    }
-
     public SwapsController getSwapsController() {
         return swapsController;
     }
@@ -394,6 +342,7 @@ public class MainController extends BaseController implements StartupListener {
 
 
     /***** LOGS CONTROLLER STUFF *****/
+    @Override
     public void printSwapLogLn(LogType logType, String message, boolean kill) {
         String time = Instant.parse(Instant.now().toString())
                 .atOffset(ZoneOffset.UTC).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
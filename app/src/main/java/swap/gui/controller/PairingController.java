@@ -6,19 +6,20 @@ import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.stage.Stage;
 import swap.gui.GUISwap;
+import swap.gui.SwapApplication;
 import swap.gui.scene.MainScene;
 import swap.helper.*;
-import swap.lib.AppPriceTicker;
 import swap.lib.AppSwap;
 import swap.lib.AppXmrRpc;
+import swap.listener.Listeners;
 import swap.listener.RpcDownloadListener;
 import swap.model.ScreenType;
+import swap.price.PriceService;
 
 import java.io.File;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class PairingController extends BaseController {
-    public static RpcDownloadListener rpcDownloadListener = null;
     public static AtomicBoolean pairing = new AtomicBoolean(false);
     @FXML
     public ImageView swapsLogo;
@@ -54,7 +55,7 @@ public class PairingController extends BaseController {
     public void init(Stage stage) {
         this.stage = stage;
         rpcDownloadProgress.setVisible(false);
-        rpcDownloadListener = new RpcDownloadListener() {
+        Listeners.rpcDownloadListener = new RpcDownloadListener() {
             @Override
             public void onRpcDownloaded() {
                 updateGui(() -> {
@@ -71,7 +72,7 @@ public class PairingController extends BaseController {
                     startText.setText("Error downloading RPC: " + error);
                     pairingButton.setDisable(false);
                 });
-                GUISwap instance = GUISwap.getInstance();
+                SwapApplication instance = SwapApplication.getInstance();
                 if (instance != null) {
                     try {
                         instance.stop();
@@ -175,8 +176,8 @@ public class PairingController extends BaseController {
     }
 
     public void maybeDownloadXmrRpcAndSetDir(String proxy, int proxyPort) {
-        File rpcRootDir = AppXmrRpc.maybeDownloadXmrRpc(proxy, rpcDownloadListener);
+        File rpcRootDir = AppXmrRpc.maybeDownloadXmrRpc(proxy, Listeners.rpcDownloadListener);
         GUISwap.appSwap.rpcRootDir = rpcRootDir;
-        new AppPriceTicker(rpcRootDir, proxyPort).start();
+        PriceService.getInstance().start(proxyPort);
     }
 }
\ No newline at end of file
@@ -23,11 +23,17 @@ import swap.model.request.ResumeRequest;
 import swap.model.response.GetHistoryResponse;
 
 import java.net.URL;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 public class HistoryController extends BaseController {
+    // Rows per history request, the next page is requested when the last rows of the table become visible
+    private static final int PAGE_SIZE = 100;
+    private static final int PREFETCH_ROWS = 10;
     public final ObservableList<SwapData> historyObservableList = FXCollections.synchronizedObservableList(FXCollections.observableArrayList());
     private final ObservableList<SwapData> asbHistoryObservableList = FXCollections.synchronizedObservableList(FXCollections.observableArrayList());
     private final ObservableList<PieChart.Data> swapsPieChartData = FXCollections.synchronizedObservableList(FXCollections.observableArrayList());
@@ -63,6 +69,12 @@ public class HistoryController extends BaseController {
     @FXML
     public PieChart asbPieChart;
     public boolean initialized = false;
+    private volatile long historyTotal = 0;
+    private volatile long asbHistoryTotal = 0;
+    private final AtomicBoolean loadingHistoryPage = new AtomicBoolean(false);
+    private final AtomicBoolean loadingAsbHistoryPage = new AtomicBoolean(false);
+    // Most recently updated swap that is not finished, null if there is none
+    private volatile SwapData incompleteSwap = null;
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
@@ -97,6 +109,26 @@ public class HistoryController extends BaseController {
 
         asbPieChart.setData(asbPieChartData);
         historyPieChart.setData(swapsPieChartData);
+
+        historyTable.setRowFactory(tableView -> new PagedTableRow(this::loadNextSwapHistoryPage));
+        asbHistoryTable.setRowFactory(tableView -> new PagedTableRow(this::loadNextAsbHistoryPage));
+    }
+
+    private static class PagedTableRow extends TableRow<SwapData> {
+        private final Runnable loadNextPage;
+
+        PagedTableRow(Runnable loadNextPage) {
+            this.loadNextPage = loadNextPage;
+        }
+
+        @Override
+        protected void updateItem(SwapData item, boolean empty) {
+            super.updateItem(item, empty);
+            // rows are only created for the visible part of the table
+            if (!empty && getIndex() >= getTableView().getItems().size() - PREFETCH_ROWS) {
+                loadNextPage.run();
+            }
+        }
     }
 
     public void refreshHistoryList() {
@@ -111,12 +143,14 @@ public class HistoryController extends BaseController {
                 refreshHistoryText.setText("Loading history...");
             });
 
-            GetHistoryRequest getHistoryRequest = new GetHistoryRequest(GUISwap.appSwap.getParams());
+            GetHistoryRequest getHistoryRequest = new GetHistoryRequest(GUISwap.appSwap.getParams(), 0, PAGE_SIZE);
             GetHistoryResponse history = GUISwap.appSwap.getHistory(getHistoryRequest);
-            historyObservableList.setAll(history.getSwaps());
-            buildSwapPieChart();
+            historyTotal = history.getTotal();
+            incompleteSwap = findIncompleteSwap(history.getStatusCounts());
+            buildSwapPieChart(history.getStatusCounts());
 
             updateGui(() -> {
+                historyObservableList.setAll(history.getSwaps());
                 refreshHistoryText.setText("");
                 historyPieChart.setMaxWidth(historyHBox.getWidth() / 3);
             });
@@ -131,18 +165,57 @@ public class HistoryController extends BaseController {
                 asbRefreshHistoryText.setText("Loading history...");
             });
 
-            GetHistoryRequest getHistoryRequest = new GetHistoryRequest(GUISwap.appSwap.getParams());
+            GetHistoryRequest getHistoryRequest = new GetHistoryRequest(GUISwap.appSwap.getParams(), 0, PAGE_SIZE);
             GetHistoryResponse asbHistory = GUISwap.appAsb.getHistory(getHistoryRequest);
-            asbHistoryObservableList.setAll(asbHistory.getSwaps());
-            buildAsbPieChart();
+            asbHistoryTotal = asbHistory.getTotal();
+            buildAsbPieChart(asbHistory.getStatusCounts());
 
             updateGui(() -> {
+                asbHistoryObservableList.setAll(asbHistory.getSwaps());
                 asbRefreshHistoryText.setText("");
                 asbPieChart.setMaxWidth(asbHistoryHBox.getWidth() / 3);
             });
         });
     }
 
+    private void loadNextSwapHistoryPage() {
+        loadNextPage(historyObservableList, historyTotal, loadingHistoryPage, request -> GUISwap.appSwap.getHistory(request));
+    }
+
+    private void loadNextAsbHistoryPage() {
+        loadNextPage(asbHistoryObservableList, asbHistoryTotal, loadingAsbHistoryPage, request -> GUISwap.appAsb.getHistory(request));
+    }
+
+    // Called on the FX thread, a refresh replacing the list while a page loads only leads to a duplicate or skipped row until the next refresh
+    private void loadNextPage(ObservableList<SwapData> list, long total, AtomicBoolean loading, Function<GetHistoryRequest, GetHistoryResponse> getHistory) {
+        int offset = list.size();
+        if (offset >= total || GUISwap.appSwap == null || !loading.compareAndSet(false, true)) return;
+        GUISwap.executorService.submit(() -> {
+            try {
+                List<SwapData> page = getHistory.apply(new GetHistoryRequest(GUISwap.appSwap.getParams(), offset, PAGE_SIZE)).getSwaps();
+                updateGui(() -> {
+                    if (list.size() == offset) list.addAll(page);
+                    loading.set(false);
+                });
+            } catch (Exception e) {
+                System.out.println("[HISTORY] Failed to load history page: " + e.getMessage());
+                loading.set(false);
+            }
+        });
+    }
+
+    // Only asks for the swap when the counts show there is one
+    private SwapData findIncompleteSwap(Map<String, Long> statusCounts) {
+        boolean hasIncompleteSwap = statusCounts.entrySet().stream().anyMatch(entry -> !SwapData.FINISHED_STATUSES.contains(entry.getKey()) && entry.getValue() > 0);
+        if (!hasIncompleteSwap) return null;
+        List<SwapData> swaps = GUISwap.appSwap.getHistory(GetHistoryRequest.incomplete(GUISwap.appSwap.getParams())).getSwaps();
+        return swaps.isEmpty() ? null : swaps.get(0);
+    }
+
+    public Optional<SwapData> getIncompleteSwap() {
+        return Optional.ofNullable(incompleteSwap);
+    }
+
     @FXML
     public void refreshSwapHistoryButton() {
         refreshSwapHistoryList();
@@ -158,7 +231,7 @@ public class HistoryController extends BaseController {
             boolean started = maybeStartSwapThread(() -> {
                 GUISwap.appSwap.getProxy().ifPresentOrElse(proxy -> {
                     long swapsAccount = HelperSwapsDb.getInstance().getSwapsAccount(swapId);
-                    ResumeRequest resumeRequest = new ResumeRequest(GUISwap.appSwap.getSeedAsBase64(), swapId, GUISwap.appSwap.getElectrumServer(), proxy, GUISwap.appSwap.getParams(), GUISwap.appSwap.getProxyPort(), swapsAccount);
+                    ResumeRequest resumeRequest = new ResumeRequest(GUISwap.appSwap.getSessionHandle(), swapId, GUISwap.appSwap.getElectrumServer(), proxy, GUISwap.appSwap.getParams(), GUISwap.appSwap.getProxyPort(), swapsAccount);
                     GUISwap.appSwap.resume(resumeRequest);
                 }, () -> {});
 
@@ -183,40 +256,15 @@ public class HistoryController extends BaseController {
         }
     }
 
-    private void buildSwapPieChart() {
-        AtomicLong countBtcLocked = new AtomicLong(0);
-        AtomicLong countXmrLocked = new AtomicLong(0);
-        AtomicLong countBtcRedeemed = new AtomicLong(0);
-        AtomicLong countXmrRedeemed = new AtomicLong(0);
-        AtomicLong countCanceled = new AtomicLong(0);
-        AtomicLong countPunished = new AtomicLong(0);
-        AtomicLong countBtcRefunded = new AtomicLong(0);
-        AtomicLong countSafelyAborted = new AtomicLong(0);
-
-        historyObservableList.forEach(swapData -> {
-            switch (SwapData.Status.valueOf(swapData.status())) {
-                case BTC_LOCKED -> countBtcLocked.getAndIncrement();
-                case XMR_LOCKED -> countXmrLocked.getAndIncrement();
-                case BTC_REDEEMED -> countBtcRedeemed.getAndIncrement();
-                case XMR_REDEEMED -> countXmrRedeemed.getAndIncrement();
-                case CANCELLED -> countCanceled.getAndIncrement();
-                case REFUNDED -> countBtcRefunded.getAndIncrement();
-                case PUNISHED -> countPunished.getAndIncrement();
-                case SAFELY_ABORTED -> countSafelyAborted.getAndIncrement();
-            }
-        });
+    // Counts come from a GROUP BY on the native side, over the whole history and not just the loaded pages
+    private void buildSwapPieChart(Map<String, Long> statusCounts) {
+        List<SwapData.Status> statuses = List.of(SwapData.Status.BTC_LOCKED, SwapData.Status.XMR_LOCKED, SwapData.Status.BTC_REDEEMED, SwapData.Status.XMR_REDEEMED,
+                SwapData.Status.CANCELLED, SwapData.Status.REFUNDED, SwapData.Status.PUNISHED, SwapData.Status.SAFELY_ABORTED);
 
-        updateGui(() -> {
-            swapsPieChartData.setAll(
-                    new PieChart.Data(SwapData.Status.BTC_LOCKED.toString(), countBtcLocked.get()),
-                    new PieChart.Data(SwapData.Status.XMR_LOCKED.toString(), countXmrLocked.get()),
-                    new PieChart.Data(SwapData.Status.BTC_REDEEMED.toString(), countBtcRedeemed.get()),
-                    new PieChart.Data(SwapData.Status.XMR_REDEEMED.toString(), countXmrRedeemed.get()),
-                    new PieChart.Data(SwapData.Status.CANCELLED.toString(), countCanceled.get()),
-                    new PieChart.Data(SwapData.Status.REFUNDED.toString(), countBtcRefunded.get()),
-                    new PieChart.Data(SwapData.Status.PUNISHED.toString(), countPunished.get()),
-                    new PieChart.Data(SwapData.Status.SAFELY_ABORTED.toString(), countSafelyAborted.get())
-            );
+        updateGui("history-pie", () -> {
+            swapsPieChartData.setAll(statuses.stream()
+                    .map(status -> new PieChart.Data(status.toString(), statusCounts.getOrDefault(status.name(), 0L)))
+                    .toList());
 
             swapsPieChartData.forEach(d -> {
                 Tooltip tip = new Tooltip();
@@ -226,49 +274,14 @@ public class HistoryController extends BaseController {
         });
     }
 
-    private void buildAsbPieChart() {
-        final String BTC_LOCKED = "btc is locked";
-        final String XMR_LOCKED = "xmr is locked";
-        final String BTC_REDEEMED = "btc is redeemed";
-        final String CANCELLED = "btc is cancelled";
-        final String PUNISHED = "btc is punished";
-        final String BTC_REFUNDED = "btc is refunded";
-        final String XMR_REFUNDED = "xmr is refunded";
-        final String SAFELY_ABORTED = "safely aborted";
-
-        AtomicLong countBtcLocked = new AtomicLong(0);
-        AtomicLong countXmrLocked = new AtomicLong(0);
-        AtomicLong countBtcRedeemed = new AtomicLong(0);
-        AtomicLong countCanceled = new AtomicLong(0);
-        AtomicLong countPunished = new AtomicLong(0);
-        AtomicLong countBtcRefunded = new AtomicLong(0);
-        AtomicLong countXmrRefunded = new AtomicLong(0);
-        AtomicLong countSafelyAborted = new AtomicLong(0);
-
-        asbHistoryObservableList.forEach(swapData -> {
-            switch (swapData.status()) {
-                case BTC_LOCKED -> countBtcLocked.getAndIncrement();
-                case XMR_LOCKED -> countXmrLocked.getAndIncrement();
-                case BTC_REDEEMED -> countBtcRedeemed.getAndIncrement();
-                case CANCELLED -> countCanceled.getAndIncrement();
-                case PUNISHED -> countPunished.getAndIncrement();
-                case BTC_REFUNDED -> countBtcRefunded.getAndIncrement();
-                case XMR_REFUNDED -> countXmrRefunded.getAndIncrement();
-                case SAFELY_ABORTED -> countSafelyAborted.getAndIncrement();
-            }
-        });
+    private void buildAsbPieChart(Map<String, Long> statusCounts) {
+        List<String> statuses = List.of("btc is locked", "xmr is locked", "btc is redeemed", "btc is cancelled",
+                "btc is punished", "btc is refunded", "xmr is refunded", "safely aborted");
 
-        updateGui(() -> {
-            asbPieChartData.setAll(
-                    new PieChart.Data(BTC_LOCKED, countBtcLocked.get()),
-                    new PieChart.Data(XMR_LOCKED, countXmrLocked.get()),
-                    new PieChart.Data(BTC_REDEEMED, countBtcRedeemed.get()),
-                    new PieChart.Data(CANCELLED, countCanceled.get()),
-                    new PieChart.Data(PUNISHED, countPunished.get()),
-                    new PieChart.Data(BTC_REFUNDED, countBtcRefunded.get()),
-                    new PieChart.Data(XMR_REFUNDED, countXmrRefunded.get()),
-                    new PieChart.Data(SAFELY_ABORTED, countSafelyAborted.get())
-            );
+        updateGui("asb-history-pie", () -> {
+            asbPieChartData.setAll(statuses.stream()
+                    .map(status -> new PieChart.Data(status, statusCounts.getOrDefault(status, 0L)))
+                    .toList());
 
             asbPieChartData.forEach(d -> {
                 Tooltip tip = new Tooltip();
@@ -279,10 +292,7 @@ public class HistoryController extends BaseController {
     }
 
     public boolean checkIncompleteSwaps() {
-        Optional<SwapData> firstIncompleteSwap = historyObservableList.stream().filter(swapData -> {
-            String status = swapData.status();
-            return !status.equals("XMR_REDEEMED") && !status.equals("BTC_REDEEMED") && !status.equals("REFUNDED") && !status.equals("PUNISHED") && !status.equals("SAFELY_ABORTED");
-        }).findAny();
+        Optional<SwapData> firstIncompleteSwap = getIncompleteSwap();
 
         if (firstIncompleteSwap.isPresent()) {
             MainController.getInstance().printSwapLogLn(LogType.HIGHLIGHT, "Incomplete swap found: " + firstIncompleteSwap.get().swapId() + ". Please resume first before starting a new swap.", false);
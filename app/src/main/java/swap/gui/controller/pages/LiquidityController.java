@@ -2,7 +2,11 @@ package swap.gui.controller.pages;
 
 import com.samourai.whirlpool.client.wallet.beans.WhirlpoolAccount;
 import javafx.fxml.FXML;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Tooltip;
@@ -10,18 +14,39 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
+import javafx.util.StringConverter;
 import org.bitcoinj.core.Coin;
+import swap.gui.GUISwap;
 import swap.gui.controller.BaseController;
 import swap.gui.controller.MainController;
 import swap.gui.image.AddressQrCode;
 import swap.model.AsbBtcBalanceData;
 import swap.model.AsbInitData;
+import swap.timeseries.AsbHistory;
+import swap.timeseries.Points;
+import swap.timeseries.TimeSeriesStore;
 
 import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
 
 public class LiquidityController extends BaseController {
     public static LiquidityController instance = null;
+    private static final int CHART_POINTS = 300;
+    private static final Map<String, Long> HISTORY_RANGES = new LinkedHashMap<>();
+
+    static {
+        HISTORY_RANGES.put("Day", TimeUnit.DAYS.toMillis(1));
+        HISTORY_RANGES.put("Week", TimeUnit.DAYS.toMillis(7));
+        HISTORY_RANGES.put("Month", TimeUnit.DAYS.toMillis(30));
+        HISTORY_RANGES.put("Year", TimeUnit.DAYS.toMillis(365));
+    }
+
     @FXML
     public GridPane liquidityPane;
     @FXML
@@ -62,10 +87,59 @@ public class LiquidityController extends BaseController {
     public TextField postmixBtc;
     @FXML
     public ImageView xmrQR;
+    @FXML
+    public ChoiceBox<String> historyRange;
+    @FXML
+    public LineChart<Number, Number> balanceChart;
+    @FXML
+    public NumberAxis balanceChartTime;
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         instance = this;
+        historyRange.getItems().setAll(HISTORY_RANGES.keySet());
+        historyRange.setValue("Week");
+        historyRange.valueProperty().addListener((observable, oldValue, newValue) -> loadBalanceHistory());
+        balanceChartTime.setTickLabelFormatter(new StringConverter<>() {
+            @Override
+            public String toString(Number millis) {
+                return new SimpleDateFormat("MM-dd HH:mm").format(new Date(millis.longValue()));
+            }
+
+            @Override
+            public Number fromString(String string) {
+                return 0;
+            }
+        });
+    }
+
+    // Reads the stored history off the FX thread, the store only decodes the resolution needed for CHART_POINTS
+    public void loadBalanceHistory() {
+        long range = HISTORY_RANGES.getOrDefault(historyRange.getValue(), TimeUnit.DAYS.toMillis(7));
+        GUISwap.executorService.submit(() -> {
+            long to = System.currentTimeMillis();
+            long from = to - range;
+            List<XYChart.Series<Number, Number>> series = List.of(
+                    chartSeries("Unlocked XMR", AsbHistory.XMR_UNLOCKED, from, to, 1_000_000_000_000D),
+                    chartSeries("Locked XMR", AsbHistory.XMR_LOCKED, from, to, 1_000_000_000_000D),
+                    chartSeries("ASB BTC", AsbHistory.btcBalance(WhirlpoolAccount.SWAPS_ASB), from, to, 100_000_000D));
+            updateGui("balance-chart", () -> {
+                balanceChartTime.setLowerBound(from);
+                balanceChartTime.setUpperBound(to);
+                balanceChartTime.setTickUnit(range / 6D);
+                balanceChart.getData().setAll(series);
+            });
+        });
+    }
+
+    private static XYChart.Series<Number, Number> chartSeries(String name, String seriesName, long from, long to, double unit) {
+        Points points = TimeSeriesStore.getInstance().query(seriesName, from, to, CHART_POINTS);
+        XYChart.Series<Number, Number> series = new XYChart.Series<>();
+        series.setName(name);
+        for (int i = 0; i < points.size(); i++) {
+            series.getData().add(new XYChart.Data<>(points.timestamps()[i], points.values()[i] / unit));
+        }
+        return series;
     }
 
     public static LiquidityController getInstance() {
@@ -106,11 +180,12 @@ public class LiquidityController extends BaseController {
 
             peerId.setText(data.peerId());
             setProgress(0.0f);
+            loadBalanceHistory();
         });
     }
 
     public void onBtcBalanceData(WhirlpoolAccount whirlpoolAccount, AsbBtcBalanceData data) {
-        updateGui(() -> {
+        updateGui("balance:" + whirlpoolAccount, () -> {
             MainController mainController = MainController.getInstance();
             if (mainController == null) return;
             switch (whirlpoolAccount) {
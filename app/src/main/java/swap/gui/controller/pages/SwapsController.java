@@ -2,7 +2,6 @@ package swap.gui.controller.pages;
 
 import com.samourai.wallet.hd.BIP_WALLET;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIconView;
-import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -22,14 +21,21 @@ import swap.gui.controller.BaseController;
 import swap.gui.controller.MainController;
 import swap.gui.node.PercentTableColumn;
 import swap.gui.node.PercentTableView;
+import swap.gui.node.SellerRow;
+import swap.gui.node.SellerTableModel;
 import swap.helper.HelperAddress;
 import swap.helper.HelperWallet;
 import swap.lib.AppAsb;
 import swap.lib.AppSwap;
+import swap.lib.SellerWarmer;
+import swap.listener.ListSellersListener;
+import swap.listener.PriceListener;
 import swap.model.*;
 import swap.model.request.ListSellersRequest;
 import swap.model.request.SwapRequest;
 import swap.model.response.ListSellersResponse;
+import swap.price.PriceService;
+import swap.seller.SellerScorer;
 
 import javax.annotation.Nullable;
 import java.io.File;
@@ -42,7 +48,9 @@ import java.util.concurrent.atomic.AtomicLong;
 
 public class SwapsController extends BaseController {
     public static SwapsController instance = null;
-    public final ObservableList<Seller> sellersObservableList = FXCollections.synchronizedObservableList(FXCollections.observableArrayList());
+    public final SellerTableModel sellerTableModel = new SellerTableModel();
+    // bumped to cancel the sellers refresh that is running
+    private final AtomicLong sellersRefresh = new AtomicLong();
     @FXML
     public GridPane swapsPane;
     @FXML
@@ -66,7 +74,7 @@ public class SwapsController extends BaseController {
     @FXML
     public FontAwesomeIconView swapIcon;
     @FXML
-    public PercentTableView<Seller> sellerTable;
+    public PercentTableView<SellerRow> sellerTable;
     @FXML
     public Button sellerRefreshButton;
     @FXML
@@ -84,8 +92,9 @@ public class SwapsController extends BaseController {
     private Label xmrPrice;
     @FXML
     private Label btcPrice;
-    private final ChangeListener<Seller> sellerClickListener = (observable, oldValue, newValue) -> {
-        if (newValue != null) {
+    private final ChangeListener<SellerRow> sellerClickListener = (observable, oldValue, newRow) -> {
+        if (newRow != null) {
+            Seller newValue = newRow.seller();
             updateGui(() -> {
                 if (GUISwap.isAsbRunning() && newValue.multiaddr().equals(GUISwap.appAsb.getExternalAddress() + "/p2p/" + GUISwap.appAsb.getPeerId()))
                     MainController.getInstance().printSwapLogLn(LogType.WARN, "Can't trade with your own ASB. Please select a different seller.", false);
@@ -93,20 +102,38 @@ public class SwapsController extends BaseController {
                     libp2pPeerTextField.setText(newValue.multiaddr());
                     xmrPrice.setVisible(true);
                     btcPrice.setVisible(true);
-                    String btcPriceString = String.format("%.6f", 1 / newValue.price());
-                    xmrPrice.setText("1 XMR ≈ " + newValue.price() + " BTC");
+                    String btcPriceString = String.format("%.6f", (double) Coin.COIN.value / newValue.priceSatoshis());
+                    xmrPrice.setText("1 XMR ≈ " + Coin.valueOf(newValue.priceSatoshis()).toPlainString() + " BTC");
                     btcPrice.setText("1 BTC ≈ " + btcPriceString + " XMR");
+                    // the swap likely goes to this seller, open the Tor circuit to it while the user fills in the rest
+                    AppSwap appSwap = GUISwap.appSwap;
+                    if (appSwap != null && appSwap.getProxy().isPresent())
+                        SellerWarmer.getInstance().warm(newValue.multiaddr(), appSwap.getProxyPort());
                 }
             });
+        } else {
+            SellerWarmer.getInstance().cancel();
         }
     };
-    private Coin currentXmrPriceInBtc = Coin.ZERO;
     private String refundAddress;
+    private final PriceListener priceListener = this::setXmrPrice;
+    // peer book sellers of the latest refresh not yet confirmed by discovery, their quote may be a day old
+    private volatile Set<String> unconfirmedSellers = Set.of();
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         instance = this;
         setSellersTable();
+        PriceService.getInstance().addListener(priceListener);
+        // navigating to another page removes the swaps page from the content pane
+        swapsPane.parentProperty().addListener((observable, oldParent, newParent) -> {
+            if (newParent == null) {
+                cancelSellersRefresh();
+                PriceService.getInstance().removeListener(priceListener);
+            } else {
+                PriceService.getInstance().addListener(priceListener);
+            }
+        });
         cancelButton.setDisable(true);
         setSwapImage(new Image("images/samourai-logo-white.png"), "Become Ungovernable", false);
         Tooltip.install(xmrSpotPriceText, new Tooltip("XMR Price"));
@@ -146,57 +173,53 @@ public class SwapsController extends BaseController {
     }
 
     public void setXmrPrice(Coin priceInBtc) {
-        updateGui(() -> {
+        // keyed, a burst of price ticks recomputes the spread column once
+        updateGui("xmr-price", () -> {
             xmrSpotPriceText.setText("Spot: " + priceInBtc.toFriendlyString());
             if (!xmrSpotPriceText.isVisible())
                 xmrSpotPriceText.setVisible(true);
+            sellerTableModel.setSpotSatoshis(priceInBtc.value);
         });
-
-        this.currentXmrPriceInBtc = priceInBtc;
     }
 
     private void setSellersTable() {
-        PercentTableColumn<Seller, String> sellerColumn = new PercentTableColumn<>("Seller");
-        sellerColumn.setPercentWidth(45);
-        sellerColumn.setCellValueFactory(param -> new SimpleStringProperty(param.getValue().multiaddr()));
+        PercentTableColumn<SellerRow, String> sellerColumn = new PercentTableColumn<>("Seller");
+        sellerColumn.setPercentWidth(37);
+        sellerColumn.setCellValueFactory(param -> param.getValue().multiaddrProperty());
 
-        PercentTableColumn<Seller, String> minColumn = new PercentTableColumn<>("Min. BTC");
+        PercentTableColumn<SellerRow, String> minColumn = new PercentTableColumn<>("Min. BTC");
         minColumn.setPercentWidth(15);
-        minColumn.setCellValueFactory(param -> new SimpleStringProperty(Coin.parseCoin(String.valueOf(param.getValue().minQuantity())).toPlainString()));
+        minColumn.setCellValueFactory(param -> param.getValue().minProperty());
 
-        PercentTableColumn<Seller, String> maxColumn = new PercentTableColumn<>("Max. BTC");
+        PercentTableColumn<SellerRow, String> maxColumn = new PercentTableColumn<>("Max. BTC");
         maxColumn.setPercentWidth(15);
-        maxColumn.setCellValueFactory(param -> new SimpleStringProperty(Coin.parseCoin(String.valueOf(param.getValue().maxQuantity())).toPlainString()));
+        maxColumn.setCellValueFactory(param -> param.getValue().maxProperty());
 
-        PercentTableColumn<Seller, String> priceColumn = new PercentTableColumn<>("XMR Price");
+        PercentTableColumn<SellerRow, String> priceColumn = new PercentTableColumn<>("XMR Price");
         priceColumn.setPercentWidth(15);
-        priceColumn.setCellValueFactory(param -> new SimpleStringProperty(Coin.parseCoin(String.valueOf(param.getValue().price())).toPlainString()));
+        priceColumn.setCellValueFactory(param -> param.getValue().priceProperty());
 
-        PercentTableColumn<Seller, String> spreadColumn = new PercentTableColumn<>("%Δ");
+        PercentTableColumn<SellerRow, String> spreadColumn = new PercentTableColumn<>("%Δ");
         spreadColumn.setPercentWidth(10);
         spreadColumn.setText("%Δ");
-        spreadColumn.setCellValueFactory(param -> {
-            Coin sellerPrice = Coin.parseCoin(param.getValue().price() + "");
-            if (currentXmrPriceInBtc != Coin.ZERO) {
-                long currentPriceSatoshis = currentXmrPriceInBtc.value;
-                long sellerPriceSatoshis = sellerPrice.value;
-                long difference = sellerPriceSatoshis - currentPriceSatoshis;
-                long percentage = Math.round(((double) difference / (double) currentPriceSatoshis) * 100d);
-                String finalString = "≈ " + percentage + "%";
-                return new SimpleStringProperty(finalString);
-            } else {
-                return new SimpleStringProperty("-");
-            }
-        });
+        spreadColumn.setCellValueFactory(param -> param.getValue().spreadProperty());
 
-        sellerTable.getTableView().getColumns().addAll(Arrays.asList(sellerColumn, minColumn, maxColumn, priceColumn, spreadColumn));
-        sellerTable.getTableView().setItems(sellersObservableList);
+        // sellers are listed best first, see SellerScorer
+        PercentTableColumn<SellerRow, String> scoreColumn = new PercentTableColumn<>("Score");
+        scoreColumn.setPercentWidth(8);
+        scoreColumn.setCellValueFactory(param -> param.getValue().scoreProperty());
+
+        sellerTable.getTableView().getColumns().addAll(Arrays.asList(sellerColumn, minColumn, maxColumn, priceColumn, spreadColumn, scoreColumn));
+        sellerTable.getTableView().setItems(sellerTableModel.getRows());
     }
 
     @FXML
     public void onStartButtonClick() {
         String xmrAddress = moneroAddressTextField.getText();
         String libp2pAddress = libp2pPeerTextField.getText();
+        if (libp2pAddress == null || libp2pAddress.isBlank()) {
+            libp2pAddress = autoSelectSeller();
+        }
         this.refundAddress = ClientWhirlpool.getInstance().getWhirlpoolService().getChangeAddress(BIP_WALLET.SWAPS_REFUNDS);
         UUID uuid = UUID.randomUUID();
         startSwap(xmrAddress, libp2pAddress, refundAddress, uuid.toString());
@@ -209,76 +232,127 @@ public class SwapsController extends BaseController {
         endSwapThread();
     }
 
+    // Ends the running sellers refresh, the sellers found so far stay listed
+    public void cancelSellersRefresh() {
+        sellersRefresh.incrementAndGet();
+    }
+
     @FXML
     public void onRefreshSellersButtonClick() {
         AppSwap appSwap = GUISwap.appSwap;
         if (appSwap == null) return;
+        // a new refresh replaces one still running
+        long refresh = sellersRefresh.incrementAndGet();
         updateGui(() -> sellerTable.getTableView().getSelectionModel().clearSelection());
         AtomicLong serversChecked = new AtomicLong();
         AtomicBoolean oursSeenInList = new AtomicBoolean(false);
         ConcurrentHashMap<String, Seller> sellerConcurrentHashMap = new ConcurrentHashMap<>();
+        // listed from the peer book until discovery confirms them, dropped if it does not
+        Set<String> unconfirmed = ConcurrentHashMap.newKeySet();
+        unconfirmedSellers = unconfirmed;
+        // sum of max quantities, kept up to date as sellers are merged instead of re-summed per update
+        AtomicLong totalMaxSatoshis = new AtomicLong();
         List<Multiaddr> rendezvousPeers = appSwap.getRendezvousPeers();
         updateGui(() -> this.refreshSellerText.setText("Servers checked: 0/" + rendezvousPeers.size()));
-        rendezvousPeers.forEach(rendezvousPeer -> {
-            Thread listSellersThread = new Thread(() -> {
-                if (HelperAddress.isLibp2pPeerValid(rendezvousPeer.toString()) && GUISwap.appSwap != null) {
-                    ListSellersRequest listSellersRequest = new ListSellersRequest(GUISwap.appSwap.getSeedAsBase64(), rendezvousPeer.toString(), GUISwap.appSwap.getProxyPort(), GUISwap.appSwap.getParams());
-                    ListSellersResponse sellersResponse = GUISwap.appSwap.listSellers(listSellersRequest);
-                    int fetched = sellersResponse.sellers().size();
-                    if (fetched > 0) {
-                        sellersResponse.sellers()
-                                .forEach(seller -> {
-                                    boolean isAsbRunning = GUISwap.isAsbRunning();
-                                    boolean sellerIsUs = isAsbRunning && seller.multiaddr().contains(GUISwap.appAsb.getPeerId());
-                                    if (sellerIsUs) {
-                                        oursSeenInList.set(true);
-
-                                        // update Liquidity page to display actual min/max & xmr price
-                                        updateGui(() -> {
-                                            LiquidityController.getInstance().minBtc.setText(Coin.parseCoin(String.valueOf(seller.minQuantity())).toPlainString());
-                                            LiquidityController.getInstance().maxBtc.setText(Coin.parseCoin(String.valueOf(seller.maxQuantity())).toPlainString());
-                                            LiquidityController.getInstance().asbPrice.setText(seller.getPrice() + " (" + AppAsb.getFee() + "%)");
-                                        });
-                                    }
-
-                                    sellerConcurrentHashMap.put(seller.multiaddr(), seller);
-                                });
 
-                    }
+        // one rendezvous thread per server, only the latest table update is applied, so it reads the shared state when it runs
+        Runnable updateSellersTable = () -> updateGui("sellers-table", () -> {
+            try {
+                long checked = serversChecked.get();
+                Coin total = Coin.valueOf(totalMaxSatoshis.get());
 
-                    serversChecked.addAndGet(1);
-                    long checked = serversChecked.get();
+                // once every server answered, an empty list is applied too so unconfirmed peer book sellers go away
+                if (!sellerConcurrentHashMap.isEmpty() || checked >= rendezvousPeers.size())
+                    sellerTableModel.setSellers(SellerScorer.getInstance().scores(sellerConcurrentHashMap.values()));
+
+                if(!sellerConcurrentHashMap.isEmpty() || checked == rendezvousPeers.size())
+                    totalXmrForSaleInBtcText.setText("Total Max.: " + total.toFriendlyString());
+
+                if (checked >= GUISwap.appSwap.getRendezvousPeers().size()) {
+                    refreshSellerText.setText("");
+                    MainController.getInstance().asbIcon.setVisible(oursSeenInList.get());
+                } else {
+                    refreshSellerText.setText("Servers checked: " + checked + "/" + rendezvousPeers.size());
+                }
+            } catch (Exception ignored) {
+            }
+        });
 
-                    AtomicLong totalXmrForSaleInBtcSatoshis = new AtomicLong();
-                    sellerConcurrentHashMap.forEach((libp2pAddress, seller) -> {
-                        Coin max = Coin.parseCoin(String.valueOf(seller.maxQuantity()));
-                        totalXmrForSaleInBtcSatoshis.getAndAdd(max.value);
+        // rows are filled as sellers quote, a slow seller no longer holds back the others of its rendezvous point
+        ListSellersListener listener = new ListSellersListener() {
+            @Override
+            public void onSeller(Seller seller) {
+                boolean isAsbRunning = GUISwap.isAsbRunning();
+                boolean sellerIsUs = isAsbRunning && seller.multiaddr().contains(GUISwap.appAsb.getPeerId());
+                if (sellerIsUs) {
+                    oursSeenInList.set(true);
+
+                    // update Liquidity page to display actual min/max & xmr price
+                    updateGui("asb-quote", () -> {
+                        LiquidityController.getInstance().minBtc.setText(Coin.valueOf(seller.minSatoshis()).toPlainString());
+                        LiquidityController.getInstance().maxBtc.setText(Coin.valueOf(seller.maxSatoshis()).toPlainString());
+                        LiquidityController.getInstance().asbPrice.setText(Coin.valueOf(seller.priceSatoshis()).toPlainString() + " (" + AppAsb.getFee() + "%)");
                     });
-                    Coin total = Coin.valueOf(totalXmrForSaleInBtcSatoshis.get());
+                }
 
-                    updateGui(() -> {
-                        try {
-                            if (fetched > 0)
-                                sellersObservableList.setAll(sellerConcurrentHashMap.values());
-
-                            if(fetched > 0 || checked == rendezvousPeers.size())
-                                totalXmrForSaleInBtcText.setText("Total Max.: " + total.toFriendlyString());
-
-                            if (checked >= GUISwap.appSwap.getRendezvousPeers().size()) {
-                                refreshSellerText.setText("");
-                                MainController.getInstance().asbIcon.setVisible(oursSeenInList.get());
-                            } else {
-                                refreshSellerText.setText("Servers checked: " + checked + "/" + rendezvousPeers.size());
-                            }
-                        } catch (Exception ignored) {
+                unconfirmed.remove(seller.multiaddr());
+                Seller previous = sellerConcurrentHashMap.put(seller.multiaddr(), seller);
+                totalMaxSatoshis.addAndGet(seller.maxSatoshis() - (previous == null ? 0 : previous.maxSatoshis()));
+                updateSellersTable.run();
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return sellersRefresh.get() != refresh;
+            }
+        };
+
+        // sellers that quoted recently are listed right away, with their last quote
+        for (Seller seller : appSwap.knownSellers().sellers()) {
+            sellerConcurrentHashMap.put(seller.multiaddr(), seller);
+            totalMaxSatoshis.addAndGet(seller.maxSatoshis());
+            unconfirmed.add(seller.multiaddr());
+        }
+        if (!unconfirmed.isEmpty()) updateSellersTable.run();
+
+        rendezvousPeers.forEach(rendezvousPeer -> {
+            Thread listSellersThread = new Thread(() -> {
+                if (HelperAddress.isLibp2pPeerValid(rendezvousPeer.toString()) && GUISwap.appSwap != null) {
+                    ListSellersRequest listSellersRequest = new ListSellersRequest(GUISwap.appSwap.getSessionHandle(), rendezvousPeer.toString(), GUISwap.appSwap.getProxyPort(), GUISwap.appSwap.getParams());
+                    ListSellersResponse sellersResponse = GUISwap.appSwap.listSellers(listSellersRequest, listener);
+                    if (!sellersResponse.sellers().isEmpty())
+                        SellerScorer.getInstance().observeQuotes(sellersResponse.sellers());
+
+                    if (serversChecked.addAndGet(1) == rendezvousPeers.size() && !listener.isCancelled()) {
+                        for (String multiaddr : unconfirmed) {
+                            Seller stale = sellerConcurrentHashMap.remove(multiaddr);
+                            if (stale != null) totalMaxSatoshis.addAndGet(-stale.maxSatoshis());
                         }
-                    });
+                    }
+                    updateSellersTable.run();
                 }
             });
             listSellersThread.start();
         });
     }
 
+    // Best ranked seller that is not our own ASB and quoted in the latest refresh, selected in the table, empty if there is none
+    private String autoSelectSeller() {
+        String ownMultiaddr = GUISwap.isAsbRunning() ? GUISwap.appAsb.getExternalAddress() + "/p2p/" + GUISwap.appAsb.getPeerId() : null;
+        List<Seller> sellers = new ArrayList<>(sellerTableModel.getSellers());
+        Set<String> unconfirmed = unconfirmedSellers;
+        sellers.removeIf(seller -> seller.multiaddr().equals(ownMultiaddr) || unconfirmed.contains(seller.multiaddr()));
+        Optional<Seller> best = SellerScorer.getInstance().best(sellers);
+        best.ifPresent(seller -> {
+            MainController.getInstance().printSwapLogLn(LogType.INFO, "Auto-selected seller " + seller.multiaddr(), false);
+            sellerTableModel.getRows().stream()
+                    .filter(row -> row.seller().equals(seller))
+                    .findFirst()
+                    .ifPresent(row -> sellerTable.getTableView().getSelectionModel().select(row));
+        });
+        return best.map(Seller::multiaddr).orElse("");
+    }
+
     public void startSwap(String xmrAddress, String libp2pPeer, String refundAddress, String uuid) {
         MainController mainController = MainController.getInstance();
         if (!HelperAddress.isXmrAddrValid(xmrAddress)) {
@@ -294,12 +368,14 @@ public class SwapsController extends BaseController {
                 boolean started = maybeStartSwapThread(() -> {
                     mainController.printSwapLogLn(LogType.INFO, message, false);
                     GUISwap.appSwap.getProxy().ifPresentOrElse(proxy -> {
-                        SwapRequest swapRequest = new SwapRequest(uuid, GUISwap.appSwap.getSeedAsBase64(), xmrAddress.trim(), GUISwap.appSwap.getElectrumServer(), libp2pPeer.trim(), proxy, GUISwap.appSwap.getParams(), GUISwap.appSwap.getProxyPort(), refundAddress, wallets.get(fromAccount.getValue()).getBipDerivation().getAccountIndex());
+                        SwapRequest swapRequest = new SwapRequest(uuid, GUISwap.appSwap.getSessionHandle(), xmrAddress.trim(), GUISwap.appSwap.getElectrumServer(), libp2pPeer.trim(), proxy, GUISwap.appSwap.getParams(), GUISwap.appSwap.getProxyPort(), refundAddress, wallets.get(fromAccount.getValue()).getBipDerivation().getAccountIndex());
                         GUISwap.appSwap.buyXmr(swapRequest);
                     }, () -> {});
                 });
 
                 if (started) {
+                    // the swap dials the seller over the same Tor client
+                    cancelSellersRefresh();
                     updateGui(() -> {
                         startButton.setDisable(true);
                         swapProgressBar.setManaged(true);
@@ -371,7 +447,7 @@ public class SwapsController extends BaseController {
     }
 
     public void setProgress(float progress) {
-        updateGui(() -> {
+        updateGui("progress", () -> {
             this.swapProgressBar.setProgress(progress);
 
             if (progress == 0.0f) {
@@ -383,7 +459,7 @@ public class SwapsController extends BaseController {
     }
 
     public void setSwapImage(Image image, String tooltip, boolean qrCode) {
-        updateGui(() -> {
+        updateGui("swap-image", () -> {
             swapIcon.setVisible(false);
             swapIcon.setManaged(false);
             swapImage.setVisible(true);
@@ -403,7 +479,7 @@ public class SwapsController extends BaseController {
     }
 
     public void setLockIcon(SwapIconType swapIconType) {
-        updateGui(() -> {
+        updateGui("swap-icon", () -> {
             swapImage.setVisible(false);
             swapImage.setManaged(false);
             swapIcon.setVisible(true);
@@ -414,7 +490,7 @@ public class SwapsController extends BaseController {
     }
 
     public void setSwapMessage(String message, TextType textType, boolean large) {
-        updateGui(() -> {
+        updateGui("swap-message", () -> {
             if (!swapMessage.isManaged())
                 swapMessage.setManaged(true);
             swapMessage.setVisible(true);
@@ -432,7 +508,7 @@ public class SwapsController extends BaseController {
     }
 
     public void setSwapText(String text, TextType textType, boolean large, @Nullable String tooltip) {
-        updateGui(() -> {
+        updateGui("swap-text", () -> {
             swapText.setVisible(true);
             swapText.setText(text);
             swapText.end();
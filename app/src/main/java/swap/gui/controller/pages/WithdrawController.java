@@ -19,6 +19,8 @@ import swap.gui.GUISwap;
 import swap.gui.controller.BaseController;
 import swap.gui.controller.MainController;
 import swap.helper.HelperAddress;
+import swap.lib.AppSwap;
+import swap.lib.FeeOracle;
 import swap.model.LogType;
 import swap.model.ScreenType;
 import swap.whirlpool.ServiceWhirlpool;
@@ -27,6 +29,9 @@ import java.util.HashMap;
 import java.util.Optional;
 
 public class WithdrawController extends BaseController {
+    // default fee target for withdrawals, in blocks
+    private static final int WITHDRAW_TARGET_BLOCKS = 6;
+
     @FXML
     public GridPane withdrawPane;
     @FXML
@@ -76,6 +81,21 @@ public class WithdrawController extends BaseController {
             whirlpoolAccount.setItems(accounts);
             whirlpoolAccount.setValue(accountsOptional.get());
         }
+        GUISwap.executorService.submit(() -> {
+            long feeRate = getDefaultFeeRate();
+            if (feeRate > 0) {
+                updateGui(() -> {
+                    String current = btcFeeTextField.getText();
+                    if (current == null || current.isEmpty()) btcFeeTextField.setText(String.valueOf(feeRate));
+                });
+            }
+        });
+    }
+
+    private long getDefaultFeeRate() {
+        AppSwap swapApp = GUISwap.appSwap;
+        if (swapApp == null) return -1;
+        return FeeOracle.getFeeRate(swapApp.getParams(), WITHDRAW_TARGET_BLOCKS);
     }
 
     @FXML
@@ -89,8 +109,10 @@ public class WithdrawController extends BaseController {
                 if (amountString == null || amountString.isEmpty()) return;
                 Coin amount = Coin.parseCoin(amountString);
                 String feeRateString = btcFeeTextField.getText();
-                if (feeRateString == null || feeRateString.isEmpty()) return;
-                long feeRate = Long.parseLong(feeRateString);
+                long feeRate = feeRateString == null || feeRateString.isEmpty()
+                        ? getDefaultFeeRate()
+                        : Long.parseLong(feeRateString);
+                if (feeRate <= 0) return;
                 ServiceWhirlpool serviceWhirlpool = ClientWhirlpool.getInstance().getWhirlpoolService();
                 Transaction tx = serviceWhirlpool.createTransactionFromAccount(amount, address, wallets.get(whirlpoolAccount.getValue()), feeRate);
                 String response = serviceWhirlpool.sendTx(tx);
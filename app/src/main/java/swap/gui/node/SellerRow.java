@@ -0,0 +1,75 @@
+package swap.gui.node;
+
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import org.bitcoinj.core.Coin;
+import swap.model.Seller;
+
+// One row of the sellers table, display strings are built once per seller instead of on every cell render.
+// Only the spread (changes with the spot price) and the score (changes with the other sellers) are updated later.
+public final class SellerRow {
+    private final Seller seller;
+    private final ReadOnlyStringWrapper multiaddr;
+    private final ReadOnlyStringWrapper min;
+    private final ReadOnlyStringWrapper max;
+    private final ReadOnlyStringWrapper price;
+    private final ReadOnlyStringWrapper spread = new ReadOnlyStringWrapper("-");
+    private final ReadOnlyStringWrapper score = new ReadOnlyStringWrapper("");
+    private long spreadSpotSatoshis = 0;
+    private long scorePercent = -1;
+
+    public SellerRow(Seller seller) {
+        this.seller = seller;
+        this.multiaddr = new ReadOnlyStringWrapper(seller.multiaddr());
+        this.min = new ReadOnlyStringWrapper(Coin.valueOf(seller.minSatoshis()).toPlainString());
+        this.max = new ReadOnlyStringWrapper(Coin.valueOf(seller.maxSatoshis()).toPlainString());
+        this.price = new ReadOnlyStringWrapper(Coin.valueOf(seller.priceSatoshis()).toPlainString());
+    }
+
+    public Seller seller() {
+        return seller;
+    }
+
+    // Spot price of 1 XMR in satoshis, 0 while unknown
+    public void updateSpread(long spotSatoshis) {
+        if (spotSatoshis == spreadSpotSatoshis) return;
+        spreadSpotSatoshis = spotSatoshis;
+        if (spotSatoshis <= 0) {
+            spread.set("-");
+            return;
+        }
+        long percentage = Math.round(((double) (seller.priceSatoshis() - spotSatoshis) / (double) spotSatoshis) * 100d);
+        spread.set("≈ " + percentage + "%");
+    }
+
+    public void updateScore(double score) {
+        long percent = Math.round(score * 100d);
+        if (percent == scorePercent) return;
+        scorePercent = percent;
+        this.score.set(String.valueOf(percent));
+    }
+
+    public ReadOnlyStringProperty multiaddrProperty() {
+        return multiaddr.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty minProperty() {
+        return min.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty maxProperty() {
+        return max.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty priceProperty() {
+        return price.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty spreadProperty() {
+        return spread.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty scoreProperty() {
+        return score.getReadOnlyProperty();
+    }
+}
@@ -0,0 +1,52 @@
+package swap.gui.node;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import swap.model.Seller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Rows of the sellers table, FX thread only. Rows are reused across updates while their seller (quote) is unchanged,
+// so a refresh with hundreds of sellers only builds display strings for new quotes.
+public class SellerTableModel {
+    private final ObservableList<SellerRow> rows = FXCollections.observableArrayList();
+    private HashMap<String, SellerRow> rowsByMultiaddr = new HashMap<>();
+    private long spotSatoshis = 0;
+
+    public ObservableList<SellerRow> getRows() {
+        return rows;
+    }
+
+    // Seller -> score, in display order
+    public void setSellers(Map<Seller, Double> ranked) {
+        HashMap<String, SellerRow> next = new HashMap<>(ranked.size() * 2);
+        List<SellerRow> ordered = new ArrayList<>(ranked.size());
+        ranked.forEach((seller, score) -> {
+            SellerRow row = rowsByMultiaddr.get(seller.multiaddr());
+            if (row == null || !row.seller().equals(seller)) {
+                row = new SellerRow(seller);
+                row.updateSpread(spotSatoshis);
+            }
+            row.updateScore(score);
+            next.put(seller.multiaddr(), row);
+            ordered.add(row);
+        });
+        rowsByMultiaddr = next;
+        rows.setAll(ordered);
+    }
+
+    // Only the spread column depends on the spot price
+    public void setSpotSatoshis(long spotSatoshis) {
+        this.spotSatoshis = spotSatoshis;
+        for (SellerRow row : rows) {
+            row.updateSpread(spotSatoshis);
+        }
+    }
+
+    public List<Seller> getSellers() {
+        return rows.stream().map(SellerRow::seller).toList();
+    }
+}
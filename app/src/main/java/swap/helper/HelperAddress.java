@@ -9,7 +9,10 @@ import swap.model.Multiaddr;
 
 public class HelperAddress {
     public static boolean isBtcAddrValid(String address) {
-        NetworkParameters parameters = GUISwap.appSwap.getParams();
+        return isBtcAddrValid(address, GUISwap.appSwap.getParams());
+    }
+
+    public static boolean isBtcAddrValid(String address, NetworkParameters parameters) {
         if (address.isEmpty()) return false;
         try {
             Address.fromBase58(parameters, address);
@@ -3,9 +3,10 @@ package swap.lib;
 import org.berndpruenster.netlayer.tor.Tor;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.params.TestNet3Params;
+import swap.codec.CborWriter;
 import swap.gui.GUISwap;
-import swap.gui.controller.MainController;
 import swap.helper.HelperProperties;
+import swap.listener.Listeners;
 import swap.model.LogType;
 import swap.model.request.GetHistoryRequest;
 import swap.model.request.StartAsbRequest;
@@ -14,10 +15,13 @@ import swap.process.ProcessAsb;
 import swap.process.ProcessRpcMonero;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -102,9 +106,7 @@ public class AppAsb implements App {
 
     @Override
     public void stop() {
-        MainController mainController = MainController.getInstance();
-        if (mainController == null) return;
-        mainController.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Running ASB shutdown process...", false);
+        Listeners.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Running ASB shutdown process...", false);
         ProcessAsb processAsb = getAsbProcess();
         if (processAsb == null) return;
         boolean successfulAsbShutdown = processAsb.shutdown();
@@ -161,7 +163,9 @@ public class AppAsb implements App {
 
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("-----BEGIN SEED-----\n");
-        stringBuilder.append(GUISwap.appSwap.getSeedAsBase64() + "\n");
+        byte[] seed = GUISwap.appSwap.getSeedBytes();
+        stringBuilder.append(Base64.getEncoder().encodeToString(seed)).append("\n");
+        Arrays.fill(seed, (byte) 0);
         stringBuilder.append("-----END SEED-----");
 
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(seedPemFile))) {
@@ -186,7 +190,7 @@ public class AppAsb implements App {
             Process process = new ProcessBuilder(cmd).start();
             HelperProperties.setProperty(HelperProperties.KEY_PID_ASB, process.pid() + "");
             this.processAsb = new ProcessAsb(process);
-            MainController.getInstance().printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Initializing...", false);
+            Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Initializing...", false);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -284,10 +288,11 @@ public class AppAsb implements App {
     }
 
     public GetHistoryResponse getHistory(GetHistoryRequest getHistoryRequest) {
-        return GetHistoryResponse.fromJson(getHistory(getHistoryRequest.toJson().toString()));
+        CborWriter request = getHistoryRequest.toCbor();
+        return GetHistoryResponse.fromCbor(getHistory(request.buffer(), request.length()));
     }
 
-    private native String getHistory(String json);
+    private native byte[] getHistory(ByteBuffer cborRequest, int length);
 
     private File getResourceAsFile(String resourcePath) {
         try {
@@ -2,7 +2,6 @@ package swap.lib;
 
 import com.samourai.wallet.api.pairing.PairingNetwork;
 import com.samourai.wallet.crypto.DecryptionException;
-import javafx.application.Platform;
 import org.berndpruenster.netlayer.tor.Tor;
 import org.berndpruenster.netlayer.tor.TorCtlException;
 import org.bitcoinj.core.NetworkParameters;
@@ -15,10 +14,11 @@ import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.json.JSONObject;
 import swap.bitcoin.DeterministicKeyChainAtomicSwaps;
 import swap.client.ClientSwap;
+import swap.codec.CborWriter;
 import swap.gui.GUISwap;
-import swap.gui.controller.MainController;
-import swap.gui.controller.pages.HistoryController;
 import swap.helper.*;
+import swap.listener.ListSellersListener;
+import swap.listener.Listeners;
 import swap.listener.StartupListener;
 import swap.model.*;
 import swap.model.request.GetHistoryRequest;
@@ -31,8 +31,10 @@ import swap.model.response.ListSellersResponse;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -53,6 +55,15 @@ public class AppSwap implements App {
             new Multiaddr(Multiaddr.Protocol.ONION3, "yn5wziq6coomwvk2regzvwmjc2hvbw3z2w35bdfersr3kdqat6jwh6ad.onion", Multiaddr.Protocol.TCP, 8888, Multiaddr.Protocol.P2P, "12D3KooWDgGZKJHbHfaUFMoQHj4zEA8xcXW7tdw7rtQDMU7zoXVE")
     );
     public static int UNINITIALIZED_TOR_PORT = -1;
+    // bob::is_complete, the same rule gc_swap_wallets in src/wallet.rs deletes the bitcoin wallet caches by
+    private static final Set<String> FINISHED_SWAP_STATUSES = Set.of(
+            SwapData.Status.REFUNDED.name(),
+            SwapData.Status.PUNISHED.name(),
+            SwapData.Status.SAFELY_ABORTED.name(),
+            SwapData.Status.XMR_REDEEMED.name()
+    );
+    // a monitoring wallet of a swap without any recorded state is an abandoned order once untouched this long
+    private static final long ABANDONED_WALLET_MILLIS = 24 * 60 * 60_000L;
     private static String swapRootDir = null;
 
     /*** ELECTRUM SERVERS ***/
@@ -133,6 +144,7 @@ public class AppSwap implements App {
 
     public File rpcRootDir = null;
     private DeterministicKeyChain keyChain = null;
+    private NativeSession nativeSession = null;
     private String electrumServer = null;
     private String moneroDaemon = null;
     @Nullable
@@ -147,7 +159,9 @@ public class AppSwap implements App {
 
     public static File getSwapRootDir() {
         if (swapRootDir == null) {
-            swapRootDir = getDataDir();
+            // -Dswap.dataDir overrides the platform data dir (benchmarks, multiple instances on one host)
+            swapRootDir = System.getProperty("swap.dataDir", null);
+            if (swapRootDir == null) swapRootDir = getDataDir();
         }
         File dir = new File(swapRootDir);
         if (!dir.exists()) dir.mkdirs();
@@ -197,11 +211,27 @@ public class AppSwap implements App {
     }
 
     public ListSellersResponse listSellers(ListSellersRequest listSellersRequest) {
-        return ListSellersResponse.fromJson(listSellers(listSellersRequest.toJson().toString()));
+        return listSellers(listSellersRequest, null);
+    }
+
+    // The listener gets each seller as soon as it quoted, the response holds all of them (or those found before cancelling)
+    public ListSellersResponse listSellers(ListSellersRequest listSellersRequest, @Nullable ListSellersListener listener) {
+        CborWriter request = listSellersRequest.toCbor();
+        try {
+            return ListSellersResponse.fromCbor(listSellers(request.buffer(), request.length(), listener == null ? null : new SellerStream(listener)));
+        } finally {
+            request.wipe();
+        }
+    }
+
+    // Sellers that quoted within the last day according to the native peer book, best first, shown before discovery ends
+    public ListSellersResponse knownSellers() {
+        return ListSellersResponse.fromCbor(knownSellers(getParams() != MainNetParams.get()));
     }
 
     public GetHistoryResponse getHistory(GetHistoryRequest getHistoryRequest) {
-        return GetHistoryResponse.fromJson(getHistory(getHistoryRequest.toJson().toString()));
+        CborWriter request = getHistoryRequest.toCbor();
+        return GetHistoryResponse.fromCbor(getHistory(request.buffer(), request.length()));
     }
 
     public File getRpcRootDir() {
@@ -328,10 +358,17 @@ public class AppSwap implements App {
         return keyChain;
     }
 
-    public String getSeedAsBase64() {
+    public long getSessionHandle() {
+        if (nativeSession == null) throw new IllegalStateException("AppSwap not started.");
+        return nativeSession.getHandle();
+    }
+
+    // A copy the caller wipes once done with it
+    byte[] getSeedBytes() {
         DeterministicKeyChainAtomicSwaps keyChain = (DeterministicKeyChainAtomicSwaps) getKeyChain();
-        if (keyChain == null || keyChain.getSeed() == null) return "";
-        return Base64.getEncoder().encodeToString(keyChain.getSeed().getSeedBytes());
+        if (keyChain == null || keyChain.getSeed() == null) return new byte[0];
+        byte[] seedBytes = keyChain.getSeed().getSeedBytes();
+        return Arrays.copyOf(seedBytes, seedBytes.length);
     }
 
     public NetworkParameters getParams() {
@@ -356,13 +393,30 @@ public class AppSwap implements App {
         });
     }
 
-    private void handleMonitoringWalletFilesDeletion() {
+    // Monitoring wallets (encrypted, see src/wallet.rs) are kept across restarts so a resume continues from
+    // the wallet's scan height. They are deleted once their swap is recorded as finished, or when the swap never
+    // recorded a state (an order abandoned before the swap started) and the wallet was not written for a day.
+    private void collectFinishedMonitoringWallets() {
         String network = getParams() == MainNetParams.get() ? "mainnet" : "testnet";
         File[] files = new File(getRpcRootDir(), "/monero-data/" + network).listFiles();
         if (files == null) return;
+        Map<String, String> statuses;
+        try {
+            statuses = getHistory(new GetHistoryRequest(getParams())).getSwaps().stream()
+                    .collect(Collectors.toMap(SwapData::swapId, SwapData::status, (first, second) -> second));
+        } catch (Exception e) {
+            System.out.println("[SWAP_CLIENT] Skipping monitoring wallet cleanup, failed to read swap history: " + e.getMessage());
+            return;
+        }
         for (File file : files) {
-            if (file.isFile() && file.getName().contains("-monitoring-wallet")) {
-                boolean deleted = file.delete();
+            int index = file.getName().indexOf("-monitoring-wallet");
+            if (!file.isFile() || index <= 0) continue;
+            String swapId = file.getName().substring(0, index);
+            if (swapClients.containsKey(swapId)) continue;
+            String status = statuses.get(swapId);
+            boolean abandoned = status == null && System.currentTimeMillis() - file.lastModified() > ABANDONED_WALLET_MILLIS;
+            if (abandoned || (status != null && FINISHED_SWAP_STATUSES.contains(status))) {
+                if (!file.delete()) System.out.println("[SWAP_CLIENT] Failed to delete " + file.getAbsolutePath());
             }
         }
     }
@@ -374,46 +428,25 @@ public class AppSwap implements App {
             File moneroWalletsDir = new File(getRpcRootDir(), "monero-data/" + HelperProperties.network.toLowerCase());
             if (!moneroWalletsDir.exists()) moneroWalletsDir.mkdirs();
             this.keyChain = HelperWallet.createKeyChain(HelperProperties.mnemonicEncrypted, passphrase, HelperProperties.hasPassphrase);
+            this.nativeSession = NativeSession.open(getSeedBytes(), getParams());
         } catch (UnreadableWalletException | InvalidCipherTextException | DecryptionException | IOException e) {
             throw new RuntimeException(e);
         }
+        GUISwap.scheduledExecutorService.scheduleWithFixedDelay(this::collectFinishedMonitoringWallets, 1, 30, TimeUnit.MINUTES);
 
-        Platform.runLater(startupListener::onClientStarted);
-    }
-
-    public void maybeAutoResume(HistoryController historyController) {
-        GUISwap.executorService.submit(() -> {
-            while (!historyController.initialized) {
-                try {
-                    Thread.sleep(100L);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-            }
-            Optional<SwapData> firstIncompleteSwap = historyController.historyObservableList.stream().filter(swapData -> {
-                String status = swapData.status();
-                return !status.equals("XMR_REDEEMED") && !status.equals("BTC_REDEEMED") && !status.equals("REFUNDED") && !status.equals("PUNISHED") && !status.equals("SAFELY_ABORTED");
-            }).findAny();
-
-            MainController.getInstance().updateGui(() -> {
-                firstIncompleteSwap.ifPresent(swapData -> {
-                    MainController.getInstance().historyPage();
-                    historyController.resumeSwap(swapData.swapId());
-                });
-            });
-        });
+        startupListener.onClientStarted();
     }
 
     @Override
     public void stop() {
-        MainController mainController = MainController.getInstance();
-        if (mainController == null) return;
-        mainController.printSwapLogLn(LogType.HIGHLIGHT, "[SWAP_CLIENT] Running shutdown process...", false);
+        Listeners.printSwapLogLn(LogType.HIGHLIGHT, "[SWAP_CLIENT] Running shutdown process...", false);
         for (ClientSwap swapClient : swapClients.values()) {
             swapClient.stop();
         }
-
-        handleMonitoringWalletFilesDeletion();
+        if (nativeSession != null) {
+            nativeSession.close();
+            nativeSession = null;
+        }
     }
 
     @Override
@@ -439,7 +472,9 @@ public class AppSwap implements App {
         HelperSwapsDb.getInstance().setSwapsAccount(swapRequest.uuid(), swapRequest.swapsAccount());
     }
 
-    private native String listSellers(String json);
+    private native byte[] listSellers(ByteBuffer cborRequest, int length, @Nullable SellerStream stream);
+
+    private native byte[] knownSellers(boolean testnet);
 
     public void resume(ResumeRequest resumeRequest) {
         ClientSwap swapClient = new ClientSwap(this, resumeRequest);
@@ -447,5 +482,5 @@ public class AppSwap implements App {
         swapClient.start();
     }
 
-    private native String getHistory(String json);
+    private native byte[] getHistory(ByteBuffer cborRequest, int length);
 }
\ No newline at end of file
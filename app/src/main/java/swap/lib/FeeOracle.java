@@ -0,0 +1,44 @@
+package swap.lib;
+
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.TestNet3Params;
+
+import java.util.Map;
+
+// Fee estimates shared with the native side (xmr-btc-swap/swap/src/bitcoin/fee_oracle.rs).
+// The rate is the median of the Electrum servers used by this process's swap wallets and the estimates reported here.
+// The ASB runs as a separate process (ProcessAsb) and does not see this oracle.
+public class FeeOracle {
+    public static final String SOURCE_WHIRLPOOL = "whirlpool";
+
+    // sat/vB to confirm within targetBlocks, -1 when no source has an estimate
+    public static long getFeeRate(NetworkParameters params, int targetBlocks) {
+        try {
+            return feeRate(params == TestNet3Params.get(), targetBlocks);
+        } catch (UnsatisfiedLinkError e) {
+            // native library not loaded yet
+            return -1;
+        }
+    }
+
+    // target blocks -> sat/vB, replaces the estimates previously reported by the same source
+    public static void report(String source, NetworkParameters params, Map<Integer, Long> satPerVb) {
+        int[] targetBlocks = new int[satPerVb.size()];
+        long[] rates = new long[satPerVb.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Long> entry : satPerVb.entrySet()) {
+            targetBlocks[i] = entry.getKey();
+            rates[i] = entry.getValue();
+            i++;
+        }
+        try {
+            report(source, params == TestNet3Params.get(), targetBlocks, rates);
+        } catch (UnsatisfiedLinkError e) {
+            System.out.println("[FeeOracle] Native library not loaded, dropping " + source + " fee estimates");
+        }
+    }
+
+    private static native long feeRate(boolean testnet, int targetBlocks);
+
+    private static native void report(String source, boolean testnet, int[] targetBlocks, long[] satPerVb);
+}
@@ -0,0 +1,45 @@
+package swap.lib;
+
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.TestNet3Params;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keys derived from the wallet seed, held in native memory (src/session.rs).
+// The seed crosses JNI once in open(), requests only carry the opaque handle.
+public class NativeSession implements AutoCloseable {
+    private final long handle;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private NativeSession(long handle) {
+        this.handle = handle;
+    }
+
+    // seed is wiped once the native side has derived its keys
+    public static NativeSession open(byte[] seed, NetworkParameters params) {
+        try {
+            long handle = open(seed, params == TestNet3Params.get());
+            if (handle == 0) throw new IllegalStateException("Failed to open native session.");
+            return new NativeSession(handle);
+        } finally {
+            Arrays.fill(seed, (byte) 0);
+        }
+    }
+
+    public long getHandle() {
+        if (closed.get()) throw new IllegalStateException("Native session is closed.");
+        return handle;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            close(handle);
+        }
+    }
+
+    private static native long open(byte[] seed, boolean testnet);
+
+    private static native void close(long handle);
+}
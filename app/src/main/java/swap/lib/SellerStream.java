@@ -0,0 +1,24 @@
+package swap.lib;
+
+import swap.listener.ListSellersListener;
+import swap.model.Seller;
+import swap.model.response.ListSellersResponse;
+
+// Called by the native library (src/list_sellers.rs) for every seller whose status is known
+final class SellerStream {
+    private final ListSellersListener listener;
+
+    SellerStream(ListSellersListener listener) {
+        this.listener = listener;
+    }
+
+    void onSeller(byte[] cborSeller) {
+        Seller seller = ListSellersResponse.sellerFromCbor(cborSeller);
+        // unreachable sellers are only reported to keep the native side simple
+        if (seller != null) listener.onSeller(seller);
+    }
+
+    boolean isCancelled() {
+        return listener.isCancelled();
+    }
+}
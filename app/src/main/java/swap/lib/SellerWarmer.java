@@ -0,0 +1,151 @@
+package swap.lib;
+
+import swap.metrics.Histogram;
+import swap.metrics.MetricsServer;
+import swap.metrics.MetricsSource;
+
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps a Tor circuit to the selected seller open until the swap has its quote. Building the rendezvous circuit to
+// an onion service takes seconds; the swap's own dial reuses the one kept open here. The native side
+// (src/prewarm.rs) connects with a throwaway libp2p identity and only pings, since a libp2p connection can not be
+// handed over to the swap's swarm.
+public class SellerWarmer implements MetricsSource {
+    public static final String STATE_SELLER_QUOTE = "SellerQuote";
+    // a selected seller is not kept warm forever if no swap is started
+    private static final long MAX_WARM_MILLIS = 10 * 60_000L;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static SellerWarmer instance = null;
+
+    public static SellerWarmer getInstance() {
+        if (instance == null) {
+            instance = new SellerWarmer();
+        }
+
+        return instance;
+    }
+
+    // Called by the native library while it keeps the connection open
+    static final class Warm {
+        private final String multiaddr;
+        private final long startedMillis = System.currentTimeMillis();
+        // swaps started while this was the current warm, guarded by the SellerWarmer
+        private final HashSet<String> swapIds = new HashSet<>();
+        private volatile long dialMillis = -1;
+        private volatile boolean cancelled = false;
+
+        private Warm(String multiaddr) {
+            this.multiaddr = multiaddr;
+        }
+
+        void onConnected(long dialMillis) {
+            this.dialMillis = dialMillis;
+            System.out.println("[SellerWarmer] Connected to " + multiaddr + " in " + dialMillis + "ms");
+        }
+
+        boolean isCancelled() {
+            return cancelled || System.currentTimeMillis() - startedMillis > MAX_WARM_MILLIS;
+        }
+
+        private boolean isConnected() {
+            return dialMillis >= 0 && !isCancelled();
+        }
+    }
+
+    private volatile Warm current = null;
+    // swapId -> whether the seller was connected when the swap started, until the swap got its quote or the warm ended
+    private final ConcurrentHashMap<String, Boolean> startedWarm = new ConcurrentHashMap<>();
+    private final Histogram dialMillis = new Histogram();
+    private final Histogram warmQuoteMillis = new Histogram();
+    private final Histogram coldQuoteMillis = new Histogram();
+    private final AtomicLong failedDials = new AtomicLong();
+
+    private SellerWarmer() {
+        MetricsServer.getInstance().register(this);
+    }
+
+    // Blocks until cancelled or the connection is lost, returns the dial time in milliseconds, -1 if it never connected
+    private static native long keepOpen(String multiaddr, int proxyPort, Warm warm);
+
+    // Starts keeping a circuit to the seller open, replacing the previous seller. Only useful over Tor.
+    public synchronized void warm(String multiaddr, int proxyPort) {
+        Warm previous = current;
+        if (previous != null && previous.multiaddr.equals(multiaddr) && !previous.isCancelled()) return;
+        cancel();
+        if (proxyPort <= 0) return;
+        Warm warm = new Warm(multiaddr);
+        current = warm;
+        Thread thread = new Thread(() -> {
+            long dial = keepOpen(multiaddr, proxyPort, warm);
+            if (dial >= 0) {
+                dialMillis.record(dial);
+            } else if (!warm.cancelled) {
+                failedDials.incrementAndGet();
+            }
+            synchronized (this) {
+                forget(warm);
+                if (current == warm) current = null;
+            }
+        }, "seller-warmer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void cancel() {
+        if (current != null) {
+            current.cancelled = true;
+            forget(current);
+        }
+        current = null;
+    }
+
+    // Without a circuit being kept open there is nothing to compare the swap's quote time with
+    public synchronized void onSwapStarted(String swapId, String multiaddr) {
+        Warm warm = current;
+        if (warm == null) return;
+        warm.swapIds.add(swapId);
+        startedWarm.put(swapId, warm.multiaddr.equals(multiaddr) && warm.isConnected());
+    }
+
+    // Swaps that never reach the SellerQuote state would otherwise stay in startedWarm
+    private void forget(Warm warm) {
+        warm.swapIds.forEach(startedWarm::remove);
+        warm.swapIds.clear();
+    }
+
+    // From the SellerQuote state timing of buy_xmr, once the swap is connected the circuit is no longer needed
+    public void onSellerQuote(String swapId, long elapsedMillis) {
+        Boolean warm = startedWarm.remove(swapId);
+        if (warm == null) return;
+        (warm ? warmQuoteMillis : coldQuoteMillis).record(elapsedMillis);
+        cancel();
+    }
+
+    @Override
+    public void writePrometheus(StringBuilder out) {
+        out.append("# HELP seller_prewarm_dial_seconds Time to connect to the selected seller, what a swap without a warm circuit waits for\n");
+        out.append("# TYPE seller_prewarm_dial_seconds summary\n");
+        writeSummary(out, "seller_prewarm_dial_seconds", "", dialMillis);
+        out.append("# HELP seller_prewarm_dial_failures_total Selected sellers that could not be connected to\n");
+        out.append("# TYPE seller_prewarm_dial_failures_total counter\n");
+        out.append("seller_prewarm_dial_failures_total ").append(failedDials.get()).append('\n');
+        out.append("# HELP seller_quote_seconds Time from starting a swap's swarm to the seller's quote, by whether the circuit was warm\n");
+        out.append("# TYPE seller_quote_seconds summary\n");
+        writeSummary(out, "seller_quote_seconds", "circuit=\"warm\"", warmQuoteMillis);
+        writeSummary(out, "seller_quote_seconds", "circuit=\"cold\"", coldQuoteMillis);
+    }
+
+    private static void writeSummary(StringBuilder out, String name, String labels, Histogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        for (double quantile : QUANTILES) {
+            out.append(name).append('{').append(prefix).append("quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getValueAtPercentile(quantile * 100) / 1000.0).append('\n');
+        }
+        out.append(name).append("_sum").append(suffix).append(histogram.getSum() / 1000.0).append('\n');
+        out.append(name).append("_count").append(suffix).append(histogram.getCount()).append('\n');
+    }
+}
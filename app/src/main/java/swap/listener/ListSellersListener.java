@@ -0,0 +1,11 @@
+package swap.listener;
+
+import swap.model.Seller;
+
+// Passed to AppSwap.listSellers, called on the calling thread while other sellers are still being asked for a quote
+public interface ListSellersListener {
+    void onSeller(Seller seller);
+
+    // Polled about twice a second, once true listSellers returns the sellers found so far
+    boolean isCancelled();
+}
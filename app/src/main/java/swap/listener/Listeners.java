@@ -0,0 +1,22 @@
+package swap.listener;
+
+import swap.model.LogType;
+
+// Looked up by the native library, so this class must stay free of JavaFX references.
+// The GUI (MainController, PairingController) and the headless daemon each install their own implementations.
+public class Listeners {
+    public static volatile SwapListener swapListener = null;
+    public static volatile AsbListener asbListener = null;
+    public static volatile RpcDownloadListener rpcDownloadListener = null;
+    public static volatile WhirlpoolListener whirlpoolListener = null;
+    public static volatile LogListener logListener = null;
+
+    public static void printSwapLogLn(LogType logType, String message, boolean kill) {
+        LogListener listener = logListener;
+        if (listener != null) {
+            listener.printSwapLogLn(logType, message, kill);
+        } else {
+            System.out.println(message);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package swap.listener;
+
+import swap.model.LogType;
+
+public interface LogListener {
+    void printSwapLogLn(LogType logType, String message, boolean kill);
+}
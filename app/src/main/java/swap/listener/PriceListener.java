@@ -0,0 +1,8 @@
+package swap.listener;
+
+import org.bitcoinj.core.Coin;
+
+// Registered with swap.price.PriceService, called on the price feed thread whenever the XMR/BTC spot price changes
+public interface PriceListener {
+    void onXmrPrice(Coin priceInBtc);
+}
@@ -99,6 +99,12 @@ public interface SwapListener {
         this.onSwapRefunded(swapId);
     }
 
+    default void onSwapStateTiming(byte[] swapIdBytes, byte[] stateBytes, long elapsedMillis) {
+        String swapId = new String(swapIdBytes, StandardCharsets.UTF_8);
+        String state = new String(stateBytes, StandardCharsets.UTF_8);
+        this.onSwapStateTiming(swapId, state, elapsedMillis);
+    }
+
     default void printSwapLogLn(byte[] message) {
         String swapId = new String(message, StandardCharsets.UTF_8);
         this.printSwapLogLn(swapId);
@@ -136,5 +142,7 @@ public interface SwapListener {
 
     void onSwapSafelyAborted(String swapId);
 
+    void onSwapStateTiming(String swapId, String state, long elapsedMillis);
+
     void printSwapLogLn(String message);
 }
@@ -0,0 +1,10 @@
+package swap.listener;
+
+import com.samourai.whirlpool.client.wallet.beans.WhirlpoolAccount;
+import org.bitcoinj.core.Coin;
+
+public interface WhirlpoolListener {
+    void onWhirlpoolInitialized();
+
+    void onWhirlpoolBalance(WhirlpoolAccount whirlpoolAccount, Coin balance);
+}
@@ -65,7 +65,7 @@ public class AsbListenerImpl implements AsbListener {
         double unlockedXmrBalance = (double) unlocked / 1000000000000D;
         double lockedXmrBalance = (double) locked / 1000000000000D;
 
-        mainController.updateGui(() -> {
+        mainController.updateGui("balance:asb-xmr", () -> {
             if (unlocked > 0) {
                 Tooltip asbTooltip = new Tooltip("ASB Running - Supplying Liquidity");
                 asbTooltip.setStyle("-fx-font-size: 10;");
@@ -11,10 +11,13 @@ import swap.gui.controller.pages.HistoryController;
 import swap.gui.controller.pages.SwapsController;
 import swap.gui.image.AddressQrCode;
 import swap.helper.HelperSwapsDb;
+import swap.lib.SellerWarmer;
 import swap.listener.SwapListener;
+import swap.metrics.SwapMetrics;
 import swap.model.*;
 import swap.model.response.CompletedSwap;
 import swap.model.response.SwapOrder;
+import swap.seller.SellerScorer;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -51,6 +54,7 @@ public class SwapListenerImpl implements SwapListener {
     @Override
     public void onOrderCreated(SwapOrder order) {
         // Step 0: Create swap order
+        SwapMetrics.getInstance().onOrderCreated(order.swapId());
         swapsController.updateGui(() -> {
             swapsController.setProgress(-1.0f);
             Tooltip.install(swapsController.swapProgressBar, new Tooltip("Waiting for BTC..."));
@@ -105,6 +109,8 @@ public class SwapListenerImpl implements SwapListener {
     @Override
     public void onSwapRunning(String swapId, String multiaddr) {
         // Step 0: Initiate swap
+        SwapMetrics.getInstance().onSwapRunning(swapId, multiaddr);
+        SellerScorer.getInstance().onSwapRunning(swapId, multiaddr);
         swapsController.updateGui(() -> {
             swapsController.setProgress(-1.0f);
             Tooltip.install(swapsController.swapProgressBar, new Tooltip("Recieved BTC"));
@@ -175,7 +181,7 @@ public class SwapListenerImpl implements SwapListener {
     @Override
     public void onXmrLockConfirmation(String txid, long confirmations) {
         // Step 3-12: XMR Confirmations
-        swapsController.updateGui(() -> {
+        swapsController.updateGui("xmr-confirmations", () -> {
             swapsController.cancelButton.setDisable(false);
             swapsController.setProgress((confirmations + 2) * 0.0666f);
             Tooltip.install(swapsController.swapProgressBar, new Tooltip("XMR Confirmations: " + confirmations + "/10"));
@@ -227,6 +233,8 @@ public class SwapListenerImpl implements SwapListener {
     @Override
     public void onSwapCompleted(CompletedSwap completedSwap) {
         // Step 15: Redeemed XMR - 100% complete
+        SwapMetrics.getInstance().onSwapFinished(completedSwap.swapId());
+        SellerScorer.getInstance().onSwapCompleted(completedSwap.swapId());
         swapsController.updateGui(() -> {
             swapsController.setSwapMessage("Swap Success", TextType.SUCCESS, true);
             swapsController.setLockIcon(SwapIconType.CHECK);
@@ -255,6 +263,8 @@ public class SwapListenerImpl implements SwapListener {
 
     @Override
     public void onSwapError(SwapError swapError) {
+        SwapMetrics.getInstance().onSwapFinished(swapError.swapId());
+        SellerScorer.getInstance().onSwapError(swapError);
         if (swapError.fatal()) { // currently always fatal, just here for if it's ever needed
             if (swapError.errorType().shouldRestart()) {
                 restart(swapError.errorMessage(), swapError.swapId());
@@ -293,6 +303,7 @@ public class SwapListenerImpl implements SwapListener {
 
     @Override
     public void onGenericSellerQuoteError(String swapId, String error) {
+        SellerScorer.getInstance().onSellerQuoteError(swapId);
         swapsController.updateGui(() -> {
             swapsController.setSwapMessage("Swap Quote Error", TextType.ERROR, true);
             swapsController.setLockIcon(SwapIconType.CLOSE);
@@ -306,6 +317,8 @@ public class SwapListenerImpl implements SwapListener {
 
     @Override
     public void onSwapSafelyAborted(String swapId) {
+        SwapMetrics.getInstance().onSwapFinished(swapId);
+        SellerScorer.getInstance().onSwapSafelyAborted(swapId);
         swapsController.updateGui(() -> {
             swapsController.setSwapMessage("Swap Aborted", TextType.ERROR, true);
             swapsController.setLockIcon(SwapIconType.CLOSE);
@@ -319,6 +332,8 @@ public class SwapListenerImpl implements SwapListener {
 
     @Override
     public void onSwapRefunded(String swapId) {
+        SwapMetrics.getInstance().onSwapFinished(swapId);
+        SellerScorer.getInstance().onSwapRefunded(swapId);
         historyController.refreshHistoryList();
         swapsController.updateGui(() -> {
             swapsController.setSwapMessage("Swap Refunded", TextType.ERROR, true);
@@ -331,6 +346,12 @@ public class SwapListenerImpl implements SwapListener {
         printSwapLogLn(LogType.WARN, "Swap " + swapId + " failed! You have been refunded (minus Bitcoin transaction fees).", true, true);
     }
 
+    @Override
+    public void onSwapStateTiming(String swapId, String state, long elapsedMillis) {
+        SwapMetrics.getInstance().onStateTiming(swapId, state, elapsedMillis);
+        if (SellerWarmer.STATE_SELLER_QUOTE.equals(state)) SellerWarmer.getInstance().onSellerQuote(swapId, elapsedMillis);
+    }
+
     private void restart(String errorMessage, String swapId) {
         printSwapLogLn(LogType.ERROR, errorMessage, false, true);
         swapsController.updateGui(() -> {
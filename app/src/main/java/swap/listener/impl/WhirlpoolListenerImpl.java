@@ -0,0 +1,47 @@
+package swap.listener.impl;
+
+import com.samourai.whirlpool.client.wallet.beans.WhirlpoolAccount;
+import javafx.scene.control.Tooltip;
+import org.bitcoinj.core.Coin;
+import swap.gui.GUISwap;
+import swap.gui.controller.MainController;
+import swap.gui.controller.pages.SwapsController;
+import swap.listener.AsbListener;
+import swap.listener.Listeners;
+import swap.listener.WhirlpoolListener;
+import swap.model.AsbBtcBalanceData;
+
+public class WhirlpoolListenerImpl implements WhirlpoolListener {
+    private final MainController mainController;
+    private final SwapsController swapsController;
+
+    public WhirlpoolListenerImpl(MainController mainController, SwapsController swapsController) {
+        this.mainController = mainController;
+        this.swapsController = swapsController;
+    }
+
+    @Override
+    public void onWhirlpoolInitialized() {
+        mainController.updateGui(() -> {
+            mainController.whirlpoolImage.setVisible(true);
+            Tooltip.install(mainController.whirlpoolImage, new Tooltip("Whirlpool Initialized"));
+        });
+    }
+
+    @Override
+    public void onWhirlpoolBalance(WhirlpoolAccount whirlpoolAccount, Coin balance) {
+        switch (whirlpoolAccount) {
+            case SWAPS_REFUNDS -> swapsController.updateGui("balance:" + whirlpoolAccount, () ->
+                    swapsController.refundsBtcBalanceText.setText(balance.toPlainString() + " BTC"));
+            case SWAPS_DEPOSIT -> swapsController.updateGui("balance:" + whirlpoolAccount, () ->
+                    swapsController.depositBtcBalanceText.setText(balance.toPlainString() + " BTC"));
+            default -> {
+                // posts its own update
+                AsbBtcBalanceData asbBtcBalanceData = new AsbBtcBalanceData(balance, "");
+                AsbListener asbListener = Listeners.asbListener;
+                if (asbListener != null && GUISwap.isAsbRunning())
+                    asbListener.onAsbBtcBalanceData(whirlpoolAccount, asbBtcBalanceData);
+            }
+        }
+    }
+}
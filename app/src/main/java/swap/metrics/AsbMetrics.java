@@ -0,0 +1,227 @@
+package swap.metrics;
+
+import org.json.JSONObject;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+// ASB counters, inventory and timings fed by the events of the asb process (see ProcessAsb).
+// Swap phases are timed between consecutive events of the same swap id, as seen by this process.
+public class AsbMetrics implements AsbMetricsMXBean, MetricsSource {
+    public static final String PHASE_BTC_LOCK_SEEN = "BtcLockSeen"; // started -> BTC lock in mempool
+    public static final String PHASE_BTC_LOCK_CONFIRMED = "BtcLockConfirmed";
+    public static final String PHASE_XMR_LOCKED = "XmrLocked"; // BTC lock confirmed -> XMR lock proof sent
+    public static final String PHASE_FINISHED = "Finished"; // last event -> complete or failed
+    public static final String PHASE_TOTAL = "Total";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static AsbMetrics instance = null;
+
+    public static AsbMetrics getInstance() {
+        if (instance == null) {
+            instance = new AsbMetrics();
+        }
+
+        return instance;
+    }
+
+    private static class SwapTimer {
+        private final long startedNanos = System.nanoTime();
+        private long markNanos = startedNanos;
+
+        private long lap() {
+            long now = System.nanoTime();
+            long elapsedMillis = (now - markNanos) / 1_000_000L;
+            markNanos = now;
+            return elapsedMillis;
+        }
+
+        private long total() {
+            return (System.nanoTime() - startedNanos) / 1_000_000L;
+        }
+    }
+
+    private final ConcurrentHashMap<String, AtomicLong> eventCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> walletSyncs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> phases = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SwapTimer> timers = new ConcurrentHashMap<>();
+    private final AtomicLong xmrBalance = new AtomicLong();
+    private final AtomicLong xmrUnlockedBalance = new AtomicLong();
+    private final AtomicLong btcBalance = new AtomicLong();
+    private final AtomicLong earnedSatoshis = new AtomicLong();
+
+    private AsbMetrics() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("swap:type=AsbMetrics"));
+        } catch (Exception e) {
+            System.err.println("Failed to register AsbMetrics MBean: " + e.getMessage());
+        }
+        MetricsServer.getInstance().register(this);
+    }
+
+    // One line of the asb event stream, malformed fields only skip the gauge or timing they feed
+    public void onEvent(String message, JSONObject fields) {
+        if (!message.startsWith("ASB_")) return;
+        eventCounts.computeIfAbsent(message, event -> new AtomicLong()).incrementAndGet();
+        try {
+            switch (message) {
+                case "ASB_INITIALIZED" -> {
+                    // a new asb process, swaps it resumes are timed from their next event
+                    timers.clear();
+                    xmrBalance.set(Long.parseLong(fields.getString("monero_balance.balance")));
+                    xmrUnlockedBalance.set(Long.parseLong(fields.getString("monero_balance.unlocked_balance")));
+                    btcBalance.set(Long.parseLong(fields.getString("bitcoin_balance")));
+                }
+                case "ASB_XMR_BALANCE_DATA" -> {
+                    if (!fields.has("error")) {
+                        xmrBalance.set(Long.parseLong(fields.getString("balance.balance")));
+                        xmrUnlockedBalance.set(Long.parseLong(fields.getString("balance.unlocked_balance")));
+                    }
+                }
+                case "ASB_SYNCED_MONERO_WALLET" -> recordWalletSync("monero", fields);
+                case "ASB_SYNCED_BITCOIN_WALLET" -> recordWalletSync("bitcoin", fields);
+                case "ASB_EARNED_BTC" -> earnedSatoshis.addAndGet(fields.getLong("earned"));
+                case "ASB_SWAP_STARTED" -> timers.put(fields.getString("swap_id"), new SwapTimer());
+                case "ASB_BTC_LOCK_SEEN" -> lap(fields.getString("swap_id"), PHASE_BTC_LOCK_SEEN);
+                case "ASB_BTC_LOCK" -> lap(fields.getString("swap_id"), PHASE_BTC_LOCK_CONFIRMED);
+                case "ASB_XMR_LOCK_PROOF" -> lap(fields.getString("swap_id"), PHASE_XMR_LOCKED);
+                case "ASB_SWAP_COMPLETE", "ASB_SWAP_FAIL" -> {
+                    SwapTimer timer = timers.remove(fields.getString("swap_id"));
+                    if (timer != null) {
+                        phase(PHASE_FINISHED).record(timer.lap());
+                        phase(PHASE_TOTAL).record(timer.total());
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to read " + message + " metrics: " + e.getMessage());
+        }
+    }
+
+    private void recordWalletSync(String wallet, JSONObject fields) {
+        long seconds = Long.parseLong(fields.getString("duration"));
+        walletSyncs.computeIfAbsent(wallet, key -> new Histogram()).record(seconds * 1000L);
+    }
+
+    private void lap(String swapId, String phase) {
+        SwapTimer timer = timers.get(swapId);
+        if (timer == null) return;
+        synchronized (timer) {
+            phase(phase).record(timer.lap());
+        }
+    }
+
+    private Histogram phase(String phase) {
+        return phases.computeIfAbsent(phase, key -> new Histogram());
+    }
+
+    @Override
+    public Map<String, Long> getEventCounts() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        eventCounts.forEach((event, count) -> snapshot.put(event, count.get()));
+        return snapshot;
+    }
+
+    @Override
+    public long getXmrBalance() {
+        return xmrBalance.get();
+    }
+
+    @Override
+    public long getXmrUnlockedBalance() {
+        return xmrUnlockedBalance.get();
+    }
+
+    @Override
+    public long getBtcBalance() {
+        return btcBalance.get();
+    }
+
+    @Override
+    public long getEarnedSatoshis() {
+        return earnedSatoshis.get();
+    }
+
+    @Override
+    public int getSwapsInProgress() {
+        return timers.size();
+    }
+
+    @Override
+    public Map<String, Long> getWalletSyncMillis() {
+        return snapshot(walletSyncs, histogram -> histogram.getValueAtPercentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMedianMillis() {
+        return snapshot(phases, histogram -> histogram.getValueAtPercentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getPhaseP99Millis() {
+        return snapshot(phases, histogram -> histogram.getValueAtPercentile(99));
+    }
+
+    @Override
+    public String getPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        writePrometheus(out);
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        eventCounts.clear();
+        walletSyncs.clear();
+        phases.clear();
+        earnedSatoshis.set(0);
+    }
+
+    @Override
+    public void writePrometheus(StringBuilder out) {
+        out.append("# HELP asb_events_total Events reported by the asb process\n");
+        out.append("# TYPE asb_events_total counter\n");
+        getEventCounts().forEach((event, count) -> out.append("asb_events_total{event=\"")
+                .append(MetricsServer.escapeLabel(event)).append("\"} ").append(count).append('\n'));
+        writeGauge(out, "asb_xmr_balance_piconero", "Total Monero balance of the asb wallet", xmrBalance.get());
+        writeGauge(out, "asb_xmr_unlocked_balance_piconero", "Unlocked Monero balance of the asb wallet", xmrUnlockedBalance.get());
+        writeGauge(out, "asb_btc_balance_satoshis", "Bitcoin balance of the asb wallet at startup", btcBalance.get());
+        writeGauge(out, "asb_swaps_in_progress", "Swaps started but not yet complete or failed", timers.size());
+        out.append("# HELP asb_earned_btc_satoshis_total Bitcoin redeemed by the asb\n");
+        out.append("# TYPE asb_earned_btc_satoshis_total counter\n");
+        out.append("asb_earned_btc_satoshis_total ").append(earnedSatoshis.get()).append('\n');
+        writeSummaries(out, "asb_wallet_sync_seconds", "Time to sync the asb wallets at startup", "wallet", walletSyncs);
+        writeSummaries(out, "asb_swap_phase_seconds", "Time between consecutive events of an asb swap", "phase", phases);
+    }
+
+    private static void writeGauge(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void writeSummaries(StringBuilder out, String name, String help, String label, Map<String, Histogram> histograms) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        new TreeMap<>(histograms).forEach((key, histogram) -> {
+            String labels = label + "=\"" + MetricsServer.escapeLabel(key) + "\"";
+            for (double quantile : QUANTILES) {
+                out.append(name).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                        .append(histogram.getValueAtPercentile(quantile * 100) / 1000.0).append('\n');
+            }
+            out.append(name).append("_sum{").append(labels).append("} ").append(histogram.getSum() / 1000.0).append('\n');
+            out.append(name).append("_count{").append(labels).append("} ").append(histogram.getCount()).append('\n');
+        });
+    }
+
+    private static Map<String, Long> snapshot(Map<String, Histogram> histograms, ToLongFunction<Histogram> value) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        histograms.forEach((key, histogram) -> snapshot.put(key, value.applyAsLong(histogram)));
+        return snapshot;
+    }
+}
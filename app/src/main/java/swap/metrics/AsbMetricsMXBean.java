@@ -0,0 +1,28 @@
+package swap.metrics;
+
+import java.util.Map;
+
+// JMX view of AsbMetrics, event counts are keyed by event name ("ASB_SWAP_STARTED"), histograms by wallet or phase
+public interface AsbMetricsMXBean {
+    Map<String, Long> getEventCounts();
+
+    long getXmrBalance();
+
+    long getXmrUnlockedBalance();
+
+    long getBtcBalance();
+
+    long getEarnedSatoshis();
+
+    int getSwapsInProgress();
+
+    Map<String, Long> getWalletSyncMillis();
+
+    Map<String, Long> getPhaseMedianMillis();
+
+    Map<String, Long> getPhaseP99Millis();
+
+    String getPrometheusText();
+
+    void reset();
+}
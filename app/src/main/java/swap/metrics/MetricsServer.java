@@ -0,0 +1,77 @@
+package swap.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import swap.helper.HelperThread;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+// Serves registered metric sources in Prometheus text format on the loopback interface only
+public class MetricsServer {
+    public static final int DEFAULT_PORT = 9464;
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static MetricsServer instance = null;
+
+    public static MetricsServer getInstance() {
+        if (instance == null) {
+            instance = new MetricsServer();
+        }
+
+        return instance;
+    }
+
+    private final List<MetricsSource> sources = new CopyOnWriteArrayList<>();
+    private HttpServer httpServer = null;
+
+    public void register(MetricsSource source) {
+        if (!sources.contains(source)) sources.add(source);
+    }
+
+    public synchronized void start() {
+        if (httpServer != null) return;
+        int port = Integer.getInteger("swap.metrics.port", DEFAULT_PORT);
+        if (port <= 0) return; // disabled
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            httpServer.createContext("/metrics", exchange -> {
+                byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            });
+            httpServer.setExecutor(Executors.newSingleThreadExecutor(new HelperThread()));
+            httpServer.start();
+            System.out.println("Metrics available at http://127.0.0.1:" + port + "/metrics");
+        } catch (IOException e) {
+            httpServer = null;
+            System.err.println("Failed to start metrics server on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized void stop() {
+        if (httpServer == null) return;
+        httpServer.stop(0);
+        httpServer = null;
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (MetricsSource source : sources) {
+            source.writePrometheus(out);
+        }
+        return out.toString();
+    }
+
+    static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
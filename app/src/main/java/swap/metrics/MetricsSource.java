@@ -0,0 +1,6 @@
+package swap.metrics;
+
+// Anything that can append its samples to the Prometheus text exposition served by MetricsServer
+public interface MetricsSource {
+    void writePrometheus(StringBuilder out);
+}
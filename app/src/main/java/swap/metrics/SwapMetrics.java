@@ -0,0 +1,185 @@
+package swap.metrics;
+
+import javax.annotation.Nullable;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+// Per seller peer, per state timing of swaps. Native state durations come from swap_state_manager::run_until,
+// the phases before it (wallet setup, deposit wait) are timed here from the SwapListener callbacks.
+public class SwapMetrics implements SwapMetricsMXBean, MetricsSource {
+    public static final String UNKNOWN_PEER = "unknown";
+    public static final String PHASE_WALLET_SETUP = "WalletSetup"; // Tor dial, Electrum sync, seller quote
+    public static final String PHASE_AWAITING_DEPOSIT = "AwaitingDeposit";
+    public static final String PHASE_RESUME_SETUP = "ResumeSetup";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static SwapMetrics instance = null;
+
+    public static SwapMetrics getInstance() {
+        if (instance == null) {
+            instance = new SwapMetrics();
+        }
+
+        return instance;
+    }
+
+    private record Key(String peerId, String state) {
+        @Override
+        public String toString() {
+            return peerId + "/" + state;
+        }
+    }
+
+    private static class SwapTimer {
+        private String peerId;
+        private long markNanos = System.nanoTime();
+        private boolean orderCreated = false;
+        // phases recorded before the seller peer id was known
+        private final Map<String, Long> pendingMillis = new LinkedHashMap<>();
+
+        private SwapTimer(@Nullable String peerId) {
+            this.peerId = peerId;
+        }
+
+        private long lap() {
+            long now = System.nanoTime();
+            long elapsedMillis = (now - markNanos) / 1_000_000L;
+            markNanos = now;
+            return elapsedMillis;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SwapTimer> timers = new ConcurrentHashMap<>();
+
+    private SwapMetrics() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("swap:type=SwapMetrics"));
+        } catch (Exception e) {
+            System.err.println("Failed to register SwapMetrics MBean: " + e.getMessage());
+        }
+        MetricsServer.getInstance().register(this);
+    }
+
+    public void onSwapStarted(String swapId, @Nullable String multiaddr) {
+        timers.put(swapId, new SwapTimer(multiaddr == null ? null : peerIdOf(multiaddr)));
+    }
+
+    public void onOrderCreated(String swapId) {
+        SwapTimer timer = timers.get(swapId);
+        if (timer == null) return;
+        synchronized (timer) {
+            timer.orderCreated = true;
+            record(timer, PHASE_WALLET_SETUP, timer.lap());
+        }
+    }
+
+    public void onSwapRunning(String swapId, String multiaddr) {
+        SwapTimer timer = timers.computeIfAbsent(swapId, id -> new SwapTimer(null));
+        synchronized (timer) {
+            timer.peerId = peerIdOf(multiaddr);
+            record(timer, timer.orderCreated ? PHASE_AWAITING_DEPOSIT : PHASE_RESUME_SETUP, timer.lap());
+            timer.pendingMillis.forEach((state, millis) -> histogram(timer.peerId, state).record(millis));
+            timer.pendingMillis.clear();
+        }
+    }
+
+    public void onStateTiming(String swapId, String state, long elapsedMillis) {
+        SwapTimer timer = timers.get(swapId);
+        if (timer == null) {
+            histogram(UNKNOWN_PEER, state).record(elapsedMillis);
+            return;
+        }
+        synchronized (timer) {
+            timer.lap();
+            record(timer, state, elapsedMillis);
+        }
+    }
+
+    public void onSwapFinished(String swapId) {
+        timers.remove(swapId);
+    }
+
+    private void record(SwapTimer timer, String state, long elapsedMillis) {
+        if (timer.peerId == null) {
+            timer.pendingMillis.merge(state, elapsedMillis, Long::sum);
+        } else {
+            histogram(timer.peerId, state).record(elapsedMillis);
+        }
+    }
+
+    private Histogram histogram(String peerId, String state) {
+        return histograms.computeIfAbsent(new Key(peerId, state), key -> new Histogram());
+    }
+
+    public static String peerIdOf(String multiaddr) {
+        int index = multiaddr.lastIndexOf("/p2p/");
+        return index < 0 ? UNKNOWN_PEER : multiaddr.substring(index + "/p2p/".length());
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        return snapshot(Histogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getMedianMillis() {
+        return snapshot(histogram -> histogram.getValueAtPercentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getP99Millis() {
+        return snapshot(histogram -> histogram.getValueAtPercentile(99));
+    }
+
+    @Override
+    public Map<String, Long> getMaxMillis() {
+        return snapshot(Histogram::getMax);
+    }
+
+    @Override
+    public long getPercentileMillis(String peerId, String state, double percentile) {
+        Histogram histogram = histograms.get(new Key(peerId, state));
+        return histogram == null ? 0 : histogram.getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public String getPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        writePrometheus(out);
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        histograms.clear();
+    }
+
+    @Override
+    public void writePrometheus(StringBuilder out) {
+        out.append("# HELP swap_state_duration_seconds Time spent in each swap state per seller peer\n");
+        out.append("# TYPE swap_state_duration_seconds summary\n");
+        histograms.keySet().stream().sorted(Comparator.comparing(Key::toString)).forEach(key -> {
+            Histogram histogram = histograms.get(key);
+            String labels = "peer=\"" + MetricsServer.escapeLabel(key.peerId()) + "\",state=\"" + MetricsServer.escapeLabel(key.state()) + "\"";
+            for (double quantile : QUANTILES) {
+                out.append("swap_state_duration_seconds{").append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                        .append(histogram.getValueAtPercentile(quantile * 100) / 1000.0).append('\n');
+            }
+            out.append("swap_state_duration_seconds_sum{").append(labels).append("} ").append(histogram.getSum() / 1000.0).append('\n');
+            out.append("swap_state_duration_seconds_count{").append(labels).append("} ").append(histogram.getCount()).append('\n');
+        });
+    }
+
+    private Map<String, Long> snapshot(ToLongFunction<Histogram> value) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        histograms.forEach((key, histogram) -> snapshot.put(key.toString(), value.applyAsLong(histogram)));
+        return snapshot;
+    }
+}
@@ -0,0 +1,20 @@
+package swap.metrics;
+
+import java.util.Map;
+
+// JMX view of SwapMetrics, keys are "<peerId>/<state>"
+public interface SwapMetricsMXBean {
+    Map<String, Long> getCounts();
+
+    Map<String, Long> getMedianMillis();
+
+    Map<String, Long> getP99Millis();
+
+    Map<String, Long> getMaxMillis();
+
+    long getPercentileMillis(String peerId, String state, double percentile);
+
+    String getPrometheusText();
+
+    void reset();
+}
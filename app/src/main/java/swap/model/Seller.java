@@ -1,13 +1,12 @@
 package swap.model;
 
-public record Seller(String multiaddr, double minQuantity, double maxQuantity, double price) {
+import org.bitcoinj.core.Coin;
+
+// Amounts in satoshis, the price is per XMR
+public record Seller(String multiaddr, long minSatoshis, long maxSatoshis, long priceSatoshis, long quoteLatencyMs) {
 
     @Override
     public String toString() {
-        return multiaddr() + ", " + price() + ", " + maxQuantity() + ", " + minQuantity();
-    }
-
-    public double getPrice() {
-        return price;
+        return multiaddr() + ", " + Coin.valueOf(priceSatoshis).toPlainString() + ", " + Coin.valueOf(maxSatoshis).toPlainString() + ", " + Coin.valueOf(minSatoshis).toPlainString();
     }
-}
\ No newline at end of file
+}
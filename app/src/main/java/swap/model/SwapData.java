@@ -1,11 +1,30 @@
 package swap.model;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
 public record SwapData(String swapId, String status) {
+    // Swaps in any other status still need to be resumed
+    public static final Set<String> FINISHED_STATUSES = Set.of(
+            Status.XMR_REDEEMED.name(),
+            Status.BTC_REDEEMED.name(),
+            Status.REFUNDED.name(),
+            Status.PUNISHED.name(),
+            Status.SAFELY_ABORTED.name()
+    );
 
     public String getStatus() {
         return status;
     }
 
+    public static List<String> incompleteStatuses() {
+        return Arrays.stream(Status.values())
+                .map(Enum::name)
+                .filter(status -> !FINISHED_STATUSES.contains(status))
+                .toList();
+    }
+
     public enum Status {
         STARTED,
         SETUP_COMPLETE,
@@ -22,4 +41,4 @@ public record SwapData(String swapId, String status) {
         XMR_REDEEMED,
         INVALID_STATE
     }
-}
\ No newline at end of file
+}
@@ -19,6 +19,7 @@ public enum SwapErrorType {
     FailedToReceiveTransferProof,
     ElectrumMissingTransaction,
     ElectrumFailedToSubscribeToHeaders,
+    SessionClosed,
 
     UnknownError;
 
@@ -2,13 +2,39 @@ package swap.model.request;
 
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.params.TestNet3Params;
-import org.json.JSONObject;
+import swap.codec.CborWriter;
+import swap.model.SwapData;
 
-public record GetHistoryRequest(NetworkParameters params) {
+import java.util.List;
 
-    public JSONObject toJson() {
-        JSONObject swapRequestJson = new JSONObject();
-        swapRequestJson.put("testnet", this.params() == TestNet3Params.get());
-        return swapRequestJson;
+// limit < 0 returns every swap from offset on, an empty statuses list does not filter
+public record GetHistoryRequest(NetworkParameters params, int offset, int limit, List<String> statuses) {
+
+    public GetHistoryRequest(NetworkParameters params) {
+        this(params, 0, -1, List.of());
+    }
+
+    public GetHistoryRequest(NetworkParameters params, int offset, int limit) {
+        this(params, offset, limit, List.of());
+    }
+
+    // The most recently updated swap that still needs to be resumed
+    public static GetHistoryRequest incomplete(NetworkParameters params) {
+        return new GetHistoryRequest(params, 0, 1, SwapData.incompleteStatuses());
+    }
+
+    // Mirrors src/model/get_history_request.rs
+    public CborWriter toCbor() {
+        int fields = 2 + (limit() >= 0 ? 1 : 0) + (statuses().isEmpty() ? 0 : 1);
+        CborWriter writer = new CborWriter(64)
+                .map(fields)
+                .key("testnet").bool(params() == TestNet3Params.get())
+                .key("offset").number(offset());
+        if (limit() >= 0) writer.key("limit").number(limit());
+        if (!statuses().isEmpty()) {
+            writer.key("statuses").array(statuses().size());
+            statuses().forEach(writer::text);
+        }
+        return writer;
     }
 }
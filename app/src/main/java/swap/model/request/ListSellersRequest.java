@@ -2,17 +2,18 @@ package swap.model.request;
 
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.params.TestNet3Params;
-import org.json.JSONObject;
+import swap.codec.CborWriter;
 
-public record ListSellersRequest(String seedBase64, String libp2pRendezvousAddress, int proxyPort,
+public record ListSellersRequest(long session, String libp2pRendezvousAddress, int proxyPort,
                                  NetworkParameters params) {
 
-    public JSONObject toJson() {
-        JSONObject swapRequestJson = new JSONObject();
-        swapRequestJson.put("seedBase64", this.seedBase64());
-        swapRequestJson.put("proxyPort", this.proxyPort());
-        swapRequestJson.put("libp2pRendezvousAddress", this.libp2pRendezvousAddress());
-        swapRequestJson.put("testnet", this.params() == TestNet3Params.get());
-        return swapRequestJson;
+    // Mirrors src/model/list_sellers_request.rs
+    public CborWriter toCbor() {
+        return new CborWriter()
+                .map(4)
+                .key("session").number(session())
+                .key("proxyPort").number(proxyPort())
+                .key("libp2pRendezvousAddress").text(libp2pRendezvousAddress())
+                .key("testnet").bool(params() == TestNet3Params.get());
     }
 }
@@ -2,34 +2,35 @@ package swap.model.request;
 
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.params.TestNet3Params;
-import org.json.JSONObject;
+import swap.codec.CborWriter;
 
 import javax.annotation.Nullable;
 
-public record SwapRequest(String uuid, String seedBase64, String xmrReceiveAddress, String electrumUrl,
+public record SwapRequest(String uuid, long session, String xmrReceiveAddress, String electrumUrl,
                           String libp2pPeerAddress,
                           String proxy, @Nullable String xmrRpcEndpoint, NetworkParameters params, int proxyPort,
                           String refundAddress,
                           long swapsAccount) {
-    public SwapRequest(String uuid, String seedBase64, String xmrReceiveAddress, String electrumUrl, String libp2pPeerAddress,
+    public SwapRequest(String uuid, long session, String xmrReceiveAddress, String electrumUrl, String libp2pPeerAddress,
                        String proxy, NetworkParameters params, int proxyPort,
                        String refundAddress, long swapsAccount) {
-        this(uuid, seedBase64, xmrReceiveAddress, electrumUrl, libp2pPeerAddress, proxy, null, params, proxyPort, refundAddress, swapsAccount);
+        this(uuid, session, xmrReceiveAddress, electrumUrl, libp2pPeerAddress, proxy, null, params, proxyPort, refundAddress, swapsAccount);
     }
 
-    public JSONObject toJson() {
-        JSONObject swapRequestJson = new JSONObject();
-        swapRequestJson.put("uuid", uuid());
-        swapRequestJson.put("seedBase64", this.seedBase64());
-        swapRequestJson.put("xmrReceiveAddress", this.xmrReceiveAddress());
-        swapRequestJson.put("electrumUrl", this.electrumUrl());
-        swapRequestJson.put("proxy", this.proxy());
-        swapRequestJson.put("libp2pPeerAddress", this.libp2pPeerAddress());
-        swapRequestJson.put("xmrRpcEndpoint", this.xmrRpcEndpoint());
-        swapRequestJson.put("testnet", this.params() == TestNet3Params.get());
-        swapRequestJson.put("proxyPort", this.proxyPort());
-        swapRequestJson.put("refundAddress", this.refundAddress());
-        swapRequestJson.put("swapsAccount", this.swapsAccount());
-        return swapRequestJson;
+    // Mirrors src/model/swap_request.rs
+    public CborWriter toCbor() {
+        return new CborWriter()
+                .map(11)
+                .key("uuid").text(uuid())
+                .key("session").number(session())
+                .key("xmrReceiveAddress").text(xmrReceiveAddress())
+                .key("electrumUrl").text(electrumUrl())
+                .key("proxy").text(proxy())
+                .key("libp2pPeerAddress").text(libp2pPeerAddress())
+                .key("xmrRpcEndpoint").text(xmrRpcEndpoint())
+                .key("testnet").bool(params() == TestNet3Params.get())
+                .key("proxyPort").number(proxyPort())
+                .key("refundAddress").text(refundAddress())
+                .key("swapsAccount").number(swapsAccount());
     }
 }
@@ -1,33 +1,74 @@
 package swap.model.response;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import swap.codec.CborReader;
 import swap.model.SwapData;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class GetHistoryResponse {
     private final List<SwapData> swaps;
+    private final long total;
+    private final Map<String, Long> statusCounts;
 
-    public GetHistoryResponse(List<SwapData> sellers) {
-        this.swaps = sellers;
+    public GetHistoryResponse(List<SwapData> swaps, long total, Map<String, Long> statusCounts) {
+        this.swaps = swaps;
+        this.total = total;
+        this.statusCounts = statusCounts;
     }
 
-    public static GetHistoryResponse fromJson(String json) {
+    // Mirrors src/model/get_history_response.rs and swap_data.rs, the txid fields are not used on this side
+    public static GetHistoryResponse fromCbor(byte[] cbor) {
         ArrayList<SwapData> swaps = new ArrayList<>();
-        JSONObject responseJson = new JSONObject(json);
-        JSONArray swapsArray = responseJson.getJSONArray("swaps");
-        for (int i = 0; i < swapsArray.length(); i++) {
-            JSONObject swapJson = swapsArray.getJSONObject(i);
-            String swapId = swapJson.getString("swapId");
-            String status = swapJson.getString("status");
-            swaps.add(new SwapData(swapId, status));
+        long total = 0;
+        HashMap<String, Long> statusCounts = new HashMap<>();
+        CborReader reader = new CborReader(cbor);
+        int fields = reader.readMap();
+        for (int f = 0; reader.hasNext(fields, f); f++) {
+            switch (reader.readText()) {
+                case "swaps" -> {
+                    int count = reader.readArray();
+                    for (int i = 0; reader.hasNext(count, i); i++) {
+                        String swapId = null;
+                        String status = null;
+                        int swapFields = reader.readMap();
+                        for (int s = 0; reader.hasNext(swapFields, s); s++) {
+                            switch (reader.readText()) {
+                                case "swapId" -> swapId = reader.readText();
+                                case "status" -> status = reader.readText();
+                                default -> reader.skip();
+                            }
+                        }
+                        swaps.add(new SwapData(swapId, status));
+                    }
+                }
+                case "total" -> total = reader.readLong();
+                case "statusCounts" -> {
+                    int count = reader.readMap();
+                    for (int i = 0; reader.hasNext(count, i); i++) {
+                        statusCounts.put(reader.readText(), reader.readLong());
+                    }
+                }
+                default -> reader.skip();
+            }
         }
-        return new GetHistoryResponse(swaps);
+        return new GetHistoryResponse(swaps, total, statusCounts);
     }
 
+    // One page, most recently updated swap first
     public List<SwapData> getSwaps() {
         return swaps;
     }
+
+    // Swaps matching the request's status filter
+    public long getTotal() {
+        return total;
+    }
+
+    // Swaps per status over the whole history
+    public Map<String, Long> getStatusCounts() {
+        return statusCounts;
+    }
 }
@@ -1,37 +1,84 @@
 package swap.model.response;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import swap.codec.CborReader;
 import swap.model.Seller;
 
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 
 public record ListSellersResponse(List<Seller> sellers) {
 
-    public static ListSellersResponse fromJson(String json) {
+    // Mirrors src/model/list_sellers_result.rs and seller_data.rs
+    public static ListSellersResponse fromCbor(byte[] cbor) {
         ArrayList<Seller> sellers = new ArrayList<>();
-        JSONObject responseJson = new JSONObject(json);
-        JSONArray sellersArray = responseJson.getJSONArray("sellers");
-        for (int i = 0; i < sellersArray.length(); i++) {
-            JSONObject sellerJson = sellersArray.getJSONObject(i);
-            String multiaddr = sellerJson.getString("multiaddr");
-            JSONObject status = sellerJson.getJSONObject("status");
-            boolean offline = status.getBoolean("offline");
-            if (!offline) {
-                String jsonMinQuantity = status.getString("minQuantity");
-                String jsonMaxQuantity = status.getString("maxQuantity");
-                String jsonPrice = status.getString("price");
-                if (!jsonMinQuantity.isEmpty() && !jsonMaxQuantity.isEmpty() && !jsonPrice.isEmpty()) {
-                    double minQuantity = Double.parseDouble(status.getString("minQuantity"));
-                    double maxQuantity = Double.parseDouble(status.getString("maxQuantity"));
-                    double price = Double.parseDouble(status.getString("price"));
-                    if (minQuantity != 0.0d && maxQuantity != 0.0d && price != 0.0d) {
-                        sellers.add(new Seller(multiaddr, minQuantity, maxQuantity, price));
+        CborReader reader = new CborReader(cbor);
+        int fields = reader.readMap();
+        for (int f = 0; reader.hasNext(fields, f); f++) {
+            if (!reader.readText().equals("sellers")) {
+                reader.skip();
+                continue;
+            }
+            int count = reader.readArray();
+            for (int i = 0; reader.hasNext(count, i); i++) {
+                Seller seller = readSeller(reader);
+                if (seller != null) sellers.add(seller);
+            }
+        }
+        return new ListSellersResponse(sellers);
+    }
+
+    // One seller as streamed while listing, null if offline or without a usable quote
+    @Nullable
+    public static Seller sellerFromCbor(byte[] cbor) {
+        return readSeller(new CborReader(cbor));
+    }
+
+    private static Seller readSeller(CborReader reader) {
+        String multiaddr = null;
+        boolean offline = true;
+        String jsonMinQuantity = "";
+        String jsonMaxQuantity = "";
+        String jsonPrice = "";
+        long quoteLatencyMs = 0;
+        int fields = reader.readMap();
+        for (int f = 0; reader.hasNext(fields, f); f++) {
+            switch (reader.readText()) {
+                case "multiaddr" -> multiaddr = reader.readText();
+                case "status" -> {
+                    int statusFields = reader.readMap();
+                    for (int s = 0; reader.hasNext(statusFields, s); s++) {
+                        switch (reader.readText()) {
+                            case "offline" -> offline = reader.readBoolean();
+                            case "minQuantity" -> jsonMinQuantity = reader.readText();
+                            case "maxQuantity" -> jsonMaxQuantity = reader.readText();
+                            case "price" -> jsonPrice = reader.readText();
+                            default -> reader.skip();
+                        }
                     }
                 }
+                case "quoteLatencyMs" -> quoteLatencyMs = reader.readLong();
+                default -> reader.skip();
             }
         }
-        return new ListSellersResponse(sellers);
+
+        if (offline || multiaddr == null) return null;
+        if (jsonMinQuantity.isEmpty() || jsonMaxQuantity.isEmpty() || jsonPrice.isEmpty()) return null;
+        long minSatoshis = toSatoshis(jsonMinQuantity);
+        long maxSatoshis = toSatoshis(jsonMaxQuantity);
+        long priceSatoshis = toSatoshis(jsonPrice);
+        if (minSatoshis <= 0 || maxSatoshis <= 0 || priceSatoshis <= 0) return null;
+        return new Seller(multiaddr, minSatoshis, maxSatoshis, priceSatoshis, quoteLatencyMs);
+    }
+
+    // Decimal BTC as sent by the native side (bitcoin::Amount::to_btc), rounded to the satoshi, -1 if unparseable
+    private static long toSatoshis(String btc) {
+        try {
+            return new BigDecimal(btc).movePointRight(8).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            return -1;
+        }
     }
 }
@@ -0,0 +1,148 @@
+package swap.price;
+
+import org.bitcoinj.core.Coin;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import swap.gui.GUISwap;
+import swap.listener.PriceListener;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+// XMR/BTC spot price from the Feather websocket feed the ASB also uses (price_ticker_ws_url, see swap/src/kraken.rs),
+// read in the JVM over the shared Tor SOCKS proxy. -Dswap.priceFeedUrl=ws://127.0.0.1:<port>/ws points it at a local stand-in.
+public class PriceService {
+    public static final String FEED_URL = "wss://ws.featherwallet.org/ws";
+    public static final String FEED_URL_ONION = "ws://7e6egbawekbkxzkv4244pqeqgoo4axko2imgjbedwnn6s5yb6b7oliqd.onion/ws";
+    private static final int WINDOW = 64;
+    private static final int READ_TIMEOUT_MILLIS = 5 * 60_000; // reconnect if the feed goes quiet
+    private static final long MIN_BACKOFF_MILLIS = 1_000L;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60_000L;
+
+    private static PriceService instance = null;
+
+    public static PriceService getInstance() {
+        if (instance == null) {
+            instance = new PriceService();
+        }
+
+        return instance;
+    }
+
+    // written by the feed thread only, read from anywhere
+    private final AtomicReference<PriceWindow> window = new AtomicReference<>(PriceWindow.EMPTY);
+    private final List<PriceListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running = false;
+    private volatile WebSocketClient client = null;
+    private Future<?> feed = null;
+
+    public synchronized void start(int proxyPort) {
+        String url = System.getProperty("swap.priceFeedUrl", proxyPort > 0 ? FEED_URL_ONION : FEED_URL);
+        start(URI.create(url), proxyPort);
+    }
+
+    public synchronized void start(URI url, int proxyPort) {
+        if (running) return;
+        running = true;
+        feed = GUISwap.executorService.submit(() -> run(url, proxyPort));
+    }
+
+    public synchronized void stop() {
+        running = false;
+        WebSocketClient current = client;
+        if (current != null) current.close();
+        if (feed != null) feed.cancel(true);
+        feed = null;
+    }
+
+    // Also called right away with the latest price, if there is one
+    public void addListener(PriceListener listener) {
+        if (listeners.contains(listener)) return;
+        listeners.add(listener);
+        getLatestPrice().ifPresent(listener::onXmrPrice);
+    }
+
+    public void removeListener(PriceListener listener) {
+        listeners.remove(listener);
+    }
+
+    public PriceWindow getWindow() {
+        return window.get();
+    }
+
+    public Optional<Coin> getLatestPrice() {
+        PriceWindow current = window.get();
+        return current.isEmpty() ? Optional.empty() : Optional.of(Coin.valueOf(current.latest()));
+    }
+
+    private void run(URI url, int proxyPort) {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (running) {
+            try (WebSocketClient connection = WebSocketClient.connect(url, proxyPort, READ_TIMEOUT_MILLIS)) {
+                client = connection;
+                System.out.println("[PriceService] Connected to " + url);
+                String message;
+                while (running && (message = connection.readText()) != null) {
+                    if (onMessage(message)) backoff = MIN_BACKOFF_MILLIS;
+                }
+            } catch (IOException e) {
+                if (running) System.out.println("[PriceService] Feed " + url + " failed: " + e.getMessage());
+            } finally {
+                client = null;
+            }
+
+            if (!running) return;
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    // true if the message was a rate update
+    boolean onMessage(String message) {
+        long satsPerXmr;
+        try {
+            satsPerXmr = parseSatsPerXmr(message);
+        } catch (JSONException e) {
+            return false;
+        }
+        if (satsPerXmr <= 0) return false;
+
+        PriceWindow previous = window.get();
+        window.set(previous.append(satsPerXmr, System.currentTimeMillis(), WINDOW));
+        if (previous.isEmpty() || previous.latest() != satsPerXmr) publish(Coin.valueOf(satsPerXmr));
+        return true;
+    }
+
+    // {"cmd": "crypto_rates", "data": [{"symbol": "xmr", "current_price": 160.1}, {"symbol": "btc", ...}]}, -1 for other messages
+    static long parseSatsPerXmr(String message) {
+        JSONObject json = new JSONObject(message);
+        if (!"crypto_rates".equals(json.optString("cmd"))) return -1;
+        JSONArray coins = json.getJSONArray("data");
+        double xmr = 0, btc = 0;
+        for (int i = 0; i < coins.length(); i++) {
+            JSONObject coin = coins.getJSONObject(i);
+            switch (coin.optString("symbol")) {
+                case "xmr" -> xmr = coin.getDouble("current_price");
+                case "btc" -> btc = coin.getDouble("current_price");
+            }
+        }
+        if (xmr <= 0 || btc <= 0) return -1;
+        return Math.round(xmr / btc * Coin.COIN.getValue());
+    }
+
+    private void publish(Coin priceInBtc) {
+        for (PriceListener listener : listeners) {
+            listener.onXmrPrice(priceInBtc);
+        }
+    }
+}
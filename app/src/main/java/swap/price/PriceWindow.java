@@ -0,0 +1,52 @@
+package swap.price;
+
+import java.util.Arrays;
+
+// Immutable window of the latest feed prices (satoshis per XMR), oldest first. A new window is published per update.
+public record PriceWindow(long[] satsPerXmr, long[] receivedMillis) {
+    public static final PriceWindow EMPTY = new PriceWindow(new long[0], new long[0]);
+
+    public PriceWindow append(long price, long millis, int capacity) {
+        int keep = Math.min(satsPerXmr.length, capacity - 1);
+        long[] prices = Arrays.copyOfRange(satsPerXmr, satsPerXmr.length - keep, satsPerXmr.length + 1);
+        long[] times = Arrays.copyOfRange(receivedMillis, receivedMillis.length - keep, receivedMillis.length + 1);
+        prices[keep] = price;
+        times[keep] = millis;
+        return new PriceWindow(prices, times);
+    }
+
+    public boolean isEmpty() {
+        return satsPerXmr.length == 0;
+    }
+
+    public long latest() {
+        return isEmpty() ? 0 : satsPerXmr[satsPerXmr.length - 1];
+    }
+
+    public long latestMillis() {
+        return isEmpty() ? 0 : receivedMillis[receivedMillis.length - 1];
+    }
+
+    // (max - min) / latest over the window
+    public double spread() {
+        if (isEmpty() || latest() == 0) return 0;
+        long min = Arrays.stream(satsPerXmr).min().orElse(0);
+        long max = Arrays.stream(satsPerXmr).max().orElse(0);
+        return (double) (max - min) / latest();
+    }
+
+    // Standard deviation of the log returns between consecutive updates
+    public double volatility() {
+        int returns = satsPerXmr.length - 1;
+        if (returns < 2) return 0;
+        double sum = 0, sumOfSquares = 0;
+        for (int i = 1; i < satsPerXmr.length; i++) {
+            if (satsPerXmr[i - 1] <= 0 || satsPerXmr[i] <= 0) return 0;
+            double logReturn = Math.log((double) satsPerXmr[i] / satsPerXmr[i - 1]);
+            sum += logReturn;
+            sumOfSquares += logReturn * logReturn;
+        }
+        double mean = sum / returns;
+        return Math.sqrt(Math.max(0, sumOfSquares / returns - mean * mean));
+    }
+}
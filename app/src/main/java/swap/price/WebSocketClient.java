@@ -0,0 +1,210 @@
+package swap.price;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Locale;
+
+// Minimal RFC 6455 client for text feeds, over a plain socket so it can go through the Tor SOCKS proxy
+// (java.net.http only supports HTTP proxies). Hostnames are resolved by the proxy, .onion feeds work.
+final class WebSocketClient implements Closeable {
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int MAX_MESSAGE = 1024 * 1024;
+    private static final int OP_CONTINUATION = 0x0;
+    private static final int OP_TEXT = 0x1;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+
+    private WebSocketClient(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    // proxyPort 0 connects directly, readTimeoutMillis bounds the wait for the next frame
+    static WebSocketClient connect(URI uri, int proxyPort, int readTimeoutMillis) throws IOException {
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        boolean secure = scheme.equals("wss");
+        if (!secure && !scheme.equals("ws")) throw new IOException("Not a websocket url: " + uri);
+        String host = uri.getHost();
+        int port = uri.getPort() > 0 ? uri.getPort() : secure ? 443 : 80;
+
+        Socket socket;
+        if (proxyPort > 0) {
+            socket = new Socket(new Proxy(Proxy.Type.SOCKS, new InetSocketAddress(InetAddress.getLoopbackAddress(), proxyPort)));
+            socket.connect(InetSocketAddress.createUnresolved(host, port), readTimeoutMillis);
+        } else {
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), readTimeoutMillis);
+        }
+        socket.setSoTimeout(readTimeoutMillis);
+        if (secure) {
+            SSLSocket sslSocket = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(socket, host, port, true);
+            SSLParameters parameters = sslSocket.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+            sslSocket.setSSLParameters(parameters);
+            sslSocket.startHandshake();
+            socket = sslSocket;
+        }
+
+        WebSocketClient client = new WebSocketClient(socket);
+        try {
+            client.handshake(uri, host, port, secure);
+        } catch (IOException e) {
+            client.close();
+            throw e;
+        }
+        return client;
+    }
+
+    private void handshake(URI uri, String host, int port, boolean secure) throws IOException {
+        byte[] nonce = new byte[16];
+        RANDOM.nextBytes(nonce);
+        String key = Base64.getEncoder().encodeToString(nonce);
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) path += "?" + uri.getRawQuery();
+        boolean defaultPort = port == (secure ? 443 : 80);
+        String request = "GET " + path + " HTTP/1.1\r\n"
+                + "Host: " + host + (defaultPort ? "" : ":" + port) + "\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: " + key + "\r\n"
+                + "Sec-WebSocket-Version: 13\r\n\r\n";
+        out.write(request.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+
+        String status = readLine();
+        if (!status.startsWith("HTTP/1.1 101")) throw new IOException("Websocket upgrade refused: " + status);
+        String accept = null;
+        for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Accept")) {
+                accept = line.substring(colon + 1).trim();
+            }
+        }
+        if (!acceptFor(key).equals(accept)) throw new IOException("Invalid Sec-WebSocket-Accept: " + accept);
+    }
+
+    static String acceptFor(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) throw new EOFException("Connection closed during websocket handshake");
+            if (b != '\r') line.append((char) b);
+            if (line.length() > 8192) throw new IOException("Websocket handshake header too long");
+        }
+        return line.toString();
+    }
+
+    // The next text message, null once the server closed the connection. Answers pings while waiting.
+    String readText() throws IOException {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        boolean inMessage = false;
+        while (true) {
+            int first = readByte();
+            int second = readByte();
+            boolean fin = (first & 0x80) != 0;
+            int opcode = first & 0x0F;
+            long length = second & 0x7F;
+            if (length == 126) {
+                length = ((long) readByte() << 8) | readByte();
+            } else if (length == 127) {
+                length = 0;
+                for (int i = 0; i < 8; i++) length = (length << 8) | readByte();
+            }
+            if (length < 0 || length > MAX_MESSAGE) throw new IOException("Websocket frame too large: " + length);
+            byte[] mask = null;
+            if ((second & 0x80) != 0) {
+                mask = new byte[4];
+                readFully(mask);
+            }
+            byte[] payload = new byte[(int) length];
+            readFully(payload);
+            if (mask != null) {
+                for (int i = 0; i < payload.length; i++) payload[i] ^= mask[i % 4];
+            }
+
+            switch (opcode) {
+                case OP_TEXT, OP_CONTINUATION -> {
+                    if (opcode == OP_TEXT) {
+                        message.reset();
+                        inMessage = true;
+                    }
+                    if (!inMessage) throw new IOException("Websocket continuation without a message");
+                    if (message.size() + payload.length > MAX_MESSAGE) throw new IOException("Websocket message too large");
+                    message.write(payload);
+                    if (fin) return message.toString(StandardCharsets.UTF_8);
+                }
+                case OP_CLOSE -> {
+                    send(OP_CLOSE, payload.length >= 2 ? new byte[]{payload[0], payload[1]} : new byte[0]);
+                    return null;
+                }
+                case OP_PING -> send(0xA, payload);
+                default -> {
+                    // pongs and binary messages are not used by the feed
+                }
+            }
+        }
+    }
+
+    // Client frames are always masked
+    private synchronized void send(int opcode, byte[] payload) throws IOException {
+        out.write(0x80 | opcode);
+        if (payload.length < 126) {
+            out.write(0x80 | payload.length);
+        } else {
+            out.write(0x80 | 126);
+            out.write(payload.length >>> 8);
+            out.write(payload.length & 0xFF);
+        }
+        byte[] mask = new byte[4];
+        RANDOM.nextBytes(mask);
+        out.write(mask);
+        for (int i = 0; i < payload.length; i++) out.write(payload[i] ^ mask[i % 4]);
+        out.flush();
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) throw new EOFException("Websocket connection closed");
+        return b;
+    }
+
+    private void readFully(byte[] bytes) throws IOException {
+        int read = 0;
+        while (read < bytes.length) {
+            int n = in.read(bytes, read, bytes.length - read);
+            if (n < 0) throw new EOFException("Websocket connection closed");
+            read += n;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -3,10 +3,12 @@ package swap.process;
 import org.bitcoinj.core.Coin;
 import org.json.JSONObject;
 import swap.gui.GUISwap;
-import swap.gui.controller.MainController;
+import swap.listener.Listeners;
+import swap.metrics.AsbMetrics;
 import swap.model.AsbInitData;
 import swap.model.AsbXmrBalanceData;
 import swap.model.LogType;
+import swap.timeseries.AsbHistory;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -19,19 +21,19 @@ public record ProcessAsb(Process process) {
             String line;
             try {
                 while (((line = reader.readLine()) != null) && process.isAlive()) {
-                    MainController mainController = MainController.getInstance();
                     JSONObject json = new JSONObject(line);
                     JSONObject fields = json.getJSONObject("fields");
                     if (fields.has("message")) {
                         String message = fields.getString("message");
                         System.err.println(line);
+                        AsbMetrics.getInstance().onEvent(message, fields);
                         // PROXY LOGGING
                         if (message.equals("Not using SOCKS5 proxy") || message.equals("Using SOCKS5 proxy at")) {
                             if (fields.has("proxy_string")) {
                                 String proxyAddress = fields.getString("proxy_string");
-                                mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: " + message + " " + proxyAddress, false);
+                                Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: " + message + " " + proxyAddress, false);
                             } else {
-                                mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: " + message, false);
+                                Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: " + message, false);
                             }
                         }
                         // PROXY LOGGING
@@ -47,52 +49,55 @@ public record ProcessAsb(Process process) {
                                 long locked = total - unlocked;
                                 Coin bitcoinBalance = Coin.valueOf(Long.parseLong(fields.getString("bitcoin_balance")));
                                 AsbInitData asbInitData = new AsbInitData(peerId, multiaddr, total, unlocked, locked, bitcoinBalance, moneroAddress);
-                                MainController.asbListener.onAsbInitialized(asbInitData);
+                                AsbHistory.onXmrBalance(total, unlocked);
+                                Listeners.asbListener.onAsbInitialized(asbInitData);
                             }
                             case "ASB_INITIALIZED_MONERO_WALLET" ->
-                                    mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Opened Monero wallet", false);
+                                    Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Opened Monero wallet", false);
                             case "ASB_SYNCING_MONERO_WALLET" ->
-                                    mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Syncing Monero wallet...", false);
+                                    Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Syncing Monero wallet...", false);
                             case "ASB_SYNCED_MONERO_WALLET" -> {
                                 String duration = fields.getString("duration");
-                                mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Synced Monero wallet in " + duration + " seconds", false);
+                                Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Synced Monero wallet in " + duration + " seconds", false);
                             }
                             case "ASB_INITIALIZED_BITCOIN_WALLET" ->
-                                    mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Opened Bitcoin wallet", false);
+                                    Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Opened Bitcoin wallet", false);
                             case "ASB_SYNCING_BITCOIN_WALLET" ->
-                                    mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Syncing Bitcoin wallet...", false);
+                                    Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Syncing Bitcoin wallet...", false);
                             case "ASB_SYNCED_BITCOIN_WALLET" -> {
                                 String duration = fields.getString("duration");
-                                mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Synced Bitcoin wallet in " + duration + " seconds", false);
+                                Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Synced Bitcoin wallet in " + duration + " seconds", false);
                             }
                             case "ASB_SETTING_UP_LIBP2P_SWARM" ->
-                                    mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Setting up libp2p swarm...", false);
+                                    Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Setting up libp2p swarm...", false);
                             case "ASB_REGISTERING_ADDRESS_WITH_RENDEZVOUS" -> {
                                 String externalAddress = fields.getString("external_address");
-                                mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Registering external address with rendezvous: " + externalAddress, false);
+                                Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Registering external address with rendezvous: " + externalAddress, false);
                             }
                             case "ASB_XMR_BALANCE_DATA" -> {
                                 if (!fields.has("error")) {
                                     long total = Long.parseLong(fields.getString("balance.balance"));
                                     long unlocked = Long.parseLong(fields.getString("balance.unlocked_balance"));
-                                    MainController.asbListener.onAsbXmrBalanceData(new AsbXmrBalanceData(total, unlocked, ""));
+                                    AsbHistory.onXmrBalance(total, unlocked);
+                                    Listeners.asbListener.onAsbXmrBalanceData(new AsbXmrBalanceData(total, unlocked, ""));
                                 } else {
-                                    MainController.asbListener.onAsbXmrBalanceData(new AsbXmrBalanceData(0, 0, fields.getString("error")));
+                                    Listeners.asbListener.onAsbXmrBalanceData(new AsbXmrBalanceData(0, 0, fields.getString("error")));
                                 }
                             }
                             case "ASB_ERROR_INITIALIZING_XMR_WALLET" -> {
-                                mainController.printSwapLogLn(LogType.ERROR, ":::::[ASB]::::: Error initializing Monero wallet. Is it possible an extra monero-wallet-rpc or asb process is running?", false);
+                                Listeners.printSwapLogLn(LogType.ERROR, ":::::[ASB]::::: Error initializing Monero wallet. Is it possible an extra monero-wallet-rpc or asb process is running?", false);
                                 GUISwap.appAsb.restart();
                             }
                             case "ASB_ERROR_INITIALIZING_BTC_WALLET" -> {
-                                mainController.printSwapLogLn(LogType.ERROR, ":::::[ASB]::::: Error initializing Bitcoin wallet. Check your Electrum server connection settings.", false);
+                                Listeners.printSwapLogLn(LogType.ERROR, ":::::[ASB]::::: Error initializing Bitcoin wallet. Check your Electrum server connection settings.", false);
                                 GUISwap.appAsb.restart();
                             }
                             case "ASB_EARNED_BTC" -> {
                                 if (fields.has("earned")) {
                                     long earnedSatoshis = fields.getLong("earned");
+                                    AsbHistory.onEarned(earnedSatoshis);
                                     Coin earnedCoins = Coin.valueOf(earnedSatoshis);
-                                    mainController.printSwapLogLn(LogType.SUCCESS, ":::::[ASB]::::: Earned " + earnedCoins.toFriendlyString() + "!", false);
+                                    Listeners.printSwapLogLn(LogType.SUCCESS, ":::::[ASB]::::: Earned " + earnedCoins.toFriendlyString() + "!", false);
                                 }
                             }
                             case "ASB_SWAP_COMPLETE" -> {
@@ -100,47 +105,47 @@ public record ProcessAsb(Process process) {
                                 String state = fields.getString("state").toUpperCase();
                                 String log = ":::::[ASB]::::: Swap " + swapId + " completed with state: " + state;
                                 if (state.equals("BTC IS REDEEMED"))
-                                    mainController.printSwapLogLn(LogType.SUCCESS, log, false);
+                                    Listeners.printSwapLogLn(LogType.SUCCESS, log, false);
                                 else
-                                    mainController.printSwapLogLn(LogType.HIGHLIGHT, log, false);
+                                    Listeners.printSwapLogLn(LogType.HIGHLIGHT, log, false);
                             }
                             case "ASB_SWAP_FAIL" -> {
                                 String swapId = fields.getString("swap_id");
-                                mainController.printSwapLogLn(LogType.ERROR, ":::::[ASB]::::: Swap " + swapId + " failed with error: " + fields.getString("error"), false);
+                                Listeners.printSwapLogLn(LogType.ERROR, ":::::[ASB]::::: Swap " + swapId + " failed with error: " + fields.getString("error"), false);
                             }
                             case "ASB_SWAP_STARTED" -> {
-                                mainController.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " started.", false);
+                                Listeners.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " started.", false);
                             }
                             case "ASB_BTC_LOCK_SEEN" -> {
-                                mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " BTC lock transcation seen. Waiting on confirmation...", false);
+                                Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " BTC lock transcation seen. Waiting on confirmation...", false);
                             }
                             case "ASB_BTC_LOCK_SEEN_ERR" -> {
-                                mainController.printSwapLogLn(LogType.WARN, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " BTC lock transcation was not seen in mempool in time.", false);
+                                Listeners.printSwapLogLn(LogType.WARN, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " BTC lock transcation was not seen in mempool in time.", false);
                             }
                             case "ASB_BTC_LOCK" -> {
-                                mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " BTC lock transcation confirmed.", false);
+                                Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " BTC lock transcation confirmed.", false);
                             }
                             case "ASB_BTC_LOCK_ERR" -> {
-                                mainController.printSwapLogLn(LogType.WARN, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " BTC lock transcation did not get enough confirmations in time.", false);
+                                Listeners.printSwapLogLn(LogType.WARN, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " BTC lock transcation did not get enough confirmations in time.", false);
                             }
                             case "ASB_XMR_LOCK_PROOF" -> {
-                                mainController.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " XMR locked: " + fields.getString("txid"), false);
+                                Listeners.printSwapLogLn(LogType.INFO, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " XMR locked: " + fields.getString("txid"), false);
                             }
                             case "ASB_BTC_REDEEM_ERR" -> {
-                                mainController.printSwapLogLn(LogType.WARN, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " failed to redeem BTC: " + fields.getString("error"), false);
+                                Listeners.printSwapLogLn(LogType.WARN, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " failed to redeem BTC: " + fields.getString("error"), false);
                             }
                             // TODO: Revisit these cases. Don't seem to ever being hit.
                             case "ASB_CANCEL_TX" -> {
-                                mainController.printSwapLogLn(LogType.WARN, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " cancel transaction broadcasted: " + fields.getString("txid"), false);
+                                Listeners.printSwapLogLn(LogType.WARN, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " cancel transaction broadcasted: " + fields.getString("txid"), false);
                             }
                             case "ASB_REFUND" -> {
-                                mainController.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " XMR successfully refunded.", false);
+                                Listeners.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " XMR successfully refunded.", false);
                             }
                             case "ASB_PUNISH_TX" -> {
-                                mainController.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " punish transaction broadcasted: " + fields.getString("txid"), false);
+                                Listeners.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " punish transaction broadcasted: " + fields.getString("txid"), false);
                             }
                             case "ASB_REDEEM_TX" -> {
-                                mainController.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " redeem transaction successfully broadcasted: " + fields.getString("txid"), false);
+                                Listeners.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Swap " + fields.getString("swap_id") + " redeem transaction successfully broadcasted: " + fields.getString("txid"), false);
                             }
                         }
                         // ASB INIT DATA
@@ -1,14 +1,10 @@
 package swap.runnable;
 
-import com.runjva.sourceforge.jsocks.protocol.Socks5Proxy;
-import com.samourai.http.client.HttpUsage;
 import javafx.application.Platform;
 import javafx.scene.control.Button;
 import javafx.scene.control.Tooltip;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import org.berndpruenster.netlayer.tor.NativeTor;
-import org.berndpruenster.netlayer.tor.Tor;
 import org.berndpruenster.netlayer.tor.TorCtlException;
 import swap.client.ClientWhirlpool;
 import swap.gui.GUISwap;
@@ -16,7 +12,6 @@ import swap.gui.controller.PairingController;
 import swap.helper.HelperProperties;
 import swap.model.ScreenType;
 
-import java.util.Collection;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class RunnableStartButtonChecker implements Runnable {
@@ -40,18 +35,7 @@ public class RunnableStartButtonChecker implements Runnable {
         while (running && !Thread.interrupted()) {
             boolean torClientIsRunning = false;
             try {
-                Collection<NativeTor> torClients = GUISwap.getInstance().getWhirlpoolTorClients().values();
-                boolean anyNotReady = torClients.stream().anyMatch(nativeTor -> {
-                    try {
-                        Socks5Proxy socks5Proxy = nativeTor.getProxy("127.0.0.1");
-                        return socks5Proxy.getPort() == 0 || !nativeTor.control.getRunning$tor();
-                    } catch (TorCtlException e) {
-                        return true;
-                    }
-                });
-                Tor defaultTor = Tor.getDefault();
-                boolean defaultTorIsRunning = defaultTor != null && defaultTor.getProxy("127.0.0.1").getPort() != 0;
-                torClientIsRunning = !anyNotReady && defaultTorIsRunning && torClients.size() == HttpUsage.values().length;
+                torClientIsRunning = GUISwap.isTorReady();
 
                 if (torClientIsRunning && GUISwap.hiddenServiceContainer == null) {
                     GUISwap.publishHiddenService();
@@ -0,0 +1,282 @@
+package swap.seller;
+
+import swap.lib.AppSwap;
+import swap.metrics.SwapMetrics;
+import swap.model.Seller;
+import swap.model.SwapError;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+// Ranks sellers by quote price, max quantity, quote latency and how past swaps with the same peer id ended.
+// Per peer stats are kept in <swap root>/seller-stats.bin, written after every quote round and swap outcome.
+public class SellerScorer {
+    private static final int MAGIC_V1 = 0x53454c31; // "SEL1", without counted errors
+    private static final int MAGIC = 0x53454c32; // "SEL2"
+    private static final int MAX_PEERS = 1024;
+    private static final int MAX_OPEN_SWAPS = 256;
+    // a seller this much more expensive than the cheapest one gets no price score
+    private static final double PRICE_TOLERANCE = 0.05;
+    // quote latency at which the latency score halves, includes the Tor dial
+    private static final double LATENCY_HALF_MS = 5_000d;
+    private static final double LATENCY_EWMA_ALPHA = 0.3;
+    private static final double PRICE_WEIGHT = 0.6;
+    private static final double QUANTITY_WEIGHT = 0.25;
+    private static final double LATENCY_WEIGHT = 0.15;
+
+    private static SellerScorer instance = null;
+
+    public static SellerScorer getInstance() {
+        if (instance == null) {
+            instance = new SellerScorer(new File(AppSwap.getSwapRootDir(), "seller-stats.bin"));
+        }
+
+        return instance;
+    }
+
+    private enum CountedError {SELLER, DISCONNECT}
+
+    private static class PeerStats {
+        private long lastQuoteMillis;
+        private int quotes;
+        private int latencyEwmaMs;
+        private int succeeded;
+        private int refunded;
+        private int aborted;
+        private int sellerErrors;
+        private int disconnects;
+
+        private void count(CountedError error, int delta) {
+            switch (error) {
+                case SELLER -> sellerErrors = Math.max(0, sellerErrors + delta);
+                case DISCONNECT -> disconnects = Math.max(0, disconnects + delta);
+            }
+        }
+
+        // Laplace smoothed share of swaps that ended well, an aborted swap counts half (often our own cancel)
+        private double reliability() {
+            double failures = refunded + sellerErrors + disconnects + aborted * 0.5d;
+            return (succeeded + 1d) / (succeeded + failures + 2d);
+        }
+    }
+
+    private final File file;
+    private final HashMap<String, PeerStats> peers = new HashMap<>();
+    // swapId -> seller peer id of swaps that have not ended yet, so outcomes after a restart are attributed too
+    private final LinkedHashMap<String, String> openSwaps = new LinkedHashMap<>();
+    // swapId -> error already counted for an open swap, a swap counts one outcome however often it fails or is resumed
+    private final HashMap<String, CountedError> countedErrors = new HashMap<>();
+
+    public SellerScorer(File file) {
+        this.file = file;
+        load();
+    }
+
+    // Quotes of one list sellers round
+    public synchronized void observeQuotes(Collection<Seller> sellers) {
+        long now = System.currentTimeMillis();
+        for (Seller seller : sellers) {
+            PeerStats stats = stats(SwapMetrics.peerIdOf(seller.multiaddr()));
+            stats.lastQuoteMillis = now;
+            if (seller.quoteLatencyMs() > 0) {
+                int latency = (int) Math.min(Integer.MAX_VALUE, seller.quoteLatencyMs());
+                stats.latencyEwmaMs = stats.quotes == 0 ? latency : (int) Math.round(LATENCY_EWMA_ALPHA * latency + (1 - LATENCY_EWMA_ALPHA) * stats.latencyEwmaMs);
+                stats.quotes++;
+            }
+        }
+        save();
+    }
+
+    public synchronized void onSwapRunning(String swapId, String multiaddr) {
+        openSwaps.remove(swapId);
+        openSwaps.put(swapId, SwapMetrics.peerIdOf(multiaddr));
+        while (openSwaps.size() > MAX_OPEN_SWAPS) {
+            String oldest = openSwaps.keySet().iterator().next();
+            openSwaps.remove(oldest);
+            countedErrors.remove(oldest);
+        }
+        save();
+    }
+
+    public synchronized void onSwapCompleted(String swapId) {
+        PeerStats stats = closeSwap(swapId);
+        if (stats == null) return;
+        stats.succeeded++;
+        save();
+    }
+
+    public synchronized void onSwapRefunded(String swapId) {
+        PeerStats stats = closeSwap(swapId);
+        if (stats == null) return;
+        stats.refunded++;
+        save();
+    }
+
+    public synchronized void onSwapSafelyAborted(String swapId) {
+        PeerStats stats = closeSwap(swapId);
+        if (stats == null) return;
+        stats.aborted++;
+        save();
+    }
+
+    // Only errors caused by the seller count, the swap stays open since most of them are resumed. The first one is
+    // counted until the swap ends, then the final outcome replaces it.
+    public synchronized void onSwapError(SwapError swapError) {
+        switch (swapError.errorType()) {
+            case SellerEncounteredProblemError, SellerInsufficientBalance, FailedToReceiveTransferProof,
+                    EncryptedSignatureTransferError, EncryptedSignatureAckError -> countError(swapError.swapId(), CountedError.SELLER);
+            case SwapDisconnected -> countError(swapError.swapId(), CountedError.DISCONNECT);
+            default -> {
+            }
+        }
+    }
+
+    public synchronized void onSellerQuoteError(String swapId) {
+        countError(swapId, CountedError.SELLER);
+    }
+
+    private void countError(String swapId, CountedError error) {
+        String peerId = openSwaps.get(swapId);
+        if (peerId == null || countedErrors.containsKey(swapId)) return;
+        countedErrors.put(swapId, error);
+        stats(peerId).count(error, 1);
+        save();
+    }
+
+    private double score(Seller seller, long cheapest, long largest) {
+        PeerStats stats = peers.get(SwapMetrics.peerIdOf(seller.multiaddr()));
+        double price = Math.max(0d, 1d - ((double) seller.priceSatoshis() / cheapest - 1d) / PRICE_TOLERANCE);
+        double quantity = largest > 0 ? Math.sqrt((double) seller.maxSatoshis() / largest) : 0d;
+        long latencyMs = stats != null && stats.quotes > 0 ? stats.latencyEwmaMs : seller.quoteLatencyMs();
+        double latency = LATENCY_HALF_MS / (LATENCY_HALF_MS + latencyMs);
+        double reliability = stats != null ? stats.reliability() : 0.5d;
+        return reliability * (PRICE_WEIGHT * price + QUANTITY_WEIGHT * quantity + LATENCY_WEIGHT * latency);
+    }
+
+    // Seller -> score between 0 and 1 relative to the other sellers of the list, best first
+    public synchronized LinkedHashMap<Seller, Double> scores(Collection<Seller> sellers) {
+        long cheapest = sellers.stream().mapToLong(Seller::priceSatoshis).filter(price -> price > 0).min().orElse(1L);
+        long largest = sellers.stream().mapToLong(Seller::maxSatoshis).max().orElse(0L);
+        HashMap<Seller, Double> scores = new HashMap<>();
+        sellers.forEach(seller -> scores.put(seller, score(seller, cheapest, largest)));
+        ArrayList<Seller> ranked = new ArrayList<>(sellers);
+        ranked.sort(Comparator.comparingDouble((Seller seller) -> scores.get(seller)).reversed().thenComparingLong(Seller::priceSatoshis));
+        LinkedHashMap<Seller, Double> result = new LinkedHashMap<>();
+        ranked.forEach(seller -> result.put(seller, scores.get(seller)));
+        return result;
+    }
+
+    // Best first
+    public List<Seller> rank(Collection<Seller> sellers) {
+        return new ArrayList<>(scores(sellers).keySet());
+    }
+
+    public Optional<Seller> best(Collection<Seller> sellers) {
+        List<Seller> ranked = rank(sellers);
+        return ranked.isEmpty() ? Optional.empty() : Optional.of(ranked.get(0));
+    }
+
+    @Nullable
+    private PeerStats closeSwap(String swapId) {
+        String peerId = openSwaps.remove(swapId);
+        CountedError error = countedErrors.remove(swapId);
+        if (peerId == null) return null;
+        PeerStats stats = stats(peerId);
+        if (error != null) stats.count(error, -1);
+        return stats;
+    }
+
+    private PeerStats stats(String peerId) {
+        PeerStats stats = peers.get(peerId);
+        if (stats != null) return stats;
+        if (peers.size() >= MAX_PEERS) {
+            // forget the peer not seen for the longest time
+            peers.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastQuoteMillis))
+                    .map(Map.Entry::getKey)
+                    .ifPresent(peers::remove);
+        }
+        stats = new PeerStats();
+        peers.put(peerId, stats);
+        return stats;
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC && magic != MAGIC_V1) {
+                System.err.println("Ignoring " + file + ": unknown format");
+                return;
+            }
+            int peerCount = in.readInt();
+            for (int i = 0; i < peerCount; i++) {
+                String peerId = in.readUTF();
+                PeerStats stats = new PeerStats();
+                stats.lastQuoteMillis = in.readLong();
+                stats.quotes = in.readInt();
+                stats.latencyEwmaMs = in.readInt();
+                stats.succeeded = in.readInt();
+                stats.refunded = in.readInt();
+                stats.aborted = in.readInt();
+                stats.sellerErrors = in.readInt();
+                stats.disconnects = in.readInt();
+                peers.put(peerId, stats);
+            }
+            int swapCount = in.readInt();
+            for (int i = 0; i < swapCount; i++) {
+                openSwaps.put(in.readUTF(), in.readUTF());
+            }
+            if (magic == MAGIC_V1) return;
+            int errorCount = in.readInt();
+            for (int i = 0; i < errorCount; i++) {
+                String swapId = in.readUTF();
+                CountedError error = CountedError.values()[in.readUnsignedByte()];
+                if (openSwaps.containsKey(swapId)) countedErrors.put(swapId, error);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to load seller stats: " + e.getMessage());
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(peers.size());
+            for (Map.Entry<String, PeerStats> entry : peers.entrySet()) {
+                PeerStats stats = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(stats.lastQuoteMillis);
+                out.writeInt(stats.quotes);
+                out.writeInt(stats.latencyEwmaMs);
+                out.writeInt(stats.succeeded);
+                out.writeInt(stats.refunded);
+                out.writeInt(stats.aborted);
+                out.writeInt(stats.sellerErrors);
+                out.writeInt(stats.disconnects);
+            }
+            out.writeInt(openSwaps.size());
+            for (Map.Entry<String, String> entry : openSwaps.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            out.writeInt(countedErrors.size());
+            for (Map.Entry<String, CountedError> entry : countedErrors.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeByte(entry.getValue().ordinal());
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to save seller stats: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to save seller stats: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package swap.timeseries;
+
+import com.samourai.whirlpool.client.wallet.beans.WhirlpoolAccount;
+
+// Series of the Liquidity page history, recorded where the values arrive (asb events, Whirlpool balances, price ticker)
+public class AsbHistory {
+    public static final String XMR_LOCKED = "xmr.locked"; // piconero
+    public static final String XMR_UNLOCKED = "xmr.unlocked"; // piconero
+    public static final String XMR_PRICE = "xmr.price"; // satoshis per XMR
+    public static final String BTC_EARNED = "btc.earned"; // satoshis, cumulative
+
+    // satoshis
+    public static String btcBalance(WhirlpoolAccount whirlpoolAccount) {
+        return "btc." + whirlpoolAccount.name();
+    }
+
+    public static void onXmrBalance(long total, long unlocked) {
+        long now = System.currentTimeMillis();
+        TimeSeriesStore store = TimeSeriesStore.getInstance();
+        store.append(XMR_LOCKED, now, total - unlocked);
+        store.append(XMR_UNLOCKED, now, unlocked);
+    }
+
+    public static void onBtcBalance(WhirlpoolAccount whirlpoolAccount, long satoshis) {
+        TimeSeriesStore.getInstance().append(btcBalance(whirlpoolAccount), System.currentTimeMillis(), satoshis);
+    }
+
+    public static void onXmrPrice(long satoshis) {
+        TimeSeriesStore.getInstance().append(XMR_PRICE, System.currentTimeMillis(), satoshis);
+    }
+
+    public static void onEarned(long satoshis) {
+        TimeSeriesStore store = TimeSeriesStore.getInstance();
+        synchronized (store) {
+            store.append(BTC_EARNED, System.currentTimeMillis(), store.last(BTC_EARNED, 0) + satoshis);
+        }
+    }
+}
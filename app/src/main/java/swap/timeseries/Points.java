@@ -0,0 +1,43 @@
+package swap.timeseries;
+
+import java.util.Arrays;
+
+// Timestamps (epoch millis) and values of a series, in timestamp order
+public record Points(long[] timestamps, long[] values) {
+    public int size() {
+        return timestamps.length;
+    }
+
+    static final class Builder {
+        private long[] timestamps = new long[64];
+        private long[] values = new long[64];
+        private int size = 0;
+
+        void add(long timestamp, long value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            timestamps[size] = timestamp;
+            values[size] = value;
+            size++;
+        }
+
+        // Every n-th point so that at most maxPoints remain, always keeps the last one
+        Points build(int maxPoints) {
+            if (size <= maxPoints) {
+                return new Points(Arrays.copyOf(timestamps, size), Arrays.copyOf(values, size));
+            }
+            int stride = (size + maxPoints - 1) / maxPoints;
+            int count = (size - 1) / stride + 1;
+            long[] sampledTimestamps = new long[count];
+            long[] sampledValues = new long[count];
+            for (int i = 0; i < count; i++) {
+                int index = (size - 1) - (count - 1 - i) * stride;
+                sampledTimestamps[i] = timestamps[index];
+                sampledValues[i] = values[index];
+            }
+            return new Points(sampledTimestamps, sampledValues);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package swap.timeseries;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+// One memory-mapped segment file: a header followed by (timestamp, value) pairs, each column stored as the zigzag
+// varint of its delta-of-delta. A point at the usual interval with an unchanged value takes two bytes.
+// A point is committed by incrementing COUNT, after its bytes and END are written. The LAST_* fields only cache the
+// decoder state after the last point, opening a segment for writing rebuilds them and END from the committed points,
+// so a crash mid-append loses that point and nothing else.
+final class Segment {
+    static final int SIZE = 64 * 1024;
+    private static final int MAGIC = 0x54534731; // TSG1
+    private static final int HEADER = 64;
+    private static final int MAX_POINT = 20; // two 10 byte varints
+
+    // header offsets
+    private static final int COUNT = 4;
+    private static final int END = 8;
+    private static final int FIRST_TIMESTAMP = 16;
+    private static final int LAST_TIMESTAMP = 24;
+    private static final int LAST_TIMESTAMP_DELTA = 32;
+    private static final int LAST_VALUE = 40;
+    private static final int LAST_VALUE_DELTA = 48;
+
+    final File file;
+    private final MappedByteBuffer buffer;
+
+    private Segment(File file, MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    static Segment create(File file, long firstTimestamp) throws IOException {
+        Segment segment = map(file, true);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(END, HEADER);
+        segment.buffer.putLong(FIRST_TIMESTAMP, firstTimestamp);
+        return segment;
+    }
+
+    static Segment open(File file, boolean writable) throws IOException {
+        Segment segment = map(file, writable);
+        if (segment.buffer.getInt(0) != MAGIC) throw new IOException("Not a segment file: " + file);
+        if (writable) segment.recover();
+        return segment;
+    }
+
+    // Decodes the committed points and rewrites what follows from them
+    private void recover() throws IOException {
+        ByteBuffer in = buffer.duplicate();
+        in.position(HEADER);
+        long timestamp = 0, timestampDelta = 0, value = 0, valueDelta = 0;
+        try {
+            for (int i = count(); i > 0; i--) {
+                timestampDelta += readVarLong(in);
+                valueDelta += readVarLong(in);
+                timestamp += timestampDelta;
+                value += valueDelta;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Segment " + file + " has fewer than " + count() + " points");
+        }
+        buffer.putInt(END, in.position());
+        buffer.putLong(LAST_TIMESTAMP, timestamp);
+        buffer.putLong(LAST_TIMESTAMP_DELTA, timestampDelta);
+        buffer.putLong(LAST_VALUE, value);
+        buffer.putLong(LAST_VALUE_DELTA, valueDelta);
+    }
+
+    private static Segment map(File file, boolean writable) throws IOException {
+        StandardOpenOption[] options = writable
+                ? new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[]{StandardOpenOption.READ};
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file.toPath(), options)) {
+            MappedByteBuffer buffer = writable
+                    ? channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE)
+                    : channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), SIZE));
+            return new Segment(file, buffer);
+        }
+    }
+
+    int count() {
+        return buffer.getInt(COUNT);
+    }
+
+    long firstTimestamp() {
+        return buffer.getLong(FIRST_TIMESTAMP);
+    }
+
+    long lastTimestamp() {
+        return buffer.getLong(LAST_TIMESTAMP);
+    }
+
+    long lastValue() {
+        return buffer.getLong(LAST_VALUE);
+    }
+
+    // false when the segment is full
+    boolean append(long timestamp, long value) {
+        int end = buffer.getInt(END);
+        if (end + MAX_POINT > buffer.capacity()) return false;
+
+        long timestampDelta = timestamp - buffer.getLong(LAST_TIMESTAMP);
+        long valueDelta = value - buffer.getLong(LAST_VALUE);
+        ByteBuffer out = buffer.duplicate();
+        out.position(end);
+        writeVarLong(out, timestampDelta - buffer.getLong(LAST_TIMESTAMP_DELTA));
+        writeVarLong(out, valueDelta - buffer.getLong(LAST_VALUE_DELTA));
+
+        buffer.putInt(END, out.position());
+        buffer.putInt(COUNT, count() + 1);
+        buffer.putLong(LAST_TIMESTAMP, timestamp);
+        buffer.putLong(LAST_TIMESTAMP_DELTA, timestampDelta);
+        buffer.putLong(LAST_VALUE, value);
+        buffer.putLong(LAST_VALUE_DELTA, valueDelta);
+        return true;
+    }
+
+    // Decodes the points within [from, to] into points, stops at the first point after to
+    void read(long from, long to, Points.Builder points) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(HEADER);
+        in.limit(buffer.getInt(END));
+        long timestamp = 0, timestampDelta = 0, value = 0, valueDelta = 0;
+        for (int i = count(); i > 0; i--) {
+            timestampDelta += readVarLong(in);
+            valueDelta += readVarLong(in);
+            timestamp += timestampDelta;
+            value += valueDelta;
+            if (timestamp > to) return;
+            if (timestamp >= from) points.add(timestamp, value);
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    static void writeVarLong(ByteBuffer out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.put((byte) zigzag);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
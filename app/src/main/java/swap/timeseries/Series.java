@@ -0,0 +1,110 @@
+package swap.timeseries;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// One resolution of a series: a directory of segment files named after their first timestamp.
+// Only the segment being appended to stays mapped, older ones are mapped while they are read.
+final class Series {
+    private static final String SUFFIX = ".seg";
+
+    private final File dir;
+    private final List<Long> segmentStarts = new ArrayList<>();
+    private Segment active = null;
+
+    Series(File dir) {
+        this.dir = dir;
+        if (!dir.exists()) dir.mkdirs();
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null) return;
+        Arrays.stream(files)
+                .map(file -> file.getName().substring(0, file.getName().length() - SUFFIX.length()))
+                .filter(name -> name.chars().allMatch(Character::isDigit))
+                .map(Long::parseLong)
+                .sorted()
+                .forEach(segmentStarts::add);
+        if (segmentStarts.isEmpty()) return;
+        File last = segmentFile(segmentStarts.get(segmentStarts.size() - 1));
+        try {
+            active = Segment.open(last, true);
+        } catch (IOException e) {
+            System.err.println("Failed to open " + last + ", starting a new segment: " + e.getMessage());
+        }
+    }
+
+    boolean isEmpty() {
+        return active == null || active.count() == 0;
+    }
+
+    long lastTimestamp() {
+        return active.lastTimestamp();
+    }
+
+    long lastValue() {
+        return active.lastValue();
+    }
+
+    void append(long timestamp, long value) throws IOException {
+        if (active != null && active.append(timestamp, value)) return;
+        if (active != null) active.force();
+        active = Segment.create(segmentFile(timestamp), timestamp);
+        segmentStarts.add(timestamp);
+        active.append(timestamp, value);
+    }
+
+    // Points within [from, to], estimated from the segment headers assuming points are evenly spread within a segment
+    long estimateCount(long from, long to) {
+        long count = 0;
+        for (int i = firstSegment(from); i < segmentStarts.size() && segmentStarts.get(i) <= to; i++) {
+            Segment segment = segment(i);
+            if (segment == null) continue;
+            long first = segment.firstTimestamp();
+            long last = segment.lastTimestamp();
+            if (last <= first) {
+                count += segment.count();
+            } else {
+                long overlap = Math.max(0, Math.min(to, last) - Math.max(from, first));
+                count += (long) ((double) segment.count() * overlap / (last - first)) + 1;
+            }
+        }
+        return count;
+    }
+
+    void read(long from, long to, Points.Builder points) {
+        for (int i = firstSegment(from); i < segmentStarts.size() && segmentStarts.get(i) <= to; i++) {
+            Segment segment = segment(i);
+            if (segment != null) segment.read(from, to, points);
+        }
+    }
+
+    void force() {
+        if (active != null) active.force();
+    }
+
+    // the last segment starting at or before from, segments never overlap
+    private int firstSegment(long from) {
+        int first = 0;
+        for (int i = 0; i < segmentStarts.size() && segmentStarts.get(i) <= from; i++) {
+            first = i;
+        }
+        return first;
+    }
+
+    private Segment segment(int index) {
+        if (index == segmentStarts.size() - 1 && active != null) return active;
+        File file = segmentFile(segmentStarts.get(index));
+        try {
+            return Segment.open(file, false);
+        } catch (IOException e) {
+            System.err.println("Skipping unreadable segment " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private File segmentFile(long firstTimestamp) {
+        return new File(dir, String.format("%019d", firstTimestamp) + SUFFIX);
+    }
+}
@@ -0,0 +1,97 @@
+package swap.timeseries;
+
+import swap.lib.AppSwap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Embedded append-only store of (epoch millis, long) series under <swap root>/timeseries/<series>/.
+// Next to the raw points every series keeps rollups holding the first point of each ROLLUP_STEPS bucket,
+// a query reads the finest resolution that fits its point budget so months of history stay off the heap.
+public class TimeSeriesStore {
+    public static final long[] ROLLUP_STEPS = {5 * 60_000L, 60 * 60_000L, 24 * 60 * 60_000L};
+    private static final String RAW = "raw";
+    // a query decodes up to this many points per returned point before falling back to a coarser resolution
+    private static final int OVERSAMPLING = 8;
+
+    private static TimeSeriesStore instance = null;
+
+    // Reached first from the ASB reader, Whirlpool and price feed threads, two stores would append to the same segment
+    public static synchronized TimeSeriesStore getInstance() {
+        if (instance == null) {
+            instance = new TimeSeriesStore(new File(AppSwap.getSwapRootDir(), "timeseries"));
+        }
+
+        return instance;
+    }
+
+    private final File dir;
+    // raw series first, then one per rollup step
+    private final Map<String, Series[]> series = new HashMap<>();
+
+    public TimeSeriesStore(File dir) {
+        this.dir = dir;
+    }
+
+    // Points older than the last one of the series are dropped (clock changes), the store is append-only
+    public synchronized void append(String name, long timestampMillis, long value) {
+        Series[] resolutions = resolutions(name);
+        try {
+            if (!resolutions[0].isEmpty() && timestampMillis < resolutions[0].lastTimestamp()) return;
+            resolutions[0].append(timestampMillis, value);
+            for (int i = 0; i < ROLLUP_STEPS.length; i++) {
+                Series rollup = resolutions[i + 1];
+                long bucket = timestampMillis - Math.floorMod(timestampMillis, ROLLUP_STEPS[i]);
+                if (rollup.isEmpty() || bucket > rollup.lastTimestamp()) rollup.append(bucket, value);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to append to time series " + name + ": " + e.getMessage());
+        }
+    }
+
+    // The latest value of the series, or defaultValue if it has none
+    public synchronized long last(String name, long defaultValue) {
+        Series raw = resolutions(name)[0];
+        return raw.isEmpty() ? defaultValue : raw.lastValue();
+    }
+
+    // At most maxPoints points within [fromMillis, toMillis], downsampled from the finest resolution that fits
+    public synchronized Points query(String name, long fromMillis, long toMillis, int maxPoints) {
+        Series[] resolutions = resolutions(name);
+        int chosen = resolutions.length - 1;
+        for (int i = 0; i < resolutions.length; i++) {
+            if (resolutions[i].estimateCount(fromMillis, toMillis) <= (long) maxPoints * OVERSAMPLING) {
+                chosen = i;
+                break;
+            }
+        }
+        // a rollup point stands for its whole bucket, include the one fromMillis falls in
+        long from = chosen == 0 ? fromMillis : fromMillis - ROLLUP_STEPS[chosen - 1];
+        Points.Builder points = new Points.Builder();
+        resolutions[chosen].read(from, toMillis, points);
+        return points.build(maxPoints);
+    }
+
+    // Flushes the mapped segments to disk, the OS writes them back on its own otherwise
+    public synchronized void force() {
+        for (Series[] resolutions : series.values()) {
+            for (Series resolution : resolutions) {
+                resolution.force();
+            }
+        }
+    }
+
+    private Series[] resolutions(String name) {
+        return series.computeIfAbsent(name, key -> {
+            File seriesDir = new File(dir, key);
+            Series[] resolutions = new Series[ROLLUP_STEPS.length + 1];
+            resolutions[0] = new Series(new File(seriesDir, RAW));
+            for (int i = 0; i < ROLLUP_STEPS.length; i++) {
+                resolutions[i + 1] = new Series(new File(seriesDir, String.valueOf(ROLLUP_STEPS[i])));
+            }
+            return resolutions;
+        });
+    }
+}
@@ -5,6 +5,7 @@ import com.samourai.http.client.HttpProxyProtocol;
 import com.samourai.http.client.HttpUsage;
 import com.samourai.http.client.JavaHttpClient;
 import com.samourai.wallet.SamouraiWalletConst;
+import com.samourai.wallet.api.backend.MinerFeeTarget;
 import com.samourai.wallet.api.backend.beans.UnspentOutput;
 import com.samourai.wallet.bip69.BIP69InputComparator;
 import com.samourai.wallet.bip69.BIP69OutputComparator;
@@ -27,7 +28,6 @@ import com.samourai.whirlpool.client.wallet.beans.WhirlpoolAccount;
 import com.samourai.whirlpool.client.wallet.beans.WhirlpoolUtxo;
 import com.samourai.whirlpool.client.wallet.data.utxo.UtxoSupplier;
 import com.samourai.whirlpool.client.whirlpool.beans.Pool;
-import javafx.scene.control.Tooltip;
 import org.berndpruenster.netlayer.tor.NativeTor;
 import org.berndpruenster.netlayer.tor.TorCtlException;
 import org.bitcoinj.core.*;
@@ -37,18 +37,20 @@ import org.eclipse.jetty.client.ProxyConfiguration;
 import org.springframework.stereotype.Service;
 import swap.client.ClientWhirlpool;
 import swap.gui.GUISwap;
-import swap.gui.controller.MainController;
-import swap.gui.controller.pages.SwapsController;
 import swap.helper.HelperAddress;
 import swap.helper.HelperProperties;
-import swap.model.AsbBtcBalanceData;
+import swap.lib.FeeOracle;
+import swap.listener.Listeners;
+import swap.listener.WhirlpoolListener;
 import swap.model.LogType;
+import swap.timeseries.AsbHistory;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -78,12 +80,11 @@ public class ServiceWhirlpool extends CliService {
     @Override
     protected void onWalletReady(CliWallet cliWallet) throws Exception {
         super.onWalletReady(cliWallet);
-        MainController mainController = MainController.getInstance();
-        if (mainController == null) return;
         ClientWhirlpool.walletOpened.set(true);
-        mainController.printSwapLogLn(LogType.INFO, "[WHIRLPOOL] Initialized.", false);
-        mainController.whirlpoolImage.setVisible(true);
-        Tooltip.install(mainController.whirlpoolImage, new Tooltip("Whirlpool Initialized"));
+        Listeners.printSwapLogLn(LogType.INFO, "[WHIRLPOOL] Initialized.", false);
+        WhirlpoolListener whirlpoolListener = Listeners.whirlpoolListener;
+        if (whirlpoolListener != null) whirlpoolListener.onWhirlpoolInitialized();
+        GUISwap.scheduledExecutorService.scheduleAtFixedRate(this::reportBackendFees, 0, 1, TimeUnit.MINUTES);
         GUISwap.scheduledExecutorService.scheduleAtFixedRate(this::maybeTx0FromAsbAccount, 0, 1, TimeUnit.MINUTES);
         GUISwap.scheduledExecutorService.scheduleAtFixedRate(() -> {
             WhirlpoolAccount[] whirlpoolAccounts = new WhirlpoolAccount[]{WhirlpoolAccount.SWAPS_ASB, WhirlpoolAccount.DEPOSIT, WhirlpoolAccount.POSTMIX, WhirlpoolAccount.PREMIX, WhirlpoolAccount.SWAPS_DEPOSIT, WhirlpoolAccount.SWAPS_REFUNDS};
@@ -95,23 +96,23 @@ public class ServiceWhirlpool extends CliService {
 
     private void getAndUpdateBalanceForAccount(WhirlpoolAccount whirlpoolAccount) {
         long balanceSatoshis = getBalance(whirlpoolAccount);
+        AsbHistory.onBtcBalance(whirlpoolAccount, balanceSatoshis);
         Coin coinBalance = Coin.valueOf(balanceSatoshis);
-        SwapsController swapsController = SwapsController.instance;
-
-        if (swapsController != null) {
-            swapsController.updateGui(() -> {
-                switch (whirlpoolAccount) {
-                    case SWAPS_REFUNDS ->
-                            swapsController.refundsBtcBalanceText.setText(coinBalance.toPlainString() + " BTC");
-                    case SWAPS_DEPOSIT ->
-                            swapsController.depositBtcBalanceText.setText(coinBalance.toPlainString() + " BTC");
-                    default -> {
-                        AsbBtcBalanceData asbBtcBalanceData = new AsbBtcBalanceData(coinBalance, "");
-                        if (MainController.asbListener != null && GUISwap.isAsbRunning())
-                            MainController.asbListener.onAsbBtcBalanceData(whirlpoolAccount, asbBtcBalanceData);
-                    }
-                }
-            });
+        WhirlpoolListener whirlpoolListener = Listeners.whirlpoolListener;
+        if (whirlpoolListener != null) whirlpoolListener.onWhirlpoolBalance(whirlpoolAccount, coinBalance);
+    }
+
+    // The Whirlpool backend is one of the sources of the shared fee oracle
+    private void reportBackendFees() {
+        try {
+            WhirlpoolWallet whirlpoolWallet = this.cliWalletService.whirlpoolWallet();
+            Map<Integer, Long> satPerVb = new HashMap<>();
+            satPerVb.put(2, (long) whirlpoolWallet.getMinerFeeSupplier().getFee(MinerFeeTarget.BLOCKS_2));
+            satPerVb.put(6, (long) whirlpoolWallet.getMinerFeeSupplier().getFee(MinerFeeTarget.BLOCKS_6));
+            satPerVb.put(24, (long) whirlpoolWallet.getMinerFeeSupplier().getFee(MinerFeeTarget.BLOCKS_24));
+            FeeOracle.report(FeeOracle.SOURCE_WHIRLPOOL, GUISwap.appSwap.getParams(), satPerVb);
+        } catch (Exception e) {
+            System.out.println("[WHIRLPOOL] Failed to read backend fee rates: " + e.getMessage());
         }
     }
 
@@ -119,7 +120,7 @@ public class ServiceWhirlpool extends CliService {
         if (autoTx0) {
             Tx0 asbAccountTx0 = this.autoTx0FromAsbAccount();
             if (asbAccountTx0 != null) {
-                MainController.getInstance().printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Auto Tx0: " + asbAccountTx0.getTx().getHashAsString(), false);
+                Listeners.printSwapLogLn(LogType.HIGHLIGHT, ":::::[ASB]::::: Auto Tx0: " + asbAccountTx0.getTx().getHashAsString(), false);
             }
         }
     }
@@ -169,9 +170,9 @@ public class ServiceWhirlpool extends CliService {
                 client.getJettyHttpClient().getProxyConfiguration().getProxies().clear();
                 if (HelperProperties.isUseTor()) {
                     ProxyConfiguration.Proxy proxy = null;
-                    boolean hasClient = GUISwap.getInstance().getWhirlpoolTorClients().containsKey(httpUsage);
+                    boolean hasClient = GUISwap.getWhirlpoolTorClients().containsKey(httpUsage);
                     if(hasClient) {
-                        NativeTor tor = GUISwap.getInstance().getWhirlpoolTorClients().get(httpUsage);
+                        NativeTor tor = GUISwap.getWhirlpoolTorClients().get(httpUsage);
                         try {
                             proxy = new HttpProxy(HttpProxyProtocol.SOCKS, "127.0.0.1", tor.getProxy("127.0.0.1").getPort()).computeJettyProxy();
                         } catch (TorCtlException torCtlException) {
@@ -240,7 +241,7 @@ public class ServiceWhirlpool extends CliService {
                 sumInputs = sumInputs.add(inputValue);
                 selectedUtxos.put(utxo, inputValue);
                 seenTxs.put(txid, utxo);
-                long feeEstimate = estimateFee(selectedUtxos, numOutputs, destination, feeRate);
+                long feeEstimate = estimateFee(selectedUtxos.keySet(), numOutputs, destination, feeRate);
                 fee = Coin.valueOf(feeEstimate);
                 Coin amountPostFee = deductFromDestinationUtxo ? amount.subtract(fee) : amount.add(fee);
                 if (sumInputs.isGreaterThan(amountPostFee)) {
@@ -297,11 +298,12 @@ public class ServiceWhirlpool extends CliService {
         }
     }
 
-    private long estimateFee(HashMap<UnspentOutput, Coin> inputs, long numOutputs, Address destination, long feeRate) {
+    // Virtual size estimate from the input/output script types, no wallet state needed (static so it can be benchmarked)
+    public static long estimateFee(Collection<UnspentOutput> inputs, long numOutputs, Address destination, long feeRate) {
         long numInputsP2pkh = 0;
         long numInputsP2shP2wpkh = 0;
         long numInputsP2wpkh = 0;
-        for (UnspentOutput unspentOutput : inputs.keySet()) {
+        for (UnspentOutput unspentOutput : inputs) {
             Script script = unspentOutput.computeScript();
             if (script.isSentToAddress()) {
                 numInputsP2pkh++;
@@ -0,0 +1,144 @@
+package swap.codec;
+
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.params.TestNet3Params;
+import org.junit.Test;
+import swap.model.Seller;
+import swap.model.request.GetHistoryRequest;
+import swap.model.request.ListSellersRequest;
+import swap.model.request.ResumeRequest;
+import swap.model.request.SwapRequest;
+import swap.model.response.GetHistoryResponse;
+import swap.model.response.ListSellersResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// Checks the Java side against the same fixtures as the tests in src/codec.rs: requests must encode to the fixture
+// bytes the native side decodes, responses encoded by serde_cbor must decode here.
+public class CborFixturesTest {
+    private static final String SWAP_ID = "7d6c2bb4-8f2a-4a55-9a6b-2f1d5b0c9e11";
+    private static final String ELECTRUM = "ssl://electrum.example.org:50002";
+    private static final String XMR_RPC = "http://127.0.0.1:18083/json_rpc";
+    private static final String PEER_ID = "12D3KooWCEHzcGWnrYbVUFgZ9Ab3dJiQZaqWrxHfgKZiydKC86YY";
+
+    private static final Map<String, String> FIXTURES = load();
+
+    private static Map<String, String> load() {
+        HashMap<String, String> fixtures = new HashMap<>();
+        try (InputStream in = CborFixturesTest.class.getResourceAsStream("cbor-fixtures.txt")) {
+            assertNotNull("cbor-fixtures.txt missing", in);
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] parts = line.trim().split(" ");
+                fixtures.put(parts[0], parts[1]);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return fixtures;
+    }
+
+    private static void assertEncodes(String fixture, CborWriter writer) {
+        try {
+            assertEquals(fixture, FIXTURES.get(fixture), HexFormat.of().formatHex(writer.toByteArray()));
+        } finally {
+            writer.wipe();
+        }
+    }
+
+    private static byte[] fixture(String fixture) {
+        return HexFormat.of().parseHex(FIXTURES.get(fixture));
+    }
+
+    @Test
+    public void encodesListSellersRequest() {
+        assertEncodes("list_sellers_request", new ListSellersRequest(1L << 32, "/dns4/rendezvous.example.org/tcp/8888", 9050, TestNet3Params.get()).toCbor());
+    }
+
+    @Test
+    public void encodesGetHistoryRequest() {
+        assertEncodes("get_history_request", new GetHistoryRequest(MainNetParams.get()).toCbor());
+        assertEncodes("get_history_page_request", new GetHistoryRequest(MainNetParams.get(), 100, 50, List.of("REFUNDED")).toCbor());
+    }
+
+    @Test
+    public void encodesSwapRequest() {
+        SwapRequest request = new SwapRequest(SWAP_ID, 7, "888tNkZrPN6JsEgekjMnABU4TBzc2Dt29EPAvkRxbANsAnjyPbb3iQ1YBRk1UXcdRsiKc9dhwMVgN5S9cQUiyoogDavup3H",
+                ELECTRUM, "/onion3/seller.example:9939/p2p/" + PEER_ID, "127.0.0.1:9050", XMR_RPC, MainNetParams.get(), 9050,
+                "bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t4", 2147483646L);
+        assertEncodes("swap_request", request.toCbor());
+    }
+
+    @Test
+    public void encodesResumeRequest() {
+        ResumeRequest request = new ResumeRequest(7, SWAP_ID, ELECTRUM, "127.0.0.1:9050", XMR_RPC, TestNet3Params.get(), 9050, 2147483646L);
+        assertEncodes("resume_request", request.toCbor());
+    }
+
+    @Test
+    public void wipeZeroesTheBuffer() {
+        CborWriter writer = new ListSellersRequest(1L << 32, "/dns4/rendezvous.example.org/tcp/8888", 9050, TestNet3Params.get()).toCbor();
+        int length = writer.length();
+        writer.wipe();
+        for (int i = 0; i < length; i++) {
+            assertEquals(0, writer.buffer().get(i));
+        }
+    }
+
+    @Test
+    public void decodesGetHistoryResponse() {
+        GetHistoryResponse response = GetHistoryResponse.fromCbor(fixture("get_history_response"));
+        assertEquals(1, response.getSwaps().size());
+        assertEquals("abc", response.getSwaps().get(0).swapId());
+        assertEquals("REFUNDED", response.getSwaps().get(0).status());
+        assertEquals(1, response.getTotal());
+        assertEquals(Map.of("COMPLETED", 3L, "REFUNDED", 1L), response.getStatusCounts());
+    }
+
+    @Test
+    public void decodesListSellersResultSkippingOfflineSellers() {
+        List<Seller> sellers = ListSellersResponse.fromCbor(fixture("list_sellers_result")).sellers();
+        assertEquals(List.of(new Seller("/ip4/10.0.0.1/tcp/9939/p2p/" + PEER_ID, 100_000L, 50_000_000L, 652_000L, 1500L)), sellers);
+    }
+
+    @Test
+    public void readerRoundTripsWriterOutput() {
+        CborWriter writer = new CborWriter(4)
+                .map(5)
+                .key("negative").number(-500)
+                .key("large").number(Long.MAX_VALUE)
+                .key("bytes").bytes(new byte[]{1, 2, 3})
+                .key("nothing").nil()
+                .key("list").array(2).text("ä").bool(true);
+        CborReader reader = new CborReader(writer.toByteArray());
+        assertEquals(5, reader.readMap());
+        assertEquals("negative", reader.readText());
+        assertEquals(-500, reader.readLong());
+        assertEquals("large", reader.readText());
+        assertEquals(Long.MAX_VALUE, reader.readLong());
+        assertEquals("bytes", reader.readText());
+        assertArrayEquals(new byte[]{1, 2, 3}, reader.readBytes());
+        assertEquals("nothing", reader.readText());
+        assertNull(reader.readTextOrNull());
+        assertEquals("list", reader.readText());
+        assertEquals(2, reader.readArray());
+        assertEquals("ä", reader.readText());
+        assertTrue(reader.readBoolean());
+        assertFalse(reader.hasRemaining());
+    }
+
+    @Test(expected = CborException.class)
+    public void readerRejectsTruncatedInput() {
+        byte[] bytes = fixture("get_history_response");
+        GetHistoryResponse.fromCbor(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+}
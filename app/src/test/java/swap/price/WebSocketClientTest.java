@@ -0,0 +1,309 @@
+package swap.price;
+
+import org.bitcoinj.core.Coin;
+import org.junit.Test;
+import swap.listener.PriceListener;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// WebSocketClient against a local stand-in for the feed server that speaks just enough RFC 6455 to check what the
+// client sends and to send it frames a real server could
+public class WebSocketClientTest {
+    private static final int TIMEOUT_MILLIS = 5_000;
+
+    @Test
+    public void acceptMatchesRfcExample() {
+        // RFC 6455 section 1.3
+        assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocketClient.acceptFor("dGhlIHNhbXBsZSBub25jZQ=="));
+    }
+
+    @Test
+    public void handshakeSendsUpgradeRequest() throws Exception {
+        try (StandIn server = new StandIn()) {
+            URI uri = URI.create("ws://127.0.0.1:" + server.port() + "/ws?feed=rates");
+            Thread connecting = connectInBackground(uri);
+            try (StandIn.Connection connection = server.accept()) {
+                List<String> request = connection.handshake(true);
+                assertEquals("GET /ws?feed=rates HTTP/1.1", request.get(0));
+                assertTrue(request.contains("Host: 127.0.0.1:" + server.port()));
+                assertTrue(request.contains("Upgrade: websocket"));
+                assertTrue(request.contains("Sec-WebSocket-Version: 13"));
+            }
+            connecting.join(TIMEOUT_MILLIS);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsWrongAccept() throws Exception {
+        try (StandIn server = new StandIn()) {
+            Thread serving = new Thread(() -> {
+                try (StandIn.Connection connection = server.accept()) {
+                    connection.handshake(false);
+                    connection.in.read();
+                } catch (IOException ignored) {
+                }
+            });
+            serving.start();
+            WebSocketClient.connect(URI.create("ws://127.0.0.1:" + server.port() + "/ws"), 0, TIMEOUT_MILLIS);
+        }
+    }
+
+    @Test
+    public void readsTextFrames() throws Exception {
+        try (StandIn server = new StandIn()) {
+            String longMessage = "x".repeat(300);
+            String hugeMessage = "y".repeat(70_000);
+            serve(server, connection -> {
+                connection.send(true, 0x1, "rates".getBytes(StandardCharsets.UTF_8));
+                connection.send(true, 0x1, longMessage.getBytes(StandardCharsets.UTF_8));
+                connection.send(true, 0x1, hugeMessage.getBytes(StandardCharsets.UTF_8));
+                // fragmented, with a pong in between that is skipped
+                connection.send(false, 0x1, "frag".getBytes(StandardCharsets.UTF_8));
+                connection.send(true, 0xA, new byte[0]);
+                connection.send(false, 0x0, "men".getBytes(StandardCharsets.UTF_8));
+                connection.send(true, 0x0, "ted ä".getBytes(StandardCharsets.UTF_8));
+            });
+            try (WebSocketClient client = WebSocketClient.connect(server.uri(), 0, TIMEOUT_MILLIS)) {
+                assertEquals("rates", client.readText());
+                assertEquals(longMessage, client.readText());
+                assertEquals(hugeMessage, client.readText());
+                assertEquals("fragmented ä", client.readText());
+            }
+        }
+    }
+
+    @Test
+    public void answersPingWithPong() throws Exception {
+        try (StandIn server = new StandIn()) {
+            LinkedBlockingQueue<StandIn.Frame> received = new LinkedBlockingQueue<>();
+            serve(server, connection -> {
+                connection.send(true, 0x9, "keepalive".getBytes(StandardCharsets.UTF_8));
+                received.add(connection.receive());
+                connection.send(true, 0x1, "after ping".getBytes(StandardCharsets.UTF_8));
+            });
+            try (WebSocketClient client = WebSocketClient.connect(server.uri(), 0, TIMEOUT_MILLIS)) {
+                assertEquals("after ping", client.readText());
+            }
+            StandIn.Frame pong = received.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull(pong);
+            assertEquals(0xA, pong.opcode());
+            assertEquals("keepalive", new String(pong.payload(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void closeFrameEndsTheStream() throws Exception {
+        try (StandIn server = new StandIn()) {
+            LinkedBlockingQueue<StandIn.Frame> received = new LinkedBlockingQueue<>();
+            serve(server, connection -> {
+                connection.send(true, 0x8, new byte[]{0x03, (byte) 0xE8, 'b', 'y', 'e'});
+                received.add(connection.receive());
+            });
+            try (WebSocketClient client = WebSocketClient.connect(server.uri(), 0, TIMEOUT_MILLIS)) {
+                assertNull(client.readText());
+            }
+            StandIn.Frame close = received.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull(close);
+            assertEquals(0x8, close.opcode());
+            assertArrayEquals(new byte[]{0x03, (byte) 0xE8}, close.payload());
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void droppedConnectionFails() throws Exception {
+        try (StandIn server = new StandIn()) {
+            serve(server, connection -> connection.send(false, 0x1, "cut".getBytes(StandardCharsets.UTF_8)));
+            try (WebSocketClient client = WebSocketClient.connect(server.uri(), 0, TIMEOUT_MILLIS)) {
+                client.readText();
+            }
+        }
+    }
+
+    @Test
+    public void priceServiceReconnectsAfterTheFeedDrops() throws Exception {
+        try (StandIn server = new StandIn()) {
+            Thread serving = new Thread(() -> {
+                try {
+                    for (String xmr : new String[]{"160.0", "170.0"}) {
+                        try (StandIn.Connection connection = server.accept()) {
+                            connection.handshake(true);
+                            String rates = "{\"cmd\": \"crypto_rates\", \"data\": [{\"symbol\": \"xmr\", \"current_price\": " + xmr
+                                    + "}, {\"symbol\": \"btc\", \"current_price\": 64000.0}]}";
+                            connection.send(true, 0x1, rates.getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                } catch (IOException ignored) {
+                }
+            });
+            serving.setDaemon(true);
+            serving.start();
+
+            PriceService service = new PriceService();
+            LinkedBlockingQueue<Coin> prices = new LinkedBlockingQueue<>();
+            PriceListener listener = prices::add;
+            service.addListener(listener);
+            service.start(server.uri(), 0);
+            try {
+                assertEquals(Coin.valueOf(250_000), prices.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+                assertEquals(Coin.valueOf(265_625), prices.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+                assertEquals(2, service.getWindow().satsPerXmr().length);
+            } finally {
+                service.stop();
+            }
+        }
+    }
+
+    private interface Script {
+        void run(StandIn.Connection connection) throws IOException;
+    }
+
+    private static void serve(StandIn server, Script script) {
+        Thread serving = new Thread(() -> {
+            try (StandIn.Connection connection = server.accept()) {
+                connection.handshake(true);
+                script.run(connection);
+            } catch (IOException ignored) {
+            }
+        });
+        serving.setDaemon(true);
+        serving.start();
+    }
+
+    private static Thread connectInBackground(URI uri) {
+        Thread connecting = new Thread(() -> {
+            try (WebSocketClient ignored = WebSocketClient.connect(uri, 0, TIMEOUT_MILLIS)) {
+            } catch (IOException ignored) {
+            }
+        });
+        connecting.setDaemon(true);
+        connecting.start();
+        return connecting;
+    }
+
+    private static final class StandIn implements Closeable {
+        private final ServerSocket serverSocket;
+
+        StandIn() throws IOException {
+            serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            serverSocket.setSoTimeout(TIMEOUT_MILLIS);
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        URI uri() {
+            return URI.create("ws://127.0.0.1:" + port() + "/ws");
+        }
+
+        Connection accept() throws IOException {
+            return new Connection(serverSocket.accept());
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+
+        record Frame(int opcode, byte[] payload) {
+        }
+
+        static final class Connection implements Closeable {
+            private final Socket socket;
+            private final DataInputStream in;
+            private final OutputStream out;
+
+            Connection(Socket socket) throws IOException {
+                this.socket = socket;
+                socket.setSoTimeout(TIMEOUT_MILLIS);
+                this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                this.out = socket.getOutputStream();
+            }
+
+            // Reads the upgrade request and answers it, with a valid accept unless told otherwise
+            List<String> handshake(boolean validAccept) throws IOException {
+                List<String> request = new ArrayList<>();
+                String key = null;
+                for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+                    request.add(line);
+                    if (line.startsWith("Sec-WebSocket-Key: ")) key = line.substring("Sec-WebSocket-Key: ".length());
+                }
+                assertNotNull("no Sec-WebSocket-Key", key);
+                String accept = validAccept ? accept(key) : accept(key + "x");
+                out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                        + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                return request;
+            }
+
+            // Server frames are never masked
+            void send(boolean fin, int opcode, byte[] payload) throws IOException {
+                ByteArrayOutputStream frame = new ByteArrayOutputStream();
+                frame.write((fin ? 0x80 : 0) | opcode);
+                if (payload.length < 126) {
+                    frame.write(payload.length);
+                } else if (payload.length <= 0xFFFF) {
+                    frame.write(126);
+                    frame.write(payload.length >>> 8);
+                    frame.write(payload.length & 0xFF);
+                } else {
+                    frame.write(127);
+                    for (int shift = 56; shift >= 0; shift -= 8) frame.write((int) ((long) payload.length >>> shift) & 0xFF);
+                }
+                frame.write(payload);
+                out.write(frame.toByteArray());
+                out.flush();
+            }
+
+            // Client frames must be masked
+            Frame receive() throws IOException {
+                int first = in.readUnsignedByte();
+                int second = in.readUnsignedByte();
+                assertTrue("client frame not masked", (second & 0x80) != 0);
+                int length = second & 0x7F;
+                if (length == 126) length = in.readUnsignedShort();
+                byte[] mask = new byte[4];
+                in.readFully(mask);
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                for (int i = 0; i < payload.length; i++) payload[i] ^= mask[i % 4];
+                return new Frame(first & 0x0F, payload);
+            }
+
+            private String readLine() throws IOException {
+                StringBuilder line = new StringBuilder();
+                int b;
+                while ((b = in.read()) != '\n') {
+                    if (b < 0) throw new EOFException();
+                    if (b != '\r') line.append((char) b);
+                }
+                return line.toString();
+            }
+
+            private static String accept(String key) {
+                try {
+                    byte[] digest = MessageDigest.getInstance("SHA-1")
+                            .digest((key + "258EAFA5-E914-47DA-95CA-C5AB0DC85B11").getBytes(StandardCharsets.US_ASCII));
+                    return Base64.getEncoder().encodeToString(digest);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                socket.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package swap.timeseries;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SegmentTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final long INTERVAL = 60_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void varLongsRoundTrip() {
+        long[] values = {0, 1, -1, 63, -64, 64, -65, 300, -300, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 10);
+        for (long value : values) Segment.writeVarLong(buffer, value);
+        buffer.flip();
+        for (long value : values) assertEquals(value, Segment.readVarLong(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void regularPointsTakeTwoBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        Segment.writeVarLong(buffer, 0);
+        Segment.writeVarLong(buffer, -1);
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void readsAppendedPoints() throws IOException {
+        Segment segment = Segment.create(folder.newFile(), START);
+        for (int i = 0; i < 100; i++) assertTrue(segment.append(START + i * INTERVAL, value(i)));
+
+        assertEquals(100, segment.count());
+        assertEquals(START + 99 * INTERVAL, segment.lastTimestamp());
+        assertEquals(value(99), segment.lastValue());
+        assertPoints(read(segment), 0, 100);
+
+        Points.Builder window = new Points.Builder();
+        segment.read(START + 10 * INTERVAL, START + 19 * INTERVAL, window);
+        assertPoints(window.build(Integer.MAX_VALUE), 10, 20);
+    }
+
+    @Test
+    public void reopenedSegmentContinuesDeltas() throws IOException {
+        File file = folder.newFile();
+        Segment segment = Segment.create(file, START);
+        for (int i = 0; i < 10; i++) segment.append(START + i * INTERVAL, value(i));
+        segment.force();
+
+        Segment reopened = Segment.open(file, true);
+        assertEquals(10, reopened.count());
+        assertEquals(value(9), reopened.lastValue());
+        for (int i = 10; i < 20; i++) reopened.append(START + i * INTERVAL, value(i));
+        assertPoints(read(Segment.open(file, false)), 0, 20);
+    }
+
+    @Test
+    public void reopenDropsUncommittedPoint() throws IOException {
+        File file = folder.newFile();
+        Segment segment = Segment.create(file, START);
+        for (int i = 0; i < 10; i++) segment.append(START + i * INTERVAL, value(i));
+        segment.force();
+
+        // a crash after the point's bytes and END were written, before COUNT
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(8);
+            int end = raw.readInt();
+            raw.seek(end);
+            raw.write(new byte[]{0x7f, 0x7f});
+            raw.seek(8);
+            raw.writeInt(end + 2);
+            // and a stale decoder state
+            raw.seek(40);
+            raw.writeLong(-12345L);
+        }
+
+        Segment reopened = Segment.open(file, true);
+        assertEquals(10, reopened.count());
+        assertEquals(START + 9 * INTERVAL, reopened.lastTimestamp());
+        assertEquals(value(9), reopened.lastValue());
+        for (int i = 10; i < 20; i++) reopened.append(START + i * INTERVAL, value(i));
+        assertPoints(read(reopened), 0, 20);
+    }
+
+    @Test
+    public void appendFailsWhenFull() throws IOException {
+        Segment segment = Segment.create(folder.newFile(), START);
+        int appended = 0;
+        // random values take the widest varints
+        Random random = new Random(1);
+        while (segment.append(START + appended * INTERVAL, random.nextLong())) appended++;
+        assertEquals(appended, segment.count());
+        assertTrue(appended > 0);
+    }
+
+    private static long value(int i) {
+        // mostly unchanged, with a step every 7 points
+        return 1_000_000L + (i / 7) * 2_500L;
+    }
+
+    private static Points read(Segment segment) {
+        Points.Builder points = new Points.Builder();
+        segment.read(Long.MIN_VALUE, Long.MAX_VALUE, points);
+        return points.build(Integer.MAX_VALUE);
+    }
+
+    private static void assertPoints(Points points, int from, int to) {
+        assertEquals(to - from, points.size());
+        for (int i = from; i < to; i++) {
+            assertEquals(START + i * INTERVAL, points.timestamps()[i - from]);
+            assertEquals(value(i), points.values()[i - from]);
+        }
+    }
+}
@@ -1,13 +1,14 @@
 
 use std::str::FromStr;
 use std::sync::Arc;
+use std::time::Instant;
 
 
 use bdk::blockchain::Blockchain;
 
 use jni::JNIEnv;
-use jni::objects::JClass;
-use jni::sys::jstring;
+use jni::objects::{JByteBuffer, JClass};
+use jni::sys::jint;
 use libp2p::Multiaddr;
 use monero::Address;
 use swap::{cli, fs, util};
@@ -19,25 +20,25 @@ use swap::network::quote::{SwapDisconnected, ZeroQuoteReceived};
 use swap::network::rendezvous::XmrBtcNamespace;
 use swap::network::swarm;
 use swap::protocol::bob::{BobState, Swap};
-use swap::seed::Seed;
 use swap::swap_error::{ErrorType, SwapError};
 
 use url::Url;
 use uuid::Uuid;
 
-use crate::{wallet};
+use crate::{codec, peer_book, session, wallet};
 use crate::model::swap_request::SwapRequest;
 
+// swap.lib.SellerWarmer.STATE_SELLER_QUOTE, from starting the swarm to the seller's quote
+const SELLER_QUOTE_STATE: &str = "SellerQuote";
+
 #[tokio::main]
 #[no_mangle]
 #[warn(unused_variables)]
 pub async extern "system" fn Java_swap_client_ClientSwap_buyXmr(env: JNIEnv, _class: JClass,
-                                                                swap_request_json: jstring) {
-    let swap_request_json_string = util::get_string_value(&env, swap_request_json).unwrap();
-    let swap_request: SwapRequest = serde_json::from_str(swap_request_json_string.as_str()).expect("Badly formatted JSON!");
+                                                                swap_request: JByteBuffer, length: jint) {
+    let swap_request: SwapRequest = codec::decode_request(&env, swap_request, length).expect("Failed to decode swap request");
 
     /* Initialize variables */
-    let base64_seed = swap_request.seed_base64;
     let bitcoin_electrum_rpc_url = Url::from_str(swap_request.electrum_url.as_str()).expect("Failed to parse Electrum URL");
     let monero_receive_address = Address::from_str(swap_request.xmr_receive_address.as_str()).expect("Failed to parse Monero address");
     let seller = Multiaddr::from_str(swap_request.libp2p_peer_address.as_str()).expect("Failed to parse libp2p Multiaddr address");
@@ -68,15 +69,24 @@ pub async extern "system" fn Java_swap_client_ClientSwap_buyXmr(env: JNIEnv, _cl
             return
         }
     };
-    let mut seed_bytes = [0u8; 64];
-    seed_bytes.copy_from_slice(base64::decode(base64_seed).expect("Failed to decode base64 seed").as_slice());
-    let seed = Seed::from(seed_bytes);
     let swap_uuid = Uuid::from_str(swap_request.uuid.as_str()).expect("Failed to get UUID");
+    let session = match session::get(swap_request.session) {
+        Ok(session) => session,
+        Err(error) => {
+            let swap_error = SwapError {
+                swap_id: swap_uuid.to_string(),
+                error_type: ErrorType::SessionClosed,
+                error_message: format!("{:#}", error),
+                fatal: true
+            };
+            util::on_swap_error(&env, swap_error);
+            return;
+        }
+    };
 
-    let tmp_data_dir = data_dir.join("tmp");
-    let tmp_deposit_folder = tmp_data_dir.join(format!(".tmp_deposit_{}", swap_uuid.to_string()));
+    wallet::gc_swap_wallets(&data_dir, db.as_ref(), swap_uuid).await;
     util::print_swap_log_ln(&env, "[SWAP CLIENT] Setting up Bitcoin wallet...".to_string());
-    let bitcoin_wallet = match wallet::init_bitcoin_wallet(bitcoin_electrum_rpc_url.clone(), swap_request.proxy.as_str(), &seed, tmp_deposit_folder, env_config)
+    let bitcoin_wallet = match wallet::init_swap_bitcoin_wallet(bitcoin_electrum_rpc_url.clone(), swap_request.proxy.as_str(), session.bitcoin_xprivkey, &data_dir, swap_uuid, env_config)
         .await
     {
         Ok(val) => val,
@@ -103,8 +113,7 @@ pub async extern "system" fn Java_swap_client_ClientSwap_buyXmr(env: JNIEnv, _cl
     }
     util::print_swap_log_ln(&env, "[SWAP CLIENT] Initialized Bitcoin wallet".to_string());
     util::print_swap_log_ln(&env, "[SWAP CLIENT] Setting up Monero wallet...".to_string());
-    let xmr_wallet_name = format!("{}-monitoring-wallet", swap_uuid.to_string());
-    let monero_wallet = match wallet::init_monero_wallet(swap_request.xmr_rpc_endpoint, env_config, xmr_wallet_name.as_str()).await {
+    let monero_wallet = match wallet::init_monitoring_wallet(swap_request.xmr_rpc_endpoint, env_config, &session, swap_uuid).await {
         Ok(val) => val,
         Err(err) => {
             let swap_error = SwapError {
@@ -132,15 +141,25 @@ pub async extern "system" fn Java_swap_client_ClientSwap_buyXmr(env: JNIEnv, _cl
 
     let seller_peer_id = seller.extract_peer_id().expect("Seller address must contain peer ID");
     db.insert_address(seller_peer_id, seller.clone()).await.expect("Failure to insert address into DB");
+    // other addresses the seller was reachable at, in case the given one went stale
+    let known_addresses = peer_book::with(namespace, |book| {
+        book.add_addresses(&seller_peer_id, std::iter::once(&seller));
+        book.addresses(&seller_peer_id)
+    });
 
     let behaviour = cli::Behaviour::new(
         seller_peer_id,
         env_config,
         bitcoin_wallet.clone(),
-        (seed.derive_libp2p_identity(), namespace),
+        (session.libp2p_identity.clone(), namespace),
     );
-    let mut swarm = swarm::cli(seed.derive_libp2p_identity(), swap_request.proxy_port, behaviour).await.expect("Failed to start swarm");
+    // the event loop dials the seller for the quote, timed so a circuit kept open by SellerWarmer shows up
+    let quote_started = Instant::now();
+    let mut swarm = swarm::cli(session.libp2p_identity.clone(), swap_request.proxy_port, behaviour).await.expect("Failed to start swarm");
     swarm.behaviour_mut().add_address(seller_peer_id, seller.clone());
+    for address in known_addresses.into_iter().filter(|address| *address != peer_book::without_p2p(&seller)) {
+        swarm.behaviour_mut().add_address(seller_peer_id, address);
+    }
 
     let (event_loop, mut event_loop_handle) =
         EventLoop::new(swap_uuid, swarm, seller_peer_id).expect("Failed to create EventLoop");
@@ -150,12 +169,33 @@ pub async extern "system" fn Java_swap_client_ClientSwap_buyXmr(env: JNIEnv, _cl
 
     let (amount, _fees) = match util::determine_btc_to_swap(
         swap_uuid,
-        event_loop_handle.request_quote(),
+        async {
+            let bid_quote = event_loop_handle.request_quote().await;
+            let elapsed = quote_started.elapsed();
+            util::on_swap_state_timing(&env, swap_uuid.to_string(), SELLER_QUOTE_STATE, elapsed);
+            // a swap stopped by the user while waiting for the quote says nothing about the seller
+            let cancelled = bid_quote.is_err() && !util::get_running_swap(&env);
+            peer_book::with(namespace, |book| {
+                let now_ms = peer_book::now_ms();
+                match &bid_quote {
+                    Ok(quote) => {
+                        // the event loop does not tell which address connected, nor the dial time apart from the quote
+                        book.record_dial_success(&seller_peer_id, None, None, now_ms);
+                        book.record_quote(&seller_peer_id, *quote, elapsed, now_ms);
+                    }
+                    Err(_) if cancelled => {}
+                    Err(_) => book.record_dial_failure(&seller_peer_id, now_ms),
+                }
+                book.save();
+            });
+            bid_quote
+        },
         bitcoin_wallet.new_address(),
         || bitcoin_wallet.balance(),
         max_givable,
         || bitcoin_wallet.sync(),
         estimate_fee,
+        |script| bitcoin_wallet.subscribe_to_script(script),
         &env,
     )
         .await
@@ -0,0 +1,172 @@
+use anyhow::{bail, Context};
+use jni::JNIEnv;
+use jni::objects::JByteBuffer;
+use jni::sys::{jbyteArray, jint};
+use serde::de::DeserializeOwned;
+use serde::Serialize;
+
+// Requests arrive as CBOR in a direct ByteBuffer written by swap.codec.CborWriter, read in place without copying into a String.
+pub(crate) fn decode_request<T: DeserializeOwned>(env: &JNIEnv, request: JByteBuffer, length: jint) -> anyhow::Result<T> {
+    let buffer = env.get_direct_buffer_address(request).context("Request is not a direct ByteBuffer")?;
+    if length < 0 || length as usize > buffer.len() {
+        bail!("Request length {} out of bounds", length);
+    }
+    from_slice(&buffer[..length as usize])
+}
+
+// Responses go back as a byte[] read by swap.codec.CborReader
+pub(crate) fn encode_response<T: Serialize>(env: &JNIEnv, response: &T) -> jbyteArray {
+    let bytes = serde_cbor::to_vec(response).expect("Failed to encode response");
+    env.byte_array_from_slice(bytes.as_slice()).expect("Failed to create response byte array")
+}
+
+// A request that can not be decoded is thrown as IllegalArgumentException, the returned null is never read
+pub(crate) fn throw_bad_request(env: &JNIEnv, error: anyhow::Error) -> jbyteArray {
+    if let Err(throw_error) = env.throw_new("java/lang/IllegalArgumentException", format!("{:#}", error)) {
+        println!("Failed to throw bad request error {:#}: {}", error, throw_error);
+    }
+    std::ptr::null_mut()
+}
+
+pub(crate) fn seed_bytes(seed: &[u8]) -> [u8; 64] {
+    let mut seed_bytes = [0u8; 64];
+    if seed.len() != seed_bytes.len() {
+        panic!("Seed must be 64 bytes, got {}", seed.len());
+    }
+    seed_bytes.copy_from_slice(seed);
+    seed_bytes
+}
+
+fn from_slice<T: DeserializeOwned>(bytes: &[u8]) -> anyhow::Result<T> {
+    serde_cbor::from_slice(bytes).context("Badly formatted CBOR request")
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use crate::model::get_history_request::GetHistoryRequest;
+    use crate::model::get_history_response::GetHistoryResponse;
+    use crate::model::list_sellers_request::ListSellersRequest;
+    use crate::model::list_sellers_result::ListSellersResult;
+    use crate::model::resume_request::ResumeRequest;
+    use crate::model::seller_data::{SellerData, Status};
+    use crate::model::swap_request::SwapRequest;
+    use crate::model::swap_data::SwapData;
+
+    // Shared with swap.codec.CborFixturesTest, which checks that CborWriter produces the request fixtures and
+    // CborReader decodes the response fixtures
+    const FIXTURES: &str = include_str!("../app/src/test/resources/swap/codec/cbor-fixtures.txt");
+
+    fn fixture(name: &str) -> Vec<u8> {
+        let hex = FIXTURES
+            .lines()
+            .filter(|line| !line.starts_with('#'))
+            .find_map(|line| line.strip_prefix(name)?.strip_prefix(' '))
+            .unwrap_or_else(|| panic!("No fixture {}", name));
+        hex::decode(hex.trim()).unwrap()
+    }
+
+    #[test]
+    fn decodes_list_sellers_request_from_java() {
+        let request: ListSellersRequest = from_slice(&fixture("list_sellers_request")).unwrap();
+        assert_eq!(request.session, 1i64 << 32);
+        assert_eq!(request.proxy_port, 9050);
+        assert_eq!(request.libp2p_rendezvous_address, "/dns4/rendezvous.example.org/tcp/8888");
+        assert!(request.testnet);
+    }
+
+    #[test]
+    fn decodes_get_history_request_from_java() {
+        let request: GetHistoryRequest = from_slice(&fixture("get_history_request")).unwrap();
+        assert!(!request.testnet);
+        assert_eq!(request.offset, 0);
+        assert!(request.limit.is_none());
+        assert!(request.statuses.is_empty());
+    }
+
+    #[test]
+    fn decodes_get_history_page_request_from_java() {
+        let request: GetHistoryRequest = from_slice(&fixture("get_history_page_request")).unwrap();
+        assert_eq!(request.offset, 100);
+        assert_eq!(request.limit, Some(50));
+        assert_eq!(request.statuses, vec!["REFUNDED".to_string()]);
+    }
+
+    #[test]
+    fn rejects_truncated_request() {
+        let bytes = fixture("list_sellers_request");
+        assert!(from_slice::<ListSellersRequest>(&bytes[..bytes.len() - 1]).is_err());
+    }
+
+    #[test]
+    #[should_panic]
+    fn rejects_short_seed() {
+        seed_bytes(&[0u8; 32]);
+    }
+
+    #[test]
+    fn decodes_swap_request_from_java() {
+        let request: SwapRequest = from_slice(&fixture("swap_request")).unwrap();
+        assert_eq!(request.uuid, "7d6c2bb4-8f2a-4a55-9a6b-2f1d5b0c9e11");
+        assert_eq!(request.session, 7);
+        assert_eq!(request.xmr_rpc_endpoint, "http://127.0.0.1:18083/json_rpc");
+        assert!(!request.testnet);
+        assert_eq!(request.proxy_port, 9050);
+        assert_eq!(request.swaps_account, 2147483646);
+    }
+
+    #[test]
+    fn decodes_resume_request_from_java() {
+        let request: ResumeRequest = from_slice(&fixture("resume_request")).unwrap();
+        assert_eq!(request.swap_id, "7d6c2bb4-8f2a-4a55-9a6b-2f1d5b0c9e11");
+        assert_eq!(request.electrum_url, "ssl://electrum.example.org:50002");
+        assert!(request.testnet);
+        assert_eq!(request.swaps_account, 2147483646);
+    }
+
+    #[test]
+    fn encodes_get_history_response_as_java_expects() {
+        let response = GetHistoryResponse {
+            swaps: vec![SwapData {
+                swap_id: "abc".to_string(),
+                status: "REFUNDED".to_string(),
+                btc_lock_txid: None,
+                btc_refund_txid: Some("def".to_string()),
+                xmr_lock_txid: None,
+                xmr_redeem_txid: None,
+            }],
+            total: 1,
+            status_counts: [("COMPLETED".to_string(), 3), ("REFUNDED".to_string(), 1)].into_iter().collect(),
+        };
+        assert_eq!(serde_cbor::to_vec(&response).unwrap(), fixture("get_history_response"));
+    }
+
+    #[test]
+    fn encodes_list_sellers_result_as_java_expects() {
+        let result = ListSellersResult {
+            sellers: vec![
+                SellerData {
+                    multiaddr: "/ip4/10.0.0.1/tcp/9939/p2p/12D3KooWCEHzcGWnrYbVUFgZ9Ab3dJiQZaqWrxHfgKZiydKC86YY".to_string(),
+                    status: Status {
+                        offline: false,
+                        price: "0.00652".to_string(),
+                        min_quantity: "0.001".to_string(),
+                        max_quantity: "0.5".to_string(),
+                    },
+                    quote_latency_ms: 1500,
+                },
+                SellerData {
+                    multiaddr: "/ip4/10.0.0.2/tcp/9939".to_string(),
+                    status: Status {
+                        offline: true,
+                        price: "".to_string(),
+                        min_quantity: "".to_string(),
+                        max_quantity: "".to_string(),
+                    },
+                    quote_latency_ms: 0,
+                },
+            ],
+        };
+        assert_eq!(serde_cbor::to_vec(&result).unwrap(), fixture("list_sellers_result"));
+    }
+}
@@ -0,0 +1,45 @@
+use std::collections::BTreeMap;
+
+use jni::JNIEnv;
+use jni::objects::{JClass, JString};
+use jni::sys::{jboolean, jint, jintArray, jlong, jlongArray};
+use swap::bitcoin::fee_oracle::FEE_ORACLE;
+use swap::env::{GetConfig, Mainnet, Testnet};
+
+// Java side of the process-wide fee oracle, see swap.lib.FeeOracle
+
+fn network(testnet: jboolean) -> bdk::bitcoin::Network {
+    if testnet != 0 { Testnet::get_config().bitcoin_network } else { Mainnet::get_config().bitcoin_network }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_swap_lib_FeeOracle_feeRate(_env: JNIEnv, _class: JClass, testnet: jboolean, target_blocks: jint) -> jlong {
+    if target_blocks <= 0 {
+        return -1;
+    }
+    match FEE_ORACLE.fee_rate(network(testnet), target_blocks as usize) {
+        Ok(fee_rate) => fee_rate.as_sat_per_vb().ceil() as jlong,
+        Err(error) => {
+            println!("[FeeOracle] {:#}", error);
+            -1
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_swap_lib_FeeOracle_report(env: JNIEnv, _class: JClass, source: JString, testnet: jboolean, target_blocks: jintArray, sat_per_vb: jlongArray) {
+    let source: String = env.get_string(source).expect("Failed to read fee source").into();
+    let length = env.get_array_length(target_blocks).expect("Failed to read target blocks") as usize;
+    let mut targets = vec![0 as jint; length];
+    let mut rates = vec![0 as jlong; length];
+    env.get_int_array_region(target_blocks, 0, &mut targets).expect("Failed to read target blocks");
+    env.get_long_array_region(sat_per_vb, 0, &mut rates).expect("Failed to read fee rates");
+
+    let estimates = targets
+        .into_iter()
+        .zip(rates)
+        .filter(|(target, rate)| *target > 0 && *rate > 0)
+        .map(|(target, rate)| (target as usize, rate as f32))
+        .collect::<BTreeMap<_, _>>();
+    FEE_ORACLE.report(network(testnet), source.as_str(), estimates);
+}
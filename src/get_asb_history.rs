@@ -2,23 +2,47 @@
 use itertools::Itertools;
 
 use jni::JNIEnv;
-use jni::objects::JClass;
-use jni::sys::jstring;
+use jni::objects::{JByteBuffer, JClass};
+use jni::sys::{jbyteArray, jint};
 use swap::env::{GetConfig, Mainnet, Testnet};
-use swap::{fs, util};
+use swap::fs;
 use swap::network::rendezvous::XmrBtcNamespace;
 use swap::protocol::State;
+use crate::codec;
 use crate::model::swap_data::SwapData;
 use crate::model::get_history_request::GetHistoryRequest;
 use crate::model::get_history_response::GetHistoryResponse;
+use crate::get_history::{load_history, INVALID_STATE};
+
+// Database state names to the AliceState display strings used as statuses
+const ALICE_STATUSES: [(&str, &str); 16] = [
+    ("Alice.Started", "started"),
+    ("Alice.BtcLockTransactionSeen", "bitcoin lock transaction in mempool"),
+    ("Alice.BtcLocked", "btc is locked"),
+    ("Alice.XmrLockTransactionSent", "xmr lock transaction sent"),
+    ("Alice.XmrLocked", "xmr is locked"),
+    ("Alice.XmrLockTransferProofSent", "xmr lock transfer proof sent"),
+    ("Alice.EncSigLearned", "encrypted signature is learned"),
+    ("Alice.BtcRedeemTransactionPublished", "bitcoin redeem transaction published"),
+    ("Alice.BtcRedeemed", "btc is redeemed"),
+    ("Alice.CancelTimelockExpired", "cancel timelock is expired"),
+    ("Alice.BtcCancelled", "btc is cancelled"),
+    ("Alice.BtcPunishable", "btc is punishable"),
+    ("Alice.BtcRefunded", "btc is refunded"),
+    ("Alice.XmrRefunded", "xmr is refunded"),
+    ("Alice.BtcPunished", "btc is punished"),
+    ("Alice.SafelyAborted", "safely aborted"),
+];
 
 #[tokio::main]
 #[no_mangle]
 #[warn(unused_variables)]
 pub async extern "system" fn Java_swap_lib_AppAsb_getHistory(env: JNIEnv, _class: JClass,
-                                                                 get_history_request_json: jstring) -> jstring {
-    let get_history_request_json_string = util::get_string_value(&env, get_history_request_json).unwrap();
-    let get_history_request: GetHistoryRequest = serde_json::from_str(get_history_request_json_string.as_str()).expect("Badly formatted JSON!");
+                                                                 get_history_request: JByteBuffer, length: jint) -> jbyteArray {
+    let get_history_request: GetHistoryRequest = match codec::decode_request(&env, get_history_request, length) {
+        Ok(request) => request,
+        Err(error) => return codec::throw_bad_request(&env, error.context("Failed to decode get history request")),
+    };
 
     /* Initialize variables */
     let env_config;
@@ -37,7 +61,8 @@ pub async extern "system" fn Java_swap_lib_AppAsb_getHistory(env: JNIEnv, _class
     let data_dir = data_dir.join(if get_history_request.testnet { "testnet" } else { "mainnet" });
     let db = swap::database::open_db(data_dir.join("sqlite")).await.expect("Failure to get db");
 
-    let swaps = db.all().await.expect("Failed to get swaps from db");
+    // most recently updated first
+    let (swaps, total, status_counts) = load_history(db.as_ref(), &get_history_request, &ALICE_STATUSES).await;
     let swaps_final = swaps.iter().map(|(swap_id, state)|
         match state {
             State::Alice(stateAlice) => {
@@ -53,7 +78,7 @@ pub async extern "system" fn Java_swap_lib_AppAsb_getHistory(env: JNIEnv, _class
             State::Bob(_) => {
                 SwapData {
                     swap_id: swap_id.to_string(),
-                    status: "INVALID_STATE".to_string(),
+                    status: INVALID_STATE.to_string(),
                     btc_lock_txid: None,
                     btc_refund_txid: None,
                     xmr_lock_txid: None,
@@ -61,11 +86,11 @@ pub async extern "system" fn Java_swap_lib_AppAsb_getHistory(env: JNIEnv, _class
                 }
             }
         }
-    ).rev().collect();
+    ).collect();
     let result = GetHistoryResponse {
-        swaps: swaps_final
+        swaps: swaps_final,
+        total,
+        status_counts
     };
-    let response_json = serde_json::to_string(&result).unwrap();
-
-    env.new_string(response_json).expect("Failed to get history response JSON").into_inner()
+    codec::encode_response(&env, &result)
 }
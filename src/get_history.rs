@@ -1,24 +1,79 @@
-use std::collections::HashMap;
+use std::collections::BTreeMap;
+
 use jni::JNIEnv;
-use jni::objects::JClass;
-use jni::sys::jstring;
+use jni::objects::{JByteBuffer, JClass};
+use jni::sys::{jbyteArray, jint};
 use swap::env::{GetConfig, Mainnet, Testnet};
-use swap::{fs, util};
+use swap::fs;
 use swap::network::rendezvous::XmrBtcNamespace;
 use swap::protocol::bob::{BobState};
-use swap::protocol::State;
+use swap::protocol::{Database, State};
+use uuid::Uuid;
 
+use crate::codec;
 use crate::model::swap_data::SwapData;
 use crate::model::get_history_request::GetHistoryRequest;
 use crate::model::get_history_response::GetHistoryResponse;
 
+// Database state names (see latest_swap_states in the swap migrations) to the statuses built below
+const BOB_STATUSES: [(&str, &str); 13] = [
+    ("Bob.Started", "STARTED"),
+    ("Bob.ExecutionSetupDone", "SETUP_COMPLETE"),
+    ("Bob.BtcLocked", "BTC_LOCKED"),
+    ("Bob.XmrLockProofReceived", "XMR_LOCK_PROOF_RECEIVED"),
+    ("Bob.XmrLocked", "XMR_LOCKED"),
+    ("Bob.EncSigSent", "ENC_SIG_SENT"),
+    ("Bob.BtcRedeemed", "BTC_REDEEMED"),
+    ("Bob.CancelTimelockExpired", "CANCEL_TIMELOCK_EXPIRED"),
+    ("Bob.BtcCancelled", "CANCELLED"),
+    ("Bob.BtcRefunded", "REFUNDED"),
+    ("Bob.BtcPunished", "PUNISHED"),
+    ("Bob.SafelyAborted", "SAFELY_ABORTED"),
+    ("Bob.XmrRedeemed", "XMR_REDEEMED"),
+];
+
+pub(crate) const INVALID_STATE: &str = "INVALID_STATE";
+
+// One page of the history plus the per-status counts, counted by the database instead of loading every swap
+pub(crate) async fn load_history(db: &(dyn Database + Send + Sync), request: &GetHistoryRequest, statuses: &[(&str, &str)])
+    -> (Vec<(Uuid, State)>, u64, BTreeMap<String, u64>) {
+    let status_of = |state_name: &str| statuses.iter()
+        .find(|(name, _)| *name == state_name)
+        .map(|(_, status)| *status)
+        .unwrap_or(INVALID_STATE);
+
+    let mut status_counts = BTreeMap::new();
+    let mut total = 0;
+    let mut state_names = vec![];
+    for (state_name, count) in db.count_by_state().await.expect("Failed to count swaps in db") {
+        let status = status_of(&state_name);
+        *status_counts.entry(status.to_string()).or_insert(0) += count;
+        if request.statuses.is_empty() || request.statuses.iter().any(|filter| filter == status) {
+            total += count;
+            state_names.push(state_name);
+        }
+    }
+
+    if !request.statuses.is_empty() && state_names.is_empty() {
+        return (vec![], 0, status_counts);
+    }
+    // the filter is only needed in SQL when it excludes something
+    if request.statuses.is_empty() {
+        state_names.clear();
+    }
+    let swaps = db.latest_states(&state_names, request.offset, request.limit).await.expect("Failed to get swaps from db");
+    (swaps, total, status_counts)
+}
+
 #[tokio::main]
 #[no_mangle]
 #[warn(unused_variables)]
 pub async extern "system" fn Java_swap_lib_AppSwap_getHistory(env: JNIEnv, _class: JClass,
-                                                                 get_history_request_json: jstring) -> jstring {
-    let get_history_request_json_string = util::get_string_value(&env, get_history_request_json).unwrap();
-    let get_history_request: GetHistoryRequest = serde_json::from_str(get_history_request_json_string.as_str()).expect("Badly formatted JSON!");
+                                                                 get_history_request: JByteBuffer, length: jint) -> jbyteArray {
+    let get_history_request: GetHistoryRequest = match codec::decode_request(&env, get_history_request, length) {
+        Ok(request) => request,
+        Err(error) => return codec::throw_bad_request(&env, error.context("Failed to decode get history request")),
+    };
 
     /* Initialize variables */
     let env_config;
@@ -35,17 +90,9 @@ pub async extern "system" fn Java_swap_lib_AppSwap_getHistory(env: JNIEnv, _clas
     let data_dir = fs::system_data_dir().expect("Failure to get path");
     let db = swap::database::open_db(data_dir.join("sqlite")).await.expect("Failure to get db");
 
-    let swaps = db.all().await.expect("Failed to get swaps from db");
-    let mut swap_multiaddrs = HashMap::new();
-
-    for swap in &swaps {
-        let seller_peer_id = db.get_peer_id(swap.0).await.unwrap();
-        let multiaddrs = db.get_addresses(seller_peer_id).await.unwrap();
-        let first_multiaddr = multiaddrs.get(0).unwrap();
-        swap_multiaddrs.insert(swap.0, first_multiaddr.to_string());
-    }
+    // most recently updated first
+    let (swaps, total, status_counts) = load_history(db.as_ref(), &get_history_request, &BOB_STATUSES).await;
     let swaps_final = swaps.iter().map(|(swap_id, state)| {
-        let multiaddr = swap_multiaddrs.get(swap_id);
         match state {
             State::Bob(BobState::Started {
                            btc_amount: _,
@@ -193,7 +240,7 @@ pub async extern "system" fn Java_swap_lib_AppSwap_getHistory(env: JNIEnv, _clas
             State::Alice(_) => {
                 SwapData {
                     swap_id: swap_id.to_string(),
-                    status: "INVALID_STATE".to_string(),
+                    status: INVALID_STATE.to_string(),
                     btc_lock_txid: None,
                     btc_refund_txid: None,
                     xmr_lock_txid: None,
@@ -201,11 +248,11 @@ pub async extern "system" fn Java_swap_lib_AppSwap_getHistory(env: JNIEnv, _clas
                 }
             }
         }
-    }).rev().collect();
+    }).collect();
     let result = GetHistoryResponse {
-        swaps: swaps_final
+        swaps: swaps_final,
+        total,
+        status_counts
     };
-    let response_json = serde_json::to_string(&result).unwrap();
-
-    env.new_string(response_json).expect("Failed to get history response JSON").into_inner()
+    codec::encode_response(&env, &result)
 }
@@ -11,23 +11,81 @@ use libp2p::swarm::SwarmEvent;
 use libp2p::{identity, rendezvous, Multiaddr, PeerId, Swarm};
 use serde::Serialize;
 use serde_with::{serde_as, DisplayFromStr};
-use std::collections::hash_map::Entry;
 use std::collections::HashMap;
-use std::time::Duration;
+use std::time::{Duration, Instant};
 
+use crate::peer_book;
+use crate::peer_book::PeerBook;
+
+/// How often deadlines and cancellation are checked.
+const TICK: Duration = Duration::from_millis(500);
+
+/// Receives every seller as soon as its [Status] is known, instead of once all
+/// discovered sellers have quoted or failed.
+pub trait SellerSink {
+    fn on_seller(&mut self, seller: &Seller);
+
+    /// Polled every [TICK], once true the sellers known so far are returned.
+    fn is_cancelled(&mut self) -> bool;
+}
+
+impl SellerSink for () {
+    fn on_seller(&mut self, _seller: &Seller) {}
+
+    fn is_cancelled(&mut self) -> bool {
+        false
+    }
+}
+
+/// Per seller limits, a seller that misses one is reported as
+/// [Unreachable](Status::Unreachable) so a single slow onion service does not
+/// hold back the whole rendezvous result.
+#[derive(Debug, Clone, Copy, PartialEq)]
+pub struct Deadlines {
+    /// From requesting the quote until connected to the seller.
+    pub dial: Duration,
+    /// From connected until the quote arrives.
+    pub quote: Duration,
+}
+
+impl Deadlines {
+    pub fn for_proxy_port(tor_socks5_port: u16) -> Self {
+        if tor_socks5_port == 0 {
+            Self {
+                dial: Duration::from_secs(10),
+                quote: Duration::from_secs(10),
+            }
+        } else {
+            Self {
+                dial: Duration::from_secs(60),
+                quote: Duration::from_secs(30),
+            }
+        }
+    }
+
+    /// Rendezvous dial plus discovery, after that nothing was found.
+    fn discovery(&self) -> Duration {
+        self.dial + self.quote
+    }
+}
 
 /// Returns sorted list of sellers, with [Online](Status::Online) listed first.
 ///
 /// First uses the rendezvous node to discover peers in the given namespace,
-/// then fetches a quote from each peer that was discovered. If fetching a quote
-/// from a discovered peer fails the seller's status will be
-/// [Unreachable](Status::Unreachable).
+/// then fetches a quote from each peer that was discovered, in the order the
+/// [peer book](peer_book) ranks them, skipping peers whose recent dials failed.
+/// Dial outcomes and quotes are recorded in the peer book. If fetching a quote
+/// from a discovered peer fails or misses its [Deadlines] the seller's status
+/// will be [Unreachable](Status::Unreachable). Each seller is passed to the
+/// sink as soon as its status is known, if the sink cancels the sellers known
+/// so far are returned.
 pub async fn internal_list_sellers(
     rendezvous_node_peer_id: PeerId,
     rendezvous_node_addr: Multiaddr,
     namespace: XmrBtcNamespace,
     tor_socks5_port: u16,
     identity: identity::Keypair,
+    sink: &mut impl SellerSink,
 ) -> Result<Vec<Seller>> {
     let behaviour = Behaviour {
         rendezvous: rendezvous::client::Behaviour::new(identity.clone()),
@@ -54,8 +112,10 @@ pub async fn internal_list_sellers(
         rendezvous_node_peer_id,
         rendezvous_node_addr,
         namespace,
+        Deadlines::for_proxy_port(tor_socks5_port),
     );
-    let sellers = event_loop.run(tor_socks5_port).await;
+    let sellers = event_loop.run(tor_socks5_port, sink).await;
+    peer_book::with(namespace, PeerBook::save);
 
     Ok(sellers)
 }
@@ -66,6 +126,8 @@ pub struct Seller {
     pub status: Status,
     #[serde_as(as = "DisplayFromStr")]
     pub multiaddr: Multiaddr,
+    /// Time from sending the quote request to receiving the quote, 0 if unreachable.
+    pub quote_latency_ms: u64,
 }
 
 #[derive(Debug, Serialize, PartialEq, Eq, Hash, Copy, Clone, Ord, PartialOrd)]
@@ -102,12 +164,42 @@ struct Behaviour {
     ping: Ping,
 }
 
-#[derive(Debug)]
+#[derive(Debug, Clone, Copy, PartialEq)]
 enum QuoteStatus {
-    Pending,
+    Pending {
+        requested_at: Instant,
+        connected_at: Option<Instant>,
+    },
     Received(Status),
 }
 
+impl QuoteStatus {
+    fn pending(requested_at: Instant) -> Self {
+        QuoteStatus::Pending {
+            requested_at,
+            connected_at: None,
+        }
+    }
+
+    fn is_pending(&self) -> bool {
+        matches!(self, QuoteStatus::Pending { .. })
+    }
+
+    fn has_expired(&self, deadlines: &Deadlines, now: Instant) -> bool {
+        match self {
+            QuoteStatus::Pending {
+                requested_at,
+                connected_at: None,
+            } => now.saturating_duration_since(*requested_at) > deadlines.dial,
+            QuoteStatus::Pending {
+                connected_at: Some(connected_at),
+                ..
+            } => now.saturating_duration_since(*connected_at) > deadlines.quote,
+            QuoteStatus::Received(_) => false,
+        }
+    }
+}
+
 #[derive(Debug)]
 enum State {
     WaitForDiscovery,
@@ -119,9 +211,13 @@ struct EventLoop {
     rendezvous_peer_id: PeerId,
     rendezvous_addr: Multiaddr,
     namespace: XmrBtcNamespace,
+    deadlines: Deadlines,
+    started_at: Instant,
     reachable_asb_address: HashMap<PeerId, Multiaddr>,
     unreachable_asb_address: HashMap<PeerId, Multiaddr>,
+    discovered_asb_address: HashMap<PeerId, Multiaddr>,
     asb_quote_status: HashMap<PeerId, QuoteStatus>,
+    quote_latency: HashMap<PeerId, Duration>,
     state: State,
 }
 
@@ -131,22 +227,48 @@ impl EventLoop {
         rendezvous_peer_id: PeerId,
         rendezvous_addr: Multiaddr,
         namespace: XmrBtcNamespace,
+        deadlines: Deadlines,
     ) -> Self {
         Self {
             swarm,
             rendezvous_peer_id,
             rendezvous_addr,
             namespace,
+            deadlines,
+            started_at: Instant::now(),
             reachable_asb_address: Default::default(),
             unreachable_asb_address: Default::default(),
+            discovered_asb_address: Default::default(),
             asb_quote_status: Default::default(),
+            quote_latency: Default::default(),
             state: State::WaitForDiscovery,
         }
     }
 
-    async fn run(mut self, proxy_port: u16) -> Vec<Seller> {
+    async fn run(mut self, proxy_port: u16, sink: &mut impl SellerSink) -> Vec<Seller> {
+        let mut tick = tokio::time::interval(TICK);
         loop {
             tokio::select! {
+                _ = tick.tick() => {
+                    if sink.is_cancelled() {
+                        tracing::debug!("Listing sellers cancelled");
+                        break self.sellers();
+                    }
+                    if matches!(self.state, State::WaitForDiscovery) && self.started_at.elapsed() > self.deadlines.discovery() {
+                        tracing::error!(%self.rendezvous_addr, "No sellers discovered within {:?}", self.deadlines.discovery());
+                        break Vec::new();
+                    }
+                    let now = Instant::now();
+                    for peer_id in expired(&self.asb_quote_status, &self.deadlines, now) {
+                        tracing::debug!(%peer_id, "Seller missed its deadline");
+                        if matches!(self.asb_quote_status.get(&peer_id), Some(QuoteStatus::Pending { connected_at: None, .. })) {
+                            peer_book::with(self.namespace, |book| book.record_dial_failure(&peer_id, peer_book::now_ms()));
+                        }
+                        let address = self.discovered_asb_address.get(&peer_id).cloned().unwrap_or_else(Multiaddr::empty);
+                        self.unreachable_asb_address.entry(peer_id).or_insert(address);
+                        self.resolve(peer_id, Status::Unreachable, sink);
+                    }
+                }
                 swarm_event = self.swarm.select_next_some() => {
                     match swarm_event {
                         SwarmEvent::ConnectionEstablished { peer_id, endpoint, .. } => {
@@ -166,6 +288,13 @@ impl EventLoop {
                                 let address = endpoint.get_remote_address();
                                 tracing::debug!(%peer_id, %address, "Connection established to peer");
                                 self.reachable_asb_address.insert(peer_id, address.clone());
+
+                                // the quote deadline starts once connected
+                                if let Some(QuoteStatus::Pending { requested_at, connected_at: connected_at @ None }) = self.asb_quote_status.get_mut(&peer_id) {
+                                    *connected_at = Some(Instant::now());
+                                    let dial_time = requested_at.elapsed();
+                                    peer_book::with(self.namespace, |book| book.record_dial_success(&peer_id, Some(address), Some(dial_time), peer_book::now_ms()));
+                                }
                             }
                         }
                         SwarmEvent::OutgoingConnectionError { peer_id, error } => {
@@ -188,11 +317,13 @@ impl EventLoop {
                                     );
                                     self.unreachable_asb_address.insert(peer_id, Multiaddr::empty());
 
-                                    match self.asb_quote_status.entry(peer_id) {
-                                        Entry::Occupied(mut entry) => {
-                                            entry.insert(QuoteStatus::Received(Status::Unreachable));
+                                    match self.asb_quote_status.get(&peer_id).map(QuoteStatus::is_pending) {
+                                        Some(true) => {
+                                            peer_book::with(self.namespace, |book| book.record_dial_failure(&peer_id, peer_book::now_ms()));
+                                            self.resolve(peer_id, Status::Unreachable, sink);
                                         },
-                                        _ => {
+                                        Some(false) => {}
+                                        None => {
                                             tracing::debug!(%peer_id, %error, "Connection error with unexpected peer");
                                         }
                                     }
@@ -206,26 +337,57 @@ impl EventLoop {
                                               )) => {
                             self.state = State::WaitForQuoteCompletion;
 
+                            let mut discovered = Vec::new();
                             for registration in registrations {
                                 let peer = registration.record.peer_id();
                                 for address in registration.record.addresses() {
                                     tracing::info!(peer_id=%peer, address=%address, "Discovered peer");
 
                                     let p2p_suffix = Protocol::P2p(*peer.as_ref());
-                                    let _address_with_p2p = if !address
+                                    let address_with_p2p = if !address
                                         .ends_with(&Multiaddr::empty().with(p2p_suffix.clone()))
                                     {
                                         address.clone().with(p2p_suffix)
                                     } else {
                                         address.clone()
                                     };
-
-                                    self.asb_quote_status.insert(peer, QuoteStatus::Pending);
+                                    self.discovered_asb_address.entry(peer).or_insert(address_with_p2p);
 
                                     // add all external addresses of that peer to the quote behaviour
                                     self.swarm.behaviour_mut().quote.add_address(&peer, address.clone());
                                 }
 
+                                // addresses the peer was reachable at before, in case it moved since registering
+                                let registered = registration.record.addresses();
+                                let known = peer_book::with(self.namespace, |book| {
+                                    book.add_addresses(&peer, registered);
+                                    book.addresses(&peer)
+                                });
+                                for address in known.into_iter().filter(|address| !registered.contains(address)) {
+                                    self.swarm.behaviour_mut().quote.add_address(&peer, address);
+                                }
+
+                                if self.asb_quote_status.contains_key(&peer) || discovered.contains(&peer) {
+                                    continue;
+                                }
+                                discovered.push(peer);
+                            }
+
+                            let now_ms = peer_book::now_ms();
+                            let (mut dialable, backing_off): (Vec<_>, Vec<_>) = peer_book::with(self.namespace, |book| {
+                                discovered.into_iter().partition(|peer| !book.is_backing_off(peer, now_ms))
+                            });
+                            for peer in backing_off {
+                                // not dialed again yet, but still listed so the app knows about it
+                                tracing::debug!(%peer, "Skipping seller, its last dials failed");
+                                let address = self.discovered_asb_address.get(&peer).cloned().unwrap_or_else(Multiaddr::empty);
+                                self.unreachable_asb_address.entry(peer).or_insert(address);
+                                self.resolve(peer, Status::Unreachable, sink);
+                            }
+                            peer_book::with(self.namespace, |book| book.rank(&mut dialable));
+                            for peer in dialable {
+                                self.asb_quote_status.insert(peer, QuoteStatus::pending(Instant::now()));
+
                                 // request the quote, if we are not connected to the peer it will be dialed automatically
                                 let _request_id = self.swarm.behaviour_mut().quote.send_request(&peer, ());
                             }
@@ -235,9 +397,20 @@ impl EventLoop {
                                 RequestResponseEvent::Message { peer, message } => {
                                     match message {
                                         RequestResponseMessage::Response { response, .. } => {
-                                            if self.asb_quote_status.insert(peer, QuoteStatus::Received(Status::Online(response))).is_none() {
-                                                tracing::error!(%peer, "Received bid quote from unexpected peer, this record will be removed!");
-                                                self.asb_quote_status.remove(&peer);
+                                            match self.asb_quote_status.get(&peer).copied() {
+                                                Some(QuoteStatus::Pending { requested_at, .. }) => {
+                                                    // includes the dial when we were not connected yet, which is what a swap pays as well
+                                                    let latency = requested_at.elapsed();
+                                                    self.quote_latency.insert(peer, latency);
+                                                    peer_book::with(self.namespace, |book| book.record_quote(&peer, response, latency, peer_book::now_ms()));
+                                                    self.resolve(peer, Status::Online(response), sink);
+                                                }
+                                                Some(QuoteStatus::Received(_)) => {
+                                                    tracing::debug!(%peer, "Ignoring bid quote that arrived after the seller's deadline");
+                                                }
+                                                None => {
+                                                    tracing::error!(%peer, "Received bid quote from unexpected peer, this record will be removed!");
+                                                }
                                             }
                                         }
                                         RequestResponseMessage::Request { .. } => unreachable!()
@@ -246,7 +419,7 @@ impl EventLoop {
                                 RequestResponseEvent::OutboundFailure { peer, error, .. } => {
                                     if peer == self.rendezvous_peer_id {
                                         tracing::debug!(%peer, "Outbound failure when communicating with rendezvous node: {:#}", error);
-                                    } else {
+                                    } else if self.asb_quote_status.get(&peer).map_or(false, QuoteStatus::is_pending) {
                                         tracing::debug!(%peer, "Ignoring seller, because unable to request quote: {:#}", error);
                                         self.asb_quote_status.remove(&peer);
                                     }
@@ -255,7 +428,7 @@ impl EventLoop {
                                     if peer == self.rendezvous_peer_id {
                                         tracing::debug!(%peer, "Inbound failure when communicating with rendezvous node: {:#}", error);
                                     } else {
-                                        if proxy_port == 0 {
+                                        if proxy_port == 0 && self.asb_quote_status.get(&peer).map_or(false, QuoteStatus::is_pending) {
                                             // When using Tor, we seem to get these inbound failures when requesting quotes from seller... doesn't make much sense, but this is a nice workaround I think (only checking this when not using Tor).
                                             tracing::debug!(%peer, "Ignoring seller, because unable to request quote: {:#}", error);
                                             self.asb_quote_status.remove(&peer);
@@ -275,51 +448,65 @@ impl EventLoop {
                     continue;
                 }
                 State::WaitForQuoteCompletion => {
-                    let all_quotes_fetched = self
-                        .asb_quote_status
-                        .iter()
-                        .map(|(peer_id, quote_status)| match quote_status {
-                            QuoteStatus::Pending => Err(StillPending {}),
-                            QuoteStatus::Received(Status::Online(quote)) => {
-                                let address = self
-                                    .reachable_asb_address
-                                    .get(peer_id)
-                                    .expect("if we got a quote we must have stored an address");
-
-                                Ok(Seller {
-                                    multiaddr: address.clone(),
-                                    status: Status::Online(*quote),
-                                })
-                            }
-                            QuoteStatus::Received(Status::Unreachable) => {
-                                let address = self
-                                    .unreachable_asb_address
-                                    .get(peer_id)
-                                    .expect("if we got a quote we must have stored an address");
-
-                                Ok(Seller {
-                                    multiaddr: address.clone(),
-                                    status: Status::Unreachable,
-                                })
-                            }
-                        })
-                        .collect::<Result<Vec<_>, _>>();
-
-                    match all_quotes_fetched {
-                        Ok(mut sellers) => {
-                            sellers.sort();
-                            break sellers;
-                        }
-                        Err(StillPending {}) => continue,
+                    if self.asb_quote_status.values().any(QuoteStatus::is_pending) {
+                        continue;
                     }
+                    break self.sellers();
                 }
             }
         }
     }
+
+    /// Records the final status of a seller and passes it on right away.
+    fn resolve(&mut self, peer_id: PeerId, status: Status, sink: &mut impl SellerSink) {
+        self.asb_quote_status.insert(peer_id, QuoteStatus::Received(status));
+        if let Some(seller) = self.seller(&peer_id, status) {
+            sink.on_seller(&seller);
+        }
+    }
+
+    fn seller(&self, peer_id: &PeerId, status: Status) -> Option<Seller> {
+        match status {
+            Status::Online(_) => Some(Seller {
+                multiaddr: self.reachable_asb_address.get(peer_id)?.clone(),
+                status,
+                quote_latency_ms: self
+                    .quote_latency
+                    .get(peer_id)
+                    .map(|latency| latency.as_millis() as u64)
+                    .unwrap_or_default(),
+            }),
+            Status::Unreachable => Some(Seller {
+                multiaddr: self.unreachable_asb_address.get(peer_id)?.clone(),
+                status,
+                quote_latency_ms: 0,
+            }),
+        }
+    }
+
+    /// Sellers with a known status, sorted.
+    fn sellers(&self) -> Vec<Seller> {
+        let mut sellers = self
+            .asb_quote_status
+            .iter()
+            .filter_map(|(peer_id, quote_status)| match quote_status {
+                QuoteStatus::Received(status) => self.seller(peer_id, *status),
+                QuoteStatus::Pending { .. } => None,
+            })
+            .collect::<Vec<_>>();
+        sellers.sort();
+        sellers
+    }
 }
 
-#[derive(Debug)]
-struct StillPending {}
+/// Pending sellers that missed their dial or quote deadline.
+fn expired(statuses: &HashMap<PeerId, QuoteStatus>, deadlines: &Deadlines, now: Instant) -> Vec<PeerId> {
+    statuses
+        .iter()
+        .filter(|(_, quote_status)| quote_status.has_expired(deadlines, now))
+        .map(|(peer_id, _)| *peer_id)
+        .collect()
+}
 
 impl From<PingEvent> for OutEvent {
     fn from(event: PingEvent) -> Self {
@@ -337,10 +524,12 @@ mod tests {
             Seller {
                 multiaddr: "/ip4/127.0.0.1/tcp/1234".parse().unwrap(),
                 status: Status::Unreachable,
+                quote_latency_ms: 0,
             },
             Seller {
                 multiaddr: Multiaddr::empty(),
                 status: Status::Unreachable,
+                quote_latency_ms: 0,
             },
             Seller {
                 multiaddr: "/ip4/127.0.0.1/tcp/5678".parse().unwrap(),
@@ -349,6 +538,7 @@ mod tests {
                     min_quantity: Default::default(),
                     max_quantity: Default::default(),
                 }),
+                quote_latency_ms: 120,
             },
         ];
 
@@ -363,17 +553,68 @@ mod tests {
                         price: Default::default(),
                         min_quantity: Default::default(),
                         max_quantity: Default::default(),
-                    })
+                    }),
+                    quote_latency_ms: 120,
                 },
                 Seller {
                     multiaddr: Multiaddr::empty(),
-                    status: Status::Unreachable
+                    status: Status::Unreachable,
+                    quote_latency_ms: 0,
                 },
                 Seller {
                     multiaddr: "/ip4/127.0.0.1/tcp/1234".parse().unwrap(),
-                    status: Status::Unreachable
+                    status: Status::Unreachable,
+                    quote_latency_ms: 0,
                 },
             ]
         )
     }
+
+    #[test]
+    fn pending_seller_expires_after_dial_then_quote_deadline() {
+        let deadlines = Deadlines {
+            dial: Duration::from_secs(10),
+            quote: Duration::from_secs(5),
+        };
+        let requested_at = Instant::now();
+        let dialing = QuoteStatus::pending(requested_at);
+        assert!(!dialing.has_expired(&deadlines, requested_at + Duration::from_secs(10)));
+        assert!(dialing.has_expired(&deadlines, requested_at + Duration::from_secs(11)));
+
+        // connected late, the quote deadline counts from the connection
+        let connected = QuoteStatus::Pending {
+            requested_at,
+            connected_at: Some(requested_at + Duration::from_secs(9)),
+        };
+        assert!(!connected.has_expired(&deadlines, requested_at + Duration::from_secs(14)));
+        assert!(connected.has_expired(&deadlines, requested_at + Duration::from_secs(15)));
+
+        let received = QuoteStatus::Received(Status::Unreachable);
+        assert!(!received.has_expired(&deadlines, requested_at + Duration::from_secs(3600)));
+    }
+
+    #[test]
+    fn only_pending_sellers_past_their_deadline_expire() {
+        let deadlines = Deadlines::for_proxy_port(0);
+        let now = Instant::now();
+        let slow = PeerId::random();
+        let fresh = PeerId::random();
+        let done = PeerId::random();
+        let statuses = HashMap::from([
+            (slow, QuoteStatus::pending(now - deadlines.dial - Duration::from_secs(1))),
+            (fresh, QuoteStatus::pending(now)),
+            (done, QuoteStatus::Received(Status::Unreachable)),
+        ]);
+
+        assert_eq!(expired(&statuses, &deadlines, now), vec![slow]);
+    }
+
+    #[test]
+    fn tor_deadlines_are_longer() {
+        let clearnet = Deadlines::for_proxy_port(0);
+        let tor = Deadlines::for_proxy_port(9050);
+        assert!(tor.dial > clearnet.dial);
+        assert!(tor.quote > clearnet.quote);
+        assert_eq!(tor.discovery(), tor.dial + tor.quote);
+    }
 }
@@ -19,3 +19,8 @@ mod model;
 mod list_sellers;
 mod internal;
 mod get_asb_history;
+mod codec;
+mod session;
+mod fee_oracle;
+mod prewarm;
+mod peer_book;
@@ -2,32 +2,82 @@ use std::str::FromStr;
 
 
 use jni::JNIEnv;
-use jni::objects::JClass;
-use jni::sys::jstring;
+use jni::objects::{JByteBuffer, JClass, JObject, JValue};
+use jni::sys::{jboolean, jbyteArray, jint};
 use libp2p::Multiaddr;
 
 use swap::libp2p_ext::MultiAddrExt;
 use swap::network::rendezvous::XmrBtcNamespace;
-use swap::seed::Seed;
-use swap::util;
 
 
+use crate::{codec, peer_book, session};
 use crate::internal::internal_list_sellers;
-use crate::internal::internal_list_sellers::internal_list_sellers;
+use crate::internal::internal_list_sellers::{internal_list_sellers, Seller, SellerSink};
 use crate::model::list_sellers_request::ListSellersRequest;
 use crate::model::list_sellers_result::ListSellersResult;
 use crate::model::seller_data;
 use crate::model::seller_data::{SellerData};
 
+// Hands every seller to swap.lib.SellerStream as soon as its status is known, and asks it whether to stop
+struct JavaSellerSink<'a> {
+    env: &'a JNIEnv<'a>,
+    stream: JObject<'a>,
+}
+
+impl SellerSink for JavaSellerSink<'_> {
+    fn on_seller(&mut self, seller: &Seller) {
+        let seller_bytes = JObject::from(codec::encode_response(self.env, &seller_data(seller)));
+        if let Err(error) = self.env.call_method(self.stream, "onSeller", "([B)V", &[JValue::from(seller_bytes)]) {
+            println!("[ListSellers] Failed to pass seller to the app: {}", error);
+            let _ = self.env.exception_clear();
+        }
+        let _ = self.env.delete_local_ref(seller_bytes);
+    }
+
+    fn is_cancelled(&mut self) -> bool {
+        match self.env.call_method(self.stream, "isCancelled", "()Z", &[]).and_then(|cancelled| cancelled.z()) {
+            Ok(cancelled) => cancelled,
+            Err(error) => {
+                println!("[ListSellers] Failed to ask the app whether to stop, stopping: {}", error);
+                let _ = self.env.exception_clear();
+                true
+            }
+        }
+    }
+}
+
+fn seller_data(seller: &Seller) -> SellerData {
+    SellerData {
+        multiaddr: seller.multiaddr.to_string(),
+        status: match seller.status {
+            internal_list_sellers::Status::Online(quote) => {
+                seller_data::Status {
+                    offline: false,
+                    price: quote.price.to_btc().to_string(),
+                    min_quantity: quote.min_quantity.to_btc().to_string(),
+                    max_quantity: quote.max_quantity.to_btc().to_string(),
+                }
+            }
+            internal_list_sellers::Status::Unreachable => {
+                seller_data::Status {
+                    offline: true,
+                    price: "".to_string(),
+                    min_quantity: "".to_string(),
+                    max_quantity: "".to_string(),
+                }
+            }
+        },
+        quote_latency_ms: seller.quote_latency_ms,
+    }
+}
+
 #[tokio::main]
 #[no_mangle]
 #[warn(unused_variables)]
 pub async extern "system" fn Java_swap_lib_AppSwap_listSellers(env: JNIEnv, _class: JClass,
-                                                             list_sellers_request_json: jstring) -> jstring {
-    let list_sellers_request_json_string = util::get_string_value(&env, list_sellers_request_json).unwrap();
-    let list_sellers_request: ListSellersRequest = serde_json::from_str(list_sellers_request_json_string.as_str()).expect("Badly formatted JSON!");
+                                                             list_sellers_request: JByteBuffer, length: jint, stream: JObject) -> jbyteArray {
+    let list_sellers_request: ListSellersRequest = codec::decode_request(&env, list_sellers_request, length).expect("Failed to decode list sellers request");
     /* Initialize variables */
-    let base64_seed = list_sellers_request.seed_base64;
     let rendezvous_peer = Multiaddr::from_str(list_sellers_request.libp2p_rendezvous_address.as_str()).expect("Failed to parse libp2p Multiaddr address");
 
     /* Constants */
@@ -38,46 +88,48 @@ pub async extern "system" fn Java_swap_lib_AppSwap_listSellers(env: JNIEnv, _cla
         namespace = XmrBtcNamespace::Mainnet;
     }
 
-    let mut seed_bytes = [0u8; 64];
-    seed_bytes.copy_from_slice(base64::decode(base64_seed).expect("Failed to decode base64 seed").as_slice());
-    let seed = Seed::from(seed_bytes);
-    let identity = seed.derive_libp2p_identity();
+    let identity = match session::get(list_sellers_request.session) {
+        Ok(session) => session.libp2p_identity.clone(),
+        Err(error) => return codec::throw_bad_request(&env, error),
+    };
     let rendezvous_peer_id = rendezvous_peer.extract_peer_id().expect("Seller address must contain peer ID");
-    let sellers = internal_list_sellers(
-        rendezvous_peer_id,
-        rendezvous_peer,
-        namespace,
-        list_sellers_request.proxy_port,
-        identity,
-    )
-        .await.expect("Failed to list sellers");
+    // the event loop runs on this thread (block_on), so the stream is called back on the thread that called listSellers
+    let sellers = if stream.is_null() {
+        internal_list_sellers(
+            rendezvous_peer_id,
+            rendezvous_peer,
+            namespace,
+            list_sellers_request.proxy_port,
+            identity,
+            &mut (),
+        ).await
+    } else {
+        internal_list_sellers(
+            rendezvous_peer_id,
+            rendezvous_peer,
+            namespace,
+            list_sellers_request.proxy_port,
+            identity,
+            &mut JavaSellerSink { env: &env, stream },
+        ).await
+    }.expect("Failed to list sellers");
 
     let result = ListSellersResult {
-        sellers: sellers.into_iter().map(|seller|
-            SellerData {
-                multiaddr: seller.multiaddr.to_string(),
-                status: match seller.status {
-                    internal_list_sellers::Status::Online(quote) => {
-                        seller_data::Status {
-                            offline: false,
-                            price: quote.price.to_btc().to_string(),
-                            min_quantity: quote.min_quantity.to_btc().to_string(),
-                            max_quantity: quote.max_quantity.to_btc().to_string(),
-                        }
-                    }
-                    internal_list_sellers::Status::Unreachable => {
-                        seller_data::Status {
-                            offline: true,
-                            price: "".to_string(),
-                            min_quantity: "".to_string(),
-                            max_quantity: "".to_string(),
-                        }
-                    }
-                }
-            }
-        ).rev().collect(),
+        sellers: sellers.iter().map(seller_data).rev().collect(),
     };
-    let response_json = serde_json::to_string(&result).unwrap();
+    codec::encode_response(&env, &result)
+}
 
-    env.new_string(response_json).expect("Failed to get list sellers response JSON").into_inner()
-}
\ No newline at end of file
+// Sellers the peer book has a recent quote of, shown by the app while discovery runs
+#[no_mangle]
+pub extern "system" fn Java_swap_lib_AppSwap_knownSellers(env: JNIEnv, _class: JClass, testnet: jboolean) -> jbyteArray {
+    let namespace = if testnet != 0 { XmrBtcNamespace::Testnet } else { XmrBtcNamespace::Mainnet };
+    let sellers = peer_book::with(namespace, |book| book.known_sellers(peer_book::now_ms()));
+    let result = ListSellersResult {
+        sellers: sellers
+            .into_iter()
+            .map(|(multiaddr, quote, quote_latency_ms)| seller_data(&Seller { status: internal_list_sellers::Status::Online(quote), multiaddr, quote_latency_ms }))
+            .collect(),
+    };
+    codec::encode_response(&env, &result)
+}
@@ -4,4 +4,12 @@ use serde::Deserialize;
 #[serde(rename_all = "camelCase")]
 pub(crate) struct GetHistoryRequest {
     pub testnet: bool,
+    #[serde(default)]
+    pub offset: u32,
+    // None returns every matching swap
+    #[serde(default)]
+    pub limit: Option<u32>,
+    // Only swaps in one of these statuses, all swaps if empty
+    #[serde(default)]
+    pub statuses: Vec<String>,
 }
\ No newline at end of file
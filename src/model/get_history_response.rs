@@ -1,3 +1,5 @@
+use std::collections::BTreeMap;
+
 use serde::Deserialize;
 use serde::Serialize;
 use crate::model::swap_data::SwapData;
@@ -5,5 +7,11 @@ use crate::model::swap_data::SwapData;
 #[derive(Serialize, Deserialize)]
 #[serde(rename_all = "camelCase")]
 pub(crate) struct GetHistoryResponse {
-    pub swaps: Vec<SwapData>
+    pub swaps: Vec<SwapData>,
+    // Swaps matching the request's status filter, swaps is one page of them
+    #[serde(default)]
+    pub total: u64,
+    // Swaps per status over the whole history, unfiltered
+    #[serde(default)]
+    pub status_counts: BTreeMap<String, u64>
 }
\ No newline at end of file
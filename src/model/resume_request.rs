@@ -3,7 +3,7 @@ use serde::Deserialize;
 #[derive(Debug, Deserialize)]
 #[serde(rename_all = "camelCase")]
 pub(crate) struct ResumeRequest {
-    pub seed_base64: String,
+    pub session: i64,
     pub swap_id: String,
     pub electrum_url: String,
     pub proxy: String,
@@ -5,7 +5,9 @@ use serde::Serialize;
 #[serde(rename_all = "camelCase")]
 pub(crate) struct SellerData {
     pub multiaddr: String,
-    pub status: Status
+    pub status: Status,
+    #[serde(default)]
+    pub quote_latency_ms: u64
 }
 
 #[derive(Debug, Serialize, Deserialize)]
@@ -4,7 +4,7 @@ use serde::Deserialize;
 #[serde(rename_all = "camelCase")]
 pub(crate) struct SwapRequest {
     pub uuid: String,
-    pub seed_base64: String,
+    pub session: i64,
     pub xmr_receive_address: String,
     pub electrum_url: String,
     pub proxy: String,
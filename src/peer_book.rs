@@ -0,0 +1,431 @@
+use std::collections::{BTreeMap, VecDeque};
+use std::path::PathBuf;
+use std::str::FromStr;
+use std::sync::Mutex;
+use std::time::{Duration, SystemTime, UNIX_EPOCH};
+
+use anyhow::{Context, Result};
+use libp2p::multiaddr::Protocol;
+use libp2p::{Multiaddr, PeerId};
+use serde::{Deserialize, Serialize};
+use swap::fs;
+use swap::network::quote::BidQuote;
+use swap::network::rendezvous::XmrBtcNamespace;
+
+// What earlier list_sellers, buy_xmr and resume calls learned about sellers: where they were reachable, how often and
+// how fast dials succeeded, and their last quote. One book per namespace in <data dir>/peer-book-<namespace>.json,
+// kept in memory for the process and written back by whoever changed it.
+
+const MAX_PEERS: usize = 512;
+const MAX_ADDRESSES: usize = 8;
+const DIAL_SAMPLES: usize = 16;
+
+/// Skip after the first failed dial, doubled per further failure.
+const BACKOFF_BASE: Duration = Duration::from_secs(60);
+const BACKOFF_MAX: Duration = Duration::from_secs(6 * 60 * 60);
+
+/// Older quotes are not shown before discovery confirms the seller again.
+const MAX_QUOTE_AGE: Duration = Duration::from_secs(24 * 60 * 60);
+
+static BOOKS: Mutex<BTreeMap<String, PeerBook>> = Mutex::new(BTreeMap::new());
+
+/// Runs `f` on the book of the namespace, loading it on first use. The lock is
+/// held for the call, so `f` must not await.
+pub(crate) fn with<R>(namespace: XmrBtcNamespace, f: impl FnOnce(&mut PeerBook) -> R) -> R {
+    let mut books = BOOKS.lock().unwrap();
+    let book = books
+        .entry(namespace.to_string())
+        .or_insert_with(|| PeerBook::load(namespace));
+    f(book)
+}
+
+pub(crate) fn now_ms() -> u64 {
+    SystemTime::now()
+        .duration_since(UNIX_EPOCH)
+        .map(|now| now.as_millis() as u64)
+        .unwrap_or_default()
+}
+
+#[derive(Debug, Default, Clone, PartialEq, Serialize, Deserialize)]
+pub(crate) struct PeerRecord {
+    /// Most recently reachable first, discovered but never dialed last.
+    addresses: Vec<String>,
+    last_seen_ms: u64,
+    dials: u32,
+    dial_successes: u32,
+    consecutive_failures: u32,
+    last_failure_ms: u64,
+    dial_times_ms: VecDeque<u64>,
+    last_quote: Option<BidQuote>,
+    last_quote_ms: u64,
+    last_quote_latency_ms: u64,
+}
+
+impl PeerRecord {
+    /// Laplace smoothed, a peer never dialed is at 0.5.
+    fn success_rate(&self) -> f64 {
+        (self.dial_successes as f64 + 1.0) / (self.dials as f64 + 2.0)
+    }
+
+    pub fn median_dial_time(&self) -> Option<Duration> {
+        let mut samples = self.dial_times_ms.iter().copied().collect::<Vec<_>>();
+        samples.sort_unstable();
+        samples.get(samples.len() / 2).map(|ms| Duration::from_millis(*ms))
+    }
+
+    fn backoff_until_ms(&self) -> u64 {
+        if self.consecutive_failures == 0 {
+            return 0;
+        }
+        let doublings = (self.consecutive_failures - 1).min(16);
+        let backoff = BACKOFF_BASE.saturating_mul(1 << doublings).min(BACKOFF_MAX);
+        self.last_failure_ms.saturating_add(backoff.as_millis() as u64)
+    }
+
+    fn addresses(&self) -> Vec<Multiaddr> {
+        self.addresses
+            .iter()
+            .filter_map(|address| Multiaddr::from_str(address).ok())
+            .collect()
+    }
+
+    fn remember_address(&mut self, address: &Multiaddr, reachable: bool) {
+        let address = without_p2p(address).to_string();
+        let known = self.addresses.iter().position(|known| *known == address);
+        match (known, reachable) {
+            (Some(_), false) => return,
+            (Some(index), true) => {
+                self.addresses.remove(index);
+                self.addresses.insert(0, address);
+            }
+            (None, false) => self.addresses.push(address),
+            (None, true) => self.addresses.insert(0, address),
+        }
+        self.addresses.truncate(MAX_ADDRESSES);
+    }
+
+    fn last_active_ms(&self) -> u64 {
+        self.last_seen_ms.max(self.last_failure_ms)
+    }
+}
+
+#[derive(Debug, Default, Serialize, Deserialize)]
+pub(crate) struct PeerBook {
+    peers: BTreeMap<String, PeerRecord>,
+    #[serde(skip)]
+    path: Option<PathBuf>,
+    #[serde(skip)]
+    dirty: bool,
+}
+
+impl PeerBook {
+    fn load(namespace: XmrBtcNamespace) -> Self {
+        let path = match fs::system_data_dir() {
+            Ok(data_dir) => data_dir.join(format!("peer-book-{}.json", namespace)),
+            Err(error) => {
+                println!("[PeerBook] {:#}, not persisting", error);
+                return PeerBook::default();
+            }
+        };
+        let mut book = match std::fs::read(&path) {
+            Ok(bytes) => serde_json::from_slice::<PeerBook>(&bytes).unwrap_or_else(|error| {
+                println!("[PeerBook] Ignoring {}: {}", path.display(), error);
+                PeerBook::default()
+            }),
+            Err(_) => PeerBook::default(),
+        };
+        book.path = Some(path);
+        book
+    }
+
+    /// Writes the book if it changed since the last save.
+    pub fn save(&mut self) {
+        if !self.dirty {
+            return;
+        }
+        let path = match &self.path {
+            Some(path) => path.clone(),
+            None => return,
+        };
+        match self.write(&path) {
+            Ok(()) => self.dirty = false,
+            Err(error) => println!("[PeerBook] Failed to save {}: {:#}", path.display(), error),
+        }
+    }
+
+    fn write(&self, path: &PathBuf) -> Result<()> {
+        fs::ensure_directory_exists(path)?;
+        let tmp = path.with_extension("json.tmp");
+        std::fs::write(&tmp, serde_json::to_vec(self)?).context("Failed to write peer book")?;
+        std::fs::rename(&tmp, path).context("Failed to replace peer book")?;
+        Ok(())
+    }
+
+    pub fn get(&self, peer_id: &PeerId) -> Option<&PeerRecord> {
+        self.peers.get(&peer_id.to_string())
+    }
+
+    fn record(&mut self, peer_id: &PeerId) -> &mut PeerRecord {
+        let key = peer_id.to_string();
+        if !self.peers.contains_key(&key) && self.peers.len() >= MAX_PEERS {
+            // forget the peer that has been silent the longest
+            if let Some(oldest) = self
+                .peers
+                .iter()
+                .min_by_key(|(_, record)| record.last_active_ms())
+                .map(|(key, _)| key.clone())
+            {
+                self.peers.remove(&oldest);
+            }
+        }
+        self.dirty = true;
+        self.peers.entry(key).or_default()
+    }
+
+    /// Addresses a rendezvous point or the user gave for the peer, kept behind the ones that worked.
+    pub fn add_addresses<'a>(&mut self, peer_id: &PeerId, addresses: impl IntoIterator<Item = &'a Multiaddr>) {
+        let record = self.record(peer_id);
+        for address in addresses {
+            record.remember_address(address, false);
+        }
+    }
+
+    pub fn record_dial_success(&mut self, peer_id: &PeerId, address: Option<&Multiaddr>, dial_time: Option<Duration>, now_ms: u64) {
+        let record = self.record(peer_id);
+        record.dials = record.dials.saturating_add(1);
+        record.dial_successes = record.dial_successes.saturating_add(1);
+        record.consecutive_failures = 0;
+        record.last_seen_ms = now_ms;
+        if let Some(address) = address {
+            record.remember_address(address, true);
+        }
+        if let Some(dial_time) = dial_time {
+            record.dial_times_ms.push_back(dial_time.as_millis() as u64);
+            while record.dial_times_ms.len() > DIAL_SAMPLES {
+                record.dial_times_ms.pop_front();
+            }
+        }
+    }
+
+    /// A failure while already backing off is the same outage, e.g. seen by the list_sellers run of another
+    /// rendezvous point in the same refresh, and is not counted again.
+    pub fn record_dial_failure(&mut self, peer_id: &PeerId, now_ms: u64) {
+        if self.is_backing_off(peer_id, now_ms) {
+            return;
+        }
+        let record = self.record(peer_id);
+        record.dials = record.dials.saturating_add(1);
+        record.consecutive_failures = record.consecutive_failures.saturating_add(1);
+        record.last_failure_ms = now_ms;
+    }
+
+    pub fn record_quote(&mut self, peer_id: &PeerId, quote: BidQuote, latency: Duration, now_ms: u64) {
+        let record = self.record(peer_id);
+        record.last_seen_ms = now_ms;
+        record.last_quote = Some(quote);
+        record.last_quote_ms = now_ms;
+        record.last_quote_latency_ms = latency.as_millis() as u64;
+    }
+
+    /// Failed its last dials recently, dialing it again would likely fail too.
+    pub fn is_backing_off(&self, peer_id: &PeerId, now_ms: u64) -> bool {
+        self.get(peer_id)
+            .map_or(false, |record| now_ms < record.backoff_until_ms())
+    }
+
+    /// Most recently reachable first, empty if the peer is unknown.
+    pub fn addresses(&self, peer_id: &PeerId) -> Vec<Multiaddr> {
+        self.get(peer_id).map(PeerRecord::addresses).unwrap_or_default()
+    }
+
+    /// Orders peers most likely to answer quickly first: dial success rate, then median dial time.
+    pub fn rank(&self, peers: &mut [PeerId]) {
+        peers.sort_by(|a, b| {
+            let (a, b) = (self.get(a), self.get(b));
+            let rate = |record: Option<&PeerRecord>| record.map_or(0.5, PeerRecord::success_rate);
+            let dial_time = |record: Option<&PeerRecord>| record.and_then(PeerRecord::median_dial_time).unwrap_or(Duration::MAX);
+            rate(b)
+                .partial_cmp(&rate(a))
+                .unwrap_or(std::cmp::Ordering::Equal)
+                .then_with(|| dial_time(a).cmp(&dial_time(b)))
+        });
+    }
+
+    /// Sellers with a recent quote that are not backing off, best ranked first, addresses with the /p2p suffix.
+    pub fn known_sellers(&self, now_ms: u64) -> Vec<(Multiaddr, BidQuote, u64)> {
+        let max_age_ms = MAX_QUOTE_AGE.as_millis() as u64;
+        let mut peers = self
+            .peers
+            .iter()
+            .filter(|(_, record)| record.last_quote.is_some() && now_ms.saturating_sub(record.last_quote_ms) <= max_age_ms)
+            .filter_map(|(key, _)| PeerId::from_str(key).ok())
+            .filter(|peer_id| !self.is_backing_off(peer_id, now_ms))
+            .collect::<Vec<_>>();
+        self.rank(&mut peers);
+        peers
+            .into_iter()
+            .filter_map(|peer_id| {
+                let record = self.get(&peer_id)?;
+                let address = record.addresses().into_iter().next()?;
+                Some((with_p2p(address, peer_id), record.last_quote?, record.last_quote_latency_ms))
+            })
+            .collect()
+    }
+}
+
+pub(crate) fn without_p2p(address: &Multiaddr) -> Multiaddr {
+    let mut address = address.clone();
+    if let Some(Protocol::P2p(_)) = address.iter().last() {
+        address.pop();
+    }
+    address
+}
+
+/// Appends /p2p/<peer id> unless the address already ends with it.
+pub(crate) fn with_p2p(address: Multiaddr, peer_id: PeerId) -> Multiaddr {
+    let p2p_suffix = Protocol::P2p(*peer_id.as_ref());
+    if address.ends_with(&Multiaddr::empty().with(p2p_suffix.clone())) {
+        address
+    } else {
+        address.with(p2p_suffix)
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    const MINUTE_MS: u64 = 60_000;
+
+    fn quote(price: u64) -> BidQuote {
+        BidQuote {
+            price: bitcoin::Amount::from_sat(price),
+            min_quantity: bitcoin::Amount::from_sat(10_000),
+            max_quantity: bitcoin::Amount::from_sat(1_000_000),
+        }
+    }
+
+    fn address(port: u16) -> Multiaddr {
+        format!("/ip4/127.0.0.1/tcp/{}", port).parse().unwrap()
+    }
+
+    #[test]
+    fn backoff_doubles_per_failure_and_resets_on_success() {
+        let mut book = PeerBook::default();
+        let peer = PeerId::random();
+        let now = 1_000 * MINUTE_MS;
+
+        book.record_dial_failure(&peer, now);
+        assert!(book.is_backing_off(&peer, now + MINUTE_MS - 1));
+        assert!(!book.is_backing_off(&peer, now + MINUTE_MS));
+
+        book.record_dial_failure(&peer, now + MINUTE_MS);
+        assert!(!book.is_backing_off(&peer, now + 3 * MINUTE_MS));
+        book.record_dial_failure(&peer, now + 3 * MINUTE_MS);
+        assert!(book.is_backing_off(&peer, now + 7 * MINUTE_MS - 1));
+        assert!(!book.is_backing_off(&peer, now + 7 * MINUTE_MS));
+
+        book.record_dial_success(&peer, None, None, now);
+        assert!(!book.is_backing_off(&peer, now));
+    }
+
+    #[test]
+    fn backoff_is_capped() {
+        let mut book = PeerBook::default();
+        let peer = PeerId::random();
+        let mut now = 0;
+        for _ in 0..40 {
+            book.record_dial_failure(&peer, now);
+            now = book.get(&peer).unwrap().backoff_until_ms();
+        }
+        let max_ms = BACKOFF_MAX.as_millis() as u64;
+        let last_failure_ms = book.get(&peer).unwrap().last_failure_ms;
+        assert!(book.is_backing_off(&peer, last_failure_ms + max_ms - 1));
+        assert!(!book.is_backing_off(&peer, last_failure_ms + max_ms));
+    }
+
+    #[test]
+    fn failures_of_one_outage_count_once() {
+        let mut book = PeerBook::default();
+        let peer = PeerId::random();
+        let now = 1_000 * MINUTE_MS;
+
+        // the same dead seller listed by three rendezvous points
+        for seconds in [0, 5, 20] {
+            book.record_dial_failure(&peer, now + seconds * 1_000);
+        }
+        assert_eq!(book.get(&peer).unwrap().consecutive_failures, 1);
+        assert_eq!(book.get(&peer).unwrap().dials, 1);
+        assert!(!book.is_backing_off(&peer, now + MINUTE_MS));
+    }
+
+    #[test]
+    fn reachable_address_goes_first_discovered_last() {
+        let mut book = PeerBook::default();
+        let peer = PeerId::random();
+        book.add_addresses(&peer, &[address(1), address(2)]);
+        // a dialed address carries the peer id, it is the same address
+        book.record_dial_success(&peer, Some(&with_p2p(address(2), peer)), Some(Duration::from_millis(10)), 0);
+        book.add_addresses(&peer, &[address(3), address(2)]);
+        assert_eq!(book.addresses(&peer), vec![address(2), address(1), address(3)]);
+    }
+
+    #[test]
+    fn median_dial_time_keeps_last_samples() {
+        let mut book = PeerBook::default();
+        let peer = PeerId::random();
+        for ms in [900, 100, 300] {
+            book.record_dial_success(&peer, None, Some(Duration::from_millis(ms)), 0);
+        }
+        assert_eq!(book.get(&peer).unwrap().median_dial_time(), Some(Duration::from_millis(300)));
+
+        for _ in 0..DIAL_SAMPLES {
+            book.record_dial_success(&peer, None, Some(Duration::from_millis(50)), 0);
+        }
+        assert_eq!(book.get(&peer).unwrap().dial_times_ms.len(), DIAL_SAMPLES);
+        assert_eq!(book.get(&peer).unwrap().median_dial_time(), Some(Duration::from_millis(50)));
+    }
+
+    #[test]
+    fn rank_prefers_reliable_then_fast_peers() {
+        let mut book = PeerBook::default();
+        let (flaky, slow, fast, unknown) = (PeerId::random(), PeerId::random(), PeerId::random(), PeerId::random());
+        book.record_dial_success(&flaky, None, Some(Duration::from_millis(10)), 0);
+        book.record_dial_failure(&flaky, 0);
+        book.record_dial_failure(&flaky, 10 * MINUTE_MS);
+        book.record_dial_success(&slow, None, Some(Duration::from_secs(20)), 0);
+        book.record_dial_success(&fast, None, Some(Duration::from_secs(2)), 0);
+
+        let mut peers = vec![unknown, flaky, slow, fast];
+        book.rank(&mut peers);
+        assert_eq!(peers, vec![fast, slow, unknown, flaky]);
+    }
+
+    #[test]
+    fn known_sellers_skips_stale_and_dead_peers() {
+        let mut book = PeerBook::default();
+        let now = 10 * 24 * 60 * MINUTE_MS;
+        let (alive, stale, dead, never_quoted) = (PeerId::random(), PeerId::random(), PeerId::random(), PeerId::random());
+        for (port, peer) in [(1, alive), (2, stale), (3, dead), (4, never_quoted)] {
+            book.record_dial_success(&peer, Some(&address(port)), None, now);
+        }
+        book.record_quote(&alive, quote(700_000), Duration::from_millis(1_500), now - MINUTE_MS);
+        book.record_quote(&stale, quote(600_000), Duration::from_millis(1_500), now - MAX_QUOTE_AGE.as_millis() as u64 - 1);
+        book.record_quote(&dead, quote(650_000), Duration::from_millis(1_500), now - MINUTE_MS);
+        book.record_dial_failure(&dead, now);
+
+        let sellers = book.known_sellers(now);
+        assert_eq!(sellers, vec![(with_p2p(address(1), alive), quote(700_000), 1_500)]);
+    }
+
+    #[test]
+    fn round_trips_through_json() {
+        let mut book = PeerBook::default();
+        let peer = PeerId::random();
+        book.record_dial_success(&peer, Some(&address(1)), Some(Duration::from_millis(1_200)), 5);
+        book.record_quote(&peer, quote(700_000), Duration::from_millis(1_500), 5);
+
+        let read = serde_json::from_slice::<PeerBook>(&serde_json::to_vec(&book).unwrap()).unwrap();
+        assert_eq!(read.peers, book.peers);
+    }
+}
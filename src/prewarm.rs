@@ -0,0 +1,98 @@
+use std::str::FromStr;
+use std::time::{Duration, Instant};
+
+use anyhow::{bail, Context, Result};
+use futures::StreamExt;
+use jni::JNIEnv;
+use jni::objects::{JClass, JObject, JString, JValue};
+use jni::sys::{jint, jlong};
+use libp2p::{identity, Multiaddr, PeerId};
+use libp2p::ping::{Ping, PingConfig};
+use libp2p::swarm::SwarmEvent;
+
+use swap::libp2p_ext::MultiAddrExt;
+use swap::network::swarm;
+
+/// How often cancellation is checked.
+const TICK: Duration = Duration::from_millis(500);
+
+/// Keeps the connection, and with it the Tor circuit, busy enough not to be
+/// closed as idle by Tor or the seller.
+const PING_INTERVAL: Duration = Duration::from_secs(30);
+
+// Blocks the calling swap.lib.SellerWarmer thread until it is cancelled or the connection is lost
+#[tokio::main]
+#[no_mangle]
+pub async extern "system" fn Java_swap_lib_SellerWarmer_keepOpen(env: JNIEnv, _class: JClass,
+                                                                 multiaddr: JString, proxy_port: jint, warmer: JObject) -> jlong {
+    let multiaddr: String = env.get_string(multiaddr).expect("Failed to get multiaddr string").into();
+    match warm(&env, warmer, multiaddr.as_str(), proxy_port as u16).await {
+        Ok(dial_millis) => dial_millis,
+        Err(error) => {
+            println!("[SellerWarmer] {:#}", error);
+            -1
+        }
+    }
+}
+
+async fn warm(env: &JNIEnv<'_>, warmer: JObject<'_>, multiaddr: &str, proxy_port: u16) -> Result<jlong> {
+    let seller = Multiaddr::from_str(multiaddr).context("Failed to parse seller multiaddr")?;
+    let seller_peer_id = seller.extract_peer_id().context("Seller address must contain peer ID")?;
+
+    // A throwaway identity: the seller sees an unrelated peer that only pings, the swap later connects with the
+    // session identity over the Tor circuit this connection built to the seller's onion service.
+    let identity = identity::Keypair::generate_ed25519();
+    let behaviour = Ping::new(PingConfig::new().with_keep_alive(true).with_interval(PING_INTERVAL));
+    let mut swarm = swarm::cli(identity, proxy_port, behaviour).await?;
+
+    let started = Instant::now();
+    swarm.dial(seller).context("Failed to dial seller")?;
+    let mut dial_millis: jlong = -1;
+    let mut tick = tokio::time::interval(TICK);
+    loop {
+        tokio::select! {
+            _ = tick.tick() => {
+                if is_cancelled(env, warmer) {
+                    return Ok(dial_millis);
+                }
+            }
+            swarm_event = swarm.select_next_some() => {
+                match swarm_event {
+                    SwarmEvent::ConnectionEstablished { peer_id, .. } if peer_id == seller_peer_id && dial_millis < 0 => {
+                        dial_millis = started.elapsed().as_millis() as jlong;
+                        on_connected(env, warmer, dial_millis);
+                    }
+                    SwarmEvent::OutgoingConnectionError { peer_id, error } if is_seller(peer_id, seller_peer_id) => {
+                        bail!("Failed to connect to seller {}: {}", seller_peer_id, error);
+                    }
+                    SwarmEvent::ConnectionClosed { peer_id, num_established: 0, cause, .. } if peer_id == seller_peer_id => {
+                        bail!("Connection to seller {} closed: {:?}", seller_peer_id, cause);
+                    }
+                    _ => {}
+                }
+            }
+        }
+    }
+}
+
+fn is_seller(peer_id: Option<PeerId>, seller_peer_id: PeerId) -> bool {
+    peer_id.map_or(true, |peer_id| peer_id == seller_peer_id)
+}
+
+fn on_connected(env: &JNIEnv, warmer: JObject, dial_millis: jlong) {
+    if let Err(error) = env.call_method(warmer, "onConnected", "(J)V", &[JValue::from(dial_millis)]) {
+        println!("[SellerWarmer] Failed to report the connection to the app: {}", error);
+        let _ = env.exception_clear();
+    }
+}
+
+fn is_cancelled(env: &JNIEnv, warmer: JObject) -> bool {
+    match env.call_method(warmer, "isCancelled", "()Z", &[]).and_then(|cancelled| cancelled.z()) {
+        Ok(cancelled) => cancelled,
+        Err(error) => {
+            println!("[SellerWarmer] Failed to ask the app whether to stop, stopping: {}", error);
+            let _ = env.exception_clear();
+            true
+        }
+    }
+}
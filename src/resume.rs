@@ -4,9 +4,8 @@ use std::sync::Arc;
 
 
 use jni::JNIEnv;
-use jni::objects::JClass;
-use jni::sys::jstring;
-use rand::Rng;
+use jni::objects::{JByteBuffer, JClass};
+use jni::sys::jint;
 use swap::{cli, fs, util};
 use swap::cli::EventLoop;
 use swap::env::{GetConfig, Mainnet, Testnet};
@@ -14,25 +13,22 @@ use swap::network::quote::SwapDisconnected;
 use swap::network::rendezvous::XmrBtcNamespace;
 use swap::network::swarm;
 use swap::protocol::bob::{BobState, Swap};
-use swap::seed::Seed;
 use swap::swap_error::{ErrorType, SwapError};
 
 use url::Url;
 use uuid::Uuid;
 
 use crate::model::resume_request::ResumeRequest;
-use crate::wallet;
+use crate::{codec, peer_book, session, wallet};
 
 #[tokio::main]
 #[no_mangle]
 #[warn(unused_variables)]
 pub async extern "system" fn Java_swap_client_ClientSwap_resume(env: JNIEnv, _class: JClass,
-                                                                resume_request_json: jstring) {
-    let resume_request_json_string = util::get_string_value(&env, resume_request_json).unwrap();
-    let resume_request: ResumeRequest = serde_json::from_str(resume_request_json_string.as_str()).expect("Badly formatted JSON!");
+                                                                resume_request: JByteBuffer, length: jint) {
+    let resume_request: ResumeRequest = codec::decode_request(&env, resume_request, length).expect("Failed to decode resume request");
 
     /* Initialize variables */
-    let base64_seed = resume_request.seed_base64;
     let bitcoin_electrum_rpc_url = Url::from_str(resume_request.electrum_url.as_str()).expect("Failed to parse Electrum URL");
 
     /* Constants */
@@ -60,16 +56,24 @@ pub async extern "system" fn Java_swap_client_ClientSwap_resume(env: JNIEnv, _cl
             return
         }
     };
-    let mut seed_bytes = [0u8; 64];
-    seed_bytes.copy_from_slice(base64::decode(base64_seed).expect("Failed to decode base64 seed").as_slice());
-    let seed = Seed::from(seed_bytes);
     let swap_uuid = Uuid::from_str(resume_request.swap_id.as_str()).unwrap();
+    let session = match session::get(resume_request.session) {
+        Ok(session) => session,
+        Err(error) => {
+            let swap_error = SwapError {
+                swap_id: swap_uuid.to_string(),
+                error_type: ErrorType::SessionClosed,
+                error_message: format!("{:#}", error),
+                fatal: true
+            };
+            util::on_swap_error(&env, swap_error);
+            return;
+        }
+    };
 
-    let tmp_folder_num = rand::thread_rng().gen_range(0..25565);
-    let tmp_data_dir = data_dir.join("tmp");
-    let tmp_deposit_folder = tmp_data_dir.join(format!(".tmp_deposit_{}", tmp_folder_num));
+    wallet::gc_swap_wallets(&data_dir, db.as_ref(), swap_uuid).await;
     util::print_swap_log_ln(&env, "[SWAP CLIENT] Setting up Bitcoin wallet...".to_string());
-    let bitcoin_wallet = match wallet::init_bitcoin_wallet(bitcoin_electrum_rpc_url.clone(), resume_request.proxy.as_str(), &seed, tmp_deposit_folder, env_config)
+    let bitcoin_wallet = match wallet::init_swap_bitcoin_wallet(bitcoin_electrum_rpc_url.clone(), resume_request.proxy.as_str(), session.bitcoin_xprivkey, &data_dir, swap_uuid, env_config)
         .await
     {
         Ok(val) => val,
@@ -96,8 +100,7 @@ pub async extern "system" fn Java_swap_client_ClientSwap_resume(env: JNIEnv, _cl
     }
     util::print_swap_log_ln(&env, "[SWAP CLIENT] Initialized Bitcoin wallet".to_string());
     util::print_swap_log_ln(&env, "[SWAP CLIENT] Setting up Monero wallet...".to_string());
-    let xmr_wallet_name = format!("{}-monitoring-wallet", swap_uuid.to_string());
-    let monero_wallet = match wallet::init_monero_wallet(resume_request.xmr_rpc_endpoint, env_config, xmr_wallet_name.as_str()).await {
+    let monero_wallet = match wallet::init_monitoring_wallet(resume_request.xmr_rpc_endpoint, env_config, &session, swap_uuid).await {
         Ok(val) => val,
         Err(err) => {
             let swap_error = SwapError {
@@ -124,15 +127,30 @@ pub async extern "system" fn Java_swap_client_ClientSwap_resume(env: JNIEnv, _cl
 
     let bitcoin_wallet = Arc::new(bitcoin_wallet);
     let seller_peer_id = db.get_peer_id(swap_uuid).await.expect("Failed to get seller libp2p peer ID");
-    let seller_addresses = db.get_addresses(seller_peer_id).await.expect("Failed to get seller addresses");
+    let stored_addresses = db.get_addresses(seller_peer_id).await.expect("Failed to get seller addresses");
+    // addresses the seller was reachable at lately go first, it may have moved since the swap started
+    let seller_addresses = peer_book::with(namespace, |book| {
+        let mut addresses = book
+            .addresses(&seller_peer_id)
+            .into_iter()
+            .map(|address| peer_book::with_p2p(address, seller_peer_id))
+            .collect::<Vec<_>>();
+        for address in stored_addresses {
+            let address = peer_book::with_p2p(address, seller_peer_id);
+            if !addresses.contains(&address) {
+                addresses.push(address);
+            }
+        }
+        addresses
+    });
     let behaviour = cli::Behaviour::new(
         seller_peer_id,
         env_config,
         bitcoin_wallet.clone(),
-        (seed.derive_libp2p_identity(), namespace),
+        (session.libp2p_identity.clone(), namespace),
     );
     let mut swarm =
-        swarm::cli(seed.derive_libp2p_identity(), resume_request.proxy_port, behaviour).await.expect("Failed to start libp2p swarm");
+        swarm::cli(session.libp2p_identity.clone(), resume_request.proxy_port, behaviour).await.expect("Failed to start libp2p swarm");
     for seller_address in &seller_addresses {
         swarm
             .behaviour_mut()
@@ -0,0 +1,117 @@
+use std::collections::BTreeMap;
+use std::sync::{Arc, Mutex};
+use std::sync::atomic::{AtomicI64, Ordering};
+
+use anyhow::{anyhow, Context};
+use bdk::bitcoin::hashes::{sha256, Hash, HashEngine};
+use bdk::bitcoin::util::bip32::ExtendedPrivKey;
+use jni::JNIEnv;
+use jni::objects::JClass;
+use jni::sys::{jboolean, jbyteArray, jlong};
+use libp2p::identity;
+use swap::env::{GetConfig, Mainnet, Testnet};
+use swap::monero::wallet::WalletPassword;
+use swap::seed::Seed;
+use uuid::Uuid;
+
+use crate::codec;
+
+// Keys derived once from the wallet seed when AppSwap starts. Requests only carry the handle,
+// so the seed crosses JNI once and is not re-derived for every swap/resume/list sellers call.
+pub(crate) struct Session {
+    pub libp2p_identity: identity::Keypair,
+    pub bitcoin_xprivkey: ExtendedPrivKey,
+}
+
+impl Session {
+    // Monitoring wallets outlive the app run until their swap is finished, so they are encrypted at rest
+    // with a password only this seed can reproduce
+    pub fn monitoring_wallet_password(&self, swap_id: Uuid) -> WalletPassword {
+        let mut engine = sha256::Hash::engine();
+        engine.input(b"monitoring-wallet");
+        engine.input(&self.bitcoin_xprivkey.private_key.secret_bytes());
+        engine.input(swap_id.as_bytes());
+        WalletPassword::new(sha256::Hash::from_engine(engine).to_string())
+    }
+}
+
+static SESSIONS: Mutex<BTreeMap<i64, Arc<Session>>> = Mutex::new(BTreeMap::new());
+static NEXT_HANDLE: AtomicI64 = AtomicI64::new(1);
+
+pub(crate) fn get(handle: i64) -> anyhow::Result<Arc<Session>> {
+    SESSIONS.lock().unwrap().get(&handle).cloned().ok_or_else(|| anyhow!("Native session {} is not open", handle))
+}
+
+fn open(seed: &[u8], testnet: bool) -> anyhow::Result<i64> {
+    let seed = Seed::from(codec::seed_bytes(seed));
+    let bitcoin_network = if testnet { Testnet::get_config().bitcoin_network } else { Mainnet::get_config().bitcoin_network };
+    let session = Session {
+        libp2p_identity: seed.derive_libp2p_identity(),
+        bitcoin_xprivkey: seed.derive_bip32_key(bitcoin_network).context("Failed to derive bitcoin key")?,
+    };
+    let handle = NEXT_HANDLE.fetch_add(1, Ordering::SeqCst);
+    SESSIONS.lock().unwrap().insert(handle, Arc::new(session));
+    Ok(handle)
+}
+
+fn close(handle: i64) -> bool {
+    SESSIONS.lock().unwrap().remove(&handle).is_some()
+}
+
+#[no_mangle]
+pub extern "system" fn Java_swap_lib_NativeSession_open(env: JNIEnv, _class: JClass, seed: jbyteArray, testnet: jboolean) -> jlong {
+    let mut seed_bytes = env.convert_byte_array(seed).expect("Failed to read seed");
+    let handle = open(seed_bytes.as_slice(), testnet != 0);
+    seed_bytes.iter_mut().for_each(|byte| *byte = 0);
+    match handle {
+        Ok(handle) => handle,
+        Err(error) => {
+            println!("[NativeSession] Failed to open session: {}", error);
+            0
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_swap_lib_NativeSession_close(_env: JNIEnv, _class: JClass, handle: jlong) {
+    close(handle);
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    #[test]
+    fn open_get_close() {
+        let seed: Vec<u8> = (0u8..64).collect();
+        let handle = open(&seed, true).unwrap();
+        let session = get(handle).unwrap();
+        assert_eq!(session.libp2p_identity.public(), Seed::from(codec::seed_bytes(&seed)).derive_libp2p_identity().public());
+        assert!(close(handle));
+        assert!(get(handle).is_err());
+        assert!(!close(handle));
+    }
+
+    #[test]
+    fn monitoring_wallet_password_depends_on_seed_and_swap() {
+        let first = open(&[1u8; 64], true).unwrap();
+        let second = open(&[2u8; 64], true).unwrap();
+        let swap_id = Uuid::new_v4();
+        let password = |handle, swap_id| get(handle).unwrap().monitoring_wallet_password(swap_id).expose().to_string();
+        assert_eq!(password(first, swap_id), password(first, swap_id));
+        assert_ne!(password(first, swap_id), password(second, swap_id));
+        assert_ne!(password(first, swap_id), password(first, Uuid::new_v4()));
+        close(first);
+        close(second);
+    }
+
+    #[test]
+    fn handles_are_not_reused() {
+        let seed = [7u8; 64];
+        let first = open(&seed, false).unwrap();
+        close(first);
+        let second = open(&seed, false).unwrap();
+        assert_ne!(first, second);
+        close(second);
+    }
+}
@@ -1,5 +1,5 @@
 
-use std::time::Duration;
+use std::time::{Duration, Instant};
 
 use anyhow::{bail, Context, Result};
 use bdk::blockchain::Blockchain;
@@ -34,9 +34,12 @@ pub async fn run_until(
 ) -> Result<BobState> {
     let mut current_state = swap.state;
     let mut notified_of_conf = false;
+    let run_started = Instant::now();
     util::on_swap_running(&env, swap.id.to_string(), multiaddr);
 
     while !is_target_state(&current_state) && util::get_running_swap(&env) {
+        let state_started = Instant::now();
+        let state_label = state_name(&current_state);
         current_state = next_state(
             swap.id,
             current_state.clone(),
@@ -52,6 +55,11 @@ pub async fn run_until(
         swap.db
             .insert_latest_state(swap.id, current_state.clone().into())
             .await?;
+
+        util::on_swap_state_timing(&env, swap.id.to_string(), state_label, state_started.elapsed());
+        if let BobState::XmrLockProofReceived { .. } = current_state {
+            util::print_swap_log_ln(&env, format!("[SWAP CLIENT] Monero lock proof received {} ms after the swap started running", run_started.elapsed().as_millis()));
+        }
     }
 
     if !util::get_running_swap(&env) {
@@ -61,6 +69,25 @@ pub async fn run_until(
     Ok(current_state)
 }
 
+/// Stable label used for the per-state timing metrics on the Java side.
+fn state_name(state: &BobState) -> &'static str {
+    match state {
+        BobState::Started { .. } => "Started",
+        BobState::SwapSetupCompleted(..) => "SwapSetupCompleted",
+        BobState::BtcLocked { .. } => "BtcLocked",
+        BobState::XmrLockProofReceived { .. } => "XmrLockProofReceived",
+        BobState::XmrLocked(..) => "XmrLocked",
+        BobState::EncSigSent(..) => "EncSigSent",
+        BobState::BtcRedeemed(..) => "BtcRedeemed",
+        BobState::CancelTimelockExpired(..) => "CancelTimelockExpired",
+        BobState::BtcCancelled(..) => "BtcCancelled",
+        BobState::BtcRefunded(..) => "BtcRefunded",
+        BobState::XmrRedeemed { .. } => "XmrRedeemed",
+        BobState::BtcPunished { .. } => "BtcPunished",
+        BobState::SafelyAborted => "SafelyAborted",
+    }
+}
+
 async fn next_state(
     swap_id: Uuid,
     state: BobState,
@@ -395,8 +422,6 @@ pub async fn watch_for_transfer(env: &JNIEnv<'_>, monero_wallet: &swap::monero::
 
     let address = Address::standard(monero_wallet.network, public_spend_key, public_view_key.into());
 
-    let check_interval = tokio::time::interval(monero_wallet.sync_interval);
-
     wait_for_confs(
         Some(env),
         &monero_wallet.inner,
@@ -404,8 +429,9 @@ pub async fn watch_for_transfer(env: &JNIEnv<'_>, monero_wallet: &swap::monero::
         address,
         expected,
         conf_target,
-        check_interval,
+        monero_wallet.confirmation_schedule,
         monero_wallet.name.clone(),
+        &monero_wallet.password,
     )
         .await?;
 
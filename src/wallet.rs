@@ -1,23 +1,93 @@
-use std::path::PathBuf;
+use std::path::{Path, PathBuf};
 use std::str::FromStr;
+use std::time::Instant;
 
 use anyhow::Result;
 
+use rand::Rng;
 use swap::env;
 use swap::env::{Config};
-use swap::seed::Seed;
+use swap::database::NoStateRecorded;
+use swap::protocol::{Database, State};
+use swap::protocol::bob::swap::is_complete;
+use bdk::bitcoin::util::bip32::ExtendedPrivKey;
 use url::Url;
+use uuid::Uuid;
+
+use crate::session::Session;
 
 const BITCOIN_TARGET_BLOCK: usize = 2;
+const WALLET_CACHE_DIR: &str = "wallet-cache";
+
+// The BDK database of a swap is kept outside of tmp until the swap is finished,
+// so a resume or restart only syncs what changed since the last run
+pub(crate) fn swap_wallet_dir(data_dir: &Path, swap_id: Uuid) -> PathBuf {
+    data_dir.join(WALLET_CACHE_DIR).join(swap_id.to_string())
+}
+
+pub(crate) async fn init_swap_bitcoin_wallet(
+    electrum_rpc_url: Url,
+    electrum_proxy_string: &str,
+    xprivkey: ExtendedPrivKey,
+    data_dir: &Path,
+    swap_id: Uuid,
+    env_config: env::Config,
+) -> Result<swap::bitcoin::Wallet> {
+    let started = Instant::now();
+    let wallet = match init_bitcoin_wallet(electrum_rpc_url.clone(), electrum_proxy_string, xprivkey, swap_wallet_dir(data_dir, swap_id), env_config).await {
+        Ok(wallet) => wallet,
+        Err(error) => {
+            // the cache is still locked by an earlier run of this swap, sync into a throwaway folder instead
+            println!("[SWAP CLIENT] Wallet cache of swap {} unavailable, syncing from scratch: {:#}", swap_id, error);
+            let tmp_deposit_folder = data_dir.join("tmp").join(format!(".tmp_deposit_{}", rand::thread_rng().gen_range(0..25565)));
+            init_bitcoin_wallet(electrum_rpc_url, electrum_proxy_string, xprivkey, tmp_deposit_folder, env_config).await?
+        }
+    };
+    println!("[SWAP CLIENT] Bitcoin wallet of swap {} ready in {} ms", swap_id, started.elapsed().as_millis());
+    Ok(wallet)
+}
+
+// Deletes the wallet caches of swaps whose recorded state is final (bob::is_complete) or that never recorded one
+pub(crate) async fn gc_swap_wallets(data_dir: &Path, db: &(dyn Database + Send + Sync), current_swap_id: Uuid) {
+    let entries = match std::fs::read_dir(data_dir.join(WALLET_CACHE_DIR)) {
+        Ok(entries) => entries,
+        Err(_) => return,
+    };
+    for entry in entries.flatten() {
+        let swap_id = match entry.file_name().to_str().and_then(|name| Uuid::from_str(name).ok()) {
+            Some(swap_id) => swap_id,
+            None => continue,
+        };
+        if swap_id == current_swap_id {
+            continue;
+        }
+        // a swap whose state can not be read may still need its wallet
+        let finished = match db.get_state(swap_id).await {
+            Ok(State::Bob(state)) => is_complete(&state),
+            Ok(State::Alice(_)) => false,
+            // failed before its first state, nothing was locked with this wallet
+            Err(error) if error.is::<NoStateRecorded>() => true,
+            Err(error) => {
+                println!("[SWAP CLIENT] Keeping wallet cache of swap {}, failed to read its state: {:#}", swap_id, error);
+                false
+            }
+        };
+        if finished {
+            match std::fs::remove_dir_all(entry.path()) {
+                Ok(()) => println!("[SWAP CLIENT] Removed wallet cache of swap {}", swap_id),
+                Err(error) => println!("[SWAP CLIENT] Failed to remove wallet cache of swap {}: {}", swap_id, error),
+            }
+        }
+    }
+}
 
 pub(crate) async fn init_bitcoin_wallet(
     electrum_rpc_url: Url,
     electrum_proxy_string: &str,
-    seed: &Seed,
+    xprivkey: ExtendedPrivKey,
     data_dir: PathBuf,
     env_config: env::Config,
 ) -> Result<swap::bitcoin::Wallet> {
-    let xprivkey = seed.derive_bip32_key(env_config.bitcoin_network)?;
     let wallet = swap::bitcoin::Wallet::new(
         electrum_rpc_url.clone(),
         electrum_proxy_string,
@@ -32,16 +102,22 @@ pub(crate) async fn init_bitcoin_wallet(
     Ok(wallet)
 }
 
-pub(crate) async fn init_monero_wallet(
+// The monitoring wallet of a swap is kept (encrypted) until the swap is finished, reopening it
+// continues from its stored scan height instead of scanning again. AppSwap garbage collects the files.
+pub(crate) async fn init_monitoring_wallet(
     monero_rpc_endpoint: String,
     env_config: Config,
-    wallet_name: &str
+    session: &Session,
+    swap_id: Uuid,
 ) -> Result<swap::monero::Wallet> {
-    let monero_wallet = swap::monero::Wallet::open_or_create(
+    let started = Instant::now();
+    let monero_wallet = swap::monero::Wallet::open_or_create_with_password(
         Url::from_str(monero_rpc_endpoint.as_str()).unwrap(),
-        wallet_name.to_string(),
+        format!("{}-monitoring-wallet", swap_id),
+        session.monitoring_wallet_password(swap_id),
         env_config,
     )
         .await?;
+    println!("[SWAP CLIENT] Monero monitoring wallet of swap {} ready in {} ms", swap_id, started.elapsed().as_millis());
     Ok(monero_wallet)
 }
\ No newline at end of file
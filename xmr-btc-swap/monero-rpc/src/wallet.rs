@@ -11,9 +11,10 @@ pub trait MoneroWalletRpc {
     async fn get_balance(&self, account_index: u32) -> GetBalance;
     async fn create_account(&self, label: String) -> CreateAccount;
     async fn get_accounts(&self, tag: String) -> GetAccounts;
-    async fn open_wallet(&self, filename: String) -> WalletOpened;
+    async fn open_wallet(&self, filename: String, password: String) -> WalletOpened;
     async fn close_wallet(&self) -> WalletClosed;
-    async fn create_wallet(&self, filename: String, language: String) -> WalletCreated;
+    async fn create_wallet(&self, filename: String, language: String, password: String) -> WalletCreated;
+    async fn change_wallet_password(&self, old_password: String, new_password: String) -> WalletPasswordChanged;
     async fn transfer(
         &self,
         account_index: u32,
@@ -219,6 +220,7 @@ pub struct Version {
 pub type WalletCreated = Empty;
 pub type WalletClosed = Empty;
 pub type WalletOpened = Empty;
+pub type WalletPasswordChanged = Empty;
 
 /// Zero-sized struct to allow serde to deserialize an empty JSON object.
 ///
@@ -0,0 +1,4 @@
+-- get_state and all() look up the latest state per swap
+CREATE INDEX IF NOT EXISTS swap_states_swap_id_id ON swap_states (swap_id, id);
+
+CREATE INDEX IF NOT EXISTS peer_addresses_peer_id ON peer_addresses (peer_id);
@@ -0,0 +1,12 @@
+-- Latest state of every swap and its name: role and enum variant, end states
+-- without the Done wrapper, e.g. Bob.BtcLocked or Bob.SafelyAborted
+CREATE VIEW IF NOT EXISTS latest_swap_states AS
+SELECT s.id,
+       s.swap_id,
+       s.state,
+       r.key || '.' || coalesce(
+           (SELECT coalesce(key, value) FROM json_each(s.state, '$.' || r.key || '.Done')),
+           (SELECT coalesce(key, value) FROM json_each(s.state, '$.' || r.key))
+       ) AS state_name
+FROM swap_states s, json_each(s.state) r
+WHERE s.id IN (SELECT max(id) FROM swap_states GROUP BY swap_id);
@@ -1,6 +1,7 @@
 pub mod command;
 pub mod config;
 mod event_loop;
+pub mod inventory;
 mod network;
 mod rate;
 mod recovery;
@@ -1,3 +1,4 @@
+use crate::asb::inventory::{self, Inventory};
 use crate::asb::{Behaviour, OutEvent, Rate};
 use crate::monero::Amount;
 use crate::network::quote::BidQuote;
@@ -5,7 +6,7 @@ use crate::network::swap_setup::alice::WalletSnapshot;
 use crate::network::transfer_proof;
 use crate::protocol::alice::{AliceState, State3, Swap};
 use crate::protocol::{Database, State};
-use crate::{bitcoin, env, kraken, monero, util};
+use crate::{bitcoin, env, kraken, monero};
 use anyhow::{Context, Result};
 use futures::future;
 use futures::future::{BoxFuture, FutureExt};
@@ -21,7 +22,6 @@ use std::sync::Arc;
 use std::time::Duration;
 use tokio::sync::mpsc;
 use uuid::Uuid;
-use crate::asb::asb_xmr_balance_data::AsbXmrBalanceData;
 
 /// A future that resolves to a tuple of `PeerId`, `transfer_proof::Request` and
 /// `Responder`.
@@ -42,6 +42,7 @@ where
     env_config: env::Config,
     bitcoin_wallet: Arc<bitcoin::Wallet>,
     monero_wallet: Arc<monero::Wallet>,
+    inventory: Arc<Inventory>,
     db: Arc<dyn Database + Send + Sync>,
     latest_rate: LR,
     min_buy: bitcoin::Amount,
@@ -88,6 +89,7 @@ where
             env_config,
             bitcoin_wallet,
             monero_wallet,
+            inventory: Arc::new(Inventory::new(inventory::MAX_AGE)),
             db,
             latest_rate,
             swap_sender: swap_channel.sender,
@@ -107,6 +109,11 @@ where
         *Swarm::local_peer_id(&self.swarm)
     }
 
+    /// Call [`Inventory::refresh`] when a swap finished.
+    pub fn inventory(&self) -> Arc<Inventory> {
+        self.inventory.clone()
+    }
+
     pub async fn run(mut self) {
         // ensure that these streams are NEVER empty, otherwise it will
         // terminate forever.
@@ -156,21 +163,14 @@ where
             }
         }
 
-        let mut last_time_checked_in_secs = 0;
-        loop {
-            let current_time_in_secs = util::get_sys_time_in_secs();
-            let time_since_last_check = current_time_in_secs - last_time_checked_in_secs;
-            if time_since_last_check >= 5 {
-                match self.monero_wallet.get_balance().await {
-                    Ok(balance) => { tracing::info!(%balance.balance, %balance.unlocked_balance, "ASB_XMR_BALANCE_DATA"); }
-                    Err(err) => {
-                        let error = err.to_string();
-                        tracing::info!(%error, "ASB_XMR_BALANCE_DATA" );
-                    }
-                };
-                last_time_checked_in_secs = util::get_sys_time_in_secs();
-            }
+        // polled with the swarm so it stops with the event loop, never completes
+        let mut refresh_inventory = self
+            .inventory
+            .clone()
+            .run(self.monero_wallet.clone())
+            .boxed();
 
+        loop {
             tokio::select! {
                 biased;
                 swarm_event = self.swarm.select_next_some() => {
@@ -311,6 +311,9 @@ where
                 next_transfer_proof = self.send_transfer_proof.next() => {
                     match next_transfer_proof {
                         Some(Ok((peer, transfer_proof, responder))) => {
+                            // the swap just locked Monero
+                            self.inventory.refresh();
+
                             if !self.swarm.behaviour_mut().transfer_proof.is_connected(&peer) {
                                 tracing::warn!(%peer, "No active connection to peer, buffering transfer proof");
                                 self.buffered_transfer_proofs.entry(peer).or_insert_with(Vec::new).push((transfer_proof, responder));
@@ -331,6 +334,7 @@ where
                 Some(response_channel) = self.inflight_encrypted_signatures.next() => {
                     let _ = self.swarm.behaviour_mut().encrypted_signature.send_response(response_channel, ());
                 }
+                _ = &mut refresh_inventory => {}
             }
         }
     }
@@ -347,10 +351,19 @@ where
             .ask()
             .context("Failed to compute asking price")?;
 
-        let balance = self.monero_wallet.get_balance().await?;
+        let unlocked_balance = match self.inventory.fresh() {
+            Some(snapshot) => snapshot.unlocked_balance,
+            None => {
+                // the refresh is failing or stuck behind a swap holding the wallet
+                tracing::warn!("Monero balance snapshot is stale, asking the wallet for this quote");
+                let balance = self.monero_wallet.get_balance().await?;
+                self.inventory.update(&balance);
+                balance.unlocked_balance
+            }
+        };
 
         // use unlocked monero balance for quote
-        let xmr = Amount::from_piconero(balance.unlocked_balance);
+        let xmr = Amount::from_piconero(unlocked_balance);
 
         let max_bitcoin_for_monero = xmr.max_bitcoin_for_price(ask_price).ok_or_else(|| {
             anyhow::anyhow!("Bitcoin price ({}) x Monero ({}) overflow", ask_price, xmr)
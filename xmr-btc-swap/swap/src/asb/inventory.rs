@@ -0,0 +1,128 @@
+use crate::monero;
+use monero_rpc::wallet::GetBalance;
+use std::sync::{Arc, Mutex};
+use std::time::{Duration, Instant};
+use tokio::sync::Notify;
+
+/// How often the balance is refreshed when nothing else triggers it.
+pub const REFRESH_INTERVAL: Duration = Duration::from_secs(5);
+
+/// Snapshots older than this are not used for quotes.
+pub const MAX_AGE: Duration = Duration::from_secs(30);
+
+/// Monero balance of the ASB, kept in memory for quotes.
+///
+/// Quotes used to ask monero-wallet-rpc for the balance every time, waiting
+/// for the wallet lock held by running swaps and possibly for a refresh
+/// against a remote daemon. Every taker listing sellers and every rendezvous
+/// sweep asks for a quote, so the balance is refreshed in the background
+/// instead: on a timer, after a swap sent its transfer proof (Monero locked)
+/// and after a swap finished (Monero redeemed by Bob or refunded).
+#[derive(Debug)]
+pub struct Inventory {
+    snapshot: Mutex<Option<Snapshot>>,
+    refresh: Notify,
+    max_age: Duration,
+}
+
+#[derive(Clone, Copy, Debug, PartialEq)]
+pub struct Snapshot {
+    pub balance: u64,
+    pub unlocked_balance: u64,
+    pub taken_at: Instant,
+}
+
+impl Inventory {
+    pub fn new(max_age: Duration) -> Self {
+        Self {
+            snapshot: Mutex::new(None),
+            refresh: Notify::new(),
+            max_age,
+        }
+    }
+
+    /// Refreshes the balance now instead of at the next tick.
+    pub fn refresh(&self) {
+        self.refresh.notify_one();
+    }
+
+    /// The latest snapshot, `None` if there is none yet or it is stale.
+    pub fn fresh(&self) -> Option<Snapshot> {
+        self.fresh_at(Instant::now())
+    }
+
+    fn fresh_at(&self, now: Instant) -> Option<Snapshot> {
+        let snapshot = (*self.snapshot.lock().unwrap())?;
+        if now.saturating_duration_since(snapshot.taken_at) > self.max_age {
+            return None;
+        }
+        Some(snapshot)
+    }
+
+    pub fn update(&self, balance: &GetBalance) {
+        *self.snapshot.lock().unwrap() = Some(Snapshot {
+            balance: balance.balance,
+            unlocked_balance: balance.unlocked_balance,
+            taken_at: Instant::now(),
+        });
+    }
+
+    /// Keeps the snapshot up to date, also reports the balance to the app.
+    pub async fn run(self: Arc<Self>, monero_wallet: Arc<monero::Wallet>) {
+        loop {
+            match monero_wallet.get_balance().await {
+                Ok(balance) => {
+                    self.update(&balance);
+                    tracing::info!(%balance.balance, %balance.unlocked_balance, "ASB_XMR_BALANCE_DATA");
+                }
+                Err(err) => {
+                    let error = err.to_string();
+                    tracing::info!(%error, "ASB_XMR_BALANCE_DATA");
+                }
+            }
+
+            tokio::select! {
+                _ = tokio::time::sleep(REFRESH_INTERVAL) => {}
+                _ = self.refresh.notified() => {}
+            }
+        }
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    fn balance(unlocked_balance: u64) -> GetBalance {
+        GetBalance {
+            balance: unlocked_balance * 2,
+            unlocked_balance,
+            multisig_import_needed: false,
+            blocks_to_unlock: 0,
+            time_to_unlock: 0,
+        }
+    }
+
+    #[test]
+    fn snapshot_is_stale_after_max_age() {
+        let inventory = Inventory::new(Duration::from_secs(30));
+        assert_eq!(inventory.fresh(), None);
+
+        inventory.update(&balance(1_000));
+        let snapshot = inventory.fresh().unwrap();
+        assert_eq!(snapshot.unlocked_balance, 1_000);
+        assert_eq!(snapshot.balance, 2_000);
+
+        let taken_at = snapshot.taken_at;
+        assert!(inventory.fresh_at(taken_at + Duration::from_secs(30)).is_some());
+        assert!(inventory.fresh_at(taken_at + Duration::from_secs(31)).is_none());
+    }
+
+    #[test]
+    fn update_replaces_snapshot() {
+        let inventory = Inventory::new(MAX_AGE);
+        inventory.update(&balance(1_000));
+        inventory.update(&balance(500));
+        assert_eq!(inventory.fresh().unwrap().unlocked_balance, 500);
+    }
+}
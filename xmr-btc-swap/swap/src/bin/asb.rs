@@ -194,9 +194,11 @@ async fn main() -> Result<()> {
             )
             .unwrap();
 
+            let inventory = event_loop.inventory();
             tokio::spawn(async move {
                 while let Some(swap) = swap_receiver.recv().await {
                     let rate = kraken_rate.clone();
+                    let inventory = inventory.clone();
                     tokio::spawn(async move {
                         let swap_id = swap.swap_id;
                         match run(swap, rate).await {
@@ -207,6 +209,8 @@ async fn main() -> Result<()> {
                                 tracing::info!(%error, %swap_id, "ASB_SWAP_FAIL")
                             }
                         }
+                        // refunded Monero is spendable again
+                        inventory.refresh();
                     });
                 }
             });
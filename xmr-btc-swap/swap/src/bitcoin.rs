@@ -1,3 +1,5 @@
+pub mod electrum_hub;
+pub mod fee_oracle;
 pub mod wallet;
 
 mod cancel;
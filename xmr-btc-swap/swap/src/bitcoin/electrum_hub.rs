@@ -0,0 +1,952 @@
+use crate::bitcoin::timelocks::BlockHeight;
+use crate::bitcoin::wallet::{print_status_change, status_from_history, ScriptStatus, Watchable};
+use ::bitcoin::{Script, Txid};
+use anyhow::{bail, Context, Result};
+use bdk::electrum_client::{
+    ConfigBuilder, ElectrumApi, Error as ElectrumError, HeaderNotification, ScriptStatus as ElectrumScriptStatus,
+    Socks5Config,
+};
+use conquer_once::Lazy;
+use reqwest::Url;
+use std::collections::{BTreeMap, HashMap};
+use std::convert::TryFrom;
+use std::sync::atomic::{AtomicU64, Ordering};
+use std::sync::{Arc, Mutex};
+use std::time::{Duration, Instant};
+use tokio::sync::{watch, Notify};
+
+/// Process-wide registry of Electrum connections.
+///
+/// Every swap (and the ASB) used to build its own `Client`, each spawning a
+/// polling task per watched transaction that took the client lock every 5
+/// seconds. All wallets talking to the same server now share a single
+/// connection, and all watched scripts are checked with one batched
+/// `blockchain.scripthash.get_history`. Status changes are fanned out over
+/// `watch` channels.
+pub static ELECTRUM_HUB: Lazy<ElectrumHub> = Lazy::new(ElectrumHub::default);
+
+#[derive(Default)]
+pub struct ElectrumHub {
+    servers: Mutex<HashMap<(String, String), Arc<HubServer>>>,
+}
+
+impl ElectrumHub {
+    /// Returns the shared connection for the given server and proxy,
+    /// connecting on first use.
+    pub fn server(&self, electrum_rpc_url: &Url, electrum_socks5_proxy_string: &str) -> Result<Arc<HubServer>> {
+        let key = (electrum_rpc_url.to_string(), electrum_socks5_proxy_string.to_string());
+        let mut servers = self.servers.lock().unwrap();
+        if let Some(server) = servers.get(&key) {
+            return Ok(server.clone());
+        }
+
+        let server = Arc::new(HubServer::connect(electrum_rpc_url, electrum_socks5_proxy_string, WatchIntervals::default())?);
+        servers.insert(key, server.clone());
+        Ok(server)
+    }
+
+    pub fn stats(&self) -> Vec<HubStats> {
+        self.servers
+            .lock()
+            .unwrap()
+            .values()
+            .map(|server| server.stats())
+            .collect()
+    }
+}
+
+/// How watched scripts are kept up to date.
+#[derive(Debug, Copy, Clone, PartialEq, Eq)]
+pub enum WatchMode {
+    /// Hold a header subscription and re-check scripts when a block arrives,
+    /// or when an unconfirmed script's re-check deadline expires.
+    Notify,
+    /// Re-check every script on every tick. Used when the server keeps
+    /// failing the header subscription.
+    Poll,
+}
+
+#[derive(Debug, Copy, Clone)]
+pub struct WatchIntervals {
+    /// Notify mode: how often queued notifications are drained while a
+    /// script subscription (a deposit address) is waiting for a status.
+    pub notify_tick: Duration,
+    /// Notify mode: otherwise the server is pinged this often, which both
+    /// keeps the connection alive and reads queued header notifications.
+    pub keepalive: Duration,
+    /// Notify mode: unconfirmed scripts are re-checked at least this often,
+    /// mempool arrivals do not produce a header notification.
+    pub mempool_recheck: Duration,
+    /// Notify mode: the header subscription is renewed this often, as
+    /// subscriptions are lost when the client reconnects underneath us.
+    pub resubscribe: Duration,
+    /// Poll mode tick.
+    pub poll_tick: Duration,
+}
+
+impl Default for WatchIntervals {
+    fn default() -> Self {
+        Self {
+            notify_tick: Duration::from_secs(1),
+            keepalive: Duration::from_secs(30),
+            mempool_recheck: Duration::from_secs(10),
+            resubscribe: Duration::from_secs(60),
+            poll_tick: Duration::from_secs(5),
+        }
+    }
+}
+
+/// Header subscription failures in a row before falling back to polling.
+const MAX_NOTIFY_FAILURES: u32 = 3;
+
+/// Fee estimates are refreshed on every new block, and at least this often.
+const FEE_CACHE_TTL: Duration = Duration::from_secs(2 * 60);
+
+#[derive(Debug, Clone)]
+pub struct HubStats {
+    pub url: String,
+    pub mode: WatchMode,
+    pub ticks: u64,
+    pub rpcs: u64,
+    pub last_tick_rpcs: u64,
+    pub blocks: u64,
+    pub watched_scripts: u64,
+    pub subscribed_scripts: u64,
+}
+
+struct Watcher {
+    txid: Txid,
+    last_status: Option<ScriptStatus>,
+    sender: watch::Sender<ScriptStatus>,
+}
+
+struct WatchedScript {
+    watchers: Vec<Watcher>,
+    /// None once every watcher is confirmed, the script then only changes on a new block.
+    next_check: Option<Instant>,
+}
+
+/// A `blockchain.scripthash.subscribe` subscription. Receivers see a counter
+/// that is bumped whenever the server reports a new script status.
+struct ScriptSubscription {
+    sender: watch::Sender<u64>,
+    status: Option<ElectrumScriptStatus>,
+    subscribed: bool,
+}
+
+struct HubState {
+    latest_block_height: BlockHeight,
+    watched: BTreeMap<Script, WatchedScript>,
+    subscriptions: BTreeMap<Script, ScriptSubscription>,
+    mode: WatchMode,
+    running: bool,
+    subscribed_at: Option<Instant>,
+    /// Last request that read notifications off the socket.
+    drained_at: Instant,
+    notify_failures: u32,
+}
+
+impl HubState {
+    /// Drops watchers nobody listens to any more and tells whether anything
+    /// is left. Subscriptions without receivers are unsubscribed by the tick.
+    fn is_idle(&mut self) -> bool {
+        self.watched.retain(|_, watched| {
+            watched.watchers.retain(|watcher| watcher.sender.receiver_count() > 0);
+            !watched.watchers.is_empty()
+        });
+        self.watched.is_empty() && self.subscriptions.is_empty()
+    }
+}
+
+pub struct HubServer {
+    url: String,
+    electrum: bdk::electrum_client::Client,
+    intervals: WatchIntervals,
+    state: Mutex<HubState>,
+    wake: Notify,
+    ticks: AtomicU64,
+    rpcs: AtomicU64,
+    last_tick_rpcs: AtomicU64,
+    blocks: AtomicU64,
+    fee_estimates: Mutex<HashMap<usize, (BlockHeight, Instant, f64)>>,
+    relay_fee: Mutex<Option<(Instant, f64)>>,
+}
+
+impl HubServer {
+    fn connect(electrum_rpc_url: &Url, electrum_socks5_proxy_string: &str, intervals: WatchIntervals) -> Result<Self> {
+        let mut config_builder = ConfigBuilder::default().retry(5);
+        if !electrum_socks5_proxy_string.is_empty() {
+            config_builder = config_builder
+                .socks5(Option::from(Socks5Config::new(electrum_socks5_proxy_string.to_string())))
+                .unwrap() // use Tor with the Electrum client
+        }
+        let electrum = bdk::electrum_client::Client::from_config(electrum_rpc_url.as_str(), config_builder.build())
+            .context("Failed to initialize Electrum RPC client")?;
+        let latest_block = electrum
+            .block_headers_subscribe()
+            .context("Failed to subscribe to header notifications")?;
+
+        Ok(Self {
+            url: electrum_rpc_url.to_string(),
+            electrum,
+            intervals,
+            state: Mutex::new(HubState {
+                latest_block_height: BlockHeight::try_from(latest_block)?,
+                watched: BTreeMap::new(),
+                subscriptions: BTreeMap::new(),
+                mode: WatchMode::Notify,
+                running: false,
+                subscribed_at: Some(Instant::now()),
+                drained_at: Instant::now(),
+                notify_failures: 0,
+            }),
+            wake: Notify::new(),
+            ticks: AtomicU64::new(0),
+            rpcs: AtomicU64::new(1),
+            last_tick_rpcs: AtomicU64::new(0),
+            blocks: AtomicU64::new(0),
+            fee_estimates: Mutex::new(HashMap::new()),
+            relay_fee: Mutex::new(None),
+        })
+    }
+
+    /// The shared connection, for one-off requests (fees, raw transactions).
+    pub fn electrum(&self) -> &bdk::electrum_client::Client {
+        self.rpcs.fetch_add(1, Ordering::Relaxed);
+        &self.electrum
+    }
+
+    /// `blockchain.estimatefee`, cached per target until the next block or
+    /// for [`FEE_CACHE_TTL`].
+    pub fn estimate_fee(&self, target_block: usize) -> Result<f64> {
+        let latest_block_height = self.latest_block_height();
+        if let Some((block_height, fetched_at, fee)) = self.fee_estimates.lock().unwrap().get(&target_block) {
+            if *block_height == latest_block_height && fetched_at.elapsed() < FEE_CACHE_TTL {
+                return Ok(*fee);
+            }
+        }
+        let fee = self.electrum().estimate_fee(target_block)?;
+        self.fee_estimates
+            .lock()
+            .unwrap()
+            .insert(target_block, (latest_block_height, Instant::now(), fee));
+        Ok(fee)
+    }
+
+    /// `blockchain.relayfee`, cached for [`FEE_CACHE_TTL`].
+    pub fn relay_fee(&self) -> Result<f64> {
+        if let Some((fetched_at, fee)) = *self.relay_fee.lock().unwrap() {
+            if fetched_at.elapsed() < FEE_CACHE_TTL {
+                return Ok(fee);
+            }
+        }
+        let fee = self.electrum().relay_fee()?;
+        *self.relay_fee.lock().unwrap() = Some((Instant::now(), fee));
+        Ok(fee)
+    }
+
+    pub fn latest_block_height(&self) -> BlockHeight {
+        self.state.lock().unwrap().latest_block_height
+    }
+
+    /// Watch the status of a transaction. Watching the same transaction twice
+    /// shares the channel. The watcher is dropped once all receivers are gone.
+    pub fn watch(self: &Arc<Self>, tx: &impl Watchable) -> watch::Receiver<ScriptStatus> {
+        let txid = tx.id();
+        let (receiver, start) = {
+            let mut state = self.state.lock().unwrap();
+            let watched = state.watched.entry(tx.script()).or_insert_with(|| WatchedScript {
+                watchers: vec![],
+                next_check: None,
+            });
+            // fetch the status of a new script right away instead of waiting for the next block
+            watched.next_check = Some(Instant::now());
+            let receiver = match watched.watchers.iter().find(|watcher| watcher.txid == txid) {
+                Some(watcher) => watcher.sender.subscribe(),
+                None => {
+                    let (sender, receiver) = watch::channel(ScriptStatus::Unseen);
+                    watched.watchers.push(Watcher { txid, last_status: None, sender });
+                    receiver
+                }
+            };
+            let start = !state.running;
+            state.running = true;
+            (receiver, start)
+        };
+
+        if start {
+            self.start();
+        }
+        self.wake.notify_one();
+
+        receiver
+    }
+
+    /// Subscribe to status changes of a script, e.g. a deposit address. The
+    /// counter is bumped whenever the server reports a new status, usually
+    /// within a tick of the transaction entering the mempool. In poll mode it
+    /// is bumped every tick instead. Unsubscribed once all receivers are gone.
+    pub fn subscribe_script(self: &Arc<Self>, script: Script) -> watch::Receiver<u64> {
+        let (receiver, start) = {
+            let mut state = self.state.lock().unwrap();
+            let receiver = match state.subscriptions.get(&script) {
+                Some(subscription) => subscription.sender.subscribe(),
+                None => {
+                    let (sender, receiver) = watch::channel(0);
+                    state.subscriptions.insert(script, ScriptSubscription {
+                        sender,
+                        status: None,
+                        subscribed: false,
+                    });
+                    receiver
+                }
+            };
+            let start = !state.running;
+            state.running = true;
+            (receiver, start)
+        };
+
+        if start {
+            self.start();
+        }
+        self.wake.notify_one();
+
+        receiver
+    }
+
+    /// Runs the watch loop on its own thread and runtime. Callers come from
+    /// JNI calls that each build a runtime and drop it when they return, a
+    /// task spawned there would die with it while `running` stays set.
+    fn start(self: &Arc<Self>) {
+        let server = self.clone();
+        let spawned = std::thread::Builder::new().name("electrum-hub".to_string()).spawn(move || {
+            match tokio::runtime::Builder::new_current_thread().enable_all().build() {
+                Ok(runtime) => runtime.block_on(server.clone().run()),
+                Err(error) => {
+                    tracing::error!(url = %server.url, "Failed to start Electrum watcher: {:#}", error);
+                    server.state.lock().unwrap().running = false;
+                }
+            }
+        });
+        if let Err(error) = spawned {
+            tracing::error!(url = %self.url, "Failed to start Electrum watcher: {:#}", error);
+            self.state.lock().unwrap().running = false;
+        }
+    }
+
+    /// Fetch the current status of a single transaction outside of the tick.
+    pub fn status_of_script(&self, tx: &impl Watchable) -> Result<ScriptStatus> {
+        let history = self.electrum().script_get_history(&tx.script())?;
+        let latest_block_height = self.latest_block_height();
+        status_from_history(tx.id(), &history, latest_block_height)
+    }
+
+    async fn run(self: Arc<Self>) {
+        loop {
+            let server = self.clone();
+            match tokio::task::spawn_blocking(move || server.tick()).await {
+                Ok(Ok(())) => {}
+                Ok(Err(error)) => tracing::warn!(url = %self.url, "Failed to update watched scripts: {:#}", error),
+                Err(error) => tracing::warn!(url = %self.url, "Electrum watcher tick panicked: {:#}", error),
+            }
+
+            let interval = {
+                let mut state = self.state.lock().unwrap();
+                if state.is_idle() {
+                    // cleared under the same lock a new watcher checks, it starts the next loop
+                    state.running = false;
+                    // the header subscription is not renewed while stopped
+                    state.subscribed_at = None;
+                    tracing::debug!(url = %self.url, "Nothing left to watch, stopping Electrum watcher");
+                    return;
+                }
+                match state.mode {
+                    WatchMode::Notify => self.intervals.notify_tick,
+                    WatchMode::Poll => self.intervals.poll_tick,
+                }
+            };
+            tokio::select! {
+                _ = tokio::time::sleep(interval) => {}
+                _ = self.wake.notified() => {}
+            }
+        }
+    }
+
+    fn tick(&self) -> Result<()> {
+        let mode = self.state.lock().unwrap().mode;
+        let mut rpcs = 0;
+        let result = match mode {
+            WatchMode::Notify => self.tick_notify(&mut rpcs),
+            WatchMode::Poll => self.tick_poll(&mut rpcs),
+        };
+        self.record_tick(rpcs);
+        result
+    }
+
+    fn tick_poll(&self, rpcs: &mut u64) -> Result<()> {
+        let scripts = {
+            let mut state = self.state.lock().unwrap();
+            // without notifications subscribers re-check on every tick
+            state
+                .subscriptions
+                .retain(|_, subscription| subscription.sender.receiver_count() > 0);
+            for subscription in state.subscriptions.values() {
+                subscription.sender.send_modify(|changes| *changes += 1);
+            }
+            state.watched.keys().cloned().collect::<Vec<_>>()
+        };
+        if scripts.is_empty() {
+            return Ok(());
+        }
+
+        let latest_block = self
+            .electrum
+            .block_headers_subscribe()
+            .context("Failed to subscribe to header notifications")?;
+        *rpcs += 1;
+        self.on_header(latest_block)?;
+        self.check_scripts(scripts, rpcs)
+    }
+
+    fn tick_notify(&self, rpcs: &mut u64) -> Result<()> {
+        let new_block = match self
+            .drain_headers(rpcs)
+            .and_then(|new_block| self.update_subscriptions(rpcs).map(|()| new_block))
+        {
+            Ok(new_block) => {
+                self.state.lock().unwrap().notify_failures = 0;
+                new_block
+            }
+            Err(error) => {
+                let mut state = self.state.lock().unwrap();
+                state.subscribed_at = None;
+                state.notify_failures += 1;
+                if state.notify_failures >= MAX_NOTIFY_FAILURES {
+                    tracing::warn!(url = %self.url, "Header notifications keep failing, falling back to polling");
+                    state.mode = WatchMode::Poll;
+                }
+                return Err(error);
+            }
+        };
+
+        let now = Instant::now();
+        let scripts = self
+            .state
+            .lock()
+            .unwrap()
+            .watched
+            .iter()
+            .filter(|(_, watched)| new_block || watched.next_check.map_or(false, |next_check| next_check <= now))
+            .map(|(script, _)| script.clone())
+            .collect::<Vec<_>>();
+        if scripts.is_empty() {
+            return Ok(());
+        }
+        self.check_scripts(scripts, rpcs)
+    }
+
+    /// Renews the header subscription when due, otherwise drains the
+    /// notifications queued since the last tick. Returns whether the chain
+    /// tip moved.
+    fn drain_headers(&self, rpcs: &mut u64) -> Result<bool> {
+        let (resubscribe, ping) = {
+            let state = self.state.lock().unwrap();
+            let resubscribe = state
+                .subscribed_at
+                .map_or(true, |subscribed_at| subscribed_at.elapsed() >= self.intervals.resubscribe);
+            let ping = !state.subscriptions.is_empty() || state.drained_at.elapsed() >= self.intervals.keepalive;
+            (resubscribe, ping)
+        };
+
+        if resubscribe {
+            let latest_block = self
+                .electrum
+                .block_headers_subscribe()
+                .context("Failed to subscribe to header notifications")?;
+            *rpcs += 1;
+            {
+                let mut state = self.state.lock().unwrap();
+                state.subscribed_at = Some(Instant::now());
+                state.drained_at = Instant::now();
+            }
+            let new_block = self.on_header(latest_block)?;
+            // script subscriptions are lost together with the header subscription
+            for subscription in self.state.lock().unwrap().subscriptions.values_mut() {
+                subscription.subscribed = false;
+            }
+            return Ok(new_block);
+        }
+
+        // notifications are only read off the socket while a request is in flight
+        if ping {
+            self.electrum.ping().context("Failed to ping Electrum server")?;
+            *rpcs += 1;
+            self.state.lock().unwrap().drained_at = Instant::now();
+        }
+        let mut new_block = false;
+        while let Some(header) = self
+            .electrum
+            .block_headers_pop()
+            .context("Failed to read header notification")?
+        {
+            new_block |= self.on_header(header)?;
+        }
+        Ok(new_block)
+    }
+
+    /// Subscribes new scripts, drops scripts nobody listens to any more and
+    /// reads the status notifications picked up by the last request.
+    fn update_subscriptions(&self, rpcs: &mut u64) -> Result<()> {
+        let (gone, pending, subscribed) = {
+            let mut state = self.state.lock().unwrap();
+            let gone = state
+                .subscriptions
+                .iter()
+                .filter(|(_, subscription)| subscription.sender.receiver_count() == 0)
+                .map(|(script, _)| script.clone())
+                .collect::<Vec<_>>();
+            for script in &gone {
+                state.subscriptions.remove(script);
+            }
+            let (subscribed, pending): (Vec<_>, Vec<_>) = state
+                .subscriptions
+                .iter()
+                .map(|(script, subscription)| (script.clone(), subscription.subscribed))
+                .partition(|(_, subscribed)| *subscribed);
+            (gone, pending, subscribed)
+        };
+
+        for script in gone {
+            // the server may have forgotten it already after a reconnect
+            let _ = self.electrum.script_unsubscribe(&script);
+            *rpcs += 1;
+        }
+
+        for (script, _) in pending {
+            match self.electrum.script_subscribe(&script) {
+                Ok(status) => self.on_script_status(&script, status),
+                // still subscribed on this connection, nothing was missed
+                Err(ElectrumError::AlreadySubscribed(_)) => self.on_script_status_unchanged(&script),
+                Err(error) => return Err(error).context("Failed to subscribe to script"),
+            }
+            *rpcs += 1;
+        }
+
+        for (script, _) in subscribed {
+            while let Some(status) = self
+                .electrum
+                .script_pop(&script)
+                .context("Failed to read script notification")?
+            {
+                self.on_script_status(&script, Some(status));
+            }
+        }
+
+        Ok(())
+    }
+
+    fn on_script_status(&self, script: &Script, status: Option<ElectrumScriptStatus>) {
+        let mut state = self.state.lock().unwrap();
+        if let Some(subscription) = state.subscriptions.get_mut(script) {
+            subscription.subscribed = true;
+            if subscription.status != status {
+                tracing::debug!(url = %self.url, "Script status changed");
+                subscription.status = status;
+                subscription.sender.send_modify(|changes| *changes += 1);
+            }
+        }
+    }
+
+    fn on_script_status_unchanged(&self, script: &Script) {
+        if let Some(subscription) = self.state.lock().unwrap().subscriptions.get_mut(script) {
+            subscription.subscribed = true;
+        }
+    }
+
+    fn on_header(&self, header: HeaderNotification) -> Result<bool> {
+        let block_height = BlockHeight::try_from(header)?;
+        let mut state = self.state.lock().unwrap();
+        if block_height > state.latest_block_height {
+            tracing::debug!(block_height = u32::from(block_height), "Got notification for new block");
+            state.latest_block_height = block_height;
+            self.blocks.fetch_add(1, Ordering::Relaxed);
+            return Ok(true);
+        }
+        Ok(false)
+    }
+
+    fn check_scripts(&self, scripts: Vec<Script>, rpcs: &mut u64) -> Result<()> {
+        let histories = self
+            .electrum
+            .batch_script_get_history(scripts.iter())
+            .context("Failed to get script histories")?;
+        *rpcs += 1;
+        self.state.lock().unwrap().drained_at = Instant::now();
+        tracing::debug!(url = %self.url, scripts = scripts.len(), "Checked watched scripts");
+
+        if histories.len() != scripts.len() {
+            bail!("Expected {} history entries, received {}", scripts.len(), histories.len());
+        }
+
+        let now = Instant::now();
+        let mut state = self.state.lock().unwrap();
+        let latest_block_height = state.latest_block_height;
+
+        for (script, history) in scripts.into_iter().zip(histories) {
+            let watched = match state.watched.get_mut(&script) {
+                Some(watched) => watched,
+                None => continue,
+            };
+            watched.watchers.retain_mut(|watcher| {
+                match status_from_history(watcher.txid, &history, latest_block_height) {
+                    Ok(new_status) => {
+                        watcher.last_status = Some(print_status_change(watcher.txid, watcher.last_status, new_status));
+                        watcher.sender.send_if_modified(|status| {
+                            let modified = *status != new_status;
+                            *status = new_status;
+                            modified
+                        });
+                    }
+                    Err(error) => tracing::warn!(txid = %watcher.txid, "Failed to get status of script: {:#}", error),
+                }
+
+                let all_receivers_gone = watcher.sender.receiver_count() == 0;
+                if all_receivers_gone {
+                    tracing::debug!(txid = %watcher.txid, "All receivers gone, removing subscription");
+                }
+                !all_receivers_gone
+            });
+
+            let all_confirmed = watched
+                .watchers
+                .iter()
+                .all(|watcher| matches!(watcher.last_status, Some(ScriptStatus::Confirmed(_))));
+            watched.next_check = if all_confirmed { None } else { Some(now + self.intervals.mempool_recheck) };
+
+            if watched.watchers.is_empty() {
+                state.watched.remove(&script);
+            }
+        }
+
+        Ok(())
+    }
+
+    fn record_tick(&self, rpcs: u64) {
+        self.ticks.fetch_add(1, Ordering::Relaxed);
+        self.rpcs.fetch_add(rpcs, Ordering::Relaxed);
+        self.last_tick_rpcs.store(rpcs, Ordering::Relaxed);
+    }
+
+    pub fn stats(&self) -> HubStats {
+        let state = self.state.lock().unwrap();
+        HubStats {
+            url: self.url.clone(),
+            mode: state.mode,
+            ticks: self.ticks.load(Ordering::Relaxed),
+            rpcs: self.rpcs.load(Ordering::Relaxed),
+            last_tick_rpcs: self.last_tick_rpcs.load(Ordering::Relaxed),
+            blocks: self.blocks.load(Ordering::Relaxed),
+            watched_scripts: state.watched.len() as u64,
+            subscribed_scripts: state.subscriptions.len() as u64,
+        }
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use ::bitcoin::hashes::Hash;
+    use serde_json::{json, Value};
+    use std::io::{BufRead, BufReader, Write};
+    use std::net::{TcpListener, TcpStream};
+
+    // Genesis header, the hub never validates headers, only reads the height
+    const HEADER_HEX: &str = "0100000000000000000000000000000000000000000000000000000000000000000000003ba3edfd7a7b12b27ac72c3e67768f617fc81bc3888a51323a9fb8aa4b1e5e4a29ab5f49ffff001d1dac2b7c";
+
+    /// Minimal stand-in for electrs: answers the handful of methods the hub
+    /// uses and pushes header notifications to subscribed connections.
+    #[derive(Clone)]
+    struct FakeElectrum {
+        height: Arc<Mutex<u32>>,
+        history: Arc<Mutex<Vec<Value>>>,
+        subscribers: Arc<Mutex<Vec<Arc<Mutex<TcpStream>>>>>,
+        script_subscribers: Arc<Mutex<Vec<(Arc<Mutex<TcpStream>>, Value)>>>,
+        script_status: Arc<Mutex<Value>>,
+        requests: Arc<Mutex<Vec<String>>>,
+    }
+
+    impl FakeElectrum {
+        fn start(height: u32) -> (Self, Url) {
+            let listener = TcpListener::bind("127.0.0.1:0").unwrap();
+            let url = Url::parse(&format!("tcp://{}", listener.local_addr().unwrap())).unwrap();
+            let server = FakeElectrum {
+                height: Arc::new(Mutex::new(height)),
+                history: Arc::new(Mutex::new(vec![])),
+                subscribers: Arc::new(Mutex::new(vec![])),
+                script_subscribers: Arc::new(Mutex::new(vec![])),
+                script_status: Arc::new(Mutex::new(Value::Null)),
+                requests: Arc::new(Mutex::new(vec![])),
+            };
+            let accepting = server.clone();
+            std::thread::spawn(move || {
+                for stream in listener.incoming() {
+                    let connection = accepting.clone();
+                    std::thread::spawn(move || connection.serve(stream.unwrap()));
+                }
+            });
+            (server, url)
+        }
+
+        fn serve(&self, stream: TcpStream) {
+            // responses and pushed notifications share the socket, write whole lines only
+            let writer = Arc::new(Mutex::new(stream.try_clone().unwrap()));
+            for line in BufReader::new(stream).lines() {
+                let request: Value = serde_json::from_str(&line.unwrap()).unwrap();
+                let method = request["method"].as_str().unwrap().to_string();
+                self.requests.lock().unwrap().push(method.clone());
+                let result = match method.as_str() {
+                    "server.ping" => Value::Null,
+                    "blockchain.headers.subscribe" => {
+                        self.subscribers.lock().unwrap().push(writer.clone());
+                        self.header()
+                    }
+                    "blockchain.scripthash.get_history" => Value::Array(self.history.lock().unwrap().clone()),
+                    "blockchain.scripthash.subscribe" => {
+                        let script_hash = request["params"][0].clone();
+                        self.script_subscribers.lock().unwrap().push((writer.clone(), script_hash));
+                        self.script_status.lock().unwrap().clone()
+                    }
+                    "blockchain.scripthash.unsubscribe" => Value::Bool(true),
+                    "blockchain.estimatefee" => json!(0.0001),
+                    other => panic!("unexpected method {}", other),
+                };
+                let response = json!({"jsonrpc": "2.0", "id": request["id"], "result": result});
+                writer.lock().unwrap().write_all(format!("{}\n", response).as_bytes()).unwrap();
+            }
+        }
+
+        fn header(&self) -> Value {
+            json!({"height": *self.height.lock().unwrap(), "hex": HEADER_HEX})
+        }
+
+        fn set_history(&self, txid: Txid, height: i32) {
+            *self.history.lock().unwrap() = vec![json!({"tx_hash": txid.to_string(), "height": height})];
+        }
+
+        fn mine_block(&self) {
+            *self.height.lock().unwrap() += 1;
+            let notification = json!({"jsonrpc": "2.0", "method": "blockchain.headers.subscribe", "params": [self.header()]});
+            for subscriber in self.subscribers.lock().unwrap().iter() {
+                let _ = subscriber.lock().unwrap().write_all(format!("{}\n", notification).as_bytes());
+            }
+        }
+
+        /// A transaction touching the script reached the mempool
+        fn set_script_status(&self, status: u8) {
+            let status = json!(hex::encode([status; 32]));
+            *self.script_status.lock().unwrap() = status.clone();
+            for (subscriber, script_hash) in self.script_subscribers.lock().unwrap().iter() {
+                let notification = json!({"jsonrpc": "2.0", "method": "blockchain.scripthash.subscribe", "params": [script_hash, status]});
+                let _ = subscriber.lock().unwrap().write_all(format!("{}\n", notification).as_bytes());
+            }
+        }
+
+        async fn wait_for_request(&self, method: &str, count: usize) {
+            tokio::time::timeout(Duration::from_secs(5), async {
+                while self.count(method) < count {
+                    tokio::time::sleep(Duration::from_millis(10)).await;
+                }
+            })
+            .await
+            .unwrap_or_else(|_| panic!("timed out waiting for {}", method));
+        }
+
+        fn count(&self, method: &str) -> usize {
+            self.requests.lock().unwrap().iter().filter(|request| *request == method).count()
+        }
+    }
+
+    fn intervals() -> WatchIntervals {
+        WatchIntervals {
+            notify_tick: Duration::from_millis(100),
+            keepalive: Duration::from_millis(200),
+            mempool_recheck: Duration::from_millis(500),
+            resubscribe: Duration::from_secs(60),
+            poll_tick: Duration::from_millis(100),
+        }
+    }
+
+    async fn wait_for(receiver: &mut watch::Receiver<ScriptStatus>, expected: ScriptStatus) -> Duration {
+        let started = Instant::now();
+        tokio::time::timeout(Duration::from_secs(5), async {
+            while *receiver.borrow() != expected {
+                receiver.changed().await.unwrap();
+            }
+        })
+        .await
+        .unwrap_or_else(|_| panic!("timed out waiting for {}", expected));
+        started.elapsed()
+    }
+
+    #[tokio::test(flavor = "multi_thread")]
+    async fn confirmations_follow_header_notifications() {
+        let (electrum, url) = FakeElectrum::start(100);
+        let hub = Arc::new(HubServer::connect(&url, "", intervals()).unwrap());
+        let txid = Txid::from_hash(::bitcoin::hashes::sha256d::Hash::hash(b"tx_lock"));
+        let mut receiver = hub.watch(&(txid, Script::new()));
+
+        electrum.set_history(txid, 0);
+        wait_for(&mut receiver, ScriptStatus::InMempool).await;
+
+        electrum.set_history(txid, 101);
+        electrum.mine_block();
+        let latency = wait_for(&mut receiver, ScriptStatus::from_confirmations(1)).await;
+        println!("block notification to status update: {:?}", latency);
+        assert!(latency < intervals().mempool_recheck, "confirmation came from the mempool deadline, not the block: {:?}", latency);
+
+        electrum.mine_block();
+        wait_for(&mut receiver, ScriptStatus::from_confirmations(2)).await;
+        assert_eq!(hub.stats().mode, WatchMode::Notify);
+        assert_eq!(hub.stats().blocks, 2);
+    }
+
+    #[tokio::test(flavor = "multi_thread")]
+    async fn confirmed_scripts_are_not_rechecked_without_a_block() {
+        let (electrum, url) = FakeElectrum::start(100);
+        electrum.set_history(Txid::all_zeros(), 100);
+        let hub = Arc::new(HubServer::connect(&url, "", intervals()).unwrap());
+        let mut receiver = hub.watch(&(Txid::all_zeros(), Script::new()));
+        wait_for(&mut receiver, ScriptStatus::from_confirmations(1)).await;
+
+        let checks = electrum.count("blockchain.scripthash.get_history");
+        tokio::time::sleep(intervals().mempool_recheck * 3).await;
+        assert_eq!(electrum.count("blockchain.scripthash.get_history"), checks);
+
+        electrum.mine_block();
+        wait_for(&mut receiver, ScriptStatus::from_confirmations(2)).await;
+        assert_eq!(electrum.count("blockchain.scripthash.get_history"), checks + 1);
+    }
+
+    #[tokio::test(flavor = "multi_thread")]
+    async fn deposit_notifications_arrive_within_a_tick() {
+        let (electrum, url) = FakeElectrum::start(100);
+        let hub = Arc::new(HubServer::connect(&url, "", intervals()).unwrap());
+        let mut receiver = hub.subscribe_script(Script::new());
+        electrum.wait_for_request("blockchain.scripthash.subscribe", 1).await;
+        assert_eq!(*receiver.borrow(), 0);
+
+        let started = Instant::now();
+        electrum.set_script_status(0xaa);
+        tokio::time::timeout(Duration::from_secs(5), receiver.changed())
+            .await
+            .unwrap()
+            .unwrap();
+        let latency = started.elapsed();
+        println!("mempool notification to deposit change: {:?}", latency);
+        assert!(latency < intervals().notify_tick * 3, "{:?}", latency);
+        assert_eq!(*receiver.borrow(), 1);
+        // the deposit address is never synced or polled by the hub itself
+        assert_eq!(electrum.count("blockchain.scripthash.get_history"), 0);
+
+        drop(receiver);
+        electrum.wait_for_request("blockchain.scripthash.unsubscribe", 1).await;
+        assert_eq!(hub.stats().subscribed_scripts, 0);
+    }
+
+    #[tokio::test(flavor = "multi_thread")]
+    async fn fee_estimates_are_cached() {
+        let (electrum, url) = FakeElectrum::start(100);
+        let hub = HubServer::connect(&url, "", intervals()).unwrap();
+        assert_eq!(hub.estimate_fee(1).unwrap(), 0.0001);
+        assert_eq!(hub.estimate_fee(1).unwrap(), 0.0001);
+        assert_eq!(electrum.count("blockchain.estimatefee"), 1);
+        hub.estimate_fee(6).unwrap();
+        assert_eq!(electrum.count("blockchain.estimatefee"), 2);
+
+        // a new block invalidates the cache
+        let hub = Arc::new(hub);
+        let _receiver = hub.watch(&(Txid::all_zeros(), Script::new()));
+        electrum.mine_block();
+        tokio::time::timeout(Duration::from_secs(5), async {
+            while hub.stats().blocks == 0 {
+                tokio::time::sleep(Duration::from_millis(10)).await;
+            }
+        })
+        .await
+        .unwrap();
+        hub.estimate_fee(1).unwrap();
+        assert_eq!(electrum.count("blockchain.estimatefee"), 3);
+    }
+
+    #[tokio::test(flavor = "multi_thread")]
+    async fn pings_at_the_keepalive_interval_without_script_subscriptions() {
+        let (electrum, url) = FakeElectrum::start(100);
+        electrum.set_history(Txid::all_zeros(), 100);
+        let intervals = WatchIntervals {
+            keepalive: Duration::from_secs(1),
+            ..intervals()
+        };
+        let hub = Arc::new(HubServer::connect(&url, "", intervals).unwrap());
+        let mut receiver = hub.watch(&(Txid::all_zeros(), Script::new()));
+        wait_for(&mut receiver, ScriptStatus::from_confirmations(1)).await;
+
+        // ten ticks, one keepalive
+        let pings = electrum.count("server.ping");
+        tokio::time::sleep(intervals.notify_tick * 10 + intervals.notify_tick / 2).await;
+        let sent = electrum.count("server.ping") - pings;
+        assert!(sent <= 1, "{} pings within one keepalive interval", sent);
+
+        // a deposit subscription drains every tick
+        let _deposit = hub.subscribe_script(Script::new());
+        electrum.wait_for_request("blockchain.scripthash.subscribe", 1).await;
+        let pings = electrum.count("server.ping");
+        tokio::time::sleep(intervals.notify_tick * 5).await;
+        assert!(electrum.count("server.ping") - pings >= 3);
+    }
+
+    #[tokio::test(flavor = "multi_thread")]
+    async fn watcher_outlives_the_runtime_that_started_it() {
+        let (electrum, url) = FakeElectrum::start(100);
+        let hub = Arc::new(HubServer::connect(&url, "", intervals()).unwrap());
+        let txid = Txid::from_hash(::bitcoin::hashes::sha256d::Hash::hash(b"tx_lock"));
+
+        // like a JNI call, the runtime is gone once watch returns
+        let watching = hub.clone();
+        let mut receiver = std::thread::spawn(move || {
+            tokio::runtime::Runtime::new()
+                .unwrap()
+                .block_on(async move { watching.watch(&(txid, Script::new())) })
+        })
+        .join()
+        .unwrap();
+
+        electrum.set_history(txid, 0);
+        wait_for(&mut receiver, ScriptStatus::InMempool).await;
+    }
+
+    #[tokio::test(flavor = "multi_thread")]
+    async fn watcher_stops_when_nothing_is_watched_and_restarts() {
+        let (electrum, url) = FakeElectrum::start(100);
+        electrum.set_history(Txid::all_zeros(), 100);
+        let hub = Arc::new(HubServer::connect(&url, "", intervals()).unwrap());
+        let mut receiver = hub.watch(&(Txid::all_zeros(), Script::new()));
+        wait_for(&mut receiver, ScriptStatus::from_confirmations(1)).await;
+
+        drop(receiver);
+        tokio::time::timeout(Duration::from_secs(5), async {
+            while hub.state.lock().unwrap().running {
+                tokio::time::sleep(Duration::from_millis(10)).await;
+            }
+        })
+        .await
+        .expect("watcher kept running without watchers");
+        assert_eq!(hub.stats().watched_scripts, 0);
+        let requests = electrum.requests.lock().unwrap().len();
+        tokio::time::sleep(intervals().notify_tick * 5).await;
+        assert_eq!(electrum.requests.lock().unwrap().len(), requests);
+
+        let mut receiver = hub.watch(&(Txid::all_zeros(), Script::new()));
+        wait_for(&mut receiver, ScriptStatus::from_confirmations(1)).await;
+        assert!(hub.state.lock().unwrap().running);
+    }
+}
@@ -0,0 +1,153 @@
+use crate::bitcoin::electrum_hub::HubServer;
+use ::bitcoin::Network;
+use anyhow::{bail, Result};
+use bdk::FeeRate;
+use conquer_once::Lazy;
+use std::collections::{BTreeMap, HashMap};
+use std::sync::{Arc, Mutex, Weak};
+use std::time::{Duration, Instant};
+
+/// Process-wide fee estimates. In the app they are shared by the swap client
+/// and the Java wallet (withdraw defaults); the ASB runs as a separate
+/// process with its own instance, fed only by its own Electrum servers.
+///
+/// Sources are every Electrum server a wallet of the same network is
+/// connected to, plus estimates reported by the app, e.g. from the Whirlpool
+/// backend. The median is used so a single misbehaving server can neither
+/// make us overpay nor get a lock or refund transaction stuck.
+pub static FEE_ORACLE: Lazy<FeeOracle> = Lazy::new(FeeOracle::default);
+
+/// Reported estimates older than this are ignored, the app refreshes them
+/// every minute.
+const REPORTED_ESTIMATES_TTL: Duration = Duration::from_secs(10 * 60);
+
+struct ReportedEstimates {
+    reported_at: Instant,
+    /// Target block to sat/vB.
+    sat_per_vb: BTreeMap<usize, f32>,
+}
+
+#[derive(Default)]
+pub struct FeeOracle {
+    servers: Mutex<Vec<(Network, Weak<HubServer>)>>,
+    reported: Mutex<HashMap<(Network, String), ReportedEstimates>>,
+}
+
+impl FeeOracle {
+    pub fn add_server(&self, network: Network, server: &Arc<HubServer>) {
+        let mut servers = self.servers.lock().unwrap();
+        servers.retain(|(_, server)| server.strong_count() > 0);
+        let known = servers
+            .iter()
+            .any(|(known_network, known)| *known_network == network && known.as_ptr() == Arc::as_ptr(server));
+        if !known {
+            servers.push((network, Arc::downgrade(server)));
+        }
+    }
+
+    /// Estimates from a source outside of the Electrum servers, replacing the
+    /// ones previously reported by the same source.
+    pub fn report(&self, network: Network, source: &str, sat_per_vb: BTreeMap<usize, f32>) {
+        self.reported.lock().unwrap().insert((network, source.to_string()), ReportedEstimates {
+            reported_at: Instant::now(),
+            sat_per_vb,
+        });
+    }
+
+    /// Median of all sources for confirmation within `target_block` blocks.
+    pub fn fee_rate(&self, network: Network, target_block: usize) -> Result<FeeRate> {
+        let servers = self
+            .servers
+            .lock()
+            .unwrap()
+            .iter()
+            .filter(|(server_network, _)| *server_network == network)
+            .filter_map(|(_, server)| server.upgrade())
+            .collect::<Vec<_>>();
+
+        let mut sat_per_vb = vec![];
+        for server in servers {
+            // Electrum returns BTC/kvB, and -1 when the server has no estimate
+            match server.estimate_fee(target_block) {
+                Ok(btc_per_kvb) if btc_per_kvb > 0.0 => sat_per_vb.push((btc_per_kvb * 100_000.0) as f32),
+                Ok(_) => {}
+                Err(error) => tracing::debug!("Failed to get fee estimate: {:#}", error),
+            }
+        }
+        sat_per_vb.extend(self.reported_estimates(network, target_block));
+
+        match median(sat_per_vb) {
+            Some(sat_per_vb) => Ok(FeeRate::from_sat_per_vb(sat_per_vb)),
+            None => bail!("No fee estimate available for {} blocks", target_block),
+        }
+    }
+
+    fn reported_estimates(&self, network: Network, target_block: usize) -> Vec<f32> {
+        self.reported
+            .lock()
+            .unwrap()
+            .iter()
+            .filter(|((reported_network, _), estimates)| {
+                *reported_network == network && estimates.reported_at.elapsed() < REPORTED_ESTIMATES_TTL
+            })
+            .filter_map(|(_, estimates)| closest_target(&estimates.sat_per_vb, target_block))
+            .collect()
+    }
+}
+
+/// The estimate for the largest target not above `target_block`, sources
+/// only offer a handful of targets (e.g. 2, 4, 6, 12, 24 blocks).
+fn closest_target(sat_per_vb: &BTreeMap<usize, f32>, target_block: usize) -> Option<f32> {
+    sat_per_vb
+        .range(..=target_block)
+        .next_back()
+        .or_else(|| sat_per_vb.iter().next())
+        .map(|(_, sat_per_vb)| *sat_per_vb)
+}
+
+fn median(mut values: Vec<f32>) -> Option<f32> {
+    if values.is_empty() {
+        return None;
+    }
+    values.sort_by(|a, b| a.total_cmp(b));
+    let middle = values.len() / 2;
+    if values.len() % 2 == 0 {
+        Some((values[middle - 1] + values[middle]) / 2.0)
+    } else {
+        Some(values[middle])
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    #[test]
+    fn median_ignores_a_single_outlier() {
+        assert_eq!(median(vec![12.0, 500.0, 10.0]), Some(12.0));
+        assert_eq!(median(vec![10.0, 20.0]), Some(15.0));
+        assert_eq!(median(vec![]), None);
+    }
+
+    #[test]
+    fn closest_target_rounds_down() {
+        let estimates = BTreeMap::from([(2, 30.0), (6, 20.0), (24, 5.0)]);
+        assert_eq!(closest_target(&estimates, 1), Some(30.0));
+        assert_eq!(closest_target(&estimates, 2), Some(30.0));
+        assert_eq!(closest_target(&estimates, 12), Some(20.0));
+        assert_eq!(closest_target(&estimates, 144), Some(5.0));
+    }
+
+    #[test]
+    fn reported_estimates_are_kept_per_network_and_source() {
+        let oracle = FeeOracle::default();
+        oracle.report(Network::Bitcoin, "whirlpool", BTreeMap::from([(2, 30.0)]));
+        oracle.report(Network::Bitcoin, "other", BTreeMap::from([(2, 10.0)]));
+        oracle.report(Network::Bitcoin, "whirlpool", BTreeMap::from([(2, 20.0)]));
+        oracle.report(Network::Testnet, "whirlpool", BTreeMap::from([(2, 1.0)]));
+
+        assert_eq!(oracle.fee_rate(Network::Bitcoin, 2).unwrap(), FeeRate::from_sat_per_vb(15.0));
+        assert_eq!(oracle.fee_rate(Network::Testnet, 2).unwrap(), FeeRate::from_sat_per_vb(1.0));
+        assert!(oracle.fee_rate(Network::Regtest, 2).is_err());
+    }
+}
@@ -1,3 +1,5 @@
+use crate::bitcoin::electrum_hub::{HubServer, ELECTRUM_HUB};
+use crate::bitcoin::fee_oracle::FEE_ORACLE;
 use crate::bitcoin::timelocks::BlockHeight;
 use crate::bitcoin::{Address, Amount, Transaction};
 use crate::env;
@@ -17,13 +19,11 @@ use reqwest::Url;
 use rust_decimal::prelude::*;
 use rust_decimal::Decimal;
 use rust_decimal_macros::dec;
-use std::collections::{BTreeMap, HashMap};
 use std::convert::TryFrom;
 use std::fmt;
 use std::ops::{Mul, Not};
 use std::path::Path;
 use std::sync::Arc;
-use std::time::{Duration, Instant};
 use bdk::descriptor::{DescriptorError, Segwitv0};
 use bdk::keys::{DerivableKey, IntoDescriptorKey};
 use bdk::template::{DescriptorTemplate, DescriptorTemplateOut, P2Wpkh};
@@ -144,7 +144,7 @@ impl Wallet {
             err => err?,
         };
 
-        let client = Client::new(electrum_rpc_url, electrum_socks5_proxy_string, env_config.bitcoin_sync_interval())?;
+        let client = Client::new(electrum_rpc_url, electrum_socks5_proxy_string, wallet.network())?;
 
         let network = wallet.network();
 
@@ -183,7 +183,7 @@ impl Wallet {
             err => err?,
         };
 
-        let client = Client::new(electrum_rpc_url, electrum_socks5_proxy_string, env_config.bitcoin_sync_interval())?;
+        let client = Client::new(electrum_rpc_url, electrum_socks5_proxy_string, wallet.network())?;
 
         let network = wallet.network();
 
@@ -222,7 +222,7 @@ impl Wallet {
             err => err?,
         };
 
-        let client = Client::new(electrum_rpc_url, electrum_socks5_proxy_string, env_config.bitcoin_sync_interval())?;
+        let client = Client::new(electrum_rpc_url, electrum_socks5_proxy_string, wallet.network())?;
 
         let network = wallet.network();
 
@@ -304,57 +304,20 @@ impl Wallet {
     }
 
     pub async fn subscribe_to(&self, tx: impl Watchable + Send + 'static) -> Subscription {
-        let txid = tx.id();
-        let script = tx.script();
+        let hub = self.client.lock().await.hub.clone();
 
-        let sub = self
-            .client
-            .lock()
-            .await
-            .subscriptions
-            .entry((txid, script.clone()))
-            .or_insert_with(|| {
-                let (sender, receiver) = watch::channel(ScriptStatus::Unseen);
-                let client = self.client.clone();
-
-                tokio::spawn(async move {
-                    let mut last_status = None;
-
-                    loop {
-                        let new_status = match client.lock().await.status_of_script(&tx) {
-                            Ok(new_status) => new_status,
-                            Err(error) => {
-                                tracing::warn!(%txid, "Failed to get status of script: {:#}", error);
-                                ScriptStatus::Retrying
-                            }
-                        };
-
-                        if new_status != ScriptStatus::Retrying
-                        {
-                            last_status = Some(print_status_change(txid, last_status, new_status));
-
-                            let all_receivers_gone = sender.send(new_status).is_err();
-
-                            if all_receivers_gone {
-                                tracing::debug!(%txid, "All receivers gone, removing subscription");
-                                client.lock().await.subscriptions.remove(&(txid, script));
-                                return;
-                            }
-                        }
-
-                        tokio::time::sleep(Duration::from_secs(5)).await;
-                    }
-                });
-
-                Subscription {
-                    receiver,
-                    finality_confirmations: self.finality_confirmations,
-                    txid,
-                }
-            })
-            .clone();
+        Subscription {
+            receiver: hub.watch(&tx),
+            finality_confirmations: self.finality_confirmations,
+            txid: tx.id(),
+        }
+    }
 
-        sub
+    /// Notifies about every status change of a script, e.g. a deposit arriving
+    /// at one of our addresses, without syncing the wallet to find out.
+    pub async fn subscribe_to_script(&self, script: Script) -> watch::Receiver<u64> {
+        let hub = self.client.lock().await.hub.clone();
+        hub.subscribe_script(script)
     }
 
     pub async fn wallet_export(&self, role: &str) -> Result<FullyNodedExport> {
@@ -370,7 +333,7 @@ impl Wallet {
     }
 }
 
-fn print_status_change(txid: Txid, old: Option<ScriptStatus>, new: ScriptStatus) -> ScriptStatus {
+pub(crate) fn print_status_change(txid: Txid, old: Option<ScriptStatus>, new: ScriptStatus) -> ScriptStatus {
     match (old, new) {
         (None, new_status) => {
             tracing::debug!(%txid, status = %new_status, "Found relevant Bitcoin transaction");
@@ -945,17 +908,18 @@ impl Watchable for (Txid, Script) {
 }
 
 pub struct Client {
-    electrum: bdk::electrum_client::Client,
+    hub: Arc<HubServer>,
     blockchain: ElectrumBlockchain,
-    latest_block_height: BlockHeight,
-    last_sync: Instant,
-    sync_interval: Duration,
-    script_history: BTreeMap<Script, Vec<GetHistoryRes>>,
-    subscriptions: HashMap<(Txid, Script), Subscription>,
+    network: Network,
 }
 
 impl Client {
-    fn new(electrum_rpc_url: Url, electrum_socks5_proxy_string: &str, interval: Duration) -> Result<Self> {
+    fn new(electrum_rpc_url: Url, electrum_socks5_proxy_string: &str, network: Network) -> Result<Self> {
+        // Script watching, fee estimates and header queries go through the connection shared by all wallets,
+        // only the BDK wallet sync keeps a connection of its own.
+        let hub = ELECTRUM_HUB.server(&electrum_rpc_url, electrum_socks5_proxy_string)?;
+        FEE_ORACLE.add_server(network, &hub);
+
         let mut config_builder = bdk::electrum_client::ConfigBuilder::default()
             .retry(5);
         if electrum_socks5_proxy_string.is_empty().not() {
@@ -963,29 +927,14 @@ impl Client {
                 .socks5(Option::from(Socks5Config::new(electrum_socks5_proxy_string.to_string()))).unwrap() // use Tor with the Electrum client
         }
         let config = config_builder.build();
-        let electrum = bdk::electrum_client::Client::from_config(electrum_rpc_url.as_str(), config.clone())
-            .context("Failed to initialize Electrum RPC client")?;
-        // Initially fetch the latest block for storing the height.
-        // We do not act on this subscription after this call.
-        let latest_block = electrum
-            .block_headers_subscribe()
-            .context("Failed to subscribe to header notifications 1")?;
-
-        let client = bdk::electrum_client::Client::from_config(electrum_rpc_url.as_str(), config.clone())
+        let client = bdk::electrum_client::Client::from_config(electrum_rpc_url.as_str(), config)
             .context("Failed to initialize Electrum RPC client")?;
         let blockchain = ElectrumBlockchain::from(client);
-        let last_sync = Instant::now()
-            .checked_sub(interval)
-            .expect("no underflow since block time is only 600 secs");
 
         Ok(Self {
-            electrum,
+            hub,
             blockchain,
-            latest_block_height: BlockHeight::try_from(latest_block)?,
-            last_sync,
-            sync_interval: interval,
-            script_history: Default::default(),
-            subscriptions: Default::default(),
+            network,
         })
     }
 
@@ -997,126 +946,56 @@ impl Client {
         self.blockchain.get_tx(txid)
     }
 
-    fn update_state(&mut self, force_sync: bool) -> Result<()> {
-        let now = Instant::now();
-
-        if !force_sync && now < self.last_sync + self.sync_interval {
-            return Ok(());
-        }
-
-        self.last_sync = now;
-        self.update_latest_block()?;
-        self.update_script_histories()?;
-
-        Ok(())
-    }
-
-    fn status_of_script<T>(&mut self, tx: &T) -> Result<ScriptStatus>
+    fn status_of_script<T>(&self, tx: &T) -> Result<ScriptStatus>
     where
         T: Watchable,
     {
-        let txid = tx.id();
-        let script = tx.script();
-
-        if !self.script_history.contains_key(&script) {
-            self.script_history.insert(script.clone(), vec![]);
-
-            // When we first subscribe to a script we want to immediately fetch its status
-            // Otherwise we would have to wait for the next sync interval, which can take a minute
-            // This would result in potentially inaccurate status updates until that next sync interval is hit
-            self.update_state(true)?;
-        } else {
-            self.update_state(false)?;
-        }
-
-        let history = self.script_history.entry(script).or_default();
-
-        let history_of_tx = history
-            .iter()
-            .filter(|entry| entry.tx_hash == txid)
-            .collect::<Vec<_>>();
-
-        match history_of_tx.as_slice() {
-            [] => Ok(ScriptStatus::Unseen),
-            [remaining @ .., last] => {
-                if !remaining.is_empty() {
-                    tracing::warn!("Found more than a single history entry for script. This is highly unexpected and those history entries will be ignored")
-                }
-
-                if last.height <= 0 {
-                    Ok(ScriptStatus::InMempool)
-                } else {
-                    Ok(ScriptStatus::Confirmed(
-                        Confirmed::from_inclusion_and_latest_block(
-                            u32::try_from(last.height)?,
-                            u32::from(self.latest_block_height),
-                        ),
-                    ))
-                }
-            }
-        }
-    }
-
-    fn update_latest_block(&mut self) -> Result<()> {
-        // Fetch the latest block for storing the height.
-        // We do not act on this subscription after this call, as we cannot rely on
-        // subscription push notifications because eventually the Electrum server will
-        // close the connection and subscriptions are not automatically renewed
-        // upon renewing the connection.
-        let latest_block = self
-            .electrum
-            .block_headers_subscribe()
-            .context("Failed to subscribe to header notifications")?;
-        let latest_block_height = BlockHeight::try_from(latest_block)?;
-
-        if latest_block_height > self.latest_block_height {
-            tracing::debug!(
-                block_height = u32::from(latest_block_height),
-                "Got notification for new block"
-            );
-            self.latest_block_height = latest_block_height;
-        }
-
-        Ok(())
+        self.hub.status_of_script(tx)
     }
+}
 
-    fn update_script_histories(&mut self) -> Result<()> {
-        let histories = self
-            .electrum
-            .batch_script_get_history(self.script_history.keys())
-            .context("Failed to get script histories")?;
+pub(crate) fn status_from_history(
+    txid: Txid,
+    history: &[GetHistoryRes],
+    latest_block_height: BlockHeight,
+) -> Result<ScriptStatus> {
+    let history_of_tx = history
+        .iter()
+        .filter(|entry| entry.tx_hash == txid)
+        .collect::<Vec<_>>();
+
+    match history_of_tx.as_slice() {
+        [] => Ok(ScriptStatus::Unseen),
+        [remaining @ .., last] => {
+            if !remaining.is_empty() {
+                tracing::warn!("Found more than a single history entry for script. This is highly unexpected and those history entries will be ignored")
+            }
 
-        if histories.len() != self.script_history.len() {
-            bail!(
-                "Expected {} history entries, received {}",
-                self.script_history.len(),
-                histories.len()
-            );
+            if last.height <= 0 {
+                Ok(ScriptStatus::InMempool)
+            } else {
+                Ok(ScriptStatus::Confirmed(
+                    Confirmed::from_inclusion_and_latest_block(
+                        u32::try_from(last.height)?,
+                        u32::from(latest_block_height),
+                    ),
+                ))
+            }
         }
-
-        let scripts = self.script_history.keys().cloned();
-        let histories = histories.into_iter();
-
-        self.script_history = scripts.zip(histories).collect::<BTreeMap<_, _>>();
-
-        Ok(())
     }
 }
 
 impl EstimateFeeRate for Client {
     fn estimate_feerate(&self, target_block: usize) -> Result<FeeRate> {
         // https://github.com/romanz/electrs/blob/f9cf5386d1b5de6769ee271df5eef324aa9491bc/src/rpc.rs#L213
-        // Returned estimated fees are per BTC/kb.
-        let fee_per_byte = self.electrum.estimate_fee(target_block)?;
-        // we do not expect fees being that high.
-        #[allow(clippy::cast_possible_truncation)]
-        Ok(FeeRate::from_btc_per_kvb(fee_per_byte as f32))
+        // Median over every Electrum server of this network and the estimates reported by the app.
+        FEE_ORACLE.fee_rate(self.network, target_block)
     }
 
     fn min_relay_fee(&self) -> Result<bitcoin::Amount> {
         // https://github.com/romanz/electrs/blob/f9cf5386d1b5de6769ee271df5eef324aa9491bc/src/rpc.rs#L219
         // Returned fee is in BTC/kb
-        let relay_fee = bitcoin::Amount::from_btc(self.electrum.relay_fee()?)?;
+        let relay_fee = bitcoin::Amount::from_btc(self.hub.relay_fee()?)?;
         Ok(relay_fee)
     }
 }
@@ -1467,6 +1346,19 @@ DEBUG swap::bitcoin::wallet: Bitcoin transaction status changed txid=00000000000
         )
     }
 
+    #[test]
+    fn status_from_history_only_looks_at_watched_txid() {
+        let watched = Txid::from_hash(bitcoin::hashes::sha256d::Hash::hash(b"watched"));
+        let other = Txid::from_hash(bitcoin::hashes::sha256d::Hash::hash(b"other"));
+        let latest_block = BlockHeight::new(110);
+        let entry = |tx_hash, height| GetHistoryRes { height, tx_hash, fee: None };
+
+        assert_eq!(status_from_history(watched, &[], latest_block).unwrap(), ScriptStatus::Unseen);
+        assert_eq!(status_from_history(watched, &[entry(other, 100)], latest_block).unwrap(), ScriptStatus::Unseen);
+        assert_eq!(status_from_history(watched, &[entry(watched, 0)], latest_block).unwrap(), ScriptStatus::InMempool);
+        assert_eq!(status_from_history(watched, &[entry(other, 100), entry(watched, 101)], latest_block).unwrap(), confs(10));
+    }
+
     fn confs(confirmations: u32) -> ScriptStatus {
         ScriptStatus::from_confirmations(confirmations)
     }
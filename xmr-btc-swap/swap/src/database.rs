@@ -1,14 +1,17 @@
 pub use alice::Alice;
 pub use bob::Bob;
-pub use sqlite::SqliteDatabase;
+pub use sqlite::{NoStateRecorded, SqliteDatabase};
 
 use crate::fs::ensure_directory_exists;
 use crate::protocol::{Database, State};
 use anyhow::{bail, Result};
+use conquer_once::Lazy;
 use serde::{Deserialize, Serialize};
+use std::collections::HashMap;
 use std::fmt::Display;
-use std::path::Path;
+use std::path::{Path, PathBuf};
 use std::sync::Arc;
+use tokio::sync::Mutex;
 
 mod alice;
 mod bob;
@@ -83,16 +86,43 @@ impl Swap {
     }
 }
 
+/// Databases opened by this process. Every JNI call runs on its own runtime,
+/// keeping the pool avoids reconnecting and re-running the migrations on each
+/// history refresh.
+static DATABASES: Lazy<Mutex<HashMap<PathBuf, Arc<SqliteDatabase>>>> = Lazy::new(Default::default);
+
+/// Opens the pooled databases. Whatever the pool spawns while connecting
+/// lives on this runtime, not on the JNI call's runtime that is dropped when
+/// the call returns.
+static DATABASE_RUNTIME: Lazy<tokio::runtime::Runtime> = Lazy::new(|| {
+    tokio::runtime::Builder::new_multi_thread()
+        .worker_threads(1)
+        .thread_name("swap-database")
+        .enable_all()
+        .build()
+        .expect("Failed to start database runtime")
+});
+
 pub async fn open_db(sqlite_path: impl AsRef<Path>) -> Result<Arc<dyn Database + Send + Sync>> {
-    if sqlite_path.as_ref().exists() {
-        tracing::debug!("Using existing sqlite database.");
-        let sqlite = SqliteDatabase::open(sqlite_path).await?;
-        Ok(Arc::new(sqlite))
-    } else {
-        tracing::debug!("Creating and using new sqlite database.");
-        ensure_directory_exists(sqlite_path.as_ref())?;
-        tokio::fs::File::create(&sqlite_path).await?;
-        let sqlite = SqliteDatabase::open(sqlite_path).await?;
-        Ok(Arc::new(sqlite))
+    let mut databases = DATABASES.lock().await;
+    if let Some(sqlite) = databases.get(sqlite_path.as_ref()) {
+        return Ok(sqlite.clone());
     }
+
+    let path = sqlite_path.as_ref().to_path_buf();
+    let sqlite = DATABASE_RUNTIME
+        .spawn(async move {
+            if path.exists() {
+                tracing::debug!("Using existing sqlite database.");
+            } else {
+                tracing::debug!("Creating and using new sqlite database.");
+                ensure_directory_exists(&path)?;
+                tokio::fs::File::create(&path).await?;
+            }
+            SqliteDatabase::open(&path).await
+        })
+        .await??;
+    let sqlite = Arc::new(sqlite);
+    databases.insert(sqlite_path.as_ref().to_path_buf(), sqlite.clone());
+    Ok(sqlite)
 }
@@ -1,11 +1,13 @@
 use crate::database::Swap;
 use crate::monero::Address;
 use crate::protocol::{Database, State};
-use anyhow::{Context, Result};
+use anyhow::Result;
 use async_trait::async_trait;
 use libp2p::{Multiaddr, PeerId};
-use sqlx::sqlite::Sqlite;
-use sqlx::{Pool, SqlitePool};
+use sqlx::sqlite::{
+    Sqlite, SqliteConnectOptions, SqliteJournalMode, SqlitePoolOptions, SqliteSynchronous,
+};
+use sqlx::{Pool, Row};
 use std::path::Path;
 use std::str::FromStr;
 use time::OffsetDateTime;
@@ -15,13 +17,30 @@ pub struct SqliteDatabase {
     pool: Pool<Sqlite>,
 }
 
+/// A swap that never got as far as recording its first state.
+#[derive(Clone, Copy, Debug, thiserror::Error)]
+#[error("No state in database for swap: {0}")]
+pub struct NoStateRecorded(pub Uuid);
+
 impl SqliteDatabase {
     pub async fn open(path: impl AsRef<Path>) -> Result<Self>
     where
         Self: std::marker::Sized,
     {
         let path_str = format!("sqlite:{}", path.as_ref().display());
-        let pool = SqlitePool::connect(&path_str).await?;
+        // WAL lets the app read the history while a running swap writes its
+        // states, NORMAL sync is durable in WAL mode except on power loss
+        let options = SqliteConnectOptions::from_str(&path_str)?
+            .journal_mode(SqliteJournalMode::Wal)
+            .synchronous(SqliteSynchronous::Normal);
+        // The pool is shared by JNI calls that each run on their own runtime,
+        // without idle timeout and max lifetime no reaper task gets spawned on
+        // the runtime that happened to open it.
+        let pool = SqlitePoolOptions::new()
+            .idle_timeout(None)
+            .max_lifetime(None)
+            .connect_with(options)
+            .await?;
         let mut sqlite = Self { pool };
         sqlite.run_migrations().await?;
         Ok(sqlite)
@@ -197,6 +216,7 @@ impl Database for SqliteDatabase {
 
     async fn get_state(&self, swap_id: Uuid) -> Result<State> {
         let mut conn = self.pool.acquire().await?;
+        let id = swap_id;
         let swap_id = swap_id.to_string();
         let row = sqlx::query!(
             r#"
@@ -212,9 +232,7 @@ impl Database for SqliteDatabase {
         .fetch_all(&mut conn)
         .await?;
 
-        let row = row
-            .first()
-            .context(format!("No state in database for swap: {}", swap_id))?;
+        let row = row.first().ok_or(NoStateRecorded(id))?;
         let swap: Swap = serde_json::from_str(&row.state)?;
 
         Ok(swap.into())
@@ -249,6 +267,72 @@ impl Database for SqliteDatabase {
 
         result
     }
+
+    async fn count_by_state(&self) -> Result<Vec<(String, u64)>> {
+        let mut conn = self.pool.acquire().await?;
+        let rows = sqlx::query(
+            r#"
+           SELECT state_name, count(*) AS swaps
+           FROM latest_swap_states
+           GROUP BY state_name
+        "#,
+        )
+        .fetch_all(&mut conn)
+        .await?;
+
+        rows.iter()
+            .map(|row| {
+                let swaps: i64 = row.try_get("swaps")?;
+                Ok((row.try_get("state_name")?, swaps as u64))
+            })
+            .collect()
+    }
+
+    async fn latest_states(
+        &self,
+        state_names: &[String],
+        offset: u32,
+        limit: Option<u32>,
+    ) -> Result<Vec<(Uuid, State)>> {
+        let mut conn = self.pool.acquire().await?;
+        let filter = if state_names.is_empty() {
+            String::new()
+        } else {
+            format!(
+                "WHERE state_name IN ({})",
+                vec!["?"; state_names.len()].join(", ")
+            )
+        };
+        let sql = format!(
+            r#"
+           SELECT swap_id, state
+           FROM latest_swap_states
+           {}
+           ORDER BY id DESC
+           LIMIT ? OFFSET ?
+        "#,
+            filter
+        );
+
+        let mut query = sqlx::query(&sql);
+        for state_name in state_names {
+            query = query.bind(state_name.as_str());
+        }
+        // a negative limit is no limit in SQLite
+        let rows = query
+            .bind(limit.map(i64::from).unwrap_or(-1))
+            .bind(i64::from(offset))
+            .fetch_all(&mut conn)
+            .await?;
+
+        rows.iter()
+            .map(|row| {
+                let swap_id = Uuid::from_str(row.try_get("swap_id")?)?;
+                let swap = serde_json::from_str::<Swap>(row.try_get("state")?)?;
+                Ok((swap_id, State::from(swap)))
+            })
+            .collect()
+    }
 }
 
 #[cfg(test)]
@@ -370,6 +454,100 @@ mod tests {
         Ok(())
     }
 
+    #[tokio::test]
+    async fn test_count_and_page_by_state() -> Result<()> {
+        let db = setup_test_db().await?;
+
+        let swap_id_1 = Uuid::new_v4();
+        let swap_id_2 = Uuid::new_v4();
+        let swap_id_3 = Uuid::new_v4();
+        db.insert_latest_state(swap_id_1, State::Bob(BobState::SafelyAborted))
+            .await?;
+        db.insert_latest_state(swap_id_2, State::Alice(AliceState::SafelyAborted))
+            .await?;
+        db.insert_latest_state(swap_id_3, State::Alice(AliceState::BtcPunished))
+            .await?;
+        db.insert_latest_state(swap_id_1, State::Alice(AliceState::BtcRedeemed))
+            .await?;
+
+        let mut counts = db.count_by_state().await?;
+        counts.sort();
+        assert_eq!(counts, vec![
+            ("Alice.BtcPunished".to_string(), 1),
+            ("Alice.BtcRedeemed".to_string(), 1),
+            ("Alice.SafelyAborted".to_string(), 1),
+        ]);
+
+        let all = db.latest_states(&[], 0, None).await?;
+        let swap_ids = all.iter().map(|(swap_id, _)| *swap_id).collect::<Vec<_>>();
+        assert_eq!(swap_ids, vec![swap_id_1, swap_id_3, swap_id_2]);
+
+        let page = db.latest_states(&[], 1, Some(1)).await?;
+        assert_eq!(page, vec![(swap_id_3, State::Alice(AliceState::BtcPunished))]);
+
+        let filtered = db
+            .latest_states(
+                &[
+                    "Alice.SafelyAborted".to_string(),
+                    "Alice.BtcRedeemed".to_string(),
+                ],
+                0,
+                None,
+            )
+            .await?;
+        assert_eq!(filtered, vec![
+            (swap_id_1, State::Alice(AliceState::BtcRedeemed)),
+            (swap_id_2, State::Alice(AliceState::SafelyAborted)),
+        ]);
+
+        Ok(())
+    }
+
+    // cargo test --release -p swap bench_history -- --ignored --nocapture
+    #[tokio::test]
+    #[ignore]
+    async fn bench_history_of_10k_swaps() -> Result<()> {
+        let db = setup_test_db().await?;
+
+        let peer_id = PeerId::random();
+        db.insert_address(peer_id, "/ip4/127.0.0.1/tcp/9939".parse()?)
+            .await?;
+        db.insert_address(peer_id, "/dns4/example.org/tcp/9939".parse()?)
+            .await?;
+
+        let swap_ids = (0..10_000).map(|_| Uuid::new_v4()).collect::<Vec<_>>();
+        let started = std::time::Instant::now();
+        for swap_id in &swap_ids {
+            db.insert_peer_id(*swap_id, peer_id).await?;
+        }
+        println!("insert_peer_id x10k: {:?}", started.elapsed());
+
+        let started = std::time::Instant::now();
+        for swap_id in &swap_ids {
+            db.insert_latest_state(*swap_id, State::Bob(BobState::SafelyAborted))
+                .await?;
+        }
+        println!("insert_latest_state x10k: {:?}", started.elapsed());
+
+        let started = std::time::Instant::now();
+        let swaps = db.all().await?;
+        for (swap_id, _) in &swaps {
+            let peer_id = db.get_peer_id(*swap_id).await?;
+            db.get_addresses(peer_id).await?;
+        }
+        println!("all() + per swap peer lookups: {:?}", started.elapsed());
+
+        let started = std::time::Instant::now();
+        db.count_by_state().await?;
+        db.latest_states(&["Bob.SafelyAborted".to_string()], 0, Some(100))
+            .await?;
+        println!("count_by_state() + first page: {:?}", started.elapsed());
+
+        assert_eq!(swaps.len(), 10_000);
+
+        Ok(())
+    }
+
     async fn setup_test_db() -> Result<SqliteDatabase> {
         let temp_db = tempdir().unwrap().into_path().join("tempdb");
 
@@ -6,11 +6,13 @@ use ::monero::{Address, Network, PrivateKey, PublicKey};
 use anyhow::{Context, Result};
 use monero_rpc::wallet::{BlockHeight, MoneroWalletRpc as _, Refreshed};
 use monero_rpc::{jsonrpc, wallet};
+use std::cmp::max;
+use std::fmt;
 use std::str::FromStr;
 use std::time::Duration;
 use jni::JNIEnv;
 use tokio::sync::Mutex;
-use tokio::time::Interval;
+use tokio::time::Instant;
 use url::Url;
 use crate::util;
 
@@ -21,26 +23,52 @@ pub struct Wallet {
     pub name: String,
     pub main_address: monero::Address,
     pub sync_interval: Duration,
+    pub confirmation_schedule: ConfirmationSchedule,
+    pub password: WalletPassword,
+}
+
+/// Password of an encrypted wallet file, kept out of debug output. Empty for
+/// unencrypted wallets.
+#[derive(Clone, Default)]
+pub struct WalletPassword(String);
+
+impl WalletPassword {
+    pub fn new(password: String) -> Self {
+        Self(password)
+    }
+
+    pub fn expose(&self) -> &str {
+        &self.0
+    }
+}
+
+impl fmt::Debug for WalletPassword {
+    fn fmt(&self, f: &mut fmt::Formatter<'_>) -> fmt::Result {
+        write!(f, "WalletPassword(..)")
+    }
 }
 
 impl Wallet {
     /// Connect to a wallet RPC and load the given wallet by name.
     pub async fn open_or_create(url: Url, name: String, env_config: Config) -> Result<Self> {
-        let client = wallet::Client::new(url)?;
-
-        match client.open_wallet(name.clone()).await {
-            Err(error) => {
-                tracing::debug!(%error, "Open wallet response error");
-                client.create_wallet(name.clone(), "English".to_owned()).await.context(
-                    "Unable to create Monero wallet, please ensure that the monero-wallet-rpc is available",
-                )?;
+        Self::open_or_create_with_password(url, name, WalletPassword::default(), env_config).await
+    }
 
-                tracing::debug!(monero_wallet_name = %name, "Created Monero wallet");
-            }
-            Ok(_) => tracing::debug!(monero_wallet_name = %name, "Opened Monero wallet"),
-        }
+    /// Connect to a wallet RPC and load the given wallet by name, creating it
+    /// encrypted with `password` if it does not exist yet. An existing wallet
+    /// keeps its scan height, so reopening it does not rescan.
+    pub async fn open_or_create_with_password(
+        url: Url,
+        name: String,
+        password: WalletPassword,
+        env_config: Config,
+    ) -> Result<Self> {
+        let client = wallet::Client::new(url)?;
+        open_or_create_file(&client, &name, &password).await?;
 
-        Self::connect(client, name, env_config).await
+        let mut wallet = Self::connect(client, name, env_config).await?;
+        wallet.password = password;
+        Ok(wallet)
     }
 
     /// Connects to a wallet RPC where a wallet is already loaded.
@@ -53,6 +81,8 @@ impl Wallet {
             name,
             main_address,
             sync_interval: env_config.monero_sync_interval(),
+            confirmation_schedule: ConfirmationSchedule::from_config(&env_config),
+            password: WalletPassword::default(),
         })
     }
 
@@ -61,13 +91,14 @@ impl Wallet {
         self.inner
             .lock()
             .await
-            .open_wallet(self.name.clone())
+            .open_wallet(self.name.clone(), self.password.0.clone())
             .await?;
         Ok(())
     }
 
     pub async fn open(&self, filename: String) -> Result<()> {
-        self.inner.lock().await.open_wallet(filename).await?;
+        // wallets generated from keys are not encrypted
+        self.inner.lock().await.open_wallet(filename, String::new()).await?;
         Ok(())
     }
 
@@ -163,7 +194,7 @@ impl Wallet {
             tracing::info!(%file_name,
                     "Falling back to trying to open the the wallet if it already exists",
                 );
-            wallet.open_wallet(file_name).await?;
+            wallet.open_wallet(file_name, String::new()).await?;
         };
 
         // Try to send all the funds from the generated wallet to the default wallet
@@ -189,7 +220,7 @@ impl Wallet {
             }
         }
 
-        let _ = wallet.open_wallet(self.name.clone()).await?;
+        let _ = wallet.open_wallet(self.name.clone(), self.password.0.clone()).await?;
 
         Ok(())
     }
@@ -243,16 +274,15 @@ impl Wallet {
 
         let address = Address::standard(self.network, public_spend_key, public_view_key.into());
 
-        let check_interval = tokio::time::interval(self.sync_interval);
-
         wait_for_confirmations(
             &self.inner,
             transfer_proof,
             address,
             expected,
             conf_target,
-            check_interval,
+            self.confirmation_schedule,
             self.name.clone(),
+            &self.password,
         )
         .await?;
 
@@ -305,85 +335,112 @@ pub struct WatchRequest {
     pub expected: Amount,
 }
 
-async fn wait_for_confirmations<C: wallet::MoneroWalletRpc<reqwest::Client> + Sync>(
-    client: &Mutex<C>,
-    transfer_proof: TransferProof,
-    to_address: Address,
-    expected: Amount,
-    conf_target: u64,
-    mut check_interval: Interval,
-    wallet_name: String,
-) -> Result<(), InsufficientFunds> {
-    let mut seen_confirmations = 0u64;
+/// When to ask `monero-wallet-rpc` for the confirmations of a lock transaction again.
+///
+/// Confirmations only change when a block is mined, about every two minutes
+/// on mainnet, so instead of a `check_tx_key` every sync interval the watcher
+/// sleeps until the next block is expected and only polls at the sync interval
+/// once it is due. The last confirmation is polled for from half a block
+/// time on.
+#[derive(Debug, Clone, Copy)]
+pub struct ConfirmationSchedule {
+    avg_block_time: Duration,
+    min_interval: Duration,
+}
 
-    while seen_confirmations < conf_target {
-        check_interval.tick().await; // tick() at the beginning of the loop so every `continue` tick()s as well
+impl ConfirmationSchedule {
+    pub fn new(avg_block_time: Duration, min_interval: Duration) -> Self {
+        Self {
+            avg_block_time,
+            min_interval,
+        }
+    }
 
-        let txid = transfer_proof.tx_hash().to_string();
-        let client = client.lock().await;
+    pub fn from_config(env_config: &Config) -> Self {
+        Self::new(env_config.monero_avg_block_time, env_config.monero_sync_interval())
+    }
 
-        let tx = match client
-            .check_tx_key(
-                txid.clone(),
-                transfer_proof.tx_key.to_string(),
-                to_address.to_string(),
-            )
-            .await
-        {
-            Ok(proof) => proof,
-            Err(jsonrpc::Error::JsonRpc(jsonrpc::JsonRpcError {
-                code: -1,
-                message,
-                data,
-            })) => {
-                tracing::debug!(message, ?data);
-                tracing::warn!(%txid, message, "`monero-wallet-rpc` failed to fetch transaction, may need to be restarted");
-                continue;
-            }
-            // TODO: Implement this using a generic proxy for each function call once https://github.com/thomaseizinger/rust-jsonrpc-client/issues/47 is fixed.
-            Err(jsonrpc::Error::JsonRpc(jsonrpc::JsonRpcError { code: -13, .. })) => {
-                tracing::debug!(
-                    "Opening wallet `{}` because no wallet is loaded",
-                    wallet_name
-                );
-                let _ = client.open_wallet(wallet_name.clone()).await;
-                continue;
-            }
-            Err(other) => {
-                tracing::debug!(
-                    %txid,
-                    "Failed to retrieve tx from blockchain: {:#}", other
-                );
-                continue; // treating every error as transient and retrying
-                          // is obviously wrong but the jsonrpc client is
-                          // too primitive to differentiate between all the
-                          // cases
-            }
+    fn next_check(&self, since_last_confirmation: Duration, remaining: u64) -> Duration {
+        let block_due = if remaining <= 1 {
+            self.avg_block_time / 2
+        } else {
+            self.avg_block_time
         };
+        max(block_due.saturating_sub(since_last_confirmation), self.min_interval)
+    }
+}
 
-        let received = Amount::from_piconero(tx.received);
-
-        if received != expected {
-            return Err(InsufficientFunds {
-                expected,
-                actual: received,
-            });
+/// Loads the wallet file `name`, encrypted with `password`. A wallet written
+/// unencrypted by an earlier version is opened with the empty password and
+/// encrypted in place. Only a wallet the RPC reports as missing is created, any
+/// other failure is returned rather than risking a new wallet next to the
+/// old one's funds.
+async fn open_or_create_file<C: wallet::MoneroWalletRpc<reqwest::Client> + Sync>(
+    client: &C,
+    name: &str,
+    password: &WalletPassword,
+) -> Result<()> {
+    let error = match client.open_wallet(name.to_owned(), password.0.clone()).await {
+        Ok(_) => {
+            tracing::debug!(monero_wallet_name = %name, "Opened Monero wallet");
+            return Ok(());
         }
+        Err(error) => error,
+    };
+    tracing::debug!(%error, "Open wallet response error");
 
-        if tx.confirmations > seen_confirmations {
-            seen_confirmations = tx.confirmations;
-            tracing::info!(
-                %txid,
-                %seen_confirmations,
-                needed_confirmations = %conf_target,
-                "Received new confirmation for Monero lock tx"
-            );
-        }
+    if is_wallet_missing(&error) {
+        client
+            .create_wallet(name.to_owned(), "English".to_owned(), password.0.clone())
+            .await
+            .context("Unable to create Monero wallet, please ensure that the monero-wallet-rpc is available")?;
+        tracing::debug!(monero_wallet_name = %name, "Created Monero wallet");
+        return Ok(());
     }
 
+    if password.0.is_empty() || client.open_wallet(name.to_owned(), String::new()).await.is_err() {
+        return Err(anyhow::Error::new(error).context(format!("Failed to open Monero wallet {}", name)));
+    }
+    client
+        .change_wallet_password(String::new(), password.0.clone())
+        .await
+        .context("Failed to encrypt unencrypted Monero wallet")?;
+    tracing::debug!(monero_wallet_name = %name, "Opened and encrypted unencrypted Monero wallet");
     Ok(())
 }
 
+/// monero-wallet-rpc reports every open failure with the same code, only the
+/// message tells a missing file from e.g. a wrong password.
+fn is_wallet_missing(error: &jsonrpc::Error<reqwest::Error>) -> bool {
+    match error {
+        jsonrpc::Error::JsonRpc(error) => error.message.to_lowercase().contains("not found"),
+        _ => false,
+    }
+}
+
+async fn wait_for_confirmations<C: wallet::MoneroWalletRpc<reqwest::Client> + Sync>(
+    client: &Mutex<C>,
+    transfer_proof: TransferProof,
+    to_address: Address,
+    expected: Amount,
+    conf_target: u64,
+    schedule: ConfirmationSchedule,
+    wallet_name: String,
+    wallet_password: &WalletPassword,
+) -> Result<(), InsufficientFunds> {
+    wait_for_confs(
+        None,
+        client,
+        transfer_proof,
+        to_address,
+        expected,
+        conf_target,
+        schedule,
+        wallet_name,
+        wallet_password,
+    )
+    .await
+}
 
 pub async fn wait_for_confs<C: wallet::MoneroWalletRpc<reqwest::Client> + Sync>(
     env: Option<&JNIEnv<'_>>,
@@ -392,13 +449,18 @@ pub async fn wait_for_confs<C: wallet::MoneroWalletRpc<reqwest::Client> + Sync>(
     to_address: Address,
     expected: Amount,
     conf_target: u64,
-    mut check_interval: Interval,
+    schedule: ConfirmationSchedule,
     wallet_name: String,
+    wallet_password: &WalletPassword,
 ) -> Result<(), InsufficientFunds> {
     let mut seen_confirmations = 0u64;
+    let mut last_confirmation = Instant::now();
+    let mut next_check = Duration::ZERO;
 
     while seen_confirmations < conf_target {
-        check_interval.tick().await; // tick() at the beginning of the loop so every `continue` tick()s as well
+        tokio::time::sleep(next_check).await;
+        // errors below are retried at the sync interval
+        next_check = schedule.min_interval;
 
         let txid = transfer_proof.tx_hash().to_string();
         let client = client.lock().await;
@@ -427,7 +489,7 @@ pub async fn wait_for_confs<C: wallet::MoneroWalletRpc<reqwest::Client> + Sync>(
                     "Opening wallet `{}` because no wallet is loaded",
                     wallet_name
                 );
-                let _ = client.open_wallet(wallet_name.clone()).await;
+                let _ = client.open_wallet(wallet_name.clone(), wallet_password.0.clone()).await;
                 continue;
             }
             Err(other) => {
@@ -453,8 +515,9 @@ pub async fn wait_for_confs<C: wallet::MoneroWalletRpc<reqwest::Client> + Sync>(
 
         if tx.confirmations > seen_confirmations {
             seen_confirmations = tx.confirmations;
-            if env.is_some() {
-                util::on_xmr_lock_confirmation(env.unwrap(), txid.clone(), seen_confirmations.clone());
+            last_confirmation = Instant::now();
+            if let Some(env) = env {
+                util::on_xmr_lock_confirmation(env, txid.clone(), seen_confirmations);
             }
             tracing::info!(
                 %txid,
@@ -463,6 +526,11 @@ pub async fn wait_for_confs<C: wallet::MoneroWalletRpc<reqwest::Client> + Sync>(
                 "Received new confirmation for Monero lock tx"
             );
         }
+
+        next_check = schedule.next_check(
+            last_confirmation.elapsed(),
+            conf_target.saturating_sub(seen_confirmations),
+        );
     }
 
     Ok(())
@@ -491,8 +559,9 @@ mod tests {
             "53H3QthYLckeCXh9u38vohb2gZ4QgEG3FMWHNxccR6MqV1LdDVYwF1FKsRJPj4tTupWLf9JtGPBcn2MVN6c9oR7p5Uf7JdJ".parse().unwrap(),
             Amount::from_piconero(100),
             10,
-            tokio::time::interval(Duration::from_millis(10)),
-            "foo-wallet".to_owned()
+            ConfirmationSchedule::new(Duration::from_millis(10), Duration::from_millis(10)),
+            "foo-wallet".to_owned(),
+            &WalletPassword::default(),
         )
         .await;
 
@@ -542,8 +611,9 @@ mod tests {
             "53H3QthYLckeCXh9u38vohb2gZ4QgEG3FMWHNxccR6MqV1LdDVYwF1FKsRJPj4tTupWLf9JtGPBcn2MVN6c9oR7p5Uf7JdJ".parse().unwrap(),
             Amount::from_piconero(100),
             5,
-            tokio::time::interval(Duration::from_millis(10)),
-            "foo-wallet".to_owned()
+            ConfirmationSchedule::new(Duration::from_millis(10), Duration::from_millis(10)),
+            "foo-wallet".to_owned(),
+            &WalletPassword::default(),
         )
         .await
         .unwrap();
@@ -589,8 +659,9 @@ mod tests {
             "53H3QthYLckeCXh9u38vohb2gZ4QgEG3FMWHNxccR6MqV1LdDVYwF1FKsRJPj4tTupWLf9JtGPBcn2MVN6c9oR7p5Uf7JdJ".parse().unwrap(),
             Amount::from_piconero(100),
             5,
-            tokio::time::interval(Duration::from_millis(10)),
-            "foo-wallet".to_owned()
+            ConfirmationSchedule::new(Duration::from_millis(10), Duration::from_millis(10)),
+            "foo-wallet".to_owned(),
+            &WalletPassword::default(),
         )
         .await
         .unwrap();
@@ -613,6 +684,86 @@ DEBUG swap::monero::wallet: Opening wallet `foo-wallet` because no wallet is loa
         );
     }
 
+    #[tokio::test]
+    async fn sleeps_until_the_next_block_instead_of_polling() {
+        let block_time = Duration::from_millis(100);
+        let sync_interval = Duration::from_millis(5);
+        let client = Mutex::new(SimulatedChain::new(block_time));
+
+        wait_for_confirmations(
+            &client,
+            TransferProof::new(TxHash("<FOO>".to_owned()), PrivateKey {
+                scalar: crate::monero::Scalar::random(&mut rand::thread_rng())
+            }),
+            "53H3QthYLckeCXh9u38vohb2gZ4QgEG3FMWHNxccR6MqV1LdDVYwF1FKsRJPj4tTupWLf9JtGPBcn2MVN6c9oR7p5Uf7JdJ".parse().unwrap(),
+            Amount::from_piconero(100),
+            5,
+            ConfirmationSchedule::new(block_time, sync_interval),
+            "foo-wallet".to_owned(),
+            &WalletPassword::default(),
+        )
+        .await
+        .unwrap();
+
+        // a fixed sync interval would have taken about 100 calls for 5 blocks
+        let calls = client.lock().await.check_tx_key_invocations.load(Ordering::SeqCst);
+        assert!((5..=30).contains(&calls), "{} check_tx_key calls", calls);
+    }
+
+    #[test]
+    fn polls_at_the_sync_interval_once_a_block_is_due() {
+        let schedule = ConfirmationSchedule::new(Duration::from_secs(120), Duration::from_secs(12));
+        assert_eq!(schedule.next_check(Duration::ZERO, 5), Duration::from_secs(120));
+        assert_eq!(schedule.next_check(Duration::from_secs(100), 5), Duration::from_secs(20));
+        assert_eq!(schedule.next_check(Duration::from_secs(200), 5), Duration::from_secs(12));
+        // the last confirmation is looked for earlier
+        assert_eq!(schedule.next_check(Duration::ZERO, 1), Duration::from_secs(60));
+    }
+
+    /// Mines a block every `block_time`, the lock transaction is in the first one.
+    struct SimulatedChain {
+        started: Instant,
+        block_time: Duration,
+        check_tx_key_invocations: AtomicU32,
+    }
+
+    impl SimulatedChain {
+        fn new(block_time: Duration) -> Self {
+            Self {
+                started: Instant::now(),
+                block_time,
+                check_tx_key_invocations: Default::default(),
+            }
+        }
+    }
+
+    #[async_trait::async_trait]
+    impl monero_rpc::wallet::MoneroWalletRpc<reqwest::Client> for SimulatedChain {
+        async fn check_tx_key(
+            &self,
+            _: String,
+            _: String,
+            _: String,
+        ) -> Result<wallet::CheckTxKey, monero_rpc::jsonrpc::Error<reqwest::Error>> {
+            self.check_tx_key_invocations.fetch_add(1, Ordering::SeqCst);
+
+            Ok(CheckTxKey {
+                confirmations: (self.started.elapsed().as_millis() / self.block_time.as_millis()) as u64,
+                received: 100,
+            })
+        }
+
+        async fn send_request<P>(
+            &self,
+            _: String,
+        ) -> Result<monero_rpc::jsonrpc::Response<P>, reqwest::Error>
+        where
+            P: serde::de::DeserializeOwned,
+        {
+            todo!()
+        }
+    }
+
     type ErrorCode = i64;
     type ErrorMessage = String;
 
@@ -640,6 +791,7 @@ DEBUG swap::monero::wallet: Opening wallet `foo-wallet` because no wallet is loa
         async fn open_wallet(
             &self,
             _: String,
+            _: String,
         ) -> Result<wallet::WalletOpened, monero_rpc::jsonrpc::Error<reqwest::Error>> {
             self.open_wallet_invocations.fetch_add(1, Ordering::SeqCst);
 
@@ -675,4 +827,115 @@ DEBUG swap::monero::wallet: Opening wallet `foo-wallet` because no wallet is loa
             todo!()
         }
     }
+
+    /// Wallet files by name with the password they are encrypted with.
+    #[derive(Default)]
+    struct WalletFiles {
+        files: std::sync::Mutex<std::collections::HashMap<String, String>>,
+        loaded: std::sync::Mutex<Option<String>>,
+    }
+
+    impl WalletFiles {
+        fn with(name: &str, password: &str) -> Self {
+            let files = Self::default();
+            files.files.lock().unwrap().insert(name.to_owned(), password.to_owned());
+            files
+        }
+
+        fn password_of(&self, name: &str) -> Option<String> {
+            self.files.lock().unwrap().get(name).cloned()
+        }
+    }
+
+    fn rpc_error(message: &str) -> monero_rpc::jsonrpc::Error<reqwest::Error> {
+        monero_rpc::jsonrpc::Error::JsonRpc(monero_rpc::jsonrpc::JsonRpcError {
+            code: -1,
+            message: message.to_owned(),
+            data: None,
+        })
+    }
+
+    #[async_trait::async_trait]
+    impl monero_rpc::wallet::MoneroWalletRpc<reqwest::Client> for WalletFiles {
+        async fn open_wallet(
+            &self,
+            filename: String,
+            password: String,
+        ) -> Result<wallet::WalletOpened, monero_rpc::jsonrpc::Error<reqwest::Error>> {
+            match self.password_of(&filename) {
+                None => Err(rpc_error("file not found")),
+                Some(stored) if stored != password => Err(rpc_error("invalid password")),
+                Some(_) => {
+                    *self.loaded.lock().unwrap() = Some(filename);
+                    Ok(monero_rpc::wallet::Empty {})
+                }
+            }
+        }
+
+        async fn create_wallet(
+            &self,
+            filename: String,
+            _: String,
+            password: String,
+        ) -> Result<wallet::WalletCreated, monero_rpc::jsonrpc::Error<reqwest::Error>> {
+            if self.password_of(&filename).is_some() {
+                return Err(rpc_error("Cannot create wallet. Already exists."));
+            }
+            self.files.lock().unwrap().insert(filename.clone(), password);
+            *self.loaded.lock().unwrap() = Some(filename);
+            Ok(monero_rpc::wallet::Empty {})
+        }
+
+        async fn change_wallet_password(
+            &self,
+            old_password: String,
+            new_password: String,
+        ) -> Result<wallet::WalletPasswordChanged, monero_rpc::jsonrpc::Error<reqwest::Error>> {
+            let loaded = self.loaded.lock().unwrap().clone().expect("no wallet loaded");
+            let mut files = self.files.lock().unwrap();
+            if files[&loaded] != old_password {
+                return Err(rpc_error("Invalid original password."));
+            }
+            files.insert(loaded, new_password);
+            Ok(monero_rpc::wallet::Empty {})
+        }
+
+        async fn send_request<P>(
+            &self,
+            _: String,
+        ) -> Result<monero_rpc::jsonrpc::Response<P>, reqwest::Error>
+        where
+            P: serde::de::DeserializeOwned,
+        {
+            todo!()
+        }
+    }
+
+    #[tokio::test]
+    async fn creates_only_missing_wallets() {
+        let files = WalletFiles::default();
+        let password = WalletPassword::new("secret".to_owned());
+        open_or_create_file(&files, "swap-monitoring-wallet", &password).await.unwrap();
+        assert_eq!(files.password_of("swap-monitoring-wallet").as_deref(), Some("secret"));
+
+        // reopening must not try to create it again
+        open_or_create_file(&files, "swap-monitoring-wallet", &password).await.unwrap();
+    }
+
+    #[tokio::test]
+    async fn encrypts_wallets_left_unencrypted() {
+        let files = WalletFiles::with("swap-monitoring-wallet", "");
+        let password = WalletPassword::new("secret".to_owned());
+        open_or_create_file(&files, "swap-monitoring-wallet", &password).await.unwrap();
+        assert_eq!(files.password_of("swap-monitoring-wallet").as_deref(), Some("secret"));
+        assert_eq!(files.loaded.lock().unwrap().as_deref(), Some("swap-monitoring-wallet"));
+    }
+
+    #[tokio::test]
+    async fn does_not_replace_wallets_it_can_not_open() {
+        let files = WalletFiles::with("swap-monitoring-wallet", "other");
+        let password = WalletPassword::new("secret".to_owned());
+        assert!(open_or_create_file(&files, "swap-monitoring-wallet", &password).await.is_err());
+        assert_eq!(files.password_of("swap-monitoring-wallet").as_deref(), Some("other"));
+    }
 }
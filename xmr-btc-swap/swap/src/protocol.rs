@@ -142,4 +142,16 @@ pub trait Database {
     async fn insert_latest_state(&self, swap_id: Uuid, state: State) -> Result<()>;
     async fn get_state(&self, swap_id: Uuid) -> Result<State>;
     async fn all(&self) -> Result<Vec<(Uuid, State)>>;
+    /// Number of swaps per name of their latest state. Names are the role and
+    /// the variant, end states without the `Done` wrapper, e.g.
+    /// `Bob.BtcLocked` or `Bob.SafelyAborted`.
+    async fn count_by_state(&self) -> Result<Vec<(String, u64)>>;
+    /// Latest states, most recently updated swap first, restricted to the
+    /// given state names unless empty.
+    async fn latest_states(
+        &self,
+        state_names: &[String],
+        offset: u32,
+        limit: Option<u32>,
+    ) -> Result<Vec<(Uuid, State)>>;
 }
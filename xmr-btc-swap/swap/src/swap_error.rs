@@ -30,5 +30,6 @@ pub enum  ErrorType {
     FailedToReceiveTransferProof,
     ElectrumMissingTransaction,
     ElectrumFailedToSubscribeToHeaders,
+    SessionClosed,
     UnknownError
 }
\ No newline at end of file
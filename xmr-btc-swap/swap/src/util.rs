@@ -2,9 +2,9 @@ use std::cmp::min;
 use std::future::Future;
 use std::path::PathBuf;
 use std::str::FromStr;
-use std::time::{Duration, SystemTime};
+use std::time::{Duration, Instant, SystemTime};
 
-use anyhow::{bail, Result};
+use anyhow::{anyhow, bail, Result};
 use bitcoin::Amount;
 use jni::JNIEnv;
 use jni::objects::{JObject, JString, JValue};
@@ -12,6 +12,7 @@ use jni::sys::{jstring};
 use libp2p::Multiaddr;
 use monero::Address;
 use rust_decimal::prelude::ToPrimitive;
+use tokio::sync::watch;
 use url::Url;
 use uuid::Uuid;
 use crate::{fs, util};
@@ -21,7 +22,13 @@ use crate::monero::WalletRpc;
 use crate::network::quote::{BidQuote, SwapDisconnected, ZeroQuoteReceived};
 use crate::swap_error::SwapError;
 
-pub async fn determine_btc_to_swap<FB, TB, FMG, TMG, FS, TS, FFE, TFE>(
+// How often the app is asked whether the swap is still running while waiting for a deposit, a cheap JNI call
+// that bounds how long Stop takes
+const RUNNING_SWAP_CHECK_INTERVAL: Duration = Duration::from_secs(1);
+// The deposit address is synced at least this often, in case a subscription notification is lost
+const DEPOSIT_SYNC_FALLBACK: Duration = Duration::from_secs(60);
+
+pub async fn determine_btc_to_swap<FB, TB, FMG, TMG, FS, TS, FFE, TFE, FSD, TSD>(
     swap_id: Uuid,
     bid_quote: impl Future<Output=Result<BidQuote>>,
     get_new_address: impl Future<Output=Result<bitcoin::Address>>,
@@ -29,6 +36,7 @@ pub async fn determine_btc_to_swap<FB, TB, FMG, TMG, FS, TS, FFE, TFE>(
     max_giveable_fn: FMG,
     sync: FS,
     estimate_fee: FFE,
+    subscribe_deposit: FSD,
     env: &JNIEnv<'_>,
 ) -> Result<(bitcoin::Amount, bitcoin::Amount)>
     where
@@ -40,6 +48,8 @@ pub async fn determine_btc_to_swap<FB, TB, FMG, TMG, FS, TS, FFE, TFE>(
         FS: Fn() -> TS,
         FFE: Fn(bitcoin::Amount) -> TFE,
         TFE: Future<Output=Result<bitcoin::Amount>>,
+        FSD: FnOnce(bitcoin::Script) -> TSD,
+        TSD: Future<Output=watch::Receiver<u64>>,
 {
     print_swap_log_ln(&env, format!("Requesting quote"));
     let bid_quote = bid_quote.await?;
@@ -61,6 +71,8 @@ pub async fn determine_btc_to_swap<FB, TB, FMG, TMG, FS, TS, FFE, TFE>(
 
     if max_giveable == bitcoin::Amount::ZERO || max_giveable < bid_quote.min_quantity {
         let deposit_address = get_new_address.await?;
+        // subscribed before the address is shown, so no deposit can slip in unnoticed
+        let mut deposit_changes = subscribe_deposit(deposit_address.script_pubkey()).await;
         let dust = Amount::from_sat(2000);
         let mut min_outstanding = bid_quote.min_quantity - max_giveable;
         if min_outstanding < dust {
@@ -80,17 +92,26 @@ pub async fn determine_btc_to_swap<FB, TB, FMG, TMG, FS, TS, FFE, TFE>(
                 min_fee = estimate_fee(min_outstanding).await?;
                 min_deposit = min_outstanding + min_fee;
 
+                // sync once the deposit address reports a change instead of every second, with a slow fallback
+                let mut synced_at = Instant::now();
                 max_giveable = loop {
-                    sync().await?;
-                    if get_running_swap(&env) {
+                    let changed = match tokio::time::timeout(RUNNING_SWAP_CHECK_INTERVAL, deposit_changes.changed()).await {
+                        Ok(Ok(())) => true,
+                        Ok(Err(_)) => return Err(anyhow!("Deposit address subscription closed")),
+                        Err(_) => false,
+                    };
+
+                    if changed || synced_at.elapsed() >= DEPOSIT_SYNC_FALLBACK {
+                        sync().await?;
+                        synced_at = Instant::now();
                         let new_max_givable = max_giveable_fn().await?;
 
                         if new_max_givable > max_giveable {
                             break new_max_givable;
                         }
+                    }
 
-                        tokio::time::sleep(Duration::from_secs(1)).await;
-                    } else {
+                    if !get_running_swap(&env) {
                         bail!(SwapDisconnected)
                     }
                 };
@@ -176,6 +197,16 @@ pub fn on_swap_running(env: &JNIEnv, swap_id: String, multiaddr: Multiaddr) {
     }
 }
 
+pub fn on_swap_state_timing(env: &JNIEnv, swap_id: String, state: &str, elapsed: Duration) {
+    let listener = get_swap_listener(&env);
+    let swap_id_bytes = JObject::from(env.byte_array_from_slice(swap_id.as_bytes()).expect("Failed to get swap_id bytes"));
+    let state_bytes = JObject::from(env.byte_array_from_slice(state.as_bytes()).expect("Failed to get state bytes"));
+    let elapsed_millis = JValue::from(elapsed.as_millis().to_i64().unwrap_or(i64::MAX));
+    if let JValue::Object(listener) = listener {
+        let result = env.call_method(listener, "onSwapStateTiming", "([B[BJ)V", &[JValue::from(swap_id_bytes), JValue::from(state_bytes), elapsed_millis]);
+    }
+}
+
 pub fn on_generic_seller_quote_error(env: &JNIEnv, swap_id: String, error: String) {
     let listener = get_swap_listener(&env);
     let swap_id_bytes = JObject::from(env.byte_array_from_slice(swap_id.as_bytes()).expect("Failed to get swap_id bytes"));
@@ -279,24 +310,24 @@ pub fn print_swap_log_ln(env: &JNIEnv, message: String) {
 }
 
 pub fn get_swap_listener<'a>(env: &'a JNIEnv<'a>) -> JValue<'a> {
-    let controller = env
-        .find_class("swap/gui/controller/MainController")
+    let listeners = env
+        .find_class("swap/listener/Listeners")
         .expect("Failed to load the target class");
-    env.get_static_field(controller, "swapListener", "Lswap/listener/SwapListener;").unwrap()
+    env.get_static_field(listeners, "swapListener", "Lswap/listener/SwapListener;").unwrap()
 }
 
 pub fn get_asb_listener<'a>(env: &'a JNIEnv<'a>) -> JValue<'a> {
-    let controller = env
-        .find_class("swap/gui/controller/MainController")
+    let listeners = env
+        .find_class("swap/listener/Listeners")
         .expect("Failed to load the target class");
-    env.get_static_field(controller, "asbListener", "Lswap/listener/AsbListener;").unwrap()
+    env.get_static_field(listeners, "asbListener", "Lswap/listener/AsbListener;").unwrap()
 }
 
 pub fn get_rpc_download_listener<'a>(env: &'a JNIEnv<'a>) -> JValue<'a> {
-    let controller = env
-        .find_class("swap/gui/controller/PairingController")
+    let listeners = env
+        .find_class("swap/listener/Listeners")
         .expect("Failed to load the target class");
-    env.get_static_field(controller, "rpcDownloadListener", "Lswap/listener/RpcDownloadListener;").unwrap()
+    env.get_static_field(listeners, "rpcDownloadListener", "Lswap/listener/RpcDownloadListener;").unwrap()
 }
 
 pub fn get_string_value(env: &JNIEnv, java_string: jstring) -> Result<String> {
@@ -0,0 +1,200 @@
+pub mod harness;
+
+use harness::{SlowCancelConfig, TestContext};
+use std::time::{Duration, Instant};
+use swap::asb::FixedRate;
+use swap::protocol::alice::AliceState;
+use swap::protocol::bob::BobState;
+use swap::protocol::{alice, bob};
+
+// Not pass/fail tests, they drive one local ASB with several takers and report
+// throughput and what it cost the process (ASB and takers run in the same one):
+//
+// LOAD_TAKERS=8 LOAD_SWAPS_PER_TAKER=3 \
+//   cargo test --release --test asb_load -- --ignored --nocapture
+//
+// Everything runs against the regtest bitcoind/electrs and monerod containers
+// of the harness, so no network access is needed once the images are pulled.
+
+const DEFAULT_TAKERS: usize = 4;
+const DEFAULT_SWAPS_PER_TAKER: usize = 2;
+const DEFAULT_QUOTES_PER_TAKER: usize = 500;
+
+#[tokio::test]
+#[ignore]
+async fn asb_load_swaps() {
+    let takers = env_or("LOAD_TAKERS", DEFAULT_TAKERS);
+    let swaps_per_taker = env_or("LOAD_SWAPS_PER_TAKER", DEFAULT_SWAPS_PER_TAKER);
+
+    harness::setup_load_test(SlowCancelConfig, takers, swaps_per_taker, |mut ctx| async move {
+        let before = Usage::sample(&ctx);
+        let started = Instant::now();
+        let mut durations = Vec::new();
+
+        // one swap per taker at a time, all takers at once
+        for _ in 0..swaps_per_taker {
+            let mut bob_swaps = Vec::with_capacity(ctx.takers());
+            for taker in 0..ctx.takers() {
+                let (swap, application) = ctx.taker_swap(taker).await;
+                bob_swaps.push(tokio::spawn(async move {
+                    let started = Instant::now();
+                    let state = bob::run(swap).await;
+                    application.abort();
+                    anyhow::Ok((state?, started.elapsed()))
+                }));
+            }
+
+            let mut alice_swaps = Vec::with_capacity(ctx.takers());
+            for _ in 0..ctx.takers() {
+                let swap = ctx.alice_next_swap().await;
+                alice_swaps.push(tokio::spawn(alice::run(swap, FixedRate::default())));
+            }
+
+            for bob_swap in bob_swaps {
+                let (state, duration) = bob_swap.await??;
+                assert!(matches!(state, BobState::XmrRedeemed { .. }));
+                durations.push(duration);
+            }
+            for alice_swap in alice_swaps {
+                let state = alice_swap.await??;
+                assert!(matches!(state, AliceState::BtcRedeemed { .. }));
+            }
+        }
+
+        let elapsed = started.elapsed();
+        durations.sort();
+        println!(
+            "{} swaps from {} takers in {:?} ({:.1} swaps/hour), swap duration p50 {:?}, max {:?}",
+            durations.len(),
+            ctx.takers(),
+            elapsed,
+            durations.len() as f64 * 3600.0 / elapsed.as_secs_f64(),
+            percentile(&durations, 50.0),
+            durations.last().copied().unwrap_or_default(),
+        );
+        Usage::sample(&ctx).report(&before, elapsed);
+
+        Ok(())
+    })
+    .await;
+}
+
+#[tokio::test]
+#[ignore]
+async fn asb_load_quotes() {
+    let takers = env_or("LOAD_TAKERS", DEFAULT_TAKERS);
+    let quotes_per_taker = env_or("LOAD_QUOTES_PER_TAKER", DEFAULT_QUOTES_PER_TAKER);
+
+    harness::setup_test(SlowCancelConfig, |ctx| async move {
+        let mut handles = Vec::new();
+        for _ in 0..takers {
+            let (mut handle, application) = ctx.bob_quote_handle().await;
+            // first request dials Alice, not part of the measurement
+            handle.request_quote().await?;
+            handles.push((handle, application));
+        }
+
+        let before = Usage::sample(&ctx);
+        let started = Instant::now();
+        let mut storm = Vec::new();
+        for (mut handle, application) in handles {
+            storm.push(tokio::spawn(async move {
+                let mut latencies = Vec::with_capacity(quotes_per_taker);
+                for _ in 0..quotes_per_taker {
+                    let started = Instant::now();
+                    handle.request_quote().await?;
+                    latencies.push(started.elapsed());
+                }
+                application.abort();
+                anyhow::Ok(latencies)
+            }));
+        }
+
+        let mut latencies = Vec::new();
+        for taker in storm {
+            latencies.extend(taker.await??);
+        }
+        let elapsed = started.elapsed();
+        latencies.sort();
+
+        println!(
+            "{} quotes from {} takers in {:?} ({:.0}/s), p50 {:?}, p99 {:?}, max {:?}",
+            latencies.len(),
+            takers,
+            elapsed,
+            latencies.len() as f64 / elapsed.as_secs_f64(),
+            percentile(&latencies, 50.0),
+            percentile(&latencies, 99.0),
+            latencies.last().copied().unwrap_or_default(),
+        );
+        Usage::sample(&ctx).report(&before, elapsed);
+        assert_eq!(latencies.len(), takers * quotes_per_taker);
+
+        Ok(())
+    })
+    .await;
+}
+
+/// CPU time and memory of this process, size of Alice's database.
+struct Usage {
+    cpu: Duration,
+    rss_kb: u64,
+    db_bytes: u64,
+}
+
+impl Usage {
+    fn sample(ctx: &TestContext) -> Self {
+        // utime and stime (fields 14 and 15) in clock ticks, USER_HZ is 100 on Linux
+        let stat = std::fs::read_to_string("/proc/self/stat").unwrap_or_default();
+        let ticks: u64 = stat
+            .rsplit(')')
+            .next()
+            .unwrap_or_default()
+            .split_whitespace()
+            .skip(11)
+            .take(2)
+            .filter_map(|field| field.parse::<u64>().ok())
+            .sum();
+
+        let status = std::fs::read_to_string("/proc/self/status").unwrap_or_default();
+        let rss_kb = status
+            .lines()
+            .find_map(|line| line.strip_prefix("VmRSS:"))
+            .and_then(|value| value.trim().trim_end_matches("kB").trim().parse().ok())
+            .unwrap_or_default();
+
+        Self {
+            cpu: Duration::from_millis(ticks * 10),
+            rss_kb,
+            db_bytes: ctx.alice_db_size(),
+        }
+    }
+
+    fn report(&self, before: &Usage, elapsed: Duration) {
+        let cpu = self.cpu.saturating_sub(before.cpu);
+        println!(
+            "cpu {:?} ({:.0}% of one core), rss {} -> {} KiB, alice db {} -> {} bytes",
+            cpu,
+            cpu.as_secs_f64() * 100.0 / elapsed.as_secs_f64(),
+            before.rss_kb,
+            self.rss_kb,
+            before.db_bytes,
+            self.db_bytes,
+        );
+    }
+}
+
+fn env_or(name: &str, default: usize) -> usize {
+    std::env::var(name)
+        .ok()
+        .and_then(|value| value.parse().ok())
+        .unwrap_or(default)
+}
+
+fn percentile(sorted: &[Duration], percentile: f64) -> Duration {
+    if sorted.is_empty() {
+        return Duration::ZERO;
+    }
+    let index = ((percentile / 100.0) * sorted.len() as f64).ceil() as usize;
+    sorted[index.clamp(1, sorted.len()) - 1]
+}
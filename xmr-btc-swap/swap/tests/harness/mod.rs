@@ -37,11 +37,28 @@ use tracing_subscriber::util::SubscriberInitExt;
 use url::Url;
 use uuid::Uuid;
 
-pub async fn setup_test<T, F, C>(_config: C, testfn: T)
+pub async fn setup_test<T, F, C>(config: C, testfn: T)
 where
     T: Fn(TestContext) -> F,
     F: Future<Output = Result<()>>,
     C: GetConfig,
+{
+    setup_load_test(config, 0, 0, testfn).await
+}
+
+/// Like `setup_test`, but also funds `takers` Bobs with their own Bitcoin
+/// wallet and database, each able to run `swaps_per_taker` swaps, see
+/// `TestContext::taker_swap`. The takers share Bob's Monero wallet, Alice
+/// gets enough Monero outputs to serve all of them.
+pub async fn setup_load_test<T, F, C>(
+    _config: C,
+    takers: usize,
+    swaps_per_taker: usize,
+    testfn: T,
+) where
+    T: Fn(TestContext) -> F,
+    F: Future<Output = Result<()>>,
+    C: GetConfig,
 {
     let cli = Cli::default();
 
@@ -58,8 +75,9 @@ where
     let btc_amount = bitcoin::Amount::from_sat(1_000_000);
     let xmr_amount = monero::Amount::from_monero(btc_amount.to_btc() / FixedRate::RATE).unwrap();
 
+    let swaps = (takers * swaps_per_taker) as u64;
     let alice_starting_balances =
-        StartingBalances::new(bitcoin::Amount::ZERO, xmr_amount, Some(10));
+        StartingBalances::new(bitcoin::Amount::ZERO, xmr_amount, Some(10.max(swaps + 1)));
 
     let electrs_rpc_port = containers
         .electrs
@@ -100,7 +118,7 @@ where
 
     let (bob_bitcoin_wallet, bob_monero_wallet) = init_test_wallets(
         MONERO_WALLET_NAME_BOB,
-        containers.bitcoind_url,
+        containers.bitcoind_url.clone(),
         &monero,
         bob_starting_balances.clone(),
         tempdir().unwrap().path(),
@@ -120,6 +138,30 @@ where
         env_config,
     };
 
+    let mut taker_params = Vec::with_capacity(takers);
+    for _ in 0..takers {
+        let seed = Seed::random().unwrap();
+        let bitcoin_wallet = init_test_bitcoin_wallet(
+            containers.bitcoind_url.clone(),
+            btc_amount * (2 * swaps_per_taker as u64 + 1),
+            tempdir().unwrap().path(),
+            electrs_rpc_port,
+            &seed,
+            env_config,
+        )
+        .await;
+
+        taker_params.push(BobParams {
+            seed,
+            db_path: NamedTempFile::new().unwrap().path().to_path_buf(),
+            bitcoin_wallet,
+            monero_wallet: bob_monero_wallet.clone(),
+            alice_address: alice_listen_address.clone(),
+            alice_peer_id: alice_handle.peer_id,
+            env_config,
+        });
+    }
+
     monero.start_miner().await.unwrap();
 
     let test = TestContext {
@@ -138,6 +180,7 @@ where
         bob_starting_balances,
         bob_bitcoin_wallet,
         bob_monero_wallet,
+        taker_params,
     };
 
     testfn(test).await.unwrap()
@@ -303,6 +346,27 @@ async fn init_test_wallets(
     .await
     .unwrap();
 
+    let btc_wallet = init_test_bitcoin_wallet(
+        bitcoind_url,
+        starting_balances.btc,
+        datadir,
+        electrum_rpc_port,
+        seed,
+        env_config,
+    )
+    .await;
+
+    (btc_wallet, Arc::new(xmr_wallet))
+}
+
+async fn init_test_bitcoin_wallet(
+    bitcoind_url: Url,
+    starting_balance: bitcoin::Amount,
+    datadir: &Path,
+    electrum_rpc_port: u16,
+    seed: &Seed,
+    env_config: Config,
+) -> Arc<bitcoin::Wallet> {
     let electrum_rpc_url = {
         let input = format!("tcp://@localhost:{}", electrum_rpc_port);
         Url::parse(&input).unwrap()
@@ -320,11 +384,11 @@ async fn init_test_wallets(
     .await
     .expect("could not init btc wallet");
 
-    if starting_balances.btc != bitcoin::Amount::ZERO {
+    if starting_balance != bitcoin::Amount::ZERO {
         mint(
             bitcoind_url,
             btc_wallet.new_address().await.unwrap(),
-            starting_balances.btc,
+            starting_balance,
         )
         .await
         .expect("could not mint btc starting balance");
@@ -338,7 +402,7 @@ async fn init_test_wallets(
 
             let btc_balance = btc_wallet.balance().await.unwrap();
 
-            if btc_balance == starting_balances.btc {
+            if btc_balance == starting_balance {
                 break;
             } else if retries == max_retries {
                 panic!(
@@ -350,7 +414,7 @@ async fn init_test_wallets(
         }
     }
 
-    (Arc::new(btc_wallet), Arc::new(xmr_wallet))
+    Arc::new(btc_wallet)
 }
 
 const MONERO_WALLET_NAME_BOB: &str = "bob";
@@ -532,6 +596,8 @@ pub struct TestContext {
     bob_starting_balances: StartingBalances,
     bob_bitcoin_wallet: Arc<bitcoin::Wallet>,
     bob_monero_wallet: Arc<monero::Wallet>,
+
+    taker_params: Vec<BobParams>,
 }
 
 impl TestContext {
@@ -570,6 +636,50 @@ impl TestContext {
         (swap, BobApplicationHandle(join_handle))
     }
 
+    /// Number of takers funded by `setup_load_test`.
+    pub fn takers(&self) -> usize {
+        self.taker_params.len()
+    }
+
+    pub async fn taker_swap(&self, taker: usize) -> (bob::Swap, BobApplicationHandle) {
+        let (swap, event_loop) = self.taker_params[taker]
+            .new_swap(self.btc_amount)
+            .await
+            .unwrap();
+
+        swap.bitcoin_wallet.sync().await.unwrap();
+
+        let join_handle = tokio::spawn(event_loop.run());
+
+        (swap, BobApplicationHandle(join_handle))
+    }
+
+    /// Size of Alice's database on disk, including the WAL.
+    pub fn alice_db_size(&self) -> u64 {
+        ["", "-wal", "-shm"]
+            .iter()
+            .filter_map(|suffix| {
+                let mut path = self.alice_db_path.clone().into_os_string();
+                path.push(suffix);
+                std::fs::metadata(path).ok()
+            })
+            .map(|metadata| metadata.len())
+            .sum()
+    }
+
+    /// A Bob event loop that is only used to request quotes from Alice.
+    pub async fn bob_quote_handle(&self) -> (cli::EventLoopHandle, BobApplicationHandle) {
+        let (event_loop, handle) = self
+            .bob_params
+            .new_eventloop(Uuid::new_v4())
+            .await
+            .unwrap();
+
+        let join_handle = tokio::spawn(event_loop.run());
+
+        (handle, BobApplicationHandle(join_handle))
+    }
+
     pub async fn stop_and_resume_bob_from_db(
         &mut self,
         join_handle: BobApplicationHandle,